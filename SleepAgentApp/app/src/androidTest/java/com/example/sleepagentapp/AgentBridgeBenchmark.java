@@ -0,0 +1,106 @@
+package com.example.sleepagentapp;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.chaquo.python.PyObject;
+import com.chaquo.python.Python;
+import com.chaquo.python.android.AndroidPlatform;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the old dict + __setitem__/get bridge with the packed array bridge.
+ * Both run launcher.calculate_risks (no network) so only the marshalling differs.
+ * The bridge crossings each path makes per call are logged next to its time.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AgentBridgeBenchmark {
+
+    private static final String TAG = "AgentBridgeBenchmark";
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 2000;
+    // 1 dict() + 5 __setitem__ + 1 call + 4 get + 4 toDouble
+    private static final int DICT_CROSSINGS = 15;
+    // 1 call (the array and the query go in as arguments) + 1 array read in Python + 1 toJava
+    private static final int PACKED_CROSSINGS = 3;
+
+    private PyObject launcher;
+    private PyObject builtins;
+
+    @Before
+    public void setUp() {
+        Context appContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        if (!Python.isStarted()) {
+            Python.start(new AndroidPlatform(appContext));
+        }
+        launcher = Python.getInstance().getModule("launcher");
+        builtins = Python.getInstance().getModule("builtins");
+    }
+
+    @Test
+    public void packedBridgeMatchesDictBridge() {
+        double[] dictResult = dictBridge(420, 1.5, 0.4, 0.7);
+        double[] packedResult = packedBridge(new double[RiskBundle.PACKED_SIZE], 420, 1.5, 0.4, 0.7);
+        assertArrayEquals(dictResult, packedResult, 1e-9);
+    }
+
+    @Test
+    public void packedBridgeIsFaster() {
+        double[] buffer = new double[RiskBundle.PACKED_SIZE];
+        for (int i = 0; i < WARMUP; i++) {
+            dictBridge(i, 1.0, 0.5, 0.5);
+            packedBridge(buffer, i, 1.0, 0.5, 0.5);
+        }
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) dictBridge(i, 1.0, 0.5, 0.5);
+        long dictNs = (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) packedBridge(buffer, i, 1.0, 0.5, 0.5);
+        long packedNs = (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS;
+
+        Log.i(TAG, "dict bridge: " + dictNs + " ns/call (" + DICT_CROSSINGS + " crossings), packed bridge: "
+                + packedNs + " ns/call (" + PACKED_CROSSINGS + " crossings)");
+        assertTrue("packed bridge should not be slower", packedNs <= dictNs);
+    }
+
+    // Old path: DICT_CROSSINGS
+    private double[] dictBridge(double caffeine, double debt, double noise, double light) {
+        PyObject bundle = builtins.callAttr("dict");
+        bundle.callAttr("__setitem__", "remaining_caffeine_mg", caffeine);
+        bundle.callAttr("__setitem__", "sleep_debt_hours", debt);
+        bundle.callAttr("__setitem__", "noise_disruption_risk", noise);
+        bundle.callAttr("__setitem__", "melatonin_suppression_risk", light);
+        bundle.callAttr("__setitem__", "user_query", "bench");
+
+        PyObject result = launcher.callAttr("calculate_risks", bundle);
+        return new double[] {
+                result.callAttr("get", "remaining_caffeine_mg").toDouble(),
+                result.callAttr("get", "sleep_debt_hours").toDouble(),
+                result.callAttr("get", "noise_disruption_risk").toDouble(),
+                result.callAttr("get", "melatonin_suppression_risk").toDouble()
+        };
+    }
+
+    // New path: PACKED_CROSSINGS. The result comes back as little-endian doubles in one byte[]
+    private double[] packedBridge(double[] buffer, double caffeine, double debt, double noise, double light) {
+        RiskBundle bundle = new RiskBundle().set(caffeine, debt, noise, light, "bench");
+        PyObject result = launcher.callAttr("calculate_risks_packed", bundle.pack(buffer), bundle.userQuery);
+        double[] risks = new double[RiskBundle.PACKED_SIZE];
+        ByteBuffer.wrap(result.toJava(byte[].class)).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(risks);
+        return risks;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.sleepagentapp;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Does what one BlobSurfaceView frame does on its render thread (drain the envelope ring, step the
+ * physics, build the outline path, fill it) into an offscreen bitmap with a noisy amplitude feed,
+ * and reports frame time and how many GCs ran. The steady state should not trigger any.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BlobFrameBenchmark {
+
+    private static final String TAG = "BlobFrameBenchmark";
+    private static final int SIZE = 1080;
+    private static final int WARMUP = 500;
+    private static final int FRAMES = 5000;
+    // A bit more than one 60 Hz frame's worth of envelope samples
+    private static final int SAMPLES_PER_FRAME = 4;
+
+    @Test
+    public void steadyStateFramesDoNotGc() {
+        BlobPhysics physics = new BlobPhysics();
+        Paint paint = BlobSurfaceView.blobPaint();
+        Path path = new Path();
+        float[] xPoints = new float[BlobPhysics.POINT_COUNT];
+        float[] yPoints = new float[BlobPhysics.POINT_COUNT];
+        float[] drained = new float[32];
+        FloatRingBuffer envelope = new FloatRingBuffer(256);
+        Canvas canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+
+        float[] amplitudes = new float[1024];
+        Random random = new Random(42);
+        for (int i = 0; i < amplitudes.length; i++) amplitudes[i] = random.nextFloat();
+
+        int sample = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            for (int s = 0; s < SAMPLES_PER_FRAME; s++) envelope.offer(amplitudes[sample++ % amplitudes.length]);
+            frame(physics, envelope, drained, i * 16L, xPoints, yPoints, path, canvas, paint);
+        }
+
+        long gcBefore = gcCount();
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < FRAMES; i++) {
+            for (int s = 0; s < SAMPLES_PER_FRAME; s++) envelope.offer(amplitudes[sample++ % amplitudes.length]);
+            frame(physics, envelope, drained, (WARMUP + i) * 16L, xPoints, yPoints, path, canvas, paint);
+        }
+        long average = (SystemClock.elapsedRealtimeNanos() - start) / FRAMES;
+        long gcs = gcCount() - gcBefore;
+
+        Log.i(TAG, "avg frame " + average / 1000 + " us over " + FRAMES + " frames, GCs: " + gcs
+                + ", hill pool recycles: " + physics.getPoolRecycles());
+        assertEquals("steady-state frames should not allocate", 0, gcs);
+    }
+
+    // BlobSurfaceView.doFrame() + render(), minus the surface
+    private static void frame(BlobPhysics physics, FloatRingBuffer envelope, float[] drained, long animTimeMs,
+                              float[] xPoints, float[] yPoints, Path path, Canvas canvas, Paint paint) {
+        int n;
+        while ((n = envelope.drain(drained)) > 0) {
+            for (int i = 0; i < n; i++) physics.updateAmplitude(drained[i]);
+        }
+        physics.step();
+
+        float center = SIZE / 2f;
+        physics.computeOutline(animTimeMs, center, center, center * 0.45f, xPoints, yPoints);
+        BlobSurfaceView.outlinePath(xPoints, yPoints, path);
+        canvas.drawColor(Color.WHITE);
+        canvas.drawPath(path, paint);
+    }
+
+    private static long gcCount() {
+        String count = Debug.getRuntimeStat("art.gc.gc-count");
+        return count == null ? 0 : Long.parseLong(count);
+    }
+}
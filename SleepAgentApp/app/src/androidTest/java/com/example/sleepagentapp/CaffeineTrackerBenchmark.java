@@ -0,0 +1,73 @@
+package com.example.sleepagentapp;
+
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * "How much caffeine is active now" for 10..100k logged intakes: the old full scan
+ * (CaffeineMath.calculateActiveCaffeine, a Math.pow per entry per read) against
+ * CaffeineTracker, whose reads don't grow with the history and don't allocate.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CaffeineTrackerBenchmark {
+
+    private static final String TAG = "CaffeineTrackerBench";
+    private static final int[] SIZES = {10, 1_000, 10_000, 100_000};
+    private static final long MINUTE = 60 * 1000L;
+    private static final long T0 = 1_700_000_000_000L;
+    private static final int READS = 2000;
+
+    @Test
+    public void trackerReadsStayFlatAsHistoryGrows() {
+        Random random = new Random(42);
+        float[] doses = {400f, 10f, 250f, 5f, 95f, 30f};
+
+        for (int size : SIZES) {
+            List<CaffeineEntry> history = new ArrayList<>(size);
+            CaffeineTracker tracker = new CaffeineTracker();
+            long t = T0;
+            for (int i = 0; i < size; i++) {
+                t += (30 + random.nextInt(180)) * MINUTE;
+                float mg = doses[random.nextInt(doses.length)];
+                history.add(new CaffeineEntry(mg, t));
+                tracker.addIntake(mg, t);
+            }
+
+            // The full scan is slow at 100k, so fewer reads there
+            int scanReads = Math.max(10, Math.min(READS, 10_000_000 / size));
+            float sink = 0;
+            long scanStart = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < scanReads; i++) sink += CaffeineMath.calculateActiveCaffeine(history, t + i * MINUTE);
+            long scanNs = (SystemClock.elapsedRealtimeNanos() - scanStart) / scanReads;
+
+            for (int i = 0; i < READS; i++) sink += tracker.getActiveCaffeine(t + i * MINUTE); // warm-up + compaction
+            long gcBefore = gcCount();
+            long trackerStart = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < READS; i++) sink += tracker.getActiveCaffeine(t + (READS + i) * MINUTE);
+            long trackerNs = (SystemClock.elapsedRealtimeNanos() - trackerStart) / READS;
+            long gcs = gcCount() - gcBefore;
+
+            Log.i(TAG, size + " intakes: full scan " + scanNs + " ns/read, tracker " + trackerNs + " ns/read ("
+                    + tracker.size() + " still buffered), GCs " + gcs + " (sink " + sink + ")");
+            assertEquals("tracker reads should not allocate", 0, gcs);
+            if (size >= 1_000) assertTrue("tracker " + trackerNs + " ns vs scan " + scanNs + " ns", trackerNs < scanNs);
+        }
+    }
+
+    private static long gcCount() {
+        String count = Debug.getRuntimeStat("art.gc.gc-count");
+        return count == null ? 0 : Long.parseLong(count);
+    }
+}
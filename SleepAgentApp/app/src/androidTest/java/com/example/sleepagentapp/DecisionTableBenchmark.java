@@ -0,0 +1,54 @@
+package com.example.sleepagentapp;
+
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Cost of one DecisionTable.evaluate() over the app's rules: millions per second, and
+ * no GC while they run (nothing is allocated per evaluation).
+ */
+@RunWith(AndroidJUnit4.class)
+public class DecisionTableBenchmark {
+
+    private static final String TAG = "DecisionTableBenchmark";
+    private static final int WARMUP = 500_000;
+    private static final int ITERATIONS = 5_000_000;
+
+    @Test
+    public void evaluateIsFastAndAllocationFree() {
+        DecisionTable table = DecisionTable.get();
+        int[] hits = new int[table.actionCount()];
+
+        for (int i = 0; i < WARMUP; i++) hits[evaluate(table, i)]++;
+
+        long gcBefore = gcCount();
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) hits[evaluate(table, i)]++;
+        long took = SystemClock.elapsedRealtimeNanos() - start;
+        long gcs = gcCount() - gcBefore;
+
+        double perSecond = ITERATIONS * 1e9 / took;
+        Log.i(TAG, String.format("%,.0f evaluations/s (%.1f ns each), GCs: %d", perSecond, (double) took / ITERATIONS, gcs));
+        for (int h : hits) assertTrue(h > 0); // every rule (and the default) got exercised
+        assertTrue("only " + (long) perSecond + " evaluations/s", perSecond > 1_000_000);
+        assertEquals("evaluate() should not allocate", 0, gcs);
+    }
+
+    // Spread over all the rules: caffeine 0-699 mg, debt 0-3 h, light 0-3
+    private static int evaluate(DecisionTable table, int i) {
+        return table.evaluate(i % 700, (i % 5) * 0.75, 0.5, (i % 31) * 0.1);
+    }
+
+    private static long gcCount() {
+        String count = Debug.getRuntimeStat("art.gc.gc-count");
+        return count == null ? 0 : Long.parseLong(count);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.sleepagentapp;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Cost of one analysis frame (window + FFT + octave-band accumulation) for 256..4096 points,
+ * and what that adds up to per second of mic audio at 44.1 kHz.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FftBenchmark {
+
+    private static final String TAG = "FftBenchmark";
+    private static final int[] SIZES = {256, 512, 1024, 2048, 4096};
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 2000;
+
+    @Test
+    public void frameCostPerSize() {
+        short[] pcm = new short[4096];
+        Random random = new Random(42);
+        for (int i = 0; i < pcm.length; i++) pcm[i] = (short) (random.nextGaussian() * 3000);
+
+        for (int size : SIZES) {
+            Fft fft = new Fft(size);
+            SpectrumClassifier classifier = new SpectrumClassifier(MicAnalyzer.SAMPLE_RATE, size, 1);
+            float[] power = new float[fft.getBinCount()];
+
+            for (int i = 0; i < WARMUP; i++) {
+                fft.powerSpectrum(pcm, 0, power);
+                classifier.accumulate(power);
+            }
+
+            long start = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < ITERATIONS; i++) {
+                fft.powerSpectrum(pcm, 0, power);
+                classifier.accumulate(power);
+            }
+            long perFrameNs = (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS;
+            classifier.closeInterval();
+
+            // Back-to-back frames: SAMPLE_RATE / size of them per second of audio
+            double cpuPercent = perFrameNs * (MicAnalyzer.SAMPLE_RATE / (double) size) / 1e7;
+            Log.i(TAG, "size " + size + ": " + perFrameNs + " ns/frame, "
+                    + String.format("%.3f", cpuPercent) + "% of one core");
+
+            // Anything near 1% of a core for all-night analysis would be a regression
+            assertTrue("size " + size + " costs " + cpuPercent + "% CPU", cpuPercent < 1.0);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.sleepagentapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Start latency (request -> first buffer in the track) for a cold asset (decode included),
+ * the same asset from the PCM cache, and a generated colour; plus decoded bytes per sound.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NoiseEngineBenchmark {
+
+    private static final String TAG = "NoiseEngineBenchmark";
+    private static final int[] SOUNDS = {R.raw.ocean, R.raw.rain, R.raw.stream, R.raw.waterfall};
+
+    private NoiseEngine engine;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        engine = new NoiseEngine(context);
+        engine.setGain(0f); // keep the device quiet while measuring
+    }
+
+    @After
+    public void tearDown() {
+        engine.release();
+    }
+
+    // The listener is posted to the main looper; this runs on the instrumentation thread
+    private long playAndWait(PlayCall play) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        long[] latency = {-1};
+        play.start(latencyMs -> {
+            latency[0] = latencyMs;
+            started.countDown();
+        });
+        assertTrue("never started", started.await(10, TimeUnit.SECONDS));
+        return latency[0];
+    }
+
+    private interface PlayCall {
+        void start(NoiseEngine.StartListener listener);
+    }
+
+    @Test
+    public void startLatencyAndMemoryPerSound() throws InterruptedException {
+        for (int resId : SOUNDS) {
+            long cold = playAndWait(listener -> engine.play(resId, listener));
+            long decodeMs = engine.getLastDecodeMs();
+            long warm = playAndWait(listener -> engine.play(resId, listener));
+            long bytes = engine.getCachedBytes(resId);
+
+            Log.i(TAG, "res " + resId + ": cold " + cold + " ms (decode " + decodeMs + " ms), warm "
+                    + warm + " ms, " + bytes / 1024 + " KB PCM");
+            assertTrue(bytes > 0);
+            assertTrue("cached start should not decode again", warm <= cold);
+        }
+
+        long generated = playAndWait(listener -> engine.playGenerated(NoiseGenerator.Color.PINK, listener));
+        Log.i(TAG, "pink noise: " + generated + " ms, 0 KB PCM; total cache "
+                + engine.getCachedBytes() / 1024 + " KB, crossfades " + engine.getCrossfades());
+        assertTrue(engine.getCachedBytes() <= NoiseEngine.CACHE_LIMIT_BYTES);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.sleepagentapp;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Load and save latency of the schedule journal on real flash: replaying thousands of tasks
+ * (what ScheduleStore does at startup, off the main thread), single-edit commits vs batched
+ * ones, and compacting a churned journal.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ScheduleJournalBenchmark {
+
+    private static final String TAG = "ScheduleJournalBench";
+    private static final int TASKS = 5000;
+    private static final int COMMITS = 50;
+    private static final int BATCH = 50;
+
+    private File journalFile() {
+        File file = new File(InstrumentationRegistry.getInstrumentation().getTargetContext().getCacheDir(), "bench.journal");
+        file.delete();
+        return file;
+    }
+
+    @Test
+    public void thousandsOfTasks_loadWellUnderAFrame() throws IOException {
+        File file = journalFile();
+        try (ScheduleJournal journal = ScheduleJournal.open(file)) {
+            for (int i = 0; i < TASKS; i++) journal.add(new Task(i + 1, "Task number " + i, (i * 7) % Schedule.MINUTES_PER_DAY));
+            journal.setOffsetMinutes(30);
+            journal.commit();
+        }
+
+        long worst = 0, total = 0;
+        for (int run = 0; run < 10; run++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            Schedule schedule;
+            try (ScheduleJournal journal = ScheduleJournal.open(file)) {
+                schedule = journal.toSchedule();
+            }
+            long took = SystemClock.elapsedRealtimeNanos() - start;
+            assertEquals(TASKS, schedule.size());
+            if (run == 0) continue; // cold page cache / class loading
+            worst = Math.max(worst, took);
+            total += took;
+        }
+
+        Log.i(TAG, TASKS + " tasks (" + file.length() / 1024 + " KB): load avg " + total / 9 / 1000 + " us, worst " + worst / 1000 + " us");
+        // Off the main thread anyway, but the tab should fill in without a visible wait
+        assertTrue("load took " + worst / 1000 + " us", worst < 100_000_000L);
+    }
+
+    @Test
+    public void batchedCommits_costAboutOneSync() throws IOException {
+        try (ScheduleJournal journal = ScheduleJournal.open(journalFile())) {
+            long id = 1;
+
+            long singleStart = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < COMMITS; i++) {
+                journal.add(new Task(id++, "single " + i, i));
+                journal.commit();
+            }
+            long single = (SystemClock.elapsedRealtimeNanos() - singleStart) / COMMITS;
+
+            long batchStart = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < COMMITS; i++) {
+                for (int j = 0; j < BATCH; j++) journal.add(new Task(id++, "batched " + j, j));
+                journal.commit();
+            }
+            long batched = (SystemClock.elapsedRealtimeNanos() - batchStart) / COMMITS;
+
+            Log.i(TAG, "commit of 1 edit: " + single / 1000 + " us, of " + BATCH + " edits: " + batched / 1000
+                    + " us (" + batched / BATCH / 1000 + " us per edit)");
+            // The fsync dominates: 50x the edits must cost far less than 50x the time
+            assertTrue(batched < single * BATCH / 5);
+
+            // Churn it down to a few live tasks, then time the snapshot
+            for (long t = 1; t < id; t++) {
+                if (t % 50 != 0) journal.remove(new Task(t, "", 0));
+            }
+            journal.commit();
+            assertTrue(journal.shouldCompact());
+            long before = journal.getSizeBytes();
+            long compactStart = SystemClock.elapsedRealtimeNanos();
+            journal.compact();
+            long compact = SystemClock.elapsedRealtimeNanos() - compactStart;
+            Log.i(TAG, "compact " + before / 1024 + " KB -> " + journal.getSizeBytes() / 1024 + " KB in " + compact / 1000 + " us");
+        }
+    }
+}
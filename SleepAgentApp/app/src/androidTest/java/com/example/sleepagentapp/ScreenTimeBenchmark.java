@@ -0,0 +1,116 @@
+package com.example.sleepagentapp;
+
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageStats;
+import android.app.usage.UsageStatsManager;
+import android.content.Context;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * What opening the Data tab used to cost (a full INTERVAL_DAILY queryUsageStats scan summed
+ * over every package) against what a ScreenTimeStore refresh costs once it has a checkpoint:
+ * queryEvents over the last few minutes, folded into the aggregator.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ScreenTimeBenchmark {
+
+    private static final String TAG = "ScreenTimeBenchmark";
+    private static final int RUNS = 20;
+    private static final long SINCE_LAST_REFRESH_MS = 5 * 60 * 1000L;
+
+    private Context context;
+    private UsageStatsManager usageStats;
+
+    @Before
+    public void grantUsageAccess() throws IOException {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        ParcelFileDescriptor pfd = InstrumentationRegistry.getInstrumentation().getUiAutomation()
+                .executeShellCommand("appops set " + context.getPackageName() + " GET_USAGE_STATS allow");
+        pfd.close();
+        usageStats = (UsageStatsManager) context.getSystemService(Context.USAGE_STATS_SERVICE);
+    }
+
+    @Test
+    public void incrementalRefresh_beatsTheDailyScan() {
+        assertTrue(ScreenTimeStore.hasPermission(context));
+
+        long full = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            fullScanHours();
+            if (run > 0) full += SystemClock.elapsedRealtimeNanos() - start; // first one warms the service
+        }
+        full /= RUNS - 1;
+
+        // The first refresh reads the whole span once; that's the load, not a tab open
+        long now = System.currentTimeMillis();
+        UsageAggregator aggregator = new UsageAggregator(now - UsageAggregator.SPAN_MS);
+        long firstStart = SystemClock.elapsedRealtimeNanos();
+        long firstEvents = fold(aggregator, now);
+        long first = SystemClock.elapsedRealtimeNanos() - firstStart;
+
+        long incremental = 0, events = 0;
+        for (int run = 0; run < RUNS; run++) {
+            // Same amount of new history every time: wind the checkpoint back a few minutes
+            long to = System.currentTimeMillis();
+            aggregator.restart(to - SINCE_LAST_REFRESH_MS);
+            long start = SystemClock.elapsedRealtimeNanos();
+            events += fold(aggregator, to);
+            aggregator.totals(TimeZone.getDefault());
+            incremental += SystemClock.elapsedRealtimeNanos() - start;
+        }
+        incremental /= RUNS;
+
+        Log.i(TAG, "daily queryUsageStats scan: " + full / 1000 + " us; first refresh over "
+                + UsageAggregator.SPAN_MS / 3_600_000L + " h: " + first / 1000 + " us (" + firstEvents + " events); "
+                + "incremental refresh: " + incremental / 1000 + " us (" + events / RUNS + " events)");
+        assertTrue("incremental " + incremental / 1000 + " us vs scan " + full / 1000 + " us", incremental < full);
+    }
+
+    // The old DataFragment.calculateScreenTime()
+    private float fullScanHours() {
+        Calendar calendar = Calendar.getInstance();
+        long endTime = calendar.getTimeInMillis();
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        List<UsageStats> stats = usageStats.queryUsageStats(UsageStatsManager.INTERVAL_DAILY, calendar.getTimeInMillis(), endTime);
+        long total = 0;
+        if (stats != null) {
+            for (UsageStats usage : stats) total += usage.getTotalTimeInForeground();
+        }
+        return total / 1000f / 3600f;
+    }
+
+    // Same folding as ScreenTimeStore.update(), minus the checkpoint file
+    @SuppressWarnings("deprecation")
+    private long fold(UsageAggregator aggregator, long now) {
+        UsageEvents events = usageStats.queryEvents(aggregator.getCheckpoint(), now);
+        UsageEvents.Event event = new UsageEvents.Event();
+        long read = 0;
+        while (events != null && events.getNextEvent(event)) {
+            read++;
+            if (event.getEventType() == UsageEvents.Event.MOVE_TO_FOREGROUND) {
+                aggregator.onForeground(event.getClassName(), event.getTimeStamp());
+            } else if (event.getEventType() == UsageEvents.Event.MOVE_TO_BACKGROUND) {
+                aggregator.onBackground(event.getClassName(), event.getTimeStamp());
+            }
+        }
+        aggregator.advanceTo(now);
+        return read;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.sleepagentapp;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.Debug;
+import android.util.Log;
+import android.view.View;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Draws SeriesChartView over a month of 1 Hz nights (plus a caffeine curve) at zoom levels from
+ * the whole month down to 10 minutes, panning between frames. Frames should stay well inside
+ * the 16 ms budget at every zoom and not GC.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SeriesChartBenchmark {
+
+    private static final String TAG = "SeriesChartBenchmark";
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 800;
+    private static final long SECOND = 1000;
+    private static final long DAY = 24 * 3600 * SECOND;
+    private static final long[] SPANS = {30 * DAY, 7 * DAY, DAY, 3600 * SECOND, 600 * SECOND};
+    private static final int FRAMES_PER_SPAN = 300;
+
+    @Test
+    public void monthOfHistoryPansAt60fps() {
+        long start = 1_790_000_000_000L;
+        SeriesPyramid noise = new SeriesPyramid(SessionHistory.NOISE_LEAF_MS);
+        for (int night = 0; night < 30; night++) {
+            for (long s = 0; s < 8 * 3600; s++) {
+                noise.append(start + night * DAY + s * SECOND, 35f + (float) (10 * Math.sin(s / 300.0)));
+            }
+        }
+        long end = start + 30 * DAY;
+        long[] intakes = new long[30];
+        float[] mgs = new float[30];
+        for (int i = 0; i < 30; i++) {
+            intakes[i] = start + i * DAY - 10 * 3600 * SECOND;
+            mgs[i] = 150f;
+        }
+        SeriesPyramid caffeine = SessionHistory.caffeineCurve(intakes, mgs, 30, start, end);
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            SeriesChartView view = new SeriesChartView(InstrumentationRegistry.getInstrumentation().getTargetContext(), null);
+            view.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+            view.layout(0, 0, WIDTH, HEIGHT);
+            view.setSeries(0, noise, Color.RED, 20f, 100f);
+            view.setSeries(1, caffeine, Color.BLACK, 0f, 400f);
+            Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+
+            for (long span : SPANS) {
+                view.setDataRange(start, end, span);
+                for (int i = 0; i < 50; i++) view.draw(canvas); // warm up
+
+                long gcBefore = gcCount();
+                long worst = 0, total = 0;
+                for (int i = 0; i < FRAMES_PER_SPAN; i++) {
+                    // Pan back across the data a few pixels per frame
+                    view.setDataRange(start, end - (long) i * span / 200, span);
+                    view.draw(canvas);
+                    worst = Math.max(worst, view.getLastFrameNanos());
+                    total += view.getLastFrameNanos();
+                }
+                long gcs = gcCount() - gcBefore;
+
+                Log.i(TAG, "span " + span / 60000 + " min: avg " + total / FRAMES_PER_SPAN / 1000 + " us, worst "
+                        + worst / 1000 + " us, " + view.getLastFrameQueries() + " queries/frame, GCs " + gcs);
+                assertTrue("frame over budget at span " + span, total / FRAMES_PER_SPAN < 8_000_000L);
+                assertEquals(0, gcs);
+            }
+        });
+    }
+
+    private static long gcCount() {
+        String count = Debug.getRuntimeStat("art.gc.gc-count");
+        return count == null ? 0 : Long.parseLong(count);
+    }
+}
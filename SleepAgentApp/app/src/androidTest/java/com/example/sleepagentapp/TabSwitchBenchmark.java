@@ -0,0 +1,111 @@
+package com.example.sleepagentapp;
+
+import android.app.Instrumentation;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+
+import androidx.fragment.app.Fragment;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.material.bottomnavigation.BottomNavigationView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Click-to-frame latency of bottom-nav tab switches, the old way (replace() a new fragment
+ * every time) against retained tabs (create once, then show / hide). Retained switches after
+ * the first visit should be several times faster and create nothing.
+ *
+ * MainActivity only knows the retained way now, so the baseline does what the old showTab()
+ * did straight from the test, in an activity of its own, timed to the same frame.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TabSwitchBenchmark {
+
+    private static final String TAG = "TabSwitchBenchmark";
+    private static final int[] TABS = {R.id.nav_data, R.id.nav_schedule, R.id.nav_profile, R.id.nav_agent};
+    private static final int ROUNDS = 10;
+
+    @Test
+    public void retainedTabsSwitchFasterThanReplace() {
+        long replace;
+        try (ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class)) {
+            replace = replaceSwitchNanos(scenario);
+        }
+        long retain;
+        try (ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class)) {
+            retain = retainedSwitchNanos(scenario);
+        }
+        assertTrue("retained " + retain / 1000 + " us vs replace " + replace / 1000 + " us", retain < replace);
+    }
+
+    // The old showTab(): a new fragment and a replace() on every click
+    private static long replaceSwitchNanos(ActivityScenario<MainActivity> scenario) {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        long[] total = {0};
+        int switches = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int tab : TABS) {
+                scenario.onActivity(activity -> {
+                    long start = SystemClock.elapsedRealtimeNanos();
+                    activity.getSupportFragmentManager().beginTransaction()
+                            .setReorderingAllowed(true)
+                            .replace(R.id.fragment_container, newTab(tab))
+                            .commitNow();
+                    Choreographer.getInstance().postFrameCallback(frameTimeNanos ->
+                            activity.getWindow().getDecorView().post(() ->
+                                    total[0] += SystemClock.elapsedRealtimeNanos() - start));
+                });
+                instrumentation.waitForIdleSync(); // the frame, and the runnable after it that stamps it
+                switches++;
+            }
+        }
+
+        long average = total[0] / switches;
+        Log.i(TAG, "replace: avg switch " + average / 1000 + " us over " + switches + " switches");
+        return average;
+    }
+
+    private static long retainedSwitchNanos(ActivityScenario<MainActivity> scenario) {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        long[] total = {0};
+        int[] createdBefore = new int[1];
+        int switches = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int tab : TABS) {
+                scenario.onActivity(activity ->
+                        ((BottomNavigationView) activity.findViewById(R.id.bottom_navigation)).setSelectedItemId(tab));
+                instrumentation.waitForIdleSync();
+
+                // First round creates the tabs: keep it out of the average
+                if (round == 0) continue;
+                scenario.onActivity(activity -> total[0] += activity.getLastSwitchNanos());
+                switches++;
+            }
+            if (round == 0) scenario.onActivity(activity -> createdBefore[0] = activity.getTabsCreated());
+        }
+
+        int[] created = new int[1];
+        scenario.onActivity(activity -> created[0] = activity.getTabsCreated() - createdBefore[0]);
+        long average = total[0] / switches;
+        Log.i(TAG, "retain: avg switch " + average / 1000 + " us over " + switches + " switches, "
+                + created[0] + " fragments created after the first round");
+        assertEquals(0, created[0]);
+        return average;
+    }
+
+    private static Fragment newTab(int itemId) {
+        if (itemId == R.id.nav_data) return new DataFragment();
+        if (itemId == R.id.nav_schedule) return new ScheduleFragment();
+        if (itemId == R.id.nav_profile) return new ProfileFragment();
+        return new AgentFragment();
+    }
+}
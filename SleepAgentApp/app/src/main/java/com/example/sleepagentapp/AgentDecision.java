@@ -0,0 +1,85 @@
+package com.example.sleepagentapp;
+
+/**
+ * The agent's answer. Comes back from Python as one String, the fields joined by FIELD_SEPARATOR
+ * (slot order must match PACKED_DECISION_FIELDS in launcher.py), so the reply is a single bridge
+ * crossing rather than one per field.
+ */
+public class AgentDecision {
+    public static final int SLOT_ACTION = 0;
+    public static final int SLOT_URGENCY = 1;
+    public static final int SLOT_VALUE = 2;
+    public static final int SLOT_NOTIFICATION = 3;
+    public static final int SLOT_CONFIDENCE = 4;
+    public static final int SLOT_REASONING = 5;
+    public static final int SLOT_SOURCE = 6;
+    public static final int PACKED_SIZE = 7;
+
+    // Same as FIELD_SEPARATOR / NULL_FIELD in launcher.py
+    static final char FIELD_SEPARATOR = '\u001f';
+    static final String NULL_FIELD = "\u0000";
+
+    public static final String SOURCE_LLM = "LLM";
+
+    public final String action;
+    public final String urgency;
+    public final String value; // null when the action has no value
+    public final String notificationMessage;
+    public final float confidence;
+    public final String reasoningSummary;
+    public final String source; // "LLM", "RULE_FALLBACK", ...
+
+    public AgentDecision(String action, String urgency, String value, String notificationMessage,
+                         float confidence, String reasoningSummary, String source) {
+        this.action = action;
+        this.urgency = urgency;
+        this.value = value;
+        this.notificationMessage = notificationMessage;
+        this.confidence = confidence;
+        this.reasoningSummary = reasoningSummary;
+        this.source = source;
+    }
+
+    /** launcher.pack_decision's string -> one field per slot (null where Python had None). */
+    public static String[] splitPacked(String packed) {
+        if (packed == null) return null;
+        String[] fields = new String[PACKED_SIZE];
+        int start = 0;
+        for (int slot = 0; slot < PACKED_SIZE; slot++) {
+            int end = packed.indexOf(FIELD_SEPARATOR, start);
+            if (end < 0) {
+                if (slot != PACKED_SIZE - 1) return null; // too few fields
+                end = packed.length();
+            }
+            String field = packed.substring(start, end);
+            fields[slot] = NULL_FIELD.equals(field) ? null : field;
+            start = end + 1;
+        }
+        return fields;
+    }
+
+    public static AgentDecision fromPacked(String[] packed) {
+        if (packed == null || packed.length < PACKED_SIZE) return null;
+        return new AgentDecision(
+                packed[SLOT_ACTION] != null ? packed[SLOT_ACTION] : "Analyzing...",
+                packed[SLOT_URGENCY],
+                packed[SLOT_VALUE],
+                packed[SLOT_NOTIFICATION],
+                parseConfidence(packed[SLOT_CONFIDENCE]),
+                packed[SLOT_REASONING] != null ? packed[SLOT_REASONING] : "",
+                packed[SLOT_SOURCE]);
+    }
+
+    private static float parseConfidence(String raw) {
+        if (raw == null) return 0f;
+        try {
+            return Float.parseFloat(raw);
+        } catch (NumberFormatException e) {
+            return 0f;
+        }
+    }
+
+    public String toChatText() {
+        return "Action: " + action + "\n\n" + reasoningSummary;
+    }
+}
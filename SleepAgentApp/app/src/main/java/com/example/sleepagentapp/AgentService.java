@@ -0,0 +1,244 @@
+package com.example.sleepagentapp;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.chaquo.python.PyObject;
+import com.chaquo.python.Python;
+import com.chaquo.python.android.AndroidPlatform;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-lived owner of the Python agent. Starts the interpreter once, keeps the
+ * module handles cached and runs every chat request on a single bounded worker.
+ */
+public class AgentService {
+
+    private static final String TAG = "AgentService";
+
+    // Requests waiting behind the one currently running. Anything past this is rejected.
+    private static final int QUEUE_CAPACITY = 8;
+
+    public interface Callback {
+        void onReply(String replyText);
+
+        // Streaming mode only: reasoning text received so far (main thread)
+        default void onPartial(String partialText) {}
+    }
+
+    // Called by llm_wrapper.call_sleep_agent_stream on the worker thread
+    public interface StreamListener {
+        void onPartial(String reasoningSoFar);
+    }
+
+    private static AgentService instance;
+
+    private final Context appContext;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ThreadPoolExecutor worker;
+
+    // Only touched on the worker thread
+    private PyObject launcherModule;
+    private final RiskBundle bundle = new RiskBundle();
+
+    private final DecisionCache decisionCache = new DecisionCache();
+    private final CachedAgent agent = new CachedAgent(decisionCache, this::callLlm);
+
+    // streamGenerateContent + partial replies; off = one blocking generateContent call
+    private volatile boolean streaming = true;
+
+    // Latency stats (written on the worker, read from anywhere)
+    private volatile long lastQueueWaitMs = 0;
+    private volatile long lastCallMs = 0;
+    private volatile long lastTimeToReplyMs = 0;
+    private volatile long lastTimeToFirstTokenMs = 0;
+    private volatile long warmUpMs = -1;
+    private long totalTimeToReplyMs = 0;
+    private int completedCalls = 0;
+    private volatile int fallbackCalls = 0;
+
+    public static synchronized AgentService get(Context context) {
+        if (instance == null) {
+            instance = new AgentService(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private AgentService(Context appContext) {
+        this.appContext = appContext;
+        this.worker = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                r -> {
+                    Thread t = new Thread(r, "sleep-agent");
+                    t.setPriority(Thread.NORM_PRIORITY - 1);
+                    return t;
+                });
+    }
+
+    // Queued first, so it always runs before any chat request
+    public void warmUp() {
+        try {
+            worker.execute(() -> {
+                DecisionTable.get(); // the rules are also read by the Data / Schedule tabs: keep that off the main thread
+                ensurePython();
+            });
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Warm-up rejected", e);
+        }
+    }
+
+    public void ask(String query, Callback callback) {
+        final long enqueuedAt = SystemClock.elapsedRealtime();
+        try {
+            worker.execute(() -> {
+                long startedAt = SystemClock.elapsedRealtime();
+                final long[] firstTokenAt = {0};
+                String reply = runAgent(query, partial -> {
+                    if (firstTokenAt[0] == 0) firstTokenAt[0] = SystemClock.elapsedRealtime();
+                    mainHandler.post(() -> callback.onPartial(partial));
+                });
+                long finishedAt = SystemClock.elapsedRealtime();
+                // Cache hits / fallbacks have no partials: their first token is the reply
+                long firstToken = firstTokenAt[0] != 0 ? firstTokenAt[0] : finishedAt;
+                lastTimeToFirstTokenMs = firstToken - enqueuedAt;
+                recordLatency(startedAt - enqueuedAt, finishedAt - startedAt, finishedAt - enqueuedAt);
+
+                mainHandler.post(() -> callback.onReply(reply));
+            });
+        } catch (RejectedExecutionException e) {
+            mainHandler.post(() -> callback.onReply("I'm still thinking about your last few questions. Try again in a moment."));
+        }
+    }
+
+    private void ensurePython() {
+        if (launcherModule != null) return;
+
+        long start = SystemClock.elapsedRealtime();
+        if (!Python.isStarted()) {
+            Python.start(new AndroidPlatform(appContext));
+        }
+        Python py = Python.getInstance();
+        // Importing launcher also pulls in llm_wrapper (and requests)
+        launcherModule = py.getModule("launcher");
+        py.getModule("llm_wrapper");
+
+        warmUpMs = SystemClock.elapsedRealtime() - start;
+        Log.i(TAG, "Python ready in " + warmUpMs + " ms");
+    }
+
+    private String runAgent(String msg, StreamListener listener) {
+        try {
+            // A. GET DATA (in memory once the store's first load is done)
+            SensorStateStore.Snapshot state = SensorStateStore.get(appContext).awaitSnapshot();
+
+            // Active caffeine keeps decaying after the last intake, so prefer the live value
+            CaffeineStore caffeineStore = CaffeineStore.get(appContext);
+            float caffeine = caffeineStore.isLoaded()
+                    ? caffeineStore.getActiveCaffeine()
+                    : state.caffeineMg();
+
+            // Normalize sliders (0-10 -> 0.0-1.0) for the AI
+            bundle.set(caffeine,
+                    state.sleepDebtHours(),
+                    state.noiseLevel() / 10.0,
+                    state.lightLevel() / 10.0,
+                    msg);
+
+            // B. RISK MATH (pure Java, no interpreter needed)
+            RiskEngine.calculateRisks(bundle, bundle);
+
+            // C. NO WAY TO REACH THE LLM -> answer from the rules right here
+            if (!canReachLlm()) {
+                fallbackCalls++;
+                return RiskEngine.ruleFallback(bundle).toChatText();
+            }
+
+            // D. SAME RISKS + SAME QUESTION AS A FEW MINUTES AGO -> no network round-trip
+            // E. ANYTHING ELSE -> CALL THE LLM (real answers are kept for next time)
+            AgentDecision decision = agent.ask(bundle, listener);
+            if (decision == null) return "The agent returned no data.";
+            return decision.toChatText();
+
+        } catch (Exception e) {
+            Log.e(TAG, "Agent call failed", e);
+            return "Error: " + e.getMessage();
+        }
+    }
+
+    // One call in (Python reads the packed double[] in one copy) and one String back out
+    private String[] callLlm(double[] packedRisks, String query, StreamListener listener) {
+        ensurePython();
+        PyObject result = streaming
+                ? launcherModule.callAttr("call_agent_packed_stream", packedRisks, query, listener)
+                : launcherModule.callAttr("call_agent_packed", packedRisks, query);
+        return result == null ? null : AgentDecision.splitPacked(result.toJava(String.class));
+    }
+
+    // Same key llm_wrapper.py reads (os.environ shares this process's environment)
+    private boolean canReachLlm() {
+        String apiKey = System.getenv("GEMINI_API_KEY");
+        if (apiKey == null || apiKey.isEmpty()) return false;
+
+        ConnectivityManager cm = (ConnectivityManager) appContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm == null) return true;
+        Network network = cm.getActiveNetwork();
+        if (network == null) return false;
+        NetworkCapabilities caps = cm.getNetworkCapabilities(network);
+        return caps != null && caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+    }
+
+    private synchronized void recordLatency(long queueWaitMs, long callMs, long timeToReplyMs) {
+        lastQueueWaitMs = queueWaitMs;
+        lastCallMs = callMs;
+        lastTimeToReplyMs = timeToReplyMs;
+        totalTimeToReplyMs += timeToReplyMs;
+        completedCalls++;
+        Log.d(TAG, "reply in " + timeToReplyMs + " ms (queued " + queueWaitMs + " ms, call " + callMs + " ms)");
+    }
+
+    // --- STATS ---
+
+    public int getQueueDepth() { return worker.getQueue().size(); }
+
+    public boolean isBusy() { return worker.getActiveCount() > 0; }
+
+    public long getWarmUpMs() { return warmUpMs; }
+
+    public long getLastQueueWaitMs() { return lastQueueWaitMs; }
+
+    public long getLastCallMs() { return lastCallMs; }
+
+    public void setStreaming(boolean enabled) { streaming = enabled; }
+
+    public boolean isStreaming() { return streaming; }
+
+    // Enqueue -> first partial text on screen (streaming), or the full reply otherwise
+    public long getLastTimeToFirstTokenMs() { return lastTimeToFirstTokenMs; }
+
+    // Enqueue -> reply ready, i.e. what the user actually waits for
+    public long getLastTimeToReplyMs() { return lastTimeToReplyMs; }
+
+    public synchronized long getAverageTimeToReplyMs() {
+        return completedCalls == 0 ? 0 : totalTimeToReplyMs / completedCalls;
+    }
+
+    public synchronized int getCompletedCalls() { return completedCalls; }
+
+    public DecisionCache getDecisionCache() { return decisionCache; }
+
+    // Requests that actually went out to the LLM (cache misses)
+    public int getLlmCalls() { return agent.getLlmCalls(); }
+
+    // Calls answered by RiskEngine without touching Python
+    public int getFallbackCalls() { return fallbackCalls; }
+}
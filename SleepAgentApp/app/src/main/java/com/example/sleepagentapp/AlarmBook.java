@@ -0,0 +1,105 @@
+package com.example.sleepagentapp;
+
+import java.util.Arrays;
+
+/**
+ * The set of pending auto-stop alarms, sorted by trigger time. An alarm is identified by its
+ * trigger time (two alarms for the same millisecond would be the same alarm), and carries how
+ * long the noise should fade out before it.
+ *
+ * Plain Java so the ordering and the persisted format can be tested; AlarmScheduler owns the
+ * instance and does the Android side.
+ */
+public class AlarmBook {
+
+    private long[] triggers = new long[4];
+    private long[] fades = new long[4];
+    private int size = 0;
+
+    /** Adds (or re-times the fade of) the alarm at triggerAtMillis. */
+    public void add(long triggerAtMillis, long fadeMs) {
+        int i = Arrays.binarySearch(triggers, 0, size, triggerAtMillis);
+        if (i >= 0) {
+            fades[i] = fadeMs;
+            return;
+        }
+        i = -i - 1;
+        if (size == triggers.length) {
+            triggers = Arrays.copyOf(triggers, size * 2);
+            fades = Arrays.copyOf(fades, size * 2);
+        }
+        System.arraycopy(triggers, i, triggers, i + 1, size - i);
+        System.arraycopy(fades, i, fades, i + 1, size - i);
+        triggers[i] = triggerAtMillis;
+        fades[i] = fadeMs;
+        size++;
+    }
+
+    public boolean remove(long triggerAtMillis) {
+        int i = Arrays.binarySearch(triggers, 0, size, triggerAtMillis);
+        if (i < 0) return false;
+        System.arraycopy(triggers, i + 1, triggers, i, size - i - 1);
+        System.arraycopy(fades, i + 1, fades, i, size - i - 1);
+        size--;
+        return true;
+    }
+
+    /** Drops every alarm at or before now (fired, or missed while the phone was off). */
+    public int pruneThrough(long now) {
+        int n = 0;
+        while (n < size && triggers[n] <= now) n++;
+        if (n == 0) return 0;
+        System.arraycopy(triggers, n, triggers, 0, size - n);
+        System.arraycopy(fades, n, fades, 0, size - n);
+        size -= n;
+        return n;
+    }
+
+    public boolean contains(long triggerAtMillis) {
+        return Arrays.binarySearch(triggers, 0, size, triggerAtMillis) >= 0;
+    }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public int size() { return size; }
+
+    /** Earliest alarm's trigger time; only valid when not empty. */
+    public long nextTrigger() { return triggers[0]; }
+
+    public long nextFadeMs() { return fades[0]; }
+
+    /** When the ramp for the earliest alarm should start (never before now). */
+    public long nextFadeStart(long now) {
+        return Math.max(now, triggers[0] - fades[0]);
+    }
+
+    public long triggerAt(int index) { return triggers[index]; }
+
+    public long fadeAt(int index) { return fades[index]; }
+
+    // --- PERSISTENCE: "trigger:fade,trigger:fade" ---
+
+    public String encode() {
+        StringBuilder sb = new StringBuilder(size * 24);
+        for (int i = 0; i < size; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(triggers[i]).append(':').append(fades[i]);
+        }
+        return sb.toString();
+    }
+
+    /** Skips entries it can't parse rather than losing every alarm to one bad one. */
+    public static AlarmBook decode(String encoded) {
+        AlarmBook book = new AlarmBook();
+        if (encoded == null || encoded.isEmpty()) return book;
+        for (String entry : encoded.split(",")) {
+            int colon = entry.indexOf(':');
+            if (colon < 0) continue;
+            try {
+                book.add(Long.parseLong(entry.substring(0, colon)), Long.parseLong(entry.substring(colon + 1)));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return book;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.sleepagentapp;
+
+import android.app.AlarmManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+/**
+ * Entry point for the auto-stop alarms: the alarm itself, plus everything that wipes or
+ * invalidates registered alarms (reboot, app update, clock / timezone change).
+ */
+public class AlarmReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "AlarmReceiver";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (action == null) return;
+
+        AlarmScheduler scheduler = AlarmScheduler.get(context);
+        PendingResult result = goAsync();
+
+        if (AlarmScheduler.ACTION_FADE.equals(action)) {
+            long triggerAt = intent.getLongExtra(AlarmScheduler.EXTRA_TRIGGER_AT, 0);
+            SleepSessionService.fadeOut(context, triggerAt);
+            scheduler.onFired(triggerAt, result::finish);
+            return;
+        }
+
+        switch (action) {
+            case Intent.ACTION_BOOT_COMPLETED:
+            case Intent.ACTION_MY_PACKAGE_REPLACED:
+            case Intent.ACTION_TIME_CHANGED:
+            case Intent.ACTION_TIMEZONE_CHANGED:
+            case AlarmManager.ACTION_SCHEDULE_EXACT_ALARM_PERMISSION_STATE_CHANGED:
+                scheduler.reschedule(result::finish);
+                break;
+            default:
+                Log.w(TAG, "Unexpected " + action);
+                result.finish();
+        }
+    }
+}
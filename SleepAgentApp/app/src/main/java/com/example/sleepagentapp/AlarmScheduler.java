@@ -0,0 +1,208 @@
+package com.example.sleepagentapp;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Auto-stop alarms for the sleep session, on AlarmManager.
+ *
+ * Only the earliest alarm is ever registered with the system (one PendingIntent, re-pointed
+ * whenever the set changes), so nothing runs between alarms. It fires at the start of the
+ * alarm's fade-out ramp; AlarmReceiver tells the session to fade and stop, then we move on to
+ * the next one. The set is persisted, and AlarmReceiver re-registers it after a reboot.
+ *
+ * The noise screen owns one of the alarms (the one its picker sets), remembered alongside the
+ * set so the screen can show its own rather than whichever is earliest.
+ */
+public class AlarmScheduler {
+
+    private static final String TAG = "AlarmScheduler";
+    private static final String PREFS_NAME = "SleepAlarms";
+    private static final String KEY_ALARMS = "alarms";
+    private static final String KEY_SCREEN_ALARM = "screen_alarm";
+
+    static final String ACTION_FADE = "com.example.sleepagentapp.action.ALARM_FADE";
+    static final String EXTRA_TRIGGER_AT = "trigger_at";
+
+    static final long DEFAULT_FADE_MS = 5 * 60 * 1000L;
+
+    public interface TriggerCallback {
+        /** Wall-clock millis, 0 if none. */
+        void onTrigger(long triggerAtMillis);
+    }
+
+    // Without the exact-alarm permission a minute late is still fine for stopping white noise
+    private static final long INEXACT_WINDOW_MS = 60 * 1000L;
+
+    private static AlarmScheduler instance;
+
+    private final Context appContext;
+    private final AlarmManager alarmManager;
+    // Every read / write of the book runs here; load() is the first task, so it always ran first
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> new Thread(r, "alarm-io"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private AlarmBook book = new AlarmBook(); // io thread only
+    private long screenAlarm = 0;             // io thread only: the noise screen's alarm, 0 if none
+
+    // --- STATS ---
+    private volatile int registrations = 0;
+    private volatile int inexactFallbacks = 0;
+    private volatile int pending = 0;
+    private volatile long nextTrigger = 0;
+
+    public static synchronized AlarmScheduler get(Context context) {
+        if (instance == null) {
+            instance = new AlarmScheduler(context.getApplicationContext());
+            instance.load();
+        }
+        return instance;
+    }
+
+    private AlarmScheduler(Context appContext) {
+        this.appContext = appContext;
+        this.alarmManager = (AlarmManager) appContext.getSystemService(Context.ALARM_SERVICE);
+    }
+
+    private void load() {
+        io.execute(() -> {
+            book = AlarmBook.decode(prefs().getString(KEY_ALARMS, ""));
+            screenAlarm = prefs().getLong(KEY_SCREEN_ALARM, 0);
+            pending = book.size();
+            nextTrigger = book.isEmpty() ? 0 : book.nextTrigger();
+            // Nothing to register: a registered alarm outlives the process, and the boot
+            // broadcast calls reschedule() when it didn't survive
+        });
+    }
+
+    private SharedPreferences prefs() {
+        return appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /** Stops the session at triggerAtMillis, fading out over fadeMs before it. */
+    public void add(long triggerAtMillis, long fadeMs) {
+        io.execute(() -> {
+            book.add(triggerAtMillis, fadeMs);
+            persist();
+            register();
+        });
+    }
+
+    public void remove(long triggerAtMillis) {
+        io.execute(() -> {
+            if (!book.remove(triggerAtMillis)) return;
+            persist();
+            register();
+        });
+    }
+
+    /** The noise screen's alarm: replaces the one it set before, if that is still pending. */
+    public void setScreenAlarm(long triggerAtMillis, long fadeMs) {
+        io.execute(() -> {
+            if (screenAlarm != 0 && screenAlarm != triggerAtMillis) book.remove(screenAlarm);
+            book.add(triggerAtMillis, fadeMs);
+            screenAlarm = triggerAtMillis;
+            persist();
+            register();
+        });
+    }
+
+    public void clearScreenAlarm() {
+        io.execute(() -> {
+            if (screenAlarm == 0) return;
+            book.remove(screenAlarm);
+            screenAlarm = 0;
+            persist();
+            register();
+        });
+    }
+
+    /** The noise screen's alarm if it is still pending, else 0. Answers on the main thread, after the load. */
+    public void getScreenAlarm(TriggerCallback callback) {
+        io.execute(() -> {
+            long trigger = book.contains(screenAlarm) ? screenAlarm : 0; // fired, or pruned meanwhile
+            mainHandler.post(() -> callback.onTrigger(trigger));
+        });
+    }
+
+    /** Boot, clock / timezone change or exact-alarm permission change. Drops alarms that passed meanwhile. */
+    public void reschedule(Runnable done) {
+        io.execute(() -> {
+            if (book.pruneThrough(System.currentTimeMillis()) > 0) persist();
+            register();
+            if (done != null) done.run();
+        });
+    }
+
+    /** From AlarmReceiver once the fade for triggerAtMillis has been handed to the session. */
+    void onFired(long triggerAtMillis, Runnable done) {
+        io.execute(() -> {
+            book.pruneThrough(triggerAtMillis);
+            persist();
+            register();
+            if (done != null) done.run();
+        });
+    }
+
+    // IO thread
+    private void persist() {
+        // Off the main thread, so commit() is fine and tells us it happened
+        if (!book.contains(screenAlarm)) screenAlarm = 0;
+        prefs().edit().putString(KEY_ALARMS, book.encode()).putLong(KEY_SCREEN_ALARM, screenAlarm).commit();
+        pending = book.size();
+    }
+
+    // IO thread. Replaces whatever was registered with the earliest alarm, or nothing
+    private void register() {
+        PendingIntent existing = fadeIntent(0, PendingIntent.FLAG_NO_CREATE);
+        if (existing != null) {
+            alarmManager.cancel(existing);
+            existing.cancel();
+        }
+        pending = book.size();
+        nextTrigger = book.isEmpty() ? 0 : book.nextTrigger();
+        if (book.isEmpty()) return;
+
+        long trigger = book.nextTrigger();
+        long fadeStart = book.nextFadeStart(System.currentTimeMillis());
+        PendingIntent intent = fadeIntent(trigger, PendingIntent.FLAG_UPDATE_CURRENT);
+
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.S || alarmManager.canScheduleExactAlarms()) {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, fadeStart, intent);
+        } else {
+            alarmManager.setWindow(AlarmManager.RTC_WAKEUP, fadeStart, INEXACT_WINDOW_MS, intent);
+            inexactFallbacks++;
+        }
+        registrations++;
+        Log.i(TAG, "Next fade at " + fadeStart + " for alarm " + trigger + " (" + book.size() + " pending)");
+    }
+
+    private PendingIntent fadeIntent(long triggerAtMillis, int flags) {
+        Intent intent = new Intent(appContext, AlarmReceiver.class)
+                .setAction(ACTION_FADE)
+                .putExtra(EXTRA_TRIGGER_AT, triggerAtMillis);
+        return PendingIntent.getBroadcast(appContext, 0, intent, flags | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    // --- STATS ---
+
+    /** Times a system alarm was (re)registered. */
+    public int getRegistrations() { return registrations; }
+
+    /** Registrations that had to be inexact because the exact-alarm permission is off. */
+    public int getInexactFallbacks() { return inexactFallbacks; }
+
+    public int getPendingCount() { return pending; }
+
+    /** Earliest pending alarm (wall-clock millis), 0 if none. Stale until the first load finishes. */
+    public long getNextTrigger() { return nextTrigger; }
+}
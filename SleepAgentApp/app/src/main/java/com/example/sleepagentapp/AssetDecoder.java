@@ -0,0 +1,127 @@
+package com.example.sleepagentapp;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * Decodes a raw resource (mp3 / ogg / ...) once into mono 16-bit PCM at NoiseEngine.SAMPLE_RATE.
+ * Stereo is averaged down and other sample rates are linearly resampled; both are fine for
+ * ambient noise and keep the cached clip half / a quarter of the size.
+ */
+final class AssetDecoder {
+
+    private static final long TIMEOUT_US = 10_000;
+
+    private AssetDecoder() {}
+
+    static short[] decode(Context context, int resId) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        try (AssetFileDescriptor afd = context.getResources().openRawResourceFd(resId)) {
+            extractor.setDataSource(afd.getFileDescriptor(), afd.getStartOffset(), afd.getLength());
+
+            MediaFormat format = null;
+            for (int t = 0; t < extractor.getTrackCount(); t++) {
+                MediaFormat candidate = extractor.getTrackFormat(t);
+                String mime = candidate.getString(MediaFormat.KEY_MIME);
+                if (mime != null && mime.startsWith("audio/")) {
+                    extractor.selectTrack(t);
+                    format = candidate;
+                    break;
+                }
+            }
+            if (format == null) throw new IOException("no audio track in resource " + resId);
+
+            int sourceRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+            int channels = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+            long durationUs = format.containsKey(MediaFormat.KEY_DURATION) ? format.getLong(MediaFormat.KEY_DURATION) : 0;
+
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+
+            // Size the buffer from the duration when known so it rarely has to grow
+            int estimate = durationUs > 0 ? (int) (durationUs * sourceRate / 1_000_000L) + sourceRate : sourceRate * 30;
+            short[] mono = new short[estimate];
+            int monoLength = 0;
+
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            boolean inputDone = false;
+            boolean outputDone = false;
+            while (!outputDone) {
+                if (!inputDone) {
+                    int in = codec.dequeueInputBuffer(TIMEOUT_US);
+                    if (in >= 0) {
+                        ByteBuffer buffer = codec.getInputBuffer(in);
+                        int size = extractor.readSampleData(buffer, 0);
+                        if (size < 0) {
+                            codec.queueInputBuffer(in, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(in, 0, size, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+
+                int out = codec.dequeueOutputBuffer(info, TIMEOUT_US);
+                if (out == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    MediaFormat outFormat = codec.getOutputFormat();
+                    channels = outFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+                    sourceRate = outFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+                } else if (out >= 0) {
+                    ByteBuffer buffer = codec.getOutputBuffer(out);
+                    buffer.position(info.offset);
+                    buffer.limit(info.offset + info.size);
+                    ShortBuffer samples = buffer.order(ByteOrder.nativeOrder()).asShortBuffer();
+
+                    int frames = samples.remaining() / channels;
+                    if (monoLength + frames > mono.length) {
+                        mono = Arrays.copyOf(mono, Math.max(mono.length * 2, monoLength + frames));
+                    }
+                    for (int f = 0; f < frames; f++) {
+                        int sum = 0;
+                        for (int c = 0; c < channels; c++) sum += samples.get();
+                        mono[monoLength++] = (short) (sum / channels);
+                    }
+
+                    codec.releaseOutputBuffer(out, false);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) outputDone = true;
+                }
+            }
+
+            return resample(mono, monoLength, sourceRate, NoiseEngine.SAMPLE_RATE);
+        } finally {
+            if (codec != null) {
+                try { codec.stop(); } catch (Exception ignored) {}
+                codec.release();
+            }
+            extractor.release();
+        }
+    }
+
+    static short[] resample(short[] in, int length, int fromRate, int toRate) {
+        if (fromRate == toRate) return length == in.length ? in : Arrays.copyOf(in, length);
+
+        int outLength = (int) ((long) length * toRate / fromRate);
+        short[] out = new short[outLength];
+        double step = (double) fromRate / toRate;
+        for (int i = 0; i < outLength; i++) {
+            double pos = i * step;
+            int i0 = (int) pos;
+            int i1 = Math.min(i0 + 1, length - 1);
+            double t = pos - i0;
+            out[i] = (short) Math.round(in[i0] * (1 - t) + in[i1] * t);
+        }
+        return out;
+    }
+}
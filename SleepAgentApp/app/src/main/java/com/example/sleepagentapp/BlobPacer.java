@@ -0,0 +1,122 @@
+package com.example.sleepagentapp;
+
+import java.util.Arrays;
+
+/**
+ * Timing for BlobSurfaceView's render thread, kept free of android.* so it can be tested on the JVM.
+ *
+ * Physics runs on a fixed STEP_NANOS timestep whatever the frame rate: each frame asks
+ * advance() how many steps the time since the last frame is worth, so the blob moves at the
+ * same speed at 60 fps and at 5 fps (just in bigger jumps). The frame rate itself comes from
+ * targetFps(): full rate while something moves, LOW_POWER_FPS in night mode, 0 (paused) when
+ * idle. Also keeps the frames-per-minute and CPU-time numbers for checking overnight cost.
+ *
+ * Render thread only, except the stats getters (volatile).
+ */
+public class BlobPacer {
+
+    public static final int ACTIVE_FPS = 60;
+    public static final int LOW_POWER_FPS = 5;
+
+    // BlobPhysics' per-step constants were tuned at 60 Hz
+    static final long STEP_NANOS = 1_000_000_000L / 60;
+    // After a stall (or at very low fps) don't try to catch up more than this; drop the rest
+    static final int MAX_STEPS_PER_FRAME = 15;
+
+    private long lastNanos = -1;
+    private long accumulator = 0;
+    private long animNanos = 0;
+
+    // Frames per second of the last minute, as a ring of 60 one-second buckets
+    private final int[] secondBuckets = new int[60];
+    private long bucketSecond = -1;
+
+    // --- STATS ---
+    private volatile long frames = 0;
+    private volatile long steps = 0;
+    private volatile long droppedSteps = 0;
+    private volatile long cpuNanos = 0;
+    private volatile int framesLastMinute = 0;
+
+    /** Starts timing from now without catching up on the time since the last frame (after a pause). */
+    public void resume(long nowNanos) {
+        lastNanos = nowNanos;
+        accumulator = 0;
+    }
+
+    /** Physics steps to run for a frame at nowNanos. */
+    public int advance(long nowNanos) {
+        if (lastNanos < 0) resume(nowNanos);
+        accumulator += Math.max(0, nowNanos - lastNanos);
+        lastNanos = nowNanos;
+
+        long due = accumulator / STEP_NANOS;
+        int n;
+        if (due > MAX_STEPS_PER_FRAME) {
+            n = MAX_STEPS_PER_FRAME;
+            droppedSteps += due - n;
+            accumulator = 0;
+        } else {
+            n = (int) due;
+            accumulator -= n * STEP_NANOS;
+        }
+        animNanos += n * STEP_NANOS;
+        steps += n;
+        return n;
+    }
+
+    /** Wobble clock: only advances with physics steps, so a pause doesn't jump the shape. */
+    public long getAnimTimeMs() {
+        return animNanos / 1_000_000L;
+    }
+
+    public static int targetFps(boolean animating, boolean lowPower) {
+        if (!animating) return 0;
+        return lowPower ? LOW_POWER_FPS : ACTIVE_FPS;
+    }
+
+    /** Call after each rendered frame, with the render thread's CPU time it took. */
+    public void onFrameRendered(long nowNanos, long frameCpuNanos) {
+        secondBuckets[roll(nowNanos)]++;
+        framesLastMinute++;
+        frames++;
+        cpuNanos += frameCpuNanos;
+    }
+
+    /** Call now and then while paused, so the per-minute count drains to 0. */
+    public void onIdle(long nowNanos) {
+        roll(nowNanos);
+    }
+
+    // Moves the bucket ring up to now, clearing the seconds that passed without a frame
+    private int roll(long nowNanos) {
+        long second = nowNanos / 1_000_000_000L;
+        if (bucketSecond < 0 || second - bucketSecond >= secondBuckets.length) {
+            Arrays.fill(secondBuckets, 0);
+            framesLastMinute = 0;
+        } else {
+            for (long s = bucketSecond + 1; s <= second; s++) {
+                int slot = (int) (s % secondBuckets.length);
+                framesLastMinute -= secondBuckets[slot];
+                secondBuckets[slot] = 0;
+            }
+        }
+        if (second > bucketSecond) bucketSecond = second;
+        return (int) (bucketSecond % secondBuckets.length);
+    }
+
+    // --- STATS ---
+
+    public long getFrames() { return frames; }
+
+    /** Frames rendered in the last 60 s (as of the last frame or onIdle). */
+    public int getFramesLastMinute() { return framesLastMinute; }
+
+    public long getSteps() { return steps; }
+
+    /** Steps skipped because a frame was too late to catch up on all of them. */
+    public long getDroppedSteps() { return droppedSteps; }
+
+    /** Render-thread CPU time spent on frames (physics + drawing). */
+    public long getCpuNanos() { return cpuNanos; }
+}
@@ -0,0 +1,199 @@
+package com.example.sleepagentapp;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Hill physics + outline math for BlobSurfaceView, kept free of android.* so it can be tested on the JVM.
+ *
+ * Everything is preallocated: hills live in a fixed-size struct-of-arrays pool and the outline is
+ * written into caller-owned arrays, so a steady-state frame allocates nothing.
+ * Not thread-safe; BlobSurfaceView only touches it from its render thread.
+ */
+public class BlobPhysics {
+
+    public static final int POINT_COUNT = 30;
+    static final int MAX_HILLS = 16;
+
+    static final float WOBBLE_SPEED = 0.002f;  // rad per ms
+    static final float WOBBLE_AMPLITUDE = 15f;
+    static final float WOBBLE_PHASE_STEP = 0.8f; // phase offset between neighbouring points
+    static final float MAX_SPIKE_HEIGHT = 300f;
+
+    static final float NOISE_GATE = 0.05f;
+    static final float ATTACK_DELTA = 0.15f;
+
+    // A hill bends this many points either side of its centre
+    private static final int HILL_REACH = 4;
+
+    // --- LOOKUP TABLES (shared, built once) ---
+    private static final float[] COS = new float[POINT_COUNT];
+    private static final float[] SIN = new float[POINT_COUNT];
+    private static final float[] PHASE_COS = new float[POINT_COUNT];
+    private static final float[] PHASE_SIN = new float[POINT_COUNT];
+    private static final float[] SHAPE = new float[HILL_REACH + 1];
+
+    static {
+        for (int i = 0; i < POINT_COUNT; i++) {
+            double angle = (2.0 * Math.PI / POINT_COUNT) * i;
+            COS[i] = (float) Math.cos(angle);
+            SIN[i] = (float) Math.sin(angle);
+            PHASE_COS[i] = (float) Math.cos(i * WOBBLE_PHASE_STEP);
+            PHASE_SIN[i] = (float) Math.sin(i * WOBBLE_PHASE_STEP);
+        }
+        for (int d = 0; d <= HILL_REACH; d++) {
+            float shape = (5 - d) / 5f;
+            SHAPE[d] = shape * shape;
+        }
+    }
+
+    // --- HILL POOL (struct of arrays) ---
+    private final int[] hillCenter = new int[MAX_HILLS];
+    private final float[] hillTarget = new float[MAX_HILLS];
+    private final float[] hillCurrent = new float[MAX_HILLS];
+    private int hillCount = 0;
+    private int activeHill = -1; // slot of the hill following the voice, -1 if none
+
+    private final float[] offsets = new float[POINT_COUNT];
+    private final Random random;
+    private float lastAmplitude = 0f;
+
+    // --- STATS ---
+    private long steps = 0;
+    private int poolRecycles = 0;
+
+    public BlobPhysics() {
+        this(new Random());
+    }
+
+    BlobPhysics(Random random) {
+        this.random = random;
+    }
+
+    /** @return true if this woke the blob up (it was idle and now has something to animate) */
+    public boolean updateAmplitude(float newAmplitude) {
+        boolean wasIdle = isIdle();
+
+        // Noise Gate
+        if (newAmplitude < NOISE_GATE) newAmplitude = 0f;
+
+        // 1. Calculate the "Kick"
+        float delta = newAmplitude - lastAmplitude;
+
+        // 2. Decide: New Spike or Sustain?
+        if (delta > ATTACK_DELTA) {
+            spawnHill(newAmplitude);
+        } else if (activeHill >= 0 && !isDead(activeHill)) {
+            // SUSTAIN: Keep the current hill moving with the voice
+            hillTarget[activeHill] = newAmplitude * MAX_SPIKE_HEIGHT;
+        } else if (newAmplitude > NOISE_GATE) {
+            // Start of a new sound (from silence)
+            spawnHill(newAmplitude);
+        }
+
+        lastAmplitude = newAmplitude;
+        return wasIdle && !isIdle();
+    }
+
+    private void spawnHill(float amplitude) {
+        // Retire the old hill before switching to a new one
+        if (activeHill >= 0) hillTarget[activeHill] = 0f;
+
+        int slot;
+        if (hillCount < MAX_HILLS) {
+            slot = hillCount++;
+        } else {
+            // Pool full: reuse the flattest hill, it's the least visible one to lose
+            slot = 0;
+            for (int h = 1; h < hillCount; h++) {
+                if (hillCurrent[h] < hillCurrent[slot]) slot = h;
+            }
+            poolRecycles++;
+        }
+
+        hillCenter[slot] = random.nextInt(POINT_COUNT);
+        hillTarget[slot] = amplitude * MAX_SPIKE_HEIGHT;
+        hillCurrent[slot] = 0f;
+        activeHill = slot;
+    }
+
+    /**
+     * Advances every hill one frame and rebuilds the per-point radius offsets.
+     * @return true while there is still something moving
+     */
+    public boolean step() {
+        steps++;
+        Arrays.fill(offsets, 0f);
+
+        int h = 0;
+        while (h < hillCount) {
+            float current = hillCurrent[h];
+            float target = hillTarget[h];
+            // Grow fast, shrink slow
+            current += (target - current) * (current < target ? 0.2f : 0.1f);
+            hillCurrent[h] = current;
+
+            if (isDead(h)) {
+                removeHill(h);
+                continue; // the last hill now sits in slot h
+            }
+
+            int center = hillCenter[h];
+            for (int d = -HILL_REACH; d <= HILL_REACH; d++) {
+                int i = center + d;
+                if (i < 0) i += POINT_COUNT;
+                else if (i >= POINT_COUNT) i -= POINT_COUNT;
+                offsets[i] += current * SHAPE[d < 0 ? -d : d];
+            }
+            h++;
+        }
+        return !isIdle();
+    }
+
+    // Swap-remove: move the last hill into the hole
+    private void removeHill(int slot) {
+        int last = --hillCount;
+        if (slot == activeHill) activeHill = -1;
+        if (slot != last) {
+            hillCenter[slot] = hillCenter[last];
+            hillTarget[slot] = hillTarget[last];
+            hillCurrent[slot] = hillCurrent[last];
+            if (activeHill == last) activeHill = slot;
+        }
+    }
+
+    private boolean isDead(int slot) {
+        return hillCurrent[slot] < 1f && hillTarget[slot] < 1f;
+    }
+
+    /**
+     * Writes the blob outline for the given animation time into xs / ys (length POINT_COUNT).
+     * sin(t + phase) is expanded with the angle-addition formula so it's one sin/cos per frame.
+     */
+    public void computeOutline(long timeMs, float centerX, float centerY, float baseRadius, float[] xs, float[] ys) {
+        double t = timeMs * WOBBLE_SPEED;
+        float sinT = (float) Math.sin(t);
+        float cosT = (float) Math.cos(t);
+
+        for (int i = 0; i < POINT_COUNT; i++) {
+            float wobble = (sinT * PHASE_COS[i] + cosT * PHASE_SIN[i]) * WOBBLE_AMPLITUDE;
+            float radius = baseRadius + wobble + offsets[i];
+            xs[i] = centerX + COS[i] * radius;
+            ys[i] = centerY + SIN[i] * radius;
+        }
+    }
+
+    /** No hills left and the input is silent: nothing will change until the next amplitude. */
+    public boolean isIdle() {
+        return hillCount == 0 && lastAmplitude == 0f;
+    }
+
+    public int getHillCount() { return hillCount; }
+
+    float getOffset(int point) { return offsets[point]; }
+
+    public long getSteps() { return steps; }
+
+    // Spawns that had to reuse a live slot because all MAX_HILLS were in use
+    public int getPoolRecycles() { return poolRecycles; }
+}
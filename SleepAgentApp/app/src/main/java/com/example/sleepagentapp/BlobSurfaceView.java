@@ -0,0 +1,296 @@
+package com.example.sleepagentapp;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.os.Build;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+/**
+ * The breathing blob on the noise screen, built for all-night use: physics and drawing run on a
+ * "blob-render" thread that owns the surface, paced by that thread's own Choreographer, so the
+ * UI thread does nothing per frame.
+ *
+ * The frame rate follows BlobPacer: ACTIVE_FPS while the blob moves, LOW_POWER_FPS in night
+ * mode once nobody has touched it for LOW_POWER_AFTER_MS, and paused (no frames, just a cheap
+ * check of the envelope ring every PAUSED_POLL_MS) when it has settled. Physics steps are
+ * fixed-size, so the motion is the same speed at any frame rate.
+ *
+ * Fed through setEnvelope() with the mic ring, whose only consumer is then the render thread.
+ */
+public class BlobSurfaceView extends SurfaceView implements SurfaceHolder.Callback {
+
+    private static final String TAG = "BlobSurfaceView";
+    private static final int POINT_COUNT = BlobPhysics.POINT_COUNT;
+    private static final int DRAIN_CHUNK = 32;
+
+    // While paused: how often to look for new envelope samples (nothing is drawn)
+    static final long PAUSED_POLL_MS = 250;
+    // Night mode drops the frame rate this long after the last touch
+    static final long LOW_POWER_AFTER_MS = 30_000;
+
+    // The surface sits behind the window, so it paints the screen background itself
+    private static final int BACKGROUND = Color.WHITE;
+
+    // --- RENDER THREAD ONLY ---
+    private final BlobPhysics physics = new BlobPhysics();
+    private final BlobPacer pacer = new BlobPacer();
+    private final Paint paint = blobPaint();
+    private final Path path = new Path();
+    private final float[] xPoints = new float[POINT_COUNT];
+    private final float[] yPoints = new float[POINT_COUNT];
+    private final float[] drained = new float[DRAIN_CHUNK];
+    private Choreographer choreographer;
+    private boolean frameScheduled = false;
+    private boolean paused = false;
+    private int width, height;
+
+    private final Choreographer.FrameCallback frameCallback = this::doFrame;
+    private final Runnable pollRunnable = this::pollWhilePaused;
+    private final Runnable wakeRunnable = this::wakeUp;
+
+    // --- SHARED ---
+    private HandlerThread renderThread;           // main thread
+    private volatile Handler renderHandler;       // null while there is no surface
+    private volatile FloatRingBuffer envelope;
+    private volatile boolean nightMode = false;
+    private volatile long lastTouchUptime = 0;
+    private volatile int currentFps = 0;
+
+    public BlobSurfaceView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        getHolder().addCallback(this);
+    }
+
+    // --- MAIN THREAD API ---
+
+    /** Ring of 0..1 envelope samples to follow; null stops. The ring must have no other consumer. */
+    public void setEnvelope(FloatRingBuffer ring) {
+        envelope = ring;
+        wake();
+    }
+
+    /** Night mode: drop to LOW_POWER_FPS once the blob hasn't been touched for LOW_POWER_AFTER_MS. */
+    public void setNightMode(boolean on) {
+        if (on == nightMode) return;
+        nightMode = on;
+        lastTouchUptime = SystemClock.uptimeMillis(); // full rate for a while after switching
+        wake();
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            lastTouchUptime = SystemClock.uptimeMillis();
+            wake();
+        } else if (event.getActionMasked() == MotionEvent.ACTION_UP) {
+            performClick();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    private void wake() {
+        Handler handler = renderHandler;
+        if (handler != null) handler.post(wakeRunnable);
+    }
+
+    // --- SURFACE LIFECYCLE (main thread) ---
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        renderThread = new HandlerThread("blob-render", Process.THREAD_PRIORITY_DISPLAY);
+        renderThread.start();
+        Handler handler = new Handler(renderThread.getLooper());
+        handler.post(() -> {
+            // Choreographer is per looper: this one paces the render thread
+            choreographer = Choreographer.getInstance();
+            pacer.resume(System.nanoTime());
+        });
+        renderHandler = handler;
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int w, int h) {
+        Handler handler = renderHandler;
+        if (handler == null) return;
+        handler.post(() -> {
+            width = w;
+            height = h;
+            render(); // the new surface has no content until the next frame otherwise
+            wakeUp();
+        });
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        // The surface must not be touched once this returns: stop the thread and wait for it
+        renderHandler = null;
+        renderThread.quitSafely();
+        try {
+            renderThread.join(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        renderThread = null;
+    }
+
+    // --- RENDER THREAD ---
+
+    private void doFrame(long frameTimeNanos) {
+        frameScheduled = false;
+        long cpuStart = Debug.threadCpuTimeNanos();
+
+        drainEnvelope();
+        int steps = pacer.advance(frameTimeNanos);
+        boolean animating = !physics.isIdle();
+        for (int i = 0; i < steps; i++) animating = physics.step();
+        render();
+
+        pacer.onFrameRendered(frameTimeNanos, Debug.threadCpuTimeNanos() - cpuStart);
+        scheduleNext(animating);
+    }
+
+    private void drainEnvelope() {
+        FloatRingBuffer ring = envelope;
+        if (ring == null) return;
+        int n;
+        while ((n = ring.drain(drained)) > 0) {
+            for (int i = 0; i < n; i++) physics.updateAmplitude(drained[i]);
+        }
+    }
+
+    private void render() {
+        if (width == 0 || height == 0) return;
+        SurfaceHolder holder = getHolder();
+        // Hardware canvas where available: the path fill is much cheaper on the GPU
+        Canvas canvas = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O ? holder.lockHardwareCanvas() : holder.lockCanvas();
+        if (canvas == null) return;
+        try {
+            float centerX = width / 2f;
+            float centerY = height / 2f;
+            float baseRadius = Math.min(centerX, centerY) * 0.45f;
+            physics.computeOutline(pacer.getAnimTimeMs(), centerX, centerY, baseRadius, xPoints, yPoints);
+            outlinePath(xPoints, yPoints, path);
+
+            canvas.drawColor(BACKGROUND);
+            canvas.drawPath(path, paint);
+        } finally {
+            holder.unlockCanvasAndPost(canvas);
+        }
+    }
+
+    private void scheduleNext(boolean animating) {
+        if (choreographer == null || frameScheduled) return;
+        int fps = BlobPacer.targetFps(animating, isLowPower());
+        currentFps = fps;
+
+        if (fps == 0) {
+            // Settled: the last frame stays on screen, and we only check for new input now and then
+            if (!paused) {
+                paused = true;
+                Handler handler = renderHandler;
+                if (handler != null) handler.postDelayed(pollRunnable, PAUSED_POLL_MS);
+            }
+            return;
+        }
+        frameScheduled = true;
+        if (fps >= BlobPacer.ACTIVE_FPS) {
+            choreographer.postFrameCallback(frameCallback);
+        } else {
+            // Fires on the first vsync after the delay; a bit early so it lands near 1000 / fps
+            choreographer.postFrameCallbackDelayed(frameCallback, 1000L / fps - 1000L / BlobPacer.ACTIVE_FPS / 2);
+        }
+    }
+
+    private void pollWhilePaused() {
+        if (!paused) return;
+        long now = System.nanoTime();
+        pacer.onIdle(now);
+        FloatRingBuffer ring = envelope;
+        if (ring != null && !ring.isEmpty()) {
+            wakeUp();
+            return;
+        }
+        Handler handler = renderHandler;
+        if (handler != null) handler.postDelayed(pollRunnable, PAUSED_POLL_MS);
+    }
+
+    // New input, a touch or a mode change: frame on the next vsync, whatever was scheduled
+    private void wakeUp() {
+        if (choreographer == null) return;
+        Handler handler = renderHandler;
+        if (handler != null) handler.removeCallbacks(pollRunnable);
+        if (paused) {
+            paused = false;
+            pacer.resume(System.nanoTime()); // no catch-up for the time spent paused
+        }
+        choreographer.removeFrameCallback(frameCallback);
+        frameScheduled = true;
+        choreographer.postFrameCallback(frameCallback);
+    }
+
+    private boolean isLowPower() {
+        return nightMode && SystemClock.uptimeMillis() - lastTouchUptime > LOW_POWER_AFTER_MS;
+    }
+
+    /** Smooth closed path through the outline points (quads through the midpoints). */
+    static void outlinePath(float[] xs, float[] ys, Path path) {
+        path.reset();
+        path.moveTo((xs[0] + xs[POINT_COUNT - 1]) / 2, (ys[0] + ys[POINT_COUNT - 1]) / 2);
+        for (int i = 0; i < POINT_COUNT; i++) {
+            float thisX = xs[i];
+            float thisY = ys[i];
+            int nextI = (i + 1) % POINT_COUNT;
+            float midX = (thisX + xs[nextI]) / 2;
+            float midY = (thisY + ys[nextI]) / 2;
+            path.quadTo(thisX, thisY, midX, midY);
+        }
+        path.close();
+    }
+
+    static Paint blobPaint() {
+        Paint paint = new Paint();
+        paint.setColor(Color.parseColor("#7E57C2")); // Deep Purple
+        paint.setStyle(Paint.Style.FILL);
+        paint.setAntiAlias(true);
+        return paint;
+    }
+
+    // --- STATS (any thread) ---
+
+    public long getFrameCount() { return pacer.getFrames(); }
+
+    /** Frames rendered over the last minute: ~3600 while active, ~300 in night mode, ~0 settled. */
+    public int getFramesLastMinute() { return pacer.getFramesLastMinute(); }
+
+    /** Render-thread CPU time spent on frames so far. */
+    public long getRenderCpuMs() { return pacer.getCpuNanos() / 1_000_000L; }
+
+    public long getPhysicsSteps() { return pacer.getSteps(); }
+
+    /** Current target: ACTIVE_FPS, LOW_POWER_FPS or 0 (paused). */
+    public int getCurrentFps() { return currentFps; }
+
+    public void logStats() {
+        Log.i(TAG, "frames " + getFrameCount() + ", last minute " + getFramesLastMinute() + ", fps " + currentFps
+                + ", render CPU " + getRenderCpuMs() + " ms, physics steps " + getPhysicsSteps()
+                + " (" + pacer.getDroppedSteps() + " dropped)");
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.sleepagentapp;
+
+/**
+ * The DecisionCache in front of the LLM call (steps D-F of AgentService.runAgent). The same
+ * risks + question as a few minutes ago are answered from the cache without a network
+ * round-trip; anything else goes to the LLM, and only real LLM answers are kept.
+ * Only used from AgentService's worker thread.
+ */
+class CachedAgent {
+
+    // launcher.call_agent_packed(_stream): packed risks + question in, packed decision out
+    interface Llm {
+        String[] call(double[] packedRisks, String query, AgentService.StreamListener listener) throws Exception;
+    }
+
+    private final DecisionCache cache;
+    private final Llm llm;
+    private final double[] packedRisks = new double[RiskBundle.PACKED_SIZE];
+
+    // Written on the worker, read from anywhere
+    private volatile int llmCalls = 0;
+
+    CachedAgent(DecisionCache cache, Llm llm) {
+        this.cache = cache;
+        this.llm = llm;
+    }
+
+    // null when the LLM sent back nothing usable
+    AgentDecision ask(RiskBundle risks, AgentService.StreamListener listener) throws Exception {
+        AgentDecision cached = cache.get(risks);
+        if (cached != null) return cached;
+
+        llmCalls++;
+        AgentDecision decision = AgentDecision.fromPacked(llm.call(risks.pack(packedRisks), risks.userQuery, listener));
+
+        // A fallback here means the request failed: ask again next time
+        if (decision != null && AgentDecision.SOURCE_LLM.equals(decision.source)) {
+            cache.put(risks, decision);
+        }
+        return decision;
+    }
+
+    int getLlmCalls() { return llmCalls; }
+}
@@ -0,0 +1,163 @@
+package com.example.sleepagentapp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Append-only caffeine intake history. Fixed-width records (long timestamp + float mg,
+ * little endian), in time order, read back through a memory map.
+ *
+ * A crash can at worst leave half a record at the end of the file; it is cut off
+ * the next time the log is opened.
+ */
+public class CaffeineLog implements Closeable {
+
+    static final int RECORD_BYTES = 12;
+
+    public interface RecordVisitor {
+        void visit(long timestamp, float mg);
+    }
+
+    private final File file;
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private final ByteBuffer record = ByteBuffer.allocateDirect(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private long count;
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    public static CaffeineLog open(File file) throws IOException {
+        return new CaffeineLog(file);
+    }
+
+    private CaffeineLog(File file) throws IOException {
+        this.file = file;
+        openChannel();
+    }
+
+    private void openChannel() throws IOException {
+        // RandomAccessFile rather than FileChannel.open(Path): java.nio.file needs API 26
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+
+        // Drop a torn record left by a crash mid-append
+        long bytes = channel.size();
+        long torn = bytes % RECORD_BYTES;
+        if (torn != 0) {
+            channel.truncate(bytes - torn);
+            channel.force(true);
+        }
+        count = channel.size() / RECORD_BYTES;
+        lastTimestamp = count > 0 ? timestampAt(count - 1) : Long.MIN_VALUE;
+    }
+
+    /** Timestamps must not go backwards; the range queries rely on the file being sorted. */
+    public synchronized void append(float mg, long timestamp) throws IOException {
+        if (timestamp < lastTimestamp) {
+            throw new IllegalArgumentException("Intake at " + timestamp + " is older than the last one (" + lastTimestamp + ")");
+        }
+        record.clear();
+        record.putLong(timestamp).putFloat(mg).flip();
+
+        long position = count * RECORD_BYTES;
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        // Data only, no metadata: if the size update is lost we lose this record, never older ones
+        channel.force(false);
+
+        count++;
+        lastTimestamp = timestamp;
+    }
+
+    /** Visits every record with {@code from <= timestamp < to}. Returns how many were visited. */
+    public synchronized int forEachInRange(long from, long to, RecordVisitor visitor) throws IOException {
+        if (count == 0 || from >= to) return 0;
+
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, count * RECORD_BYTES);
+        map.order(ByteOrder.LITTLE_ENDIAN);
+
+        int visited = 0;
+        for (long i = lowerBound(map, from); i < count; i++) {
+            int offset = (int) (i * RECORD_BYTES);
+            long timestamp = map.getLong(offset);
+            if (timestamp >= to) break;
+            visitor.visit(timestamp, map.getFloat(offset + 8));
+            visited++;
+        }
+        return visited;
+    }
+
+    /** Rewrites the log without the records older than {@code cutoff}. Atomic via rename. */
+    public synchronized long compact(long cutoff) throws IOException {
+        if (count == 0) return 0;
+
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, count * RECORD_BYTES);
+        map.order(ByteOrder.LITTLE_ENDIAN);
+        long keepFrom = lowerBound(map, cutoff);
+        if (keepFrom == 0) return 0;
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+            out.setLength(0);
+            FileChannel outChannel = out.getChannel();
+            map.position((int) (keepFrom * RECORD_BYTES));
+            while (map.hasRemaining()) {
+                outChannel.write(map);
+            }
+            outChannel.force(true);
+        }
+
+        // rename() within one directory is atomic: readers see the old file or the new one
+        raf.close();
+        if (!tmp.renameTo(file)) {
+            openChannel();
+            throw new IOException("Could not replace " + file + " with compacted log");
+        }
+        openChannel();
+        return keepFrom;
+    }
+
+    public synchronized long size() {
+        return count;
+    }
+
+    public synchronized long firstTimestamp() throws IOException {
+        return count > 0 ? timestampAt(0) : Long.MIN_VALUE;
+    }
+
+    public synchronized long lastTimestamp() {
+        return lastTimestamp;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        raf.close();
+    }
+
+    // First record index with timestamp >= time
+    private long lowerBound(ByteBuffer map, long time) {
+        long lo = 0, hi = count;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (map.getLong((int) (mid * RECORD_BYTES)) < time) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private long timestampAt(long index) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        long position = index * RECORD_BYTES;
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, position + buf.position());
+            if (n < 0) throw new IOException("Unexpected end of " + file);
+        }
+        return buf.getLong(0);
+    }
+}
@@ -3,11 +3,25 @@ package com.example.sleepagentapp;
 import java.util.List;
 
 public class CaffeineMath {
-    private static final double HALF_LIFE_HOURS = 5.7;
+    static final double HALF_LIFE_HOURS = 5.7;
 
+    // utils/risk_calculator.py uses a shorter half-life and ignores intakes older than 12 h
+    static final double RISK_CALCULATOR_HALF_LIFE_HOURS = 5.0;
+    static final double RISK_CALCULATOR_HORIZON_HOURS = 12;
+
+    // Closed form of C * 0.5^(t / halfLife) = target
+    public static double hoursUntilBelow(float activeMg, float targetMg, double halfLifeHours) {
+        if (activeMg <= targetMg) return 0;
+        return halfLifeHours * (Math.log(activeMg / (double) targetMg) / Math.log(2));
+    }
+
+    // Full scan, kept as the reference for CaffeineTracker
     public static float calculateActiveCaffeine(List<CaffeineEntry> history) {
+        return calculateActiveCaffeine(history, System.currentTimeMillis());
+    }
+
+    public static float calculateActiveCaffeine(List<CaffeineEntry> history, long now) {
         float totalActive = 0;
-        long now = System.currentTimeMillis();
 
         for (CaffeineEntry entry : history) {
             double hoursElapsed = (now - entry.timestamp) / (1000.0 * 60 * 60);
@@ -0,0 +1,160 @@
+package com.example.sleepagentapp;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * App-wide caffeine state: the on-disk intake log plus the in-memory tracker.
+ * Only the intakes inside the decay horizon are replayed at startup, from the log
+ * into the tracker (no List of entries). Intakes past the horizon are cut from the file
+ * at startup and again after an append once a day's worth has piled up, so the log
+ * stays a few days long however long the process lives. The log lives on the io
+ * thread; the monitor only guards the tracker, so the main thread never waits on a
+ * disk write.
+ */
+public class CaffeineStore {
+
+    private static final String TAG = "CaffeineStore";
+    private static final String LOG_FILE = "caffeine.log";
+
+    // Even 1000 mg is below 1 mg after ~57 h at a 5.7 h half-life
+    static final long DECAY_HORIZON_MS = 72 * 60 * 60 * 1000L;
+    // Only rewrite the file once at least a day's worth is past the horizon
+    private static final long COMPACTION_SLACK_MS = 24 * 60 * 60 * 1000L;
+
+    private static CaffeineStore instance;
+
+    private final File logFile;
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> new Thread(r, "caffeine-io"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final CaffeineTracker tracker = new CaffeineTracker();
+
+    // Only touched on the io thread, so file I/O never holds the tracker lock (this)
+    private CaffeineLog log;
+    private volatile boolean loaded = false;
+    // Never goes backwards, even if the wall clock does (the log has to stay sorted)
+    private long lastIntakeMs = Long.MIN_VALUE;
+
+    public static synchronized CaffeineStore get(Context context) {
+        if (instance == null) {
+            instance = new CaffeineStore(new File(context.getApplicationContext().getFilesDir(), LOG_FILE));
+            instance.load();
+        }
+        return instance;
+    }
+
+    private CaffeineStore(File logFile) {
+        this.logFile = logFile;
+    }
+
+    private void load() {
+        io.execute(() -> {
+            try {
+                CaffeineLog opened = CaffeineLog.open(logFile);
+                long now = System.currentTimeMillis();
+                compactIfDue(opened, now);
+
+                log = opened;
+                // Read the replay first; only feeding it to the tracker needs the lock
+                Replay replay = new Replay();
+                opened.forEachInRange(now - DECAY_HORIZON_MS, Long.MAX_VALUE, replay);
+                synchronized (this) {
+                    lastIntakeMs = Math.max(lastIntakeMs, opened.lastTimestamp());
+                    for (int i = 0; i < replay.size; i++) tracker.addIntake(replay.mgs[i], replay.timestamps[i]);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Could not open caffeine log", e);
+            }
+            loaded = true;
+        });
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /** Logs an intake now. Returns the new active level. The disk write happens off the calling thread. */
+    public synchronized float addIntake(float mg) {
+        long now = intakeClock();
+        tracker.addIntake(mg, now);
+        io.execute(() -> {
+            // The load ran first on this thread, so null means the log couldn't be opened
+            if (log == null) {
+                Log.w(TAG, "Caffeine log not open, intake of " + mg + " mg not saved");
+                return;
+            }
+            try {
+                // Logged before the load finished: the file may already hold a later one
+                log.append(mg, Math.max(now, log.lastTimestamp()));
+            } catch (IOException e) {
+                Log.e(TAG, "Could not append intake", e);
+                return;
+            }
+            try {
+                compactIfDue(log, now);
+            } catch (IOException e) {
+                Log.e(TAG, "Could not compact caffeine log", e);
+            }
+        });
+        return tracker.getActiveCaffeine(now);
+    }
+
+    // io thread. Rewrites the file only once at least COMPACTION_SLACK_MS of it is past the horizon
+    private static void compactIfDue(CaffeineLog log, long now) throws IOException {
+        long first = log.firstTimestamp();
+        if (first == Long.MIN_VALUE || first >= now - DECAY_HORIZON_MS - COMPACTION_SLACK_MS) return;
+        long dropped = log.compact(now - DECAY_HORIZON_MS);
+        Log.i(TAG, "Compacted " + dropped + " decayed intakes");
+    }
+
+    private long intakeClock() {
+        lastIntakeMs = Math.max(lastIntakeMs, System.currentTimeMillis());
+        return lastIntakeMs;
+    }
+
+    public synchronized float getActiveCaffeine() {
+        return tracker.getActiveCaffeine(System.currentTimeMillis());
+    }
+
+    public synchronized long timeWhenBelow(float targetMg) {
+        return tracker.timeWhenBelow(targetMg, System.currentTimeMillis());
+    }
+
+    /** Range query over the full on-disk history. Runs on the IO thread, result on the main thread. */
+    public void queryRange(long from, long to, CaffeineLog.RecordVisitor visitor, Runnable onDone) {
+        io.execute(() -> {
+            try {
+                if (log != null) log.forEachInRange(from, to, visitor);
+            } catch (IOException e) {
+                Log.e(TAG, "Range query failed", e);
+            }
+            if (onDone != null) mainHandler.post(onDone);
+        });
+    }
+
+    // The intakes inside the horizon, in file order
+    private static final class Replay implements CaffeineLog.RecordVisitor {
+        long[] timestamps = new long[16];
+        float[] mgs = new float[16];
+        int size;
+
+        @Override
+        public void visit(long timestamp, float mg) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                mgs = Arrays.copyOf(mgs, size * 2);
+            }
+            timestamps[size] = timestamp;
+            mgs[size] = mg;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.example.sleepagentapp;
+
+import java.util.Arrays;
+
+/**
+ * Incremental version of CaffeineMath.calculateActiveCaffeine.
+ *
+ * Every intake decays with the same half-life, so the sum of all of them decays
+ * the same way: the running total only has to be rescaled by 0.5^(dt / halfLife)
+ * when it is read. Intakes live in primitive arrays ordered by when they expire (drop
+ * below 1 mg or pass the horizon), so a read subtracts and pops the expired ones off the
+ * front: each intake is dropped once, amortized O(1). Most intakes expire after the one
+ * before them and are appended to a ring buffer; one that expires sooner (a small dose
+ * after a big one) goes in a min-heap of its own instead, O(log n) in and out.
+ */
+public class CaffeineTracker {
+
+    // Same cut-off as CaffeineMath: anything at or below this no longer counts
+    static final float MIN_ACTIVE_MG = 1.0f;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Stop bisecting once the answer is pinned down to a second
+    private static final long SOLVER_PRECISION_MS = 1000;
+
+    private final double halfLifeMs;
+    private final float minActiveMg;
+    private final long horizonMs;
+
+    // Ring buffer, expiresAt non-decreasing from head
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private long[] expiresAt = new long[INITIAL_CAPACITY];
+    private float[] mgs = new float[INITIAL_CAPACITY];
+    private int head = 0;
+    private int size = 0;
+
+    // Binary min-heap on expiresAt: intakes that expire before the ring's tail
+    private long[] earlyTimestamps = new long[INITIAL_CAPACITY];
+    private long[] earlyExpiresAt = new long[INITIAL_CAPACITY];
+    private float[] earlyMgs = new float[INITIAL_CAPACITY];
+    private int earlySize = 0;
+
+    // Sum of all buffered intakes, decayed to totalAsOf
+    private double total = 0;
+    private long totalAsOf = Long.MIN_VALUE;
+
+    public CaffeineTracker() {
+        this(CaffeineMath.HALF_LIFE_HOURS);
+    }
+
+    public CaffeineTracker(double halfLifeHours) {
+        this(halfLifeHours, MIN_ACTIVE_MG, 0);
+    }
+
+    /**
+     * @param minActiveMg intakes stop counting once they decay to this (0 = never)
+     * @param horizonHours intakes stop counting this long after they were taken (0 = never)
+     */
+    public CaffeineTracker(double halfLifeHours, float minActiveMg, double horizonHours) {
+        this.halfLifeMs = halfLifeHours * 60 * 60 * 1000;
+        this.minActiveMg = minActiveMg;
+        this.horizonMs = (long) (horizonHours * 60 * 60 * 1000);
+    }
+
+    // Same model as utils/risk_calculator.calculate_caffeine_remaining (5 h half-life, 12 h window)
+    public static CaffeineTracker forRiskCalculator() {
+        return new CaffeineTracker(CaffeineMath.RISK_CALCULATOR_HALF_LIFE_HOURS, 0f,
+                CaffeineMath.RISK_CALCULATOR_HORIZON_HOURS);
+    }
+
+    public double getHalfLifeHours() {
+        return halfLifeMs / (60 * 60 * 1000);
+    }
+
+    public void addIntake(float mg, long timestamp) {
+        if (mg <= minActiveMg || mg <= 0) return;
+
+        if (totalAsOf == Long.MIN_VALUE || timestamp >= totalAsOf) {
+            // Normal case: bring the total forward to the new intake, then add it
+            rescaleTo(timestamp);
+            total += mg;
+        } else {
+            // Back-dated intake: add what is left of it at totalAsOf
+            total += mg * decayFactor(totalAsOf - timestamp);
+        }
+        insert(mg, timestamp);
+    }
+
+    /** Active caffeine at {@code now}. Amortized constant time, and no allocation. */
+    public float getActiveCaffeine(long now) {
+        if (size() == 0) return 0f;
+        compact(now);
+        if (size() == 0) return 0f;
+
+        if (now >= totalAsOf) {
+            rescaleTo(now);
+            return (float) total;
+        }
+        // Asking about the past: scale back without moving the reference point.
+        // Intakes already compacted by a later read are not brought back.
+        return (float) (total / decayFactor(totalAsOf - now));
+    }
+
+    public float getActiveCaffeine() {
+        return getActiveCaffeine(System.currentTimeMillis());
+    }
+
+    // --- FORECAST ---
+
+    /**
+     * Projects active caffeine at {@code from}, {@code from + stepMs}, ... into {@code out}
+     * (one point per slot). Assumes no further intakes. O(intakes + points), no allocation.
+     */
+    public float[] forecast(long from, long stepMs, float[] out) {
+        if (out.length == 0) return out;
+        Arrays.fill(out, 0f);
+
+        double base = getActiveCaffeine(from);
+        if (base <= 0) return out;
+
+        // Intakes that expire inside the window: note their level at `from` in the slot where they drop out
+        for (int i = 0, n = size(); i < n; i++) {
+            long expiry = expiresAtOf(i);
+            long timestamp = timestampOf(i);
+            if (expiry == Long.MAX_VALUE || expiry <= from || timestamp > from) continue;
+            long k = (expiry - from + stepMs - 1) / stepMs;
+            if (k < out.length) {
+                out[(int) k] += (float) (mgOf(i) * decayFactor(from - timestamp));
+            }
+        }
+
+        // Whatever is left decays as one exponential
+        double stepFactor = decayFactor(stepMs);
+        double factor = 1;
+        double removed = 0;
+        for (int i = 0; i < out.length; i++) {
+            removed += out[i];
+            out[i] = (float) Math.max(0, (base - removed) * factor);
+            factor *= stepFactor;
+        }
+        return out;
+    }
+
+    /**
+     * Earliest time at or after {@code now} when active caffeine is at or below {@code targetMg},
+     * assuming no further intakes.
+     */
+    public long timeWhenBelow(float targetMg, long now) {
+        float active = getActiveCaffeine(now);
+        if (active <= targetMg) return now;
+        if (targetMg <= 0) {
+            // Only reachable if every intake eventually expires
+            long last = now;
+            for (int i = 0, n = size(); i < n; i++) last = Math.max(last, expiresAtOf(i));
+            return last;
+        }
+
+        // Closed form for the plain exponential. Expiring intakes only make it drop sooner,
+        // so the real crossing is somewhere in [now, upper]
+        long upper = now + (long) Math.ceil(CaffeineMath.hoursUntilBelow(active, targetMg, getHalfLifeHours()) * 60 * 60 * 1000);
+        if (!hasExpiryBefore(upper)) return upper;
+
+        long lower = now;
+        while (upper - lower > SOLVER_PRECISION_MS) {
+            long mid = lower + (upper - lower) / 2;
+            if (levelAt(mid) <= targetMg) upper = mid;
+            else lower = mid;
+        }
+        return upper;
+    }
+
+    // Level at a future time without touching the buffer. O(intakes)
+    private double levelAt(long time) {
+        double level = 0;
+        for (int i = 0, n = size(); i < n; i++) {
+            long timestamp = timestampOf(i);
+            if (expiresAtOf(i) <= time || timestamp > time) continue;
+            level += mgOf(i) * decayFactor(time - timestamp);
+        }
+        return level;
+    }
+
+    private boolean hasExpiryBefore(long time) {
+        return (size > 0 && expiresAt[head] <= time) || (earlySize > 0 && earlyExpiresAt[0] <= time);
+    }
+
+    public int size() {
+        return size + earlySize;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+        earlySize = 0;
+        total = 0;
+        totalAsOf = Long.MIN_VALUE;
+    }
+
+    // Intake i of size(), ring first then heap, in no particular order (for the O(intakes) scans)
+    private long timestampOf(int i) {
+        return i < size ? timestamps[(head + i) & (timestamps.length - 1)] : earlyTimestamps[i - size];
+    }
+
+    private long expiresAtOf(int i) {
+        return i < size ? expiresAt[(head + i) & (expiresAt.length - 1)] : earlyExpiresAt[i - size];
+    }
+
+    private float mgOf(int i) {
+        return i < size ? mgs[(head + i) & (mgs.length - 1)] : earlyMgs[i - size];
+    }
+
+    // Drops every intake whose remaining dose is <= 1 mg. Both structures keep the earliest
+    // expiry in front, so this only ever looks at intakes it drops, plus one
+    private void compact(long now) {
+        int mask = timestamps.length - 1;
+        // totalAsOf is never older than any buffered intake
+        while (size > 0 && expiresAt[head] <= now) {
+            total -= mgs[head] * decayFactor(totalAsOf - timestamps[head]);
+            head = (head + 1) & mask;
+            size--;
+        }
+        while (earlySize > 0 && earlyExpiresAt[0] <= now) {
+            total -= earlyMgs[0] * decayFactor(totalAsOf - earlyTimestamps[0]);
+            popEarly();
+        }
+        // Nothing left, or float drift took it below zero: start clean
+        if (size() == 0 || total < 0) total = 0;
+    }
+
+    private void rescaleTo(long time) {
+        if (totalAsOf != Long.MIN_VALUE && time > totalAsOf) {
+            total *= decayFactor(time - totalAsOf);
+        }
+        totalAsOf = time;
+    }
+
+    private double decayFactor(long elapsedMs) {
+        return Math.pow(0.5, elapsedMs / halfLifeMs);
+    }
+
+    private void insert(float mg, long timestamp) {
+        long expiry = expiryOf(mg, timestamp);
+        if (size > 0 && expiry < expiresAt[(head + size - 1) & (expiresAt.length - 1)]) {
+            pushEarly(mg, timestamp, expiry);
+            return;
+        }
+        if (size == timestamps.length) grow();
+        int slot = (head + size) & (timestamps.length - 1);
+        timestamps[slot] = timestamp;
+        expiresAt[slot] = expiry;
+        mgs[slot] = mg;
+        size++;
+    }
+
+    // --- EARLY HEAP ---
+
+    private void pushEarly(float mg, long timestamp, long expiry) {
+        if (earlySize == earlyExpiresAt.length) {
+            earlyTimestamps = Arrays.copyOf(earlyTimestamps, earlySize * 2);
+            earlyExpiresAt = Arrays.copyOf(earlyExpiresAt, earlySize * 2);
+            earlyMgs = Arrays.copyOf(earlyMgs, earlySize * 2);
+        }
+        // Sift up from the new leaf
+        int i = earlySize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (earlyExpiresAt[parent] <= expiry) break;
+            moveEarly(parent, i);
+            i = parent;
+        }
+        setEarly(i, timestamp, expiry, mg);
+    }
+
+    private void popEarly() {
+        int last = --earlySize;
+        if (last == 0) return;
+        long timestamp = earlyTimestamps[last];
+        long expiry = earlyExpiresAt[last];
+        float mg = earlyMgs[last];
+        // Sift the old last leaf down from the root
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= last) break;
+            if (child + 1 < last && earlyExpiresAt[child + 1] < earlyExpiresAt[child]) child++;
+            if (expiry <= earlyExpiresAt[child]) break;
+            moveEarly(child, i);
+            i = child;
+        }
+        setEarly(i, timestamp, expiry, mg);
+    }
+
+    private void moveEarly(int from, int to) {
+        setEarly(to, earlyTimestamps[from], earlyExpiresAt[from], earlyMgs[from]);
+    }
+
+    private void setEarly(int i, long timestamp, long expiry, float mg) {
+        earlyTimestamps[i] = timestamp;
+        earlyExpiresAt[i] = expiry;
+        earlyMgs[i] = mg;
+    }
+
+    // When an intake stops counting: decayed to minActiveMg, or past the horizon
+    private long expiryOf(float mg, long timestamp) {
+        long expiry = Long.MAX_VALUE;
+        if (minActiveMg > 0) {
+            expiry = timestamp + (long) (halfLifeMs * (Math.log(mg / minActiveMg) / Math.log(2)));
+        }
+        if (horizonMs > 0) {
+            expiry = Math.min(expiry, timestamp + horizonMs);
+        }
+        return expiry;
+    }
+
+    private void grow() {
+        int capacity = timestamps.length;
+        long[] newTimestamps = new long[capacity * 2];
+        long[] newExpires = new long[capacity * 2];
+        float[] newMgs = new float[capacity * 2];
+        for (int i = 0; i < size; i++) {
+            int from = (head + i) & (capacity - 1);
+            newTimestamps[i] = timestamps[from];
+            newExpires[i] = expiresAt[from];
+            newMgs[i] = mgs[from];
+        }
+        timestamps = newTimestamps;
+        expiresAt = newExpires;
+        mgs = newMgs;
+        head = 0;
+    }
+}
@@ -13,6 +13,9 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
     private static final int TYPE_USER = 1;
     private static final int TYPE_BOT = 2;
+
+    // Payload for in-place text updates (streaming replies), skips the change animation
+    static final Object PAYLOAD_TEXT = new Object();
     private final List<Message> messages = new ArrayList<>();
 
     // Helper class for data
@@ -25,9 +28,20 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         }
     }
 
-    public void addMessage(String text, boolean isUser) {
+    // Returns the position so a streaming reply can be updated later
+    public int addMessage(String text, boolean isUser) {
         messages.add(new Message(text, isUser));
-        notifyItemInserted(messages.size() - 1);
+        int position = messages.size() - 1;
+        notifyItemInserted(position);
+        return position;
+    }
+
+    public void updateMessage(int position, String text) {
+        if (position < 0 || position >= messages.size()) return;
+        Message msg = messages.get(position);
+        if (text.equals(msg.text)) return;
+        msg.text = text;
+        notifyItemChanged(position, PAYLOAD_TEXT);
     }
 
     @Override
@@ -57,6 +71,18 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         }
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_TEXT)) {
+            // Only the text changed, the holder type is the same
+            String text = messages.get(position).text;
+            if (holder instanceof UserHolder) ((UserHolder) holder).text.setText(text);
+            else ((BotHolder) holder).text.setText(text);
+            return;
+        }
+        onBindViewHolder(holder, position);
+    }
+
     @Override
     public int getItemCount() { return messages.size(); }
 
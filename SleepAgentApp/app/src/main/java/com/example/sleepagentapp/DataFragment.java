@@ -1,12 +1,9 @@
 package com.example.sleepagentapp;
 
 import android.app.AlertDialog;
-import android.app.AppOpsManager;
-import android.app.usage.UsageStats;
-import android.app.usage.UsageStatsManager;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
+import android.graphics.Color;
 import android.os.Bundle;
 import android.provider.Settings;
 import android.text.InputType;
@@ -20,14 +17,31 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.cardview.widget.CardView;
 import androidx.fragment.app.Fragment;
-import java.util.Calendar;
-import java.util.List;
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class DataFragment extends Fragment {
 
     private CardView cardCaffeine, cardDebt, cardNoise, cardLight;
     private TextView valCaffeine, valDebt, valNoise, valLight;
 
+    private SensorStateStore stateStore;
+    private final SensorStateStore.Listener stateListener = this::render;
+
+    private ScreenTimeStore screenTime;
+    private final ScreenTimeStore.Listener screenTimeListener = this::renderScreenTime;
+    private boolean syncRequested = false;
+
+    // --- HISTORY CHART ---
+    private static final long HISTORY_MS = 30 * 24 * 60 * 60 * 1000L;
+    private static final long INITIAL_VIEW_MS = 12 * 60 * 60 * 1000L; // last night
+    private static final ExecutorService historyLoader = Executors.newSingleThreadExecutor(r -> new Thread(r, "history-loader"));
+    private SeriesChartView chart;
+    private View chartLocked;
+    private boolean historyLoading = false;
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
@@ -43,17 +57,86 @@ public class DataFragment extends Fragment {
         valNoise = view.findViewById(R.id.txt_noise_val);
         valLight = view.findViewById(R.id.txt_light_val);
 
+        chart = view.findViewById(R.id.chart_history);
+        chartLocked = view.findViewById(R.id.chart_locked);
+
         // Set Listeners
-        cardCaffeine.setOnClickListener(v -> showInputDialog("Caffeine Consumed (mg)", "caffeine_mg", valCaffeine, " mg"));
-        cardDebt.setOnClickListener(v -> showInputDialog("Sleep Debt (hours)", "sleep_debt", valDebt, " hrs"));
-        cardNoise.setOnClickListener(v -> showInputDialog("Noise Level (1-10)", "noise_level", valNoise, "/10"));
+        cardCaffeine.setOnClickListener(v -> showInputDialog("Caffeine Consumed (mg)", SensorStateStore.Field.CAFFEINE_MG, valCaffeine, " mg"));
+        cardDebt.setOnClickListener(v -> showInputDialog("Sleep Debt (hours)", SensorStateStore.Field.SLEEP_DEBT_HOURS, valDebt, " hrs"));
+        cardNoise.setOnClickListener(v -> showInputDialog("Noise Level (1-10)", SensorStateStore.Field.NOISE_LEVEL, valNoise, "/10"));
         cardLight.setOnClickListener(v -> handleScreenTimeSync());
 
-        updateUI();
+        stateStore = SensorStateStore.get(requireContext());
+        stateStore.addListener(stateListener);
+        screenTime = ScreenTimeStore.get(requireContext());
+        screenTime.addListener(screenTimeListener);
         return view;
     }
 
-    private void showInputDialog(String title, String prefKey, TextView displayView, String suffix) {
+    // Every time the tab is shown, and on the way back from the Usage Access settings.
+    // The tab is kept alive between visits, so this is also where a night recorded since shows up
+    @Override
+    public void onResume() {
+        super.onResume();
+        updateUI();
+        loadHistory();
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        stateStore.removeListener(stateListener);
+        screenTime.removeListener(screenTimeListener);
+        chart = null;
+        historyLoading = false; // a load posting to the old view never lands
+    }
+
+    // Pyramids are built off the main thread and only handed to the chart once complete
+    private void loadHistory() {
+        if (historyLoading) return;
+        historyLoading = true;
+        Context context = requireContext().getApplicationContext();
+        long to = System.currentTimeMillis();
+        long from = to - HISTORY_MS;
+        SeriesChartView target = chart;
+
+        historyLoader.execute(() -> {
+            SeriesPyramid noise = SessionHistory.loadNoise(SleepSessionService.sessionsDir(context), from);
+            if (noise.isEmpty()) {
+                target.post(() -> historyLoading = false); // stays locked until the first recorded night
+                return;
+            }
+            long start = noise.getStart();
+            long end = noise.getEnd();
+
+            // Intakes from before the window still count at its start
+            long[][] times = {new long[64]};
+            float[][] mgs = {new float[64]};
+            int[] count = {0};
+            CaffeineStore.get(context).queryRange(start - CaffeineStore.DECAY_HORIZON_MS, end, (timestamp, mg) -> {
+                if (count[0] == times[0].length) {
+                    times[0] = Arrays.copyOf(times[0], count[0] * 2);
+                    mgs[0] = Arrays.copyOf(mgs[0], count[0] * 2);
+                }
+                times[0][count[0]] = timestamp;
+                mgs[0][count[0]++] = mg;
+            }, () -> historyLoader.execute(() -> {
+                SeriesPyramid caffeine = SessionHistory.caffeineCurve(times[0], mgs[0], count[0], start, end);
+                target.post(() -> showHistory(target, noise, caffeine, start, end));
+            }));
+        });
+    }
+
+    private void showHistory(SeriesChartView target, SeriesPyramid noise, SeriesPyramid caffeine, long start, long end) {
+        historyLoading = false;
+        if (chart != target) return; // view was destroyed / recreated meanwhile
+        chart.setSeries(0, noise, Color.parseColor("#E65100"), 20f, 100f);
+        chart.setSeries(1, caffeine, Color.parseColor("#795548"), 0f, 400f);
+        chart.setDataRange(start, end, INITIAL_VIEW_MS);
+        chartLocked.setVisibility(View.GONE);
+    }
+
+    private void showInputDialog(String title, SensorStateStore.Field field, TextView displayView, String suffix) {
         AlertDialog.Builder builder = new AlertDialog.Builder(getContext());
         builder.setTitle(title);
 
@@ -66,29 +149,23 @@ public class DataFragment extends Fragment {
             String text = input.getText().toString();
             if (!text.isEmpty()) {
                 float value = Float.parseFloat(text);
-                saveToPrefs(prefKey, value);
-                displayView.setText(value + suffix);
-
-                // --- SMART AGENTIC TRIGGER ---
-                // If Caffeine is updated, check if we need to Shift OR Reset the schedule
-                if (prefKey.equals("caffeine_mg")) {
-
-                    if (ScheduleFragment.instance != null && ScheduleFragment.instance.isAdded()) {
-
-                        if (value > 350) {
-                            // High Risk -> Shift Forward (New Method Name)
-                            ScheduleFragment.instance.triggerHighCaffeineShift();
-                            Toast.makeText(getContext(), "⚠️ High Caffeine! Schedule +30m.", Toast.LENGTH_SHORT).show();
-                        } else {
-                            // Low Risk -> Reset / Undo (New Method Name)
-                            ScheduleFragment.instance.triggerReset();
-                            Toast.makeText(getContext(), "✅ Levels Safe. Schedule reset.", Toast.LENGTH_SHORT).show();
-                        }
+
+                if (field == SensorStateStore.Field.CAFFEINE_MG) {
+                    // Log the intake; what we store and show is the active level after it
+                    value = CaffeineStore.get(requireContext()).addIntake(value);
+                    displayView.setText(String.format("%.0f%s active", value, suffix));
+                } else {
+                    displayView.setText(value + suffix);
+                }
+                // ScheduleFragment listens to the store and shifts / resets itself
+                stateStore.set(field, value);
+
+                // --- SMART AGENTIC TRIGGER (feedback only) ---
+                if (field == SensorStateStore.Field.CAFFEINE_MG) {
+                    if (value > DecisionTable.get().threshold(DecisionTable.CAFFEINE_HIGH_MG)) {
+                        Toast.makeText(getContext(), "⚠️ High Caffeine! Schedule +30m.", Toast.LENGTH_SHORT).show();
                     } else {
-                        // Fallback if tab is closed (The ScheduleFragment checks this itself on load)
-                        if (value > 350) {
-                            Toast.makeText(getContext(), "⚠️ High Caffeine! Schedule will adapt.", Toast.LENGTH_SHORT).show();
-                        }
+                        Toast.makeText(getContext(), "✅ Levels Safe. Schedule reset.", Toast.LENGTH_SHORT).show();
                     }
                 }
                 // -----------------------------
@@ -99,56 +176,43 @@ public class DataFragment extends Fragment {
     }
 
     private void handleScreenTimeSync() {
-        if (!hasUsageStatsPermission()) {
+        if (!ScreenTimeStore.hasPermission(requireContext())) {
             Toast.makeText(getContext(), "Grant 'Usage Access' to sync screen time.", Toast.LENGTH_LONG).show();
             startActivity(new Intent(Settings.ACTION_USAGE_ACCESS_SETTINGS));
         } else {
-            float screenTimeHours = calculateScreenTime();
-            float blueLightRisk = Math.min(10, (screenTimeHours / 6.0f) * 10);
-            saveToPrefs("light_level", blueLightRisk);
-            valLight.setText(String.format("%.1f hrs (Synced)", screenTimeHours));
-            Toast.makeText(getContext(), "Screen Time Synced!", Toast.LENGTH_SHORT).show();
+            // The toast goes out with the refreshed totals
+            syncRequested = true;
+            screenTime.refresh();
         }
     }
 
-    private boolean hasUsageStatsPermission() {
-        if (getContext() == null) return false;
-        AppOpsManager appOps = (AppOpsManager) getContext().getSystemService(Context.APP_OPS_SERVICE);
-        int mode = appOps.checkOpNoThrow(AppOpsManager.OPSTR_GET_USAGE_STATS,
-                android.os.Process.myUid(), getContext().getPackageName());
-        return mode == AppOpsManager.MODE_ALLOWED;
-    }
-
-    private float calculateScreenTime() {
-        if (getContext() == null) return 0;
-        UsageStatsManager usageStatsManager = (UsageStatsManager) getContext().getSystemService(Context.USAGE_STATS_SERVICE);
-        Calendar calendar = Calendar.getInstance();
-        long endTime = calendar.getTimeInMillis();
-        calendar.set(Calendar.HOUR_OF_DAY, 0);
-        long startTime = calendar.getTimeInMillis();
-
-        List<UsageStats> stats = usageStatsManager.queryUsageStats(UsageStatsManager.INTERVAL_DAILY, startTime, endTime);
-        long totalTimeInMillis = 0;
-        if (stats != null) {
-            for (UsageStats usage : stats) {
-                totalTimeInMillis += usage.getTotalTimeInForeground();
-            }
+    // Main thread, after each refresh: only the events since the last one were read
+    private void renderScreenTime(UsageAggregator.Totals totals) {
+        if (valLight == null) return;
+        // What risk_calculator wants is the last 2 h, the day total is just for context
+        stateStore.set(SensorStateStore.Field.LIGHT_LEVEL, totals.lightLevel());
+        valLight.setText(String.format("%.0f min last 2h\n%.1f hrs today", totals.last2hMinutes, totals.dayMinutes / 60f));
+        if (syncRequested) {
+            syncRequested = false;
+            Toast.makeText(getContext(), "Screen Time Synced!", Toast.LENGTH_SHORT).show();
         }
-        return totalTimeInMillis / 1000f / 3600f;
     }
 
-    private void saveToPrefs(String key, float value) {
+    private void updateUI() {
         if (getContext() == null) return;
-        SharedPreferences prefs = getContext().getSharedPreferences("SleepData", Context.MODE_PRIVATE);
-        prefs.edit().putFloat(key, value).apply();
+        CaffeineStore caffeine = CaffeineStore.get(getContext());
+        if (caffeine.isLoaded()) {
+            // Decayed since the last intake, keep the stored value in step
+            stateStore.set(SensorStateStore.Field.CAFFEINE_MG, caffeine.getActiveCaffeine());
+        }
+        screenTime.refresh(); // no-op without usage access
     }
 
-    private void updateUI() {
-        if (getContext() == null) return;
-        SharedPreferences prefs = getContext().getSharedPreferences("SleepData", Context.MODE_PRIVATE);
-        valCaffeine.setText(prefs.getFloat("caffeine_mg", 0) + " mg");
-        valDebt.setText(prefs.getFloat("sleep_debt", 0) + " hrs");
-        valNoise.setText(prefs.getFloat("noise_level", 0) + "/10");
-        if (hasUsageStatsPermission()) valLight.setText(String.format("%.1f hrs", calculateScreenTime()));
+    // Called once the store has loaded and after every change
+    private void render(SensorStateStore.Snapshot state) {
+        if (valCaffeine == null) return;
+        valCaffeine.setText(String.format("%.0f mg active", state.caffeineMg()));
+        valDebt.setText(state.sleepDebtHours() + " hrs");
+        valNoise.setText(state.noiseLevel() + "/10");
     }
-}
\ No newline at end of file
+}
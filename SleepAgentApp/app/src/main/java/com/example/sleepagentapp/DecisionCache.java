@@ -0,0 +1,172 @@
+package com.example.sleepagentapp;
+
+import android.os.SystemClock;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * LRU + TTL cache in front of the LLM call. Keyed on a quantized risk vector plus
+ * the normalized question, so asking the same thing twice in a bedtime session
+ * doesn't go back to the network.
+ */
+public class DecisionCache {
+
+    public interface Clock {
+        long nowMs();
+    }
+
+    // Bucket sizes for the risk vector (applied to RiskEngine.calculateRisks output)
+    static final double CAFFEINE_BUCKET_MG = 25;
+    static final double DEBT_BUCKET_HOURS = 0.5;
+    static final double NOISE_BUCKET = 0.1;      // noise risk is 0-1
+    static final double MELATONIN_BUCKET = 0.25; // melatonin risk is 0-3
+
+    public static final int DEFAULT_MAX_ENTRIES = 32;
+    public static final long DEFAULT_TTL_MS = 30 * 60 * 1000L;
+
+    private final int maxEntries;
+    private final long ttlMs;
+    private final Clock clock;
+    private final LinkedHashMap<Key, CachedDecision> entries;
+
+    private int hits = 0;
+    private int misses = 0;
+    private int evictions = 0;
+    private int expirations = 0;
+
+    public DecisionCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MS);
+    }
+
+    public DecisionCache(int maxEntries, long ttlMs) {
+        this(maxEntries, ttlMs, SystemClock::elapsedRealtime);
+    }
+
+    DecisionCache(int maxEntries, long ttlMs, Clock clock) {
+        if (maxEntries <= 0) throw new IllegalArgumentException("maxEntries must be > 0");
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.clock = clock;
+        // accessOrder = true -> iteration order is least-recently-used first
+        this.entries = new LinkedHashMap<Key, CachedDecision>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedDecision> eldest) {
+                if (size() > DecisionCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized AgentDecision get(RiskBundle risks) {
+        Key key = Key.of(risks);
+        CachedDecision entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (clock.nowMs() - entry.storedAtMs > ttlMs) {
+            entries.remove(key);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.decision;
+    }
+
+    public synchronized void put(RiskBundle risks, AgentDecision decision) {
+        entries.put(Key.of(risks), new CachedDecision(decision, clock.nowMs()));
+    }
+
+    // Drops expired entries without waiting for them to be looked up
+    public synchronized void purgeExpired() {
+        long now = clock.nowMs();
+        Iterator<CachedDecision> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().storedAtMs > ttlMs) {
+                it.remove();
+                expirations++;
+            }
+        }
+    }
+
+    public synchronized void clear() { entries.clear(); }
+
+    public synchronized int size() { return entries.size(); }
+
+    public synchronized int getHits() { return hits; }
+
+    public synchronized int getMisses() { return misses; }
+
+    public synchronized int getEvictions() { return evictions; }
+
+    public synchronized int getExpirations() { return expirations; }
+
+    // "  Why can't I SLEEP?? " -> "why can't i sleep"
+    static String normalizeQuery(String query) {
+        if (query == null) return "";
+        String q = query.toLowerCase(Locale.ROOT).trim();
+        q = q.replaceAll("[\\p{Punct}&&[^']]+$", "");
+        return q.replaceAll("\\s+", " ").trim();
+    }
+
+    static int bucket(double value, double size) {
+        return (int) Math.floor(value / size);
+    }
+
+    private static class CachedDecision {
+        final AgentDecision decision;
+        final long storedAtMs;
+
+        CachedDecision(AgentDecision decision, long storedAtMs) {
+            this.decision = decision;
+            this.storedAtMs = storedAtMs;
+        }
+    }
+
+    static final class Key {
+        final int caffeine, debt, noise, melatonin;
+        final String query;
+
+        Key(int caffeine, int debt, int noise, int melatonin, String query) {
+            this.caffeine = caffeine;
+            this.debt = debt;
+            this.noise = noise;
+            this.melatonin = melatonin;
+            this.query = query;
+        }
+
+        static Key of(RiskBundle risks) {
+            return new Key(
+                    bucket(risks.caffeineMg, CAFFEINE_BUCKET_MG),
+                    bucket(risks.sleepDebtHours, DEBT_BUCKET_HOURS),
+                    bucket(risks.noiseRisk, NOISE_BUCKET),
+                    bucket(risks.melatoninRisk, MELATONIN_BUCKET),
+                    normalizeQuery(risks.userQuery));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return caffeine == k.caffeine && debt == k.debt && noise == k.noise
+                    && melatonin == k.melatonin && query.equals(k.query);
+        }
+
+        @Override
+        public int hashCode() {
+            int h = caffeine;
+            h = 31 * h + debt;
+            h = 31 * h + noise;
+            h = 31 * h + melatonin;
+            return 31 * h + query.hashCode();
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.sleepagentapp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The fallback rules and the thresholds the rest of the app shares with them, compiled once
+ * from decision_rules.txt (src/main/python/rules, also read by decision_table.py) into flat
+ * parallel arrays.
+ *
+ * evaluate() walks those arrays over four doubles: no allocation, boxing or map lookups.
+ * Comparisons are laid out rule by rule. Each one is flagged if it closes an "and" clause,
+ * and the first clause that holds decides the rule.
+ *
+ * Immutable once compiled; get() is the app's copy, loaded on first use.
+ */
+public final class DecisionTable {
+
+    static final String RULES_RESOURCE = "/decision_rules.txt";
+
+    // Input slots: RiskBundle's packing order, named as in launcher.PACKED_RISK_FIELDS
+    static final String[] INPUTS = {
+            "remaining_caffeine_mg",
+            "sleep_debt_hours",
+            "noise_disruption_risk",
+            "melatonin_suppression_risk",
+    };
+
+    // Thresholds the app reads by name
+    public static final String CAFFEINE_HIGH_MG = "caffeine_high_mg";
+    public static final String CAFFEINE_SAFE_BEDTIME_MG = "caffeine_safe_bedtime_mg";
+    public static final String SCREEN_THRESHOLD_MINUTES = "screen_threshold_minutes";
+
+    private static final String[] OPS = {">", ">=", "<", "<="};
+    private static final byte GT = 0, GE = 1, LT = 2, LE = 3;
+
+    private final Map<String, Double> thresholds;
+    private final String[] actions;     // distinct actions; evaluate() returns an index into this
+
+    // One entry per comparison
+    private final byte[] input;
+    private final byte[] op;
+    private final double[] value;
+    private final boolean[] closesClause;
+
+    // One entry per rule: its comparisons end (exclusive) at ruleEnd, the next rule's start there
+    private final int[] ruleEnd;
+    private final int[] ruleAction;
+    private final int defaultAction;
+
+    private DecisionTable(Map<String, Double> thresholds, String[] actions, byte[] input, byte[] op, double[] value,
+                          boolean[] closesClause, int[] ruleEnd, int[] ruleAction, int defaultAction) {
+        this.thresholds = thresholds;
+        this.actions = actions;
+        this.input = input;
+        this.op = op;
+        this.value = value;
+        this.closesClause = closesClause;
+        this.ruleEnd = ruleEnd;
+        this.ruleAction = ruleAction;
+        this.defaultAction = defaultAction;
+    }
+
+    private static final class Holder {
+        static final DecisionTable TABLE = load();
+    }
+
+    /** The app's rules, read and compiled on first use (a few hundred bytes, once). */
+    public static DecisionTable get() {
+        return Holder.TABLE;
+    }
+
+    private static DecisionTable load() {
+        InputStream in = DecisionTable.class.getResourceAsStream(RULES_RESOURCE);
+        if (in == null) throw new IllegalStateException(RULES_RESOURCE + " is missing from the build");
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return compile(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // --- EVALUATION ---
+
+    /** Index of the first matching rule's action (see action()), or of the default. */
+    public int evaluate(double caffeineMg, double sleepDebtHours, double noiseRisk, double melatoninRisk) {
+        int c = 0;
+        for (int r = 0; r < ruleEnd.length; r++) {
+            int end = ruleEnd[r];
+            boolean clause = true;
+            for (; c < end; c++) {
+                if (clause) {
+                    double x;
+                    switch (input[c]) {
+                        case 0: x = caffeineMg; break;
+                        case 1: x = sleepDebtHours; break;
+                        case 2: x = noiseRisk; break;
+                        default: x = melatoninRisk; break;
+                    }
+                    clause = compare(op[c], x, value[c]);
+                }
+                if (closesClause[c]) {
+                    if (clause) {
+                        return ruleAction[r];
+                    }
+                    clause = true;
+                }
+            }
+        }
+        return defaultAction;
+    }
+
+    /** Same, over the output of RiskEngine.calculateRisks. */
+    public int evaluate(RiskBundle risks) {
+        return evaluate(risks.caffeineMg, risks.sleepDebtHours, risks.noiseRisk, risks.melatoninRisk);
+    }
+
+    private static boolean compare(byte op, double x, double threshold) {
+        switch (op) {
+            case GT: return x > threshold;
+            case GE: return x >= threshold;
+            case LT: return x < threshold;
+            default: return x <= threshold;
+        }
+    }
+
+    public String action(int index) {
+        return actions[index];
+    }
+
+    /** Index of an action named in the rules, for comparing against evaluate() without strings. */
+    public int actionIndex(String action) {
+        for (int i = 0; i < actions.length; i++) {
+            if (actions[i].equals(action)) return i;
+        }
+        throw new IllegalArgumentException("No rule decides " + action);
+    }
+
+    public int actionCount() {
+        return actions.length;
+    }
+
+    /** A named threshold. Look it up once, not per evaluation. */
+    public double threshold(String name) {
+        Double v = thresholds.get(name);
+        if (v == null) throw new IllegalArgumentException("No threshold " + name + " in " + RULES_RESOURCE);
+        return v;
+    }
+
+    // --- COMPILER (keep in step with decision_table.compile_rules) ---
+
+    public static DecisionTable compile(Reader source) throws IOException {
+        Map<String, Double> thresholds = new HashMap<>();
+        List<String> actions = new ArrayList<>();
+        int defaultAction = -1;
+
+        int n = 0, rules = 0;
+        byte[] input = new byte[16];
+        byte[] op = new byte[16];
+        double[] value = new double[16];
+        boolean[] closesClause = new boolean[16];
+        int[] ruleEnd = new int[8];
+        int[] ruleAction = new int[8];
+
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            int hash = line.indexOf('#');
+            if (hash >= 0) line = line.substring(0, hash);
+            String[] t = line.trim().split("\\s+");
+            if (t[0].isEmpty()) continue;
+
+            switch (t[0]) {
+                case "threshold":
+                    if (t.length != 3) throw error(lineNo, "expected: threshold <name> <number>");
+                    if (thresholds.put(t[1], number(t[2], lineNo)) != null) throw error(lineNo, "duplicate threshold " + t[1]);
+                    break;
+
+                case "rule":
+                    // rule ACTION when a op b [and|or a op b]...
+                    if (t.length < 6 || !t[2].equals("when") || (t.length - 3) % 4 != 3) {
+                        throw error(lineNo, "expected: rule <ACTION> when <input> <op> <value> [and|or ...]");
+                    }
+                    if (rules == ruleEnd.length) {
+                        ruleEnd = Arrays.copyOf(ruleEnd, rules * 2);
+                        ruleAction = Arrays.copyOf(ruleAction, rules * 2);
+                    }
+                    for (int i = 3; i < t.length; i += 4) {
+                        if (n == input.length) {
+                            input = Arrays.copyOf(input, n * 2);
+                            op = Arrays.copyOf(op, n * 2);
+                            value = Arrays.copyOf(value, n * 2);
+                            closesClause = Arrays.copyOf(closesClause, n * 2);
+                        }
+                        input[n] = (byte) indexOf(INPUTS, t[i], lineNo, "input");
+                        op[n] = (byte) indexOf(OPS, t[i + 1], lineNo, "op");
+                        value[n] = operand(t[i + 2], thresholds, lineNo);
+                        String joiner = i + 3 < t.length ? t[i + 3] : "or";
+                        if (!joiner.equals("and") && !joiner.equals("or")) throw error(lineNo, "expected and / or, got " + joiner);
+                        closesClause[n] = joiner.equals("or");
+                        n++;
+                    }
+                    ruleEnd[rules] = n;
+                    ruleAction[rules++] = actionId(actions, t[1]);
+                    break;
+
+                case "default":
+                    if (t.length != 2) throw error(lineNo, "expected: default <ACTION>");
+                    if (defaultAction >= 0) throw error(lineNo, "more than one default");
+                    defaultAction = actionId(actions, t[1]);
+                    break;
+
+                default:
+                    throw error(lineNo, "unknown directive " + t[0]);
+            }
+        }
+        if (defaultAction < 0) throw new IllegalArgumentException("decision rules have no default");
+
+        return new DecisionTable(thresholds, actions.toArray(new String[0]),
+                Arrays.copyOf(input, n), Arrays.copyOf(op, n), Arrays.copyOf(value, n), Arrays.copyOf(closesClause, n),
+                Arrays.copyOf(ruleEnd, rules), Arrays.copyOf(ruleAction, rules), defaultAction);
+    }
+
+    // Threshold names are resolved here, so the table only holds numbers
+    private static double operand(String token, Map<String, Double> thresholds, int lineNo) {
+        Double named = thresholds.get(token);
+        return named != null ? named : number(token, lineNo);
+    }
+
+    private static double number(String token, int lineNo) {
+        try {
+            return Double.parseDouble(token);
+        } catch (NumberFormatException e) {
+            throw error(lineNo, "not a number or known threshold: " + token);
+        }
+    }
+
+    private static int indexOf(String[] names, String token, int lineNo, String what) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(token)) return i;
+        }
+        throw error(lineNo, "unknown " + what + " " + token);
+    }
+
+    private static int actionId(List<String> actions, String action) {
+        int i = actions.indexOf(action);
+        if (i >= 0) return i;
+        actions.add(action);
+        return actions.size() - 1;
+    }
+
+    private static IllegalArgumentException error(int lineNo, String message) {
+        return new IllegalArgumentException("decision rules line " + lineNo + ": " + message);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.sleepagentapp;
+
+/**
+ * In-place iterative radix-2 FFT with a Hann window, sized once.
+ *
+ * Twiddles, bit-reversal table, window and work arrays are all built in the constructor,
+ * so powerSpectrum() allocates nothing. Not thread-safe; one instance per analysis thread.
+ */
+public class Fft {
+
+    private final int size;
+    private final float[] cos;      // size / 2 twiddles
+    private final float[] sin;
+    private final int[] bitReverse;
+    private final float[] window;
+    private final float windowPower; // sum of window^2, for Parseval scaling
+    private final float[] re;
+    private final float[] im;
+
+    public Fft(int size) {
+        if (size < 2 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("FFT size must be a power of two: " + size);
+        }
+        this.size = size;
+
+        cos = new float[size / 2];
+        sin = new float[size / 2];
+        for (int k = 0; k < size / 2; k++) {
+            double angle = -2 * Math.PI * k / size;
+            cos[k] = (float) Math.cos(angle);
+            sin[k] = (float) Math.sin(angle);
+        }
+
+        int bits = Integer.numberOfTrailingZeros(size);
+        bitReverse = new int[size];
+        for (int i = 0; i < size; i++) {
+            bitReverse[i] = Integer.reverse(i) >>> (32 - bits);
+        }
+
+        // Periodic Hann
+        window = new float[size];
+        float power = 0;
+        for (int i = 0; i < size; i++) {
+            window[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / size));
+            power += window[i] * window[i];
+        }
+        windowPower = power;
+
+        re = new float[size];
+        im = new float[size];
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /** Number of bins powerSpectrum() writes: DC .. Nyquist. */
+    public int getBinCount() {
+        return size / 2 + 1;
+    }
+
+    /** Forward transform of re / im (length size), in place. */
+    public void transform(float[] re, float[] im) {
+        // Bit-reversal permutation
+        for (int i = 0; i < size; i++) {
+            int j = bitReverse[i];
+            if (j > i) {
+                float t = re[i]; re[i] = re[j]; re[j] = t;
+                t = im[i]; im[i] = im[j]; im[j] = t;
+            }
+        }
+
+        // Butterflies
+        for (int half = 1; half < size; half <<= 1) {
+            int stride = size / (half << 1);
+            for (int start = 0; start < size; start += half << 1) {
+                for (int k = 0; k < half; k++) {
+                    float wr = cos[k * stride];
+                    float wi = sin[k * stride];
+                    int a = start + k;
+                    int b = a + half;
+                    float tr = re[b] * wr - im[b] * wi;
+                    float ti = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+
+    /**
+     * Windows size samples of 16-bit PCM starting at offset and writes the one-sided power per bin
+     * into out (length getBinCount()). Scaled so the bins sum to the signal's mean square, in the
+     * same raw-sample units NoiseMeter uses, which lets band energies be read as dBFS directly.
+     */
+    public void powerSpectrum(short[] pcm, int offset, float[] out) {
+        for (int i = 0; i < size; i++) {
+            re[i] = pcm[offset + i] * window[i];
+            im[i] = 0f;
+        }
+        transform(re, im);
+
+        float scale = 1f / (size * windowPower);
+        int nyquist = size / 2;
+        for (int k = 0; k <= nyquist; k++) {
+            float p = (re[k] * re[k] + im[k] * im[k]) * scale;
+            // Every bin except DC and Nyquist also stands for its negative-frequency mirror
+            out[k] = (k == 0 || k == nyquist) ? p : 2 * p;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.sleepagentapp;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer / single-consumer queue of primitive floats.
+ *
+ * One thread offers (the mic thread), one other thread drains (the main thread, once per
+ * vsync). Each side owns one counter and only publishes it with a release store (lazySet),
+ * the other side reads it with an acquire load, so neither side ever blocks, allocates or
+ * boxes. Each side also caches the last value it saw of the other's counter and only
+ * re-reads it when the cached one says full / empty, which keeps the shared cache lines
+ * quiet at steady state.
+ *
+ * When full, offer() drops the new sample and counts it: the producer is a real-time audio
+ * thread and must never wait for the UI.
+ */
+public class FloatRingBuffer {
+
+    private final float[] buffer;
+    private final int mask;
+
+    // Next slot to write; written by the producer only
+    private final AtomicLong tail = new AtomicLong();
+    // Next slot to read; written by the consumer only
+    private final AtomicLong head = new AtomicLong();
+
+    // Producer side
+    private long headCache = 0;
+    private volatile long offered = 0;
+    private volatile long dropped = 0;
+
+    // Consumer side
+    private long tailCache = 0;
+    private long drained = 0;
+
+    /** capacity is rounded up to a power of two. */
+    public FloatRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) throw new IllegalArgumentException("capacity " + capacity);
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        buffer = new float[size];
+        mask = size - 1;
+    }
+
+    // --- PRODUCER ---
+
+    /** @return false (and counts a drop) if the consumer has fallen a whole buffer behind. */
+    public boolean offer(float value) {
+        long t = tail.get(); // only we write it, a plain read would do
+        offered++;
+        if (t - headCache == buffer.length) {
+            headCache = head.get();
+            if (t - headCache == buffer.length) {
+                dropped++;
+                return false;
+            }
+        }
+        buffer[(int) t & mask] = value;
+        tail.lazySet(t + 1); // release: the slot is written before the consumer can see it
+        return true;
+    }
+
+    // --- CONSUMER ---
+
+    /** Moves up to out.length samples, oldest first, into out. @return how many. */
+    public int drain(float[] out) {
+        long h = head.get();
+        if (h == tailCache) {
+            tailCache = tail.get(); // acquire: the slots before it are written
+            if (h == tailCache) return 0;
+        }
+        int n = (int) Math.min(out.length, tailCache - h);
+        for (int i = 0; i < n; i++) out[i] = buffer[(int) (h + i) & mask];
+        head.lazySet(h + n); // release: those slots may be overwritten now
+        drained += n;
+        return n;
+    }
+
+    /** Consumer side: anything waiting? */
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    public int capacity() { return buffer.length; }
+
+    // --- STATS ---
+
+    /** Offers so far, dropped ones included. Producer-written. */
+    public long getOffered() { return offered; }
+
+    /** Samples lost to a full buffer. Producer-written. */
+    public long getDropped() { return dropped; }
+
+    /** Samples handed to the consumer. Consumer thread only. */
+    public long getDrained() { return drained; }
+}
@@ -0,0 +1,140 @@
+package com.example.sleepagentapp;
+
+/**
+ * Smooths the masking volume toward a target instead of jumping to it.
+ *
+ * Rising noise gets a fast attack, quiet gets a slow release, target wobbles smaller than
+ * TARGET_DEADBAND are ignored, and the sink (a player's setVolume, i.e. an IPC) is only called
+ * once the smoothed gain has moved by APPLY_THRESHOLD since the last call.
+ * Plain Java; the owner calls tick() from one thread while isSettling() is true.
+ */
+public class GainController {
+
+    public interface Sink {
+        void applyGain(float gain);
+    }
+
+    static final float DEFAULT_ATTACK_MS = 1500f;   // time constant going up
+    static final float DEFAULT_RELEASE_MS = 20000f; // time constant going down
+    static final float TARGET_DEADBAND = 0.05f;
+    static final float APPLY_THRESHOLD = 0.01f;     // ~0.1 dB near full volume, inaudible
+    static final int TRACE_CAPACITY = 512;
+
+    private final Sink sink;
+    private final float attackMs;
+    private final float releaseMs;
+
+    private float target;
+    private float current;
+    private float lastApplied = Float.NaN;
+
+    // --- STATS ---
+    private int applyCalls = 0;
+    private int skippedApplies = 0;
+    private int ignoredTargets = 0;
+
+    // Ring of (time, gain) for every apply, newest overwrites oldest
+    private final long[] traceTimes = new long[TRACE_CAPACITY];
+    private final float[] traceGains = new float[TRACE_CAPACITY];
+    private int traceCount = 0;
+
+    public GainController(Sink sink, float initialGain) {
+        this(sink, initialGain, DEFAULT_ATTACK_MS, DEFAULT_RELEASE_MS);
+    }
+
+    public GainController(Sink sink, float initialGain, float attackMs, float releaseMs) {
+        this.sink = sink;
+        this.attackMs = attackMs;
+        this.releaseMs = releaseMs;
+        this.target = clamp(initialGain);
+        this.current = this.target;
+    }
+
+    /** @return true if the target actually moved (outside the deadband) */
+    public boolean setTarget(float gain) {
+        gain = clamp(gain);
+        if (Math.abs(gain - target) < TARGET_DEADBAND) {
+            ignoredTargets++;
+            return false;
+        }
+        target = gain;
+        return true;
+    }
+
+    /** Advances the smoothing by dtMs and pushes to the sink if it moved enough. */
+    public void tick(long nowMs, long dtMs) {
+        if (current != target) {
+            float tau = target > current ? attackMs : releaseMs;
+            float alpha = 1f - (float) Math.exp(-dtMs / tau);
+            current += (target - current) * alpha;
+            // Close enough: land exactly so isSettling() ends
+            if (Math.abs(target - current) < APPLY_THRESHOLD / 2) current = target;
+        }
+        maybeApply(nowMs);
+    }
+
+    private void maybeApply(long nowMs) {
+        boolean neverApplied = Float.isNaN(lastApplied);
+        boolean justLanded = current == target && lastApplied != target;
+        if (!neverApplied && !justLanded && Math.abs(current - lastApplied) < APPLY_THRESHOLD) {
+            skippedApplies++;
+            return;
+        }
+        apply(nowMs);
+    }
+
+    /** Pushes the current gain unconditionally, e.g. after the player was recreated. */
+    public void reapply(long nowMs) {
+        apply(nowMs);
+    }
+
+    private void apply(long nowMs) {
+        sink.applyGain(current);
+        lastApplied = current;
+        applyCalls++;
+
+        int slot = traceCount % TRACE_CAPACITY;
+        traceTimes[slot] = nowMs;
+        traceGains[slot] = current;
+        traceCount++;
+    }
+
+    /** True while the gain is still moving or the last value hasn't reached the sink. */
+    public boolean isSettling() {
+        return current != target || lastApplied != current;
+    }
+
+    public float getTarget() { return target; }
+
+    public float getCurrent() { return current; }
+
+    // --- STATS ---
+
+    public int getApplyCalls() { return applyCalls; }
+
+    // Ticks that moved the gain by less than APPLY_THRESHOLD, so no IPC
+    public int getSkippedApplies() { return skippedApplies; }
+
+    public int getIgnoredTargets() { return ignoredTargets; }
+
+    /** Gains sent to the sink, oldest first (at most TRACE_CAPACITY). */
+    public float[] getGainTrace() {
+        int n = Math.min(traceCount, TRACE_CAPACITY);
+        float[] out = new float[n];
+        int start = traceCount - n;
+        for (int i = 0; i < n; i++) out[i] = traceGains[(start + i) % TRACE_CAPACITY];
+        return out;
+    }
+
+    public long[] getTraceTimes() {
+        int n = Math.min(traceCount, TRACE_CAPACITY);
+        long[] out = new long[n];
+        int start = traceCount - n;
+        for (int i = 0; i < n; i++) out[i] = traceTimes[(start + i) % TRACE_CAPACITY];
+        return out;
+    }
+
+    private static float clamp(float gain) {
+        return Math.max(0f, Math.min(1f, gain));
+    }
+}
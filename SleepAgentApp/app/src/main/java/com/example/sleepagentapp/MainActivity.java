@@ -4,7 +4,13 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.cardview.widget.CardView;
 import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
+import androidx.fragment.app.FragmentTransaction;
+import androidx.lifecycle.Lifecycle;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
 import android.view.MenuItem;
 import android.view.View;
 import android.widget.ImageView;
@@ -12,9 +18,22 @@ import com.google.android.material.bottomnavigation.BottomNavigationView;
 
 public class MainActivity extends AppCompatActivity {
 
+    private static final String TAG = "MainActivity";
+    private static final String TAB_TAG_PREFIX = "tab:";
+
     private CardView globalHeader;
     private BottomNavigationView bottomNav;
 
+    // Tabs are created on first visit, then only hidden / shown: views, chat history and
+    // listeners survive switching. The hidden ones are capped at STARTED, so only the visible
+    // tab is RESUMED (and gets onPause / onResume when it's switched away from / back to).
+    private Fragment currentTab;
+
+    // --- TAB SWITCH STATS ---
+    private long lastSwitchNanos = 0;
+    private boolean lastSwitchCreated = false;
+    private int tabsCreated = 0;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -34,7 +53,15 @@ public class MainActivity extends AppCompatActivity {
 
         // Load default fragment (Agent) if first time opening
         if (savedInstanceState == null) {
-            getSupportFragmentManager().beginTransaction().replace(R.id.fragment_container, new AgentFragment()).commit();
+            showTab(R.id.nav_agent);
+        } else {
+            // The FragmentManager brought back every tab with its hidden flag; pick up the visible one
+            for (Fragment fragment : getSupportFragmentManager().getFragments()) {
+                if (fragment.getTag() != null && fragment.getTag().startsWith(TAB_TAG_PREFIX) && !fragment.isHidden()) {
+                    currentTab = fragment;
+                }
+            }
+            updateHeader(bottomNav.getSelectedItemId());
         }
     }
 
@@ -49,36 +76,73 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-    private BottomNavigationView.OnNavigationItemSelectedListener navListener =
+    private final BottomNavigationView.OnNavigationItemSelectedListener navListener =
             new BottomNavigationView.OnNavigationItemSelectedListener() {
                 @Override
                 public boolean onNavigationItemSelected(@NonNull MenuItem item) {
-                    Fragment selectedFragment = null;
-                    int itemId = item.getItemId();
-
-                    // LOGIC: Hide Header ONLY on White Noise Tab
-                    if (itemId == R.id.nav_white_noise) {
-                        globalHeader.setVisibility(View.GONE); // Hide it
-                        selectedFragment = new WhiteNoiseFragment();
-                    }
-                    else {
-                        globalHeader.setVisibility(View.VISIBLE); // Show it for all others
-
-                        if (itemId == R.id.nav_agent) {
-                            selectedFragment = new AgentFragment();
-                        } else if (itemId == R.id.nav_data) {
-                            selectedFragment = new DataFragment();
-                        } else if (itemId == R.id.nav_schedule) { // --- NEW SCHEDULE TAB ---
-                            selectedFragment = new ScheduleFragment();
-                        } else if (itemId == R.id.nav_profile) {
-                            selectedFragment = new ProfileFragment();
-                        }
-                    }
-
-                    if (selectedFragment != null) {
-                        getSupportFragmentManager().beginTransaction().replace(R.id.fragment_container, selectedFragment).commit();
-                    }
+                    showTab(item.getItemId());
                     return true;
                 }
             };
-}
\ No newline at end of file
+
+    private void updateHeader(int itemId) {
+        // LOGIC: Hide Header ONLY on White Noise Tab
+        globalHeader.setVisibility(itemId == R.id.nav_white_noise ? View.GONE : View.VISIBLE);
+    }
+
+    private static Fragment createTab(int itemId) {
+        if (itemId == R.id.nav_white_noise) return new WhiteNoiseFragment();
+        if (itemId == R.id.nav_agent) return new AgentFragment();
+        if (itemId == R.id.nav_data) return new DataFragment();
+        if (itemId == R.id.nav_schedule) return new ScheduleFragment();
+        if (itemId == R.id.nav_profile) return new ProfileFragment();
+        return null;
+    }
+
+    private void showTab(int itemId) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        updateHeader(itemId);
+
+        FragmentManager fm = getSupportFragmentManager();
+        String tag = TAB_TAG_PREFIX + itemId;
+        Fragment target = fm.findFragmentByTag(tag);
+        if (target != null && target == currentTab) return;
+
+        boolean created = target == null;
+        if (created) {
+            target = createTab(itemId);
+            if (target == null) return;
+            tabsCreated++;
+        }
+
+        FragmentTransaction tx = fm.beginTransaction().setReorderingAllowed(true);
+        if (currentTab != null) {
+            tx.hide(currentTab).setMaxLifecycle(currentTab, Lifecycle.State.STARTED);
+        }
+        if (created) tx.add(R.id.fragment_container, target, tag);
+        else tx.show(target);
+        tx.setMaxLifecycle(target, Lifecycle.State.RESUMED);
+        // Ran now rather than on the next loop, so the frame below is the one that shows the tab
+        tx.commitNow();
+        currentTab = target;
+
+        // Latency: click to the end of the first frame drawn with the new tab
+        final boolean createdTab = created;
+        Choreographer.getInstance().postFrameCallback(frameTimeNanos ->
+                getWindow().getDecorView().post(() -> {
+                    lastSwitchNanos = SystemClock.elapsedRealtimeNanos() - start;
+                    lastSwitchCreated = createdTab;
+                    Log.d(TAG, "Tab switch " + (createdTab ? "(created) " : "") + lastSwitchNanos / 1000 + " us");
+                }));
+    }
+
+    // --- TAB SWITCH STATS ---
+
+    /** Click to first drawn frame of the last switch. */
+    public long getLastSwitchNanos() { return lastSwitchNanos; }
+
+    /** Whether the last switch had to create (inflate) the tab. */
+    public boolean wasLastSwitchCreated() { return lastSwitchCreated; }
+
+    public int getTabsCreated() { return tabsCreated; }
+}
@@ -0,0 +1,30 @@
+package com.example.sleepagentapp;
+
+/** Every sound the masking engine can play: decoded loops plus generated colours. */
+public enum MaskingSound {
+    OCEAN("Ocean Waves", R.raw.ocean, null),
+    RAIN("Heavy Rain", R.raw.rain, null),
+    STREAM("Forest Stream", R.raw.stream, null),
+    WATERFALL("Waterfall", R.raw.waterfall, null),
+    WHITE("White Noise", 0, NoiseGenerator.Color.WHITE),
+    PINK("Pink Noise", 0, NoiseGenerator.Color.PINK),
+    BROWN("Brown Noise", 0, NoiseGenerator.Color.BROWN);
+
+    public final String label;
+    public final int resId;
+    public final NoiseGenerator.Color color; // generated instead of decoded when set
+
+    MaskingSound(String label, int resId, NoiseGenerator.Color color) {
+        this.label = label;
+        this.resId = resId;
+        this.color = color;
+    }
+
+    /** Matches SpectrumClassifier.NoiseType.maskingSound; null if nothing has that label. */
+    public static MaskingSound byLabel(String label) {
+        for (MaskingSound sound : values()) {
+            if (sound.label.equals(label)) return sound;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.sleepagentapp;
+
+import android.annotation.SuppressLint;
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+/**
+ * Reads raw PCM from the mic on its own thread and runs it through a NoiseMeter.
+ *
+ * The read buffer and the UI runnable are allocated once; the listener is called on the
+ * main thread at most every publishIntervalMs with the Leq / peak of that interval.
+ * Every read (~50 ms) also pushes a 0..1 loudness envelope sample into an optional
+ * FloatRingBuffer, for a visualizer that drains it per frame.
+ */
+public class MicAnalyzer {
+
+    private static final String TAG = "MicAnalyzer";
+
+    // The only rate every device has to support
+    public static final int SAMPLE_RATE = 44100;
+
+    // Rough dBFS -> dB SPL offset for a phone mic. Uncalibrated, good enough for "quiet vs loud"
+    public static final float SPL_OFFSET_DB = 90f;
+
+    static final long DEFAULT_PUBLISH_INTERVAL_MS = 250;
+
+    // Envelope: block RMS mapped linearly from a quiet room (0) to loud speech and up (1)
+    static final float ENVELOPE_FLOOR_DBFS = -65f;
+    static final float ENVELOPE_RANGE_DB = 45f;
+
+    // ~46 ms frames, ~21 Hz bins: enough to separate the 63 Hz octave from the 125 Hz one
+    static final int FFT_SIZE = 2048;
+    // How long a new noise type has to persist before it's reported (~10 s at 250 ms)
+    static final int STABLE_INTERVALS = 40;
+
+    public interface Listener {
+        // Main thread. Estimated dB SPL: Leq is A-weighted, peak is the raw sample peak
+        void onLevels(float leqDb, float peakDb);
+
+        // Main thread, same cadence as onLevels
+        default void onNoiseProfile(SpectrumClassifier.NoiseType type, float suggestedGain) {}
+    }
+
+    private final Listener listener;
+    private final long publishIntervalMs;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final NoiseMeter meter = new NoiseMeter(SAMPLE_RATE, true);
+    private final Fft fft = new Fft(FFT_SIZE);
+    private final short[] fftFrame = new short[FFT_SIZE];
+    private final float[] fftPower = new float[FFT_SIZE / 2 + 1];
+    private SpectrumClassifier classifier;
+    private int fftFill = 0;
+
+    private Thread thread;
+    private volatile boolean running = false;
+    private volatile FloatRingBuffer envelope;
+
+    // Written by the mic thread, read by publishRunnable on the main thread
+    private volatile float publishedLeq = 0;
+    private volatile float publishedPeak = 0;
+    private volatile SpectrumClassifier.NoiseType publishedType = SpectrumClassifier.NoiseType.QUIET;
+    private volatile float publishedGain = SpectrumClassifier.MIN_GAIN;
+    private volatile long buffersRead = 0;
+    private volatile long publishes = 0;
+    private volatile long fftFrames = 0;
+    private volatile long fftNanos = 0;
+
+    private final Runnable publishRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!running) return;
+            listener.onLevels(publishedLeq, publishedPeak);
+            listener.onNoiseProfile(publishedType, publishedGain);
+        }
+    };
+
+    public MicAnalyzer(Listener listener) {
+        this(listener, DEFAULT_PUBLISH_INTERVAL_MS);
+    }
+
+    public MicAnalyzer(Listener listener, long publishIntervalMs) {
+        this.listener = listener;
+        this.publishIntervalMs = publishIntervalMs;
+    }
+
+    /** Caller must hold RECORD_AUDIO. @return false if the mic couldn't be opened (e.g. emulator). */
+    @SuppressLint("MissingPermission")
+    public synchronized boolean start() {
+        if (running) return true;
+
+        int minBytes = AudioRecord.getMinBufferSize(SAMPLE_RATE,
+                AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT);
+        if (minBytes <= 0) return false;
+
+        // ~50 ms per read keeps the meter responsive without waking up too often
+        int readSamples = Math.max(minBytes / 2, SAMPLE_RATE / 20);
+        AudioRecord record;
+        try {
+            record = new AudioRecord(MediaRecorder.AudioSource.MIC, SAMPLE_RATE,
+                    AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT, readSamples * 4);
+        } catch (Exception e) {
+            Log.w(TAG, "AudioRecord unavailable", e);
+            return false;
+        }
+        if (record.getState() != AudioRecord.STATE_INITIALIZED) {
+            record.release();
+            return false;
+        }
+
+        meter.reset();
+        classifier = new SpectrumClassifier(SAMPLE_RATE, FFT_SIZE, STABLE_INTERVALS);
+        fftFill = 0;
+        running = true;
+        thread = new Thread(() -> readLoop(record, new short[readSamples]), "mic-analyzer");
+        thread.start();
+        return true;
+    }
+
+    public synchronized void stop() {
+        running = false;
+        mainHandler.removeCallbacks(publishRunnable);
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** Ring the mic thread (its only producer) pushes envelope samples into; null for none. */
+    public void setEnvelopeSink(FloatRingBuffer sink) {
+        envelope = sink;
+    }
+
+    static float envelopeOf(float blockRmsDbfs) {
+        float level = (blockRmsDbfs - ENVELOPE_FLOOR_DBFS) / ENVELOPE_RANGE_DB;
+        return level < 0f ? 0f : Math.min(level, 1f);
+    }
+
+    private void readLoop(AudioRecord record, short[] buffer) {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+        try {
+            record.startRecording();
+            long intervalStart = System.nanoTime();
+            long intervalNanos = publishIntervalMs * 1_000_000L;
+
+            while (running) {
+                int read = record.read(buffer, 0, buffer.length);
+                if (read < 0) {
+                    Log.w(TAG, "AudioRecord.read failed: " + read);
+                    break;
+                }
+                meter.process(buffer, 0, read);
+                analyzeSpectrum(buffer, read);
+                buffersRead++;
+
+                FloatRingBuffer sink = envelope;
+                if (sink != null) sink.offer(envelopeOf(meter.getBlockRmsDbfs()));
+
+                long now = System.nanoTime();
+                if (now - intervalStart >= intervalNanos) {
+                    meter.takeInterval();
+                    publishedLeq = meter.getWeightedLeqDbfs() + SPL_OFFSET_DB;
+                    publishedPeak = meter.getPeakDbfs() + SPL_OFFSET_DB;
+                    publishedType = classifier.closeInterval();
+                    publishedGain = classifier.getSuggestedGain();
+                    publishes++;
+                    mainHandler.post(publishRunnable);
+                    intervalStart = now;
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Mic loop stopped", e);
+        } finally {
+            try { record.stop(); } catch (Exception ignored) {}
+            record.release();
+            // Let the visualizer settle instead of holding the last level while the mic rests
+            FloatRingBuffer sink = envelope;
+            if (sink != null) sink.offer(0f);
+            running = false;
+        }
+    }
+
+    // Chops the stream into back-to-back FFT frames (no overlap, keeps the all-night cost low)
+    private void analyzeSpectrum(short[] buffer, int count) {
+        int pos = 0;
+        while (pos < count) {
+            int n = Math.min(count - pos, FFT_SIZE - fftFill);
+            System.arraycopy(buffer, pos, fftFrame, fftFill, n);
+            fftFill += n;
+            pos += n;
+
+            if (fftFill == FFT_SIZE) {
+                long start = System.nanoTime();
+                fft.powerSpectrum(fftFrame, 0, fftPower);
+                classifier.accumulate(fftPower);
+                fftNanos += System.nanoTime() - start;
+                fftFrames++;
+                fftFill = 0;
+            }
+        }
+    }
+
+    // --- STATS ---
+
+    public long getBuffersRead() { return buffersRead; }
+
+    public long getPublishes() { return publishes; }
+
+    public long getFftFrames() { return fftFrames; }
+
+    /** Average cost of one FFT + band accumulation on the mic thread. */
+    public long getAverageFftNanos() {
+        long frames = fftFrames;
+        return frames == 0 ? 0 : fftNanos / frames;
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.sleepagentapp;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Gapless masking-noise playback on a streaming AudioTrack.
+ *
+ * Asset loops are decoded once into a PCM cache (LRU by bytes) and looped sample-accurately;
+ * white / pink / brown noise are generated on the fly. Switching sound crossfades instead of
+ * stopping, and gain is applied in-process, so nothing here does an IPC per volume change.
+ */
+public class NoiseEngine {
+
+    private static final String TAG = "NoiseEngine";
+
+    public static final int SAMPLE_RATE = 44100;
+    static final int BUFFER_FRAMES = 1024;            // ~23 ms per write
+    static final int CROSSFADE_MS = 1500;
+    static final int LOOP_SEAM_MS = 50;
+    static final long CACHE_LIMIT_BYTES = 24L * 1024 * 1024; // ~4.7 min of mono PCM
+
+    public interface StartListener {
+        // Main thread, when the first buffer of a play() call has been handed to the track
+        void onStarted(long latencyMs);
+    }
+
+    private final Context appContext;
+    private final NoiseMixer mixer = new NoiseMixer(BUFFER_FRAMES, SAMPLE_RATE * CROSSFADE_MS / 1000, 0.6f);
+    private final ExecutorService decoder = Executors.newSingleThreadExecutor(r -> new Thread(r, "noise-decode"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Object lock = new Object();
+
+    // resId -> seamless mono PCM; access order = LRU. Guarded by itself
+    private final LinkedHashMap<Integer, short[]> pcmCache = new LinkedHashMap<>(8, 0.75f, true);
+    private long cachedBytes = 0;
+
+    private Thread renderThread;         // guarded by lock
+    private boolean stopRequested;       // guarded by lock
+    private int requestSerial = 0;       // guarded by lock; newest play() wins a decode race
+    private volatile long requestedAt = 0;
+
+    // --- STATS ---
+    private volatile long lastStartLatencyMs = -1;
+    private volatile long lastDecodeMs = -1;
+    private volatile int underruns = 0;
+
+    public NoiseEngine(Context context) {
+        this.appContext = context.getApplicationContext();
+    }
+
+    /** Plays a looped raw resource, decoding it first if it isn't cached yet. */
+    public void play(int resId, StartListener listener) {
+        int serial = nextRequest();
+        short[] cached;
+        synchronized (pcmCache) {
+            cached = pcmCache.get(resId);
+        }
+        if (cached != null) {
+            start(new PcmLoop(cached), listener);
+            return;
+        }
+
+        decoder.execute(() -> {
+            short[] pcm = decodeAndCache(resId);
+            synchronized (lock) {
+                // The user picked something else while we were decoding
+                if (serial != requestSerial || pcm == null) return;
+            }
+            start(new PcmLoop(pcm), listener);
+        });
+    }
+
+    public void playGenerated(NoiseGenerator.Color color, StartListener listener) {
+        nextRequest();
+        start(new NoiseGenerator(color), listener);
+    }
+
+    /** Decodes in the background so a later play(resId) starts instantly. */
+    public void prefetch(int resId) {
+        decoder.execute(() -> decodeAndCache(resId));
+    }
+
+    /** Fades out, then stops and releases the track. */
+    public void stop() {
+        synchronized (lock) {
+            requestSerial++;
+            stopRequested = true;
+            mixer.setSource(null);
+        }
+    }
+
+    public void setGain(float gain) {
+        mixer.setGain(gain);
+    }
+
+    /** Linear ramp to silence over durationMs; keeps playing (silently) until stop(). */
+    public void fadeOut(long durationMs) {
+        mixer.fadeOut((int) Math.min(Integer.MAX_VALUE, SAMPLE_RATE * durationMs / 1000));
+    }
+
+    public boolean isPlaying() {
+        synchronized (lock) {
+            return renderThread != null && !stopRequested;
+        }
+    }
+
+    public void release() {
+        stop();
+        decoder.shutdownNow();
+    }
+
+    private int nextRequest() {
+        synchronized (lock) {
+            requestedAt = SystemClock.elapsedRealtime();
+            return ++requestSerial;
+        }
+    }
+
+    private void start(NoiseSource source, StartListener listener) {
+        synchronized (lock) {
+            // Fresh start (or restart mid fade-out): undo an alarm fade from the last session
+            if (renderThread == null || stopRequested) mixer.cancelFade();
+            stopRequested = false;
+            mixer.setSource(source);
+            if (renderThread == null) {
+                renderThread = new Thread(() -> renderLoop(listener), "noise-engine");
+                renderThread.start();
+                return;
+            }
+        }
+        // Already running: the crossfade starts with the next buffer
+        reportStart(listener);
+    }
+
+    private void reportStart(StartListener listener) {
+        lastStartLatencyMs = SystemClock.elapsedRealtime() - requestedAt;
+        if (listener != null) {
+            long latency = lastStartLatencyMs;
+            mainHandler.post(() -> listener.onStarted(latency));
+        }
+    }
+
+    private short[] decodeAndCache(int resId) {
+        synchronized (pcmCache) {
+            short[] cached = pcmCache.get(resId);
+            if (cached != null) return cached;
+        }
+        try {
+            long start = SystemClock.elapsedRealtime();
+            short[] pcm = PcmLoop.makeSeamless(AssetDecoder.decode(appContext, resId), SAMPLE_RATE * LOOP_SEAM_MS / 1000);
+            lastDecodeMs = SystemClock.elapsedRealtime() - start;
+            Log.i(TAG, "Decoded " + resId + " in " + lastDecodeMs + " ms, " + (pcm.length * 2 / 1024) + " KB");
+
+            synchronized (pcmCache) {
+                pcmCache.put(resId, pcm);
+                cachedBytes += pcm.length * 2L;
+                Iterator<Map.Entry<Integer, short[]>> it = pcmCache.entrySet().iterator();
+                while (cachedBytes > CACHE_LIMIT_BYTES && it.hasNext()) {
+                    Map.Entry<Integer, short[]> eldest = it.next();
+                    if (eldest.getKey() == resId) continue;
+                    cachedBytes -= eldest.getValue().length * 2L;
+                    it.remove();
+                }
+            }
+            return pcm;
+        } catch (Exception e) {
+            Log.e(TAG, "Couldn't decode " + resId, e);
+            return null;
+        }
+    }
+
+    private void renderLoop(StartListener listener) {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+
+        AudioTrack track = null;
+        short[] buffer = new short[BUFFER_FRAMES];
+        boolean reported = false;
+        try {
+            int minBytes = AudioTrack.getMinBufferSize(SAMPLE_RATE, AudioFormat.CHANNEL_OUT_MONO, AudioFormat.ENCODING_PCM_16BIT);
+            track = new AudioTrack.Builder()
+                    .setAudioAttributes(new AudioAttributes.Builder()
+                            .setUsage(AudioAttributes.USAGE_MEDIA)
+                            .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+                            .build())
+                    .setAudioFormat(new AudioFormat.Builder()
+                            .setSampleRate(SAMPLE_RATE)
+                            .setChannelMask(AudioFormat.CHANNEL_OUT_MONO)
+                            .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                            .build())
+                    .setTransferMode(AudioTrack.MODE_STREAM)
+                    .setBufferSizeInBytes(Math.max(minBytes, BUFFER_FRAMES * 2 * 2))
+                    .build();
+            track.play();
+
+            while (true) {
+                synchronized (lock) {
+                    // Checked under the lock so a play() racing with the fade-out can't be lost
+                    if (stopRequested && mixer.isSilent()) {
+                        renderThread = null;
+                        break;
+                    }
+                }
+                mixer.render(buffer, BUFFER_FRAMES);
+                int written = track.write(buffer, 0, BUFFER_FRAMES);
+                if (written < 0) {
+                    Log.w(TAG, "AudioTrack.write failed: " + written);
+                    break;
+                }
+                if (!reported) {
+                    reportStart(listener);
+                    reported = true;
+                }
+            }
+            underruns = track.getUnderrunCount();
+        } catch (Exception e) {
+            Log.e(TAG, "Playback stopped", e);
+        } finally {
+            synchronized (lock) {
+                if (renderThread == Thread.currentThread()) renderThread = null;
+            }
+            if (track != null) {
+                try { track.stop(); } catch (Exception ignored) {}
+                track.release();
+            }
+        }
+    }
+
+    // --- STATS ---
+
+    /** play() / playGenerated() call to first buffer written (or crossfade start). */
+    public long getLastStartLatencyMs() { return lastStartLatencyMs; }
+
+    public long getLastDecodeMs() { return lastDecodeMs; }
+
+    public long getCachedBytes() {
+        synchronized (pcmCache) {
+            return cachedBytes;
+        }
+    }
+
+    /** Bytes held for one sound's decoded loop, 0 if it isn't cached. */
+    public long getCachedBytes(int resId) {
+        synchronized (pcmCache) {
+            short[] pcm = pcmCache.get(resId);
+            return pcm == null ? 0 : pcm.length * 2L;
+        }
+    }
+
+    public int getCrossfades() { return mixer.getCrossfades(); }
+
+    // From the last finished track
+    public int getUnderruns() { return underruns; }
+}
@@ -0,0 +1,85 @@
+package com.example.sleepagentapp;
+
+/**
+ * Procedural white / pink / brown noise, so these sounds need no asset and no decode.
+ *
+ * White is a xorshift64* generator, pink uses Paul Kellet's refined filter (-3 dB/octave),
+ * brown is leaky-integrated white (-6 dB/octave). Each colour is scaled to roughly the same
+ * RMS so switching between them doesn't jump in loudness.
+ */
+public class NoiseGenerator implements NoiseSource {
+
+    public enum Color { WHITE, PINK, BROWN }
+
+    // Output RMS every colour is scaled to (about -14 dBFS, leaves headroom for the crossfade)
+    static final float TARGET_RMS = 0.2f;
+
+    private static final float WHITE_SCALE = TARGET_RMS * 1.7320508f; // uniform [-1,1) has RMS 1/sqrt(3)
+    private static final float PINK_SCALE = 0.11f;   // Kellet's own output scale lands on ~TARGET_RMS
+    private static final float BROWN_SCALE = 3.5f;   // stationary RMS of the integrator is ~0.057
+    private static final float BROWN_STEP = 0.02f;
+
+    private final Color color;
+    private long state;
+
+    // Pink filter state
+    private float p0, p1, p2, p3, p4, p5, p6;
+    // Brown integrator
+    private float brown;
+
+    public NoiseGenerator(Color color) {
+        this(color, System.nanoTime());
+    }
+
+    public NoiseGenerator(Color color, long seed) {
+        this.color = color;
+        this.state = seed == 0 ? 0x9E3779B97F4A7C15L : seed;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    @Override
+    public void render(float[] out, int offset, int count) {
+        int end = offset + count;
+        switch (color) {
+            case WHITE:
+                for (int i = offset; i < end; i++) out[i] = nextWhite() * WHITE_SCALE;
+                break;
+
+            case PINK:
+                for (int i = offset; i < end; i++) {
+                    float white = nextWhite();
+                    p0 = 0.99886f * p0 + white * 0.0555179f;
+                    p1 = 0.99332f * p1 + white * 0.0750759f;
+                    p2 = 0.96900f * p2 + white * 0.1538520f;
+                    p3 = 0.86650f * p3 + white * 0.3104856f;
+                    p4 = 0.55000f * p4 + white * 0.5329522f;
+                    p5 = -0.7616f * p5 - white * 0.0168980f;
+                    out[i] = (p0 + p1 + p2 + p3 + p4 + p5 + p6 + white * 0.5362f) * PINK_SCALE;
+                    p6 = white * 0.115926f;
+                }
+                break;
+
+            case BROWN:
+                for (int i = offset; i < end; i++) {
+                    // Leaky so it can't wander off to a DC offset
+                    brown = (brown + BROWN_STEP * nextWhite()) / (1f + BROWN_STEP);
+                    out[i] = brown * BROWN_SCALE;
+                }
+                break;
+        }
+    }
+
+    // Uniform in [-1, 1)
+    private float nextWhite() {
+        long x = state;
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        state = x;
+        long r = x * 0x2545F4914F6CDD1DL;
+        return ((r >>> 40) * (1f / (1 << 23))) - 1f;
+    }
+}
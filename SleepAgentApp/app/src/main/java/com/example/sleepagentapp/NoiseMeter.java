@@ -0,0 +1,223 @@
+package com.example.sleepagentapp;
+
+/**
+ * Sound level math for 16-bit mono PCM: block RMS, peak and Leq (energy average) in dBFS,
+ * optionally A-weighted. Plain Java and allocation-free after construction.
+ *
+ * 0 dBFS = a square wave at full scale, so a full-scale sine reads about -3 dBFS.
+ * Not thread-safe; MicAnalyzer feeds it from its own thread and copies results out.
+ */
+public class NoiseMeter {
+
+    static final double FULL_SCALE = 32768.0;
+
+    // What silence reads as, instead of -Infinity
+    public static final float FLOOR_DBFS = -120f;
+
+    private final int sampleRate;
+    private final Biquad[] aWeighting; // null when off
+
+    // --- LAST BLOCK ---
+    private float blockRmsDbfs = FLOOR_DBFS;
+    private float blockPeakDbfs = FLOOR_DBFS;
+
+    // --- CURRENT INTERVAL (until takeInterval) ---
+    private double intervalSumSq = 0;
+    private double intervalWeightedSumSq = 0;
+    private long intervalSamples = 0;
+    private int intervalPeak = 0;
+
+    // --- LAST CLOSED INTERVAL ---
+    private float leqDbfs = FLOOR_DBFS;
+    private float weightedLeqDbfs = FLOOR_DBFS;
+    private float peakDbfs = FLOOR_DBFS;
+
+    // --- WHOLE SESSION ---
+    private double sessionSumSq = 0;
+    private long sessionSamples = 0;
+
+    public NoiseMeter(int sampleRate, boolean useAWeighting) {
+        this.sampleRate = sampleRate;
+        this.aWeighting = useAWeighting ? designAWeighting(sampleRate) : null;
+    }
+
+    public void process(short[] pcm, int offset, int count) {
+        if (count <= 0) return;
+
+        double sumSq = 0;
+        double weightedSumSq = 0;
+        int peak = 0;
+        int end = offset + count;
+
+        if (aWeighting == null) {
+            for (int i = offset; i < end; i++) {
+                int s = pcm[i];
+                sumSq += (double) s * s;
+                int abs = s < 0 ? -s : s;
+                if (abs > peak) peak = abs;
+            }
+        } else {
+            Biquad b0 = aWeighting[0], b1 = aWeighting[1], b2 = aWeighting[2];
+            for (int i = offset; i < end; i++) {
+                int s = pcm[i];
+                sumSq += (double) s * s;
+                int abs = s < 0 ? -s : s;
+                if (abs > peak) peak = abs;
+
+                double w = b2.process(b1.process(b0.process(s)));
+                weightedSumSq += w * w;
+            }
+        }
+
+        blockRmsDbfs = toDbfs(sumSq / count);
+        blockPeakDbfs = peakToDbfs(peak);
+
+        intervalSumSq += sumSq;
+        intervalWeightedSumSq += weightedSumSq;
+        intervalSamples += count;
+        if (peak > intervalPeak) intervalPeak = peak;
+
+        sessionSumSq += sumSq;
+        sessionSamples += count;
+    }
+
+    /** Closes the current interval: Leq / peak getters now describe it, and a new one starts. */
+    public void takeInterval() {
+        if (intervalSamples > 0) {
+            leqDbfs = toDbfs(intervalSumSq / intervalSamples);
+            weightedLeqDbfs = aWeighting == null ? leqDbfs : toDbfs(intervalWeightedSumSq / intervalSamples);
+            peakDbfs = peakToDbfs(intervalPeak);
+        }
+        intervalSumSq = 0;
+        intervalWeightedSumSq = 0;
+        intervalSamples = 0;
+        intervalPeak = 0;
+    }
+
+    public void reset() {
+        takeInterval();
+        if (aWeighting != null) {
+            for (Biquad b : aWeighting) b.reset();
+        }
+        leqDbfs = weightedLeqDbfs = peakDbfs = FLOOR_DBFS;
+        blockRmsDbfs = blockPeakDbfs = FLOOR_DBFS;
+        sessionSumSq = 0;
+        sessionSamples = 0;
+    }
+
+    public float getBlockRmsDbfs() { return blockRmsDbfs; }
+
+    public float getBlockPeakDbfs() { return blockPeakDbfs; }
+
+    public float getLeqDbfs() { return leqDbfs; }
+
+    /** Same as getLeqDbfs() when A-weighting is off. */
+    public float getWeightedLeqDbfs() { return weightedLeqDbfs; }
+
+    public float getPeakDbfs() { return peakDbfs; }
+
+    public float getSessionLeqDbfs() {
+        return sessionSamples == 0 ? FLOOR_DBFS : toDbfs(sessionSumSq / sessionSamples);
+    }
+
+    public int getSampleRate() { return sampleRate; }
+
+    public boolean isAWeighted() { return aWeighting != null; }
+
+    static float toDbfs(double meanSquare) {
+        if (meanSquare <= 0) return FLOOR_DBFS;
+        return (float) Math.max(FLOOR_DBFS, 10 * Math.log10(meanSquare / (FULL_SCALE * FULL_SCALE)));
+    }
+
+    private static float peakToDbfs(int peak) {
+        if (peak == 0) return FLOOR_DBFS;
+        return (float) Math.max(FLOOR_DBFS, 20 * Math.log10(peak / FULL_SCALE));
+    }
+
+    // --- A-WEIGHTING (IEC 61672) ---
+
+    // Analog pole frequencies in Hz
+    private static final double F1 = 20.598997, F2 = 107.65265, F3 = 737.86223, F4 = 12194.217;
+
+    /**
+     * Three bilinear-transformed biquads: s^2/(s+w1)^2, s^2/((s+w2)(s+w3)), 1/(s+w4)^2,
+     * scaled to 0 dB at 1 kHz. Within a few tenths of a dB of the IEC table up to 4 kHz;
+     * bilinear warping makes it read ~1.5 dB low at 10 kHz, which doesn't matter for room noise.
+     */
+    static Biquad[] designAWeighting(int sampleRate) {
+        double w1 = 2 * Math.PI * F1;
+        double w2 = 2 * Math.PI * F2;
+        double w3 = 2 * Math.PI * F3;
+        double w4 = 2 * Math.PI * F4;
+
+        Biquad[] sections = {
+                Biquad.fromAnalog(1, 0, 0, 1, 2 * w1, w1 * w1, sampleRate),
+                Biquad.fromAnalog(1, 0, 0, 1, w2 + w3, w2 * w3, sampleRate),
+                Biquad.fromAnalog(0, 0, 1, 1, 2 * w4, w4 * w4, sampleRate)
+        };
+
+        double gainAt1k = 1;
+        for (Biquad b : sections) gainAt1k *= b.magnitudeAt(1000, sampleRate);
+        sections[2].scale(1 / gainAt1k);
+        return sections;
+    }
+
+    /** Direct form I second-order section. */
+    static final class Biquad {
+        private double b0, b1, b2;
+        private final double a1, a2;
+        private double x1, x2, y1, y2;
+
+        private Biquad(double b0, double b1, double b2, double a1, double a2) {
+            this.b0 = b0;
+            this.b1 = b1;
+            this.b2 = b2;
+            this.a1 = a1;
+            this.a2 = a2;
+        }
+
+        /** H(s) = (nb2 s^2 + nb1 s + nb0) / (na2 s^2 + na1 s + na0) through s = 2fs (1 - z^-1)/(1 + z^-1). */
+        static Biquad fromAnalog(double nb2, double nb1, double nb0,
+                                 double na2, double na1, double na0, int sampleRate) {
+            double k = 2.0 * sampleRate;
+            double kk = k * k;
+            double a0 = na2 * kk + na1 * k + na0;
+            return new Biquad(
+                    (nb2 * kk + nb1 * k + nb0) / a0,
+                    2 * (nb0 - nb2 * kk) / a0,
+                    (nb2 * kk - nb1 * k + nb0) / a0,
+                    2 * (na0 - na2 * kk) / a0,
+                    (na2 * kk - na1 * k + na0) / a0);
+        }
+
+        double process(double x) {
+            double y = b0 * x + b1 * x1 + b2 * x2 - a1 * y1 - a2 * y2;
+            x2 = x1;
+            x1 = x;
+            y2 = y1;
+            y1 = y;
+            return y;
+        }
+
+        double magnitudeAt(double hz, int sampleRate) {
+            double w = 2 * Math.PI * hz / sampleRate;
+            double cos1 = Math.cos(w), sin1 = Math.sin(w);
+            double cos2 = Math.cos(2 * w), sin2 = Math.sin(2 * w);
+            double numRe = b0 + b1 * cos1 + b2 * cos2;
+            double numIm = -(b1 * sin1 + b2 * sin2);
+            double denRe = 1 + a1 * cos1 + a2 * cos2;
+            double denIm = -(a1 * sin1 + a2 * sin2);
+            return Math.sqrt((numRe * numRe + numIm * numIm) / (denRe * denRe + denIm * denIm));
+        }
+
+        void scale(double gain) {
+            b0 *= gain;
+            b1 *= gain;
+            b2 *= gain;
+        }
+
+        void reset() {
+            x1 = x2 = y1 = y2 = 0;
+        }
+    }
+}
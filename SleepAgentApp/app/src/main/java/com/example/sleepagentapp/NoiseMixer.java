@@ -0,0 +1,130 @@
+package com.example.sleepagentapp;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Turns the current NoiseSource into 16-bit PCM buffers for the AudioTrack thread.
+ *
+ * Switching sources (or to silence) is an equal-power crossfade instead of a stop/start,
+ * and gain changes are ramped across each buffer so there's no zipper noise. A separate
+ * linear fade-out (for alarms) multiplies on top of the gain, so the gain loop can't undo it.
+ * setSource / setGain may be called from any thread; render only from the mixer thread.
+ */
+public class NoiseMixer {
+
+    // Stand-in for "no source" so fades to / from silence use the same path
+    private static final NoiseSource SILENCE = (out, offset, count) -> {
+        for (int i = offset; i < offset + count; i++) out[i] = 0f;
+    };
+    private static final int NO_FADE_REQUEST = -1;
+    private static final int CANCEL_FADE = -2;
+
+    private final int maxFrames;
+    private final int crossfadeSamples;
+    private final float[] incoming;
+    private final float[] outgoing;
+
+    private final AtomicReference<NoiseSource> pending = new AtomicReference<>();
+    private volatile float targetGain;
+    private final AtomicInteger pendingFade = new AtomicInteger(NO_FADE_REQUEST);
+
+    // Mixer thread only
+    private NoiseSource current = SILENCE;
+    private NoiseSource fadingOut = null;
+    private int fadePos = 0;
+    private float gain;
+    private float fadeLevel = 1f;
+    private float fadeStep = 0f;
+
+    // --- STATS ---
+    private volatile int crossfades = 0;
+    private volatile long framesRendered = 0;
+
+    public NoiseMixer(int maxFrames, int crossfadeSamples, float initialGain) {
+        this.maxFrames = maxFrames;
+        this.crossfadeSamples = Math.max(1, crossfadeSamples);
+        this.incoming = new float[maxFrames];
+        this.outgoing = new float[maxFrames];
+        this.gain = this.targetGain = initialGain;
+    }
+
+    /** Crossfades to source; null fades to silence. */
+    public void setSource(NoiseSource source) {
+        pending.set(source == null ? SILENCE : source);
+    }
+
+    public void setGain(float gain) {
+        targetGain = Math.max(0f, Math.min(1f, gain));
+    }
+
+    /** Ramps linearly from the current level to silence over the next samples frames. */
+    public void fadeOut(int samples) {
+        pendingFade.set(Math.max(0, samples));
+    }
+
+    /** Back to full level (a new session after a fade). */
+    public void cancelFade() {
+        pendingFade.set(CANCEL_FADE);
+    }
+
+    /** Nothing audible now and nothing queued, i.e. safe to stop the track. */
+    public boolean isSilent() {
+        return current == SILENCE && fadingOut == null && pending.get() == null;
+    }
+
+    public void render(short[] out, int count) {
+        if (count > maxFrames) throw new IllegalArgumentException("buffer larger than " + maxFrames);
+
+        NoiseSource next = pending.getAndSet(null);
+        if (next != null && next != current) {
+            // A switch mid-fade drops the oldest source; the current one becomes the outgoing one
+            fadingOut = current;
+            current = next;
+            fadePos = 0;
+            crossfades++;
+        }
+
+        int fade = pendingFade.getAndSet(NO_FADE_REQUEST);
+        if (fade == CANCEL_FADE) {
+            fadeLevel = 1f;
+            fadeStep = 0f;
+        } else if (fade != NO_FADE_REQUEST) {
+            fadeStep = fade == 0 ? fadeLevel : fadeLevel / fade;
+        }
+
+        current.render(incoming, 0, count);
+        if (fadingOut != null) fadingOut.render(outgoing, 0, count);
+
+        float startGain = gain;
+        float endGain = targetGain;
+        float gainStep = (endGain - startGain) / count;
+
+        for (int i = 0; i < count; i++) {
+            float sample;
+            if (fadingOut != null && fadePos < crossfadeSamples) {
+                // Equal power: sin / cos of a quarter turn keeps loudness steady through the fade
+                double x = (fadePos++ * (Math.PI / 2)) / crossfadeSamples;
+                sample = incoming[i] * (float) Math.sin(x) + outgoing[i] * (float) Math.cos(x);
+            } else {
+                sample = incoming[i];
+            }
+            if (fadeStep > 0f) fadeLevel = Math.max(0f, fadeLevel - fadeStep);
+            sample *= (startGain + gainStep * (i + 1)) * fadeLevel;
+
+            int pcm = (int) (sample * 32767f);
+            out[i] = (short) (pcm > Short.MAX_VALUE ? Short.MAX_VALUE : Math.max(pcm, Short.MIN_VALUE));
+        }
+
+        if (fadingOut != null && fadePos >= crossfadeSamples) fadingOut = null;
+        gain = endGain;
+        framesRendered += count;
+    }
+
+    public int getCrossfades() { return crossfades; }
+
+    public long getFramesRendered() { return framesRendered; }
+
+    // Mixer thread's view; 1 when not fading
+    public float getFadeLevel() { return fadeLevel; }
+}
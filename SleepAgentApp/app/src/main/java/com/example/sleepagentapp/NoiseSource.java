@@ -0,0 +1,8 @@
+package com.example.sleepagentapp;
+
+/** Endless mono audio at NoiseEngine.SAMPLE_RATE, as floats in [-1, 1]. */
+public interface NoiseSource {
+
+    // Called only from the mixer thread; must not allocate
+    void render(float[] out, int offset, int count);
+}
@@ -0,0 +1,53 @@
+package com.example.sleepagentapp;
+
+/**
+ * Plays a decoded mono clip forever, sample-accurately, so there is no gap at the loop point
+ * (MediaPlayer.setLooping leaves one on many codecs).
+ *
+ * The PCM array is shared and never written, so one decoded clip can back several loops.
+ */
+public class PcmLoop implements NoiseSource {
+
+    private static final float SCALE = 1f / 32768f;
+
+    private final short[] pcm;
+    private int position = 0;
+
+    public PcmLoop(short[] pcm) {
+        if (pcm.length == 0) throw new IllegalArgumentException("empty clip");
+        this.pcm = pcm;
+    }
+
+    @Override
+    public void render(float[] out, int offset, int count) {
+        int written = 0;
+        while (written < count) {
+            int n = Math.min(count - written, pcm.length - position);
+            for (int i = 0; i < n; i++) out[offset + written + i] = pcm[position + i] * SCALE;
+            written += n;
+            position += n;
+            if (position == pcm.length) position = 0;
+        }
+    }
+
+    /**
+     * Makes a clip loop without a click: the first fadeSamples are dropped from the head and
+     * crossfaded into the tail, so the last sample flows straight into the first.
+     * @return a new array fadeSamples shorter, or the input if it's too short to fade
+     */
+    public static short[] makeSeamless(short[] pcm, int fadeSamples) {
+        int length = pcm.length;
+        if (fadeSamples <= 0 || length < 3 * fadeSamples) return pcm;
+
+        short[] out = new short[length - fadeSamples];
+        int fadeStart = length - 2 * fadeSamples;
+        System.arraycopy(pcm, fadeSamples, out, 0, fadeStart);
+        for (int k = 0; k < fadeSamples; k++) {
+            float t = (float) k / fadeSamples;
+            float tail = pcm[fadeStart + fadeSamples + k];
+            float head = pcm[k];
+            out[fadeStart + k] = (short) Math.round(tail * (1 - t) + head * t);
+        }
+        return out;
+    }
+}
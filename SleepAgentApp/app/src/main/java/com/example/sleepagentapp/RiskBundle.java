@@ -0,0 +1,37 @@
+package com.example.sleepagentapp;
+
+/**
+ * Raw inputs for one agent call. Crosses into Python as a single packed double[]
+ * (slot order must match PACKED_RISK_FIELDS in launcher.py).
+ */
+public class RiskBundle {
+    public static final int SLOT_CAFFEINE_MG = 0;
+    public static final int SLOT_SLEEP_DEBT_HOURS = 1;
+    public static final int SLOT_NOISE_RISK = 2;
+    public static final int SLOT_MELATONIN_RISK = 3;
+    public static final int PACKED_SIZE = 4;
+
+    public double caffeineMg;
+    public double sleepDebtHours;
+    public double noiseRisk;     // 0.0 - 1.0
+    public double melatoninRisk; // 0.0 - 1.0
+    public String userQuery = "";
+
+    public RiskBundle set(double caffeineMg, double sleepDebtHours, double noiseRisk, double melatoninRisk, String userQuery) {
+        this.caffeineMg = caffeineMg;
+        this.sleepDebtHours = sleepDebtHours;
+        this.noiseRisk = noiseRisk;
+        this.melatoninRisk = melatoninRisk;
+        this.userQuery = userQuery;
+        return this;
+    }
+
+    // Writes into a caller-owned array so the same buffer can be reused for every call
+    public double[] pack(double[] out) {
+        out[SLOT_CAFFEINE_MG] = caffeineMg;
+        out[SLOT_SLEEP_DEBT_HOURS] = sleepDebtHours;
+        out[SLOT_NOISE_RISK] = noiseRisk;
+        out[SLOT_MELATONIN_RISK] = melatoninRisk;
+        return out;
+    }
+}
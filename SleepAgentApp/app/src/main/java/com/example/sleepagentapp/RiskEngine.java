@@ -0,0 +1,81 @@
+package com.example.sleepagentapp;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Java port of launcher.calculate_risks and llm_wrapper.rule_fallback (both evaluate DecisionTable).
+ * Lets offline / no-API-key requests skip the Python hop entirely.
+ * Keep the formulas in sync with the Python side (see RiskEngineTest).
+ */
+public final class RiskEngine {
+
+    public static final String SOURCE_RULE_FALLBACK = "RULE_FALLBACK";
+
+    // Same decisions (and wording) as rule_fallback in llm_wrapper.py
+    static final AgentDecision DIGITAL_WIND_DOWN = new AgentDecision(
+            "DIGITAL_WIND_DOWN", "MEDIUM", null,
+            "High blue-light detected. Time to disconnect.", 0.6f,
+            "Rule-based safety trigger for melatonin protection.", SOURCE_RULE_FALLBACK);
+
+    static final AgentDecision ADJUST_ALARM = new AgentDecision(
+            "ADJUST_ALARM", "HIGH", "30",
+            "High caffeine detected. Extending sleep schedule.", 0.9f,
+            "Caffeine half-life requires extended recovery time.", SOURCE_RULE_FALLBACK);
+
+    static final AgentDecision NO_ACTION = new AgentDecision(
+            "NONE", "LOW", null,
+            "Conditions optimal for sleep.", 1.0f,
+            "No critical thresholds breached.", SOURCE_RULE_FALLBACK);
+
+    private RiskEngine() {}
+
+    /**
+     * Raw slider values (noise/light already 0-1) -> the risk bundle the agent sees.
+     * Writes into {@code out}, which may be the same object as {@code raw}.
+     */
+    public static RiskBundle calculateRisks(RiskBundle raw, RiskBundle out) {
+        double caffeineMg = raw.caffeineMg;
+        double sleepDebt = raw.sleepDebtHours;
+
+        // Melatonin: 0-1 input is treated as 0-600 screen minutes at 0.5 brightness
+        double estimatedScreenMinutes = raw.melatoninRisk * 600;
+        double melatoninRisk = (estimatedScreenMinutes * 0.5) / 100;
+
+        // Noise: 0-1 input is mapped onto 30-100 dB, no risk below 40 dB
+        double estimatedDb = 30 + (raw.noiseRisk * 70);
+        double noiseRisk = Math.max(0, (estimatedDb - 40) / 60);
+
+        return out.set(round2(caffeineMg), round2(sleepDebt), round2(noiseRisk), round2(melatoninRisk), raw.userQuery);
+    }
+
+    // The rule table's actions -> the decisions above, resolved once
+    private static final class Fallback {
+        static final DecisionTable TABLE = DecisionTable.get();
+        static final AgentDecision[] DECISIONS = new AgentDecision[TABLE.actionCount()];
+
+        static {
+            for (int i = 0; i < DECISIONS.length; i++) {
+                DECISIONS[i] = decisionFor(TABLE.action(i));
+            }
+        }
+
+        private static AgentDecision decisionFor(String action) {
+            for (AgentDecision d : new AgentDecision[]{DIGITAL_WIND_DOWN, ADJUST_ALARM, NO_ACTION}) {
+                if (d.action.equals(action)) return d;
+            }
+            throw new IllegalStateException("decision_rules.txt decides " + action + ", which has no fallback decision");
+        }
+    }
+
+    // Expects the output of calculateRisks. The rules are in decision_rules.txt, shared with llm_wrapper
+    public static AgentDecision ruleFallback(RiskBundle risks) {
+        return Fallback.DECISIONS[Fallback.TABLE.evaluate(risks)];
+    }
+
+    // Python's round(x, 2): rounds the exact binary value, ties to even
+    static double round2(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) return value;
+        return new BigDecimal(value).setScale(2, RoundingMode.HALF_EVEN).doubleValue();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.sleepagentapp;
+
+import java.util.Arrays;
+
+/**
+ * The day's tasks, sorted by planned minute of day, with one lazy offset on top.
+ *
+ * A shift (the agent's +30m on high caffeine) only moves offsetMinutes: no task is rewritten,
+ * and the shown time of a task is (minuteOfDay + offset) mod 24h. Because every task moves by
+ * the same amount, shown order is the planned order rotated at the task that lands first
+ * after midnight, so positions and range queries stay binary searches over the planned
+ * minutes. Ranges may wrap past midnight ("from 22:00 until 01:00").
+ *
+ * Main thread only.
+ */
+public class Schedule {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int INITIAL_CAPACITY = 16;
+
+    public interface Visitor {
+        /** minuteOfDay is the shown (shifted) time. */
+        void visit(Task task, int minuteOfDay);
+    }
+
+    // Sorted by planned minute, ties in insertion order; minutes[i] == tasks[i].minuteOfDay
+    private int[] minutes = new int[INITIAL_CAPACITY];
+    private Task[] tasks = new Task[INITIAL_CAPACITY];
+    private int count = 0;
+    private int offsetMinutes = 0;
+    private long nextId = 1;
+
+    /** Adds a task at its planned time; it shows shifted by the current offset like the rest. */
+    public Task add(String name, int minuteOfDay) {
+        Task task = new Task(nextId++, name, minuteOfDay);
+        insert(task);
+        return task;
+    }
+
+    /** Adds an existing task (e.g. loaded back from storage), keeping its id. */
+    public void insert(Task task) {
+        if (count == tasks.length) {
+            minutes = Arrays.copyOf(minutes, count * 2);
+            tasks = Arrays.copyOf(tasks, count * 2);
+        }
+        int at = lowerBound(task.minuteOfDay + 1);
+        System.arraycopy(minutes, at, minutes, at + 1, count - at);
+        System.arraycopy(tasks, at, tasks, at + 1, count - at);
+        minutes[at] = task.minuteOfDay;
+        tasks[at] = task;
+        count++;
+        if (task.id >= nextId) nextId = task.id + 1;
+    }
+
+    public boolean remove(Task task) {
+        for (int i = lowerBound(task.minuteOfDay); i < count && minutes[i] == task.minuteOfDay; i++) {
+            if (tasks[i].id != task.id) continue;
+            System.arraycopy(minutes, i + 1, minutes, i, count - i - 1);
+            System.arraycopy(tasks, i + 1, tasks, i, count - i - 1);
+            tasks[--count] = null;
+            return true;
+        }
+        return false;
+    }
+
+    /** Moves every task by deltaMinutes (wrapping round the day). O(1). */
+    public void shift(int deltaMinutes) {
+        offsetMinutes = Math.floorMod(offsetMinutes + deltaMinutes, MINUTES_PER_DAY);
+    }
+
+    public void setOffsetMinutes(int offset) {
+        offsetMinutes = Math.floorMod(offset, MINUTES_PER_DAY);
+    }
+
+    /** Current shift, 0..1439 (so -30 reads back as 1410). */
+    public int getOffsetMinutes() { return offsetMinutes; }
+
+    public int size() { return count; }
+
+    public boolean isEmpty() { return count == 0; }
+
+    /** The task at position in shown order (by shifted time from midnight). */
+    public Task get(int position) {
+        return tasks[index(position)];
+    }
+
+    /** Shown (shifted) time of the task at position. */
+    public int minuteAt(int position) {
+        return shown(minutes[index(position)]);
+    }
+
+    /** Shown (shifted) time of any task. */
+    public int minuteOf(Task task) {
+        return shown(task.minuteOfDay);
+    }
+
+    /**
+     * Visits, in time order, every task shown in [fromMinute, toMinute). The range wraps past
+     * midnight when toMinute < fromMinute; from == to is empty. Returns how many. visitor may be null.
+     */
+    public int forEachBetween(int fromMinute, int toMinute, Visitor visitor) {
+        int length = Math.floorMod(toMinute - fromMinute, MINUTES_PER_DAY);
+        if (length == 0) return 0;
+
+        // Same range in planned minutes; it wraps the end of the arrays if it crosses midnight there
+        int from = Math.floorMod(fromMinute - offsetMinutes, MINUTES_PER_DAY);
+        int to = from + length;
+        if (to <= MINUTES_PER_DAY) return visit(lowerBound(from), lowerBound(to), visitor);
+        return visit(lowerBound(from), count, visitor) + visit(0, lowerBound(to - MINUTES_PER_DAY), visitor);
+    }
+
+    public int countBetween(int fromMinute, int toMinute) {
+        return forEachBetween(fromMinute, toMinute, null);
+    }
+
+    private int visit(int lo, int hi, Visitor visitor) {
+        if (visitor != null) {
+            for (int i = lo; i < hi; i++) visitor.visit(tasks[i], shown(minutes[i]));
+        }
+        return hi - lo;
+    }
+
+    private int shown(int plannedMinute) {
+        return (plannedMinute + offsetMinutes) % MINUTES_PER_DAY;
+    }
+
+    // Shown order starts at the first task whose planned minute lands at or after midnight
+    private int index(int position) {
+        if (position < 0 || position >= count) throw new IndexOutOfBoundsException("position " + position + ", size " + count);
+        int first = lowerBound(Math.floorMod(-offsetMinutes, MINUTES_PER_DAY));
+        int i = first + position;
+        return i < count ? i : i - count;
+    }
+
+    // First index whose planned minute is >= minute
+    private int lowerBound(int minute) {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (minutes[mid] < minute) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -1,46 +1,45 @@
 package com.example.sleepagentapp;
 
-import android.content.Context;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
-import android.widget.ListView;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.cardview.widget.CardView;
 import androidx.fragment.app.Fragment;
-import java.util.ArrayList;
-import java.util.List;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import java.util.Calendar;
+import java.util.Locale;
 
 public class ScheduleFragment extends Fragment {
 
-    private ListView listView;
+    private static final int SHIFT_MINUTES = 30;
+
+    private RecyclerView listView;
     private CardView alertCard;
     private TextView alertText;
     private EditText editTaskName, editTaskTime;
     private Button btnAddTask;
-    private ArrayAdapter<String> adapter;
-
-    public static ScheduleFragment instance;
+    private TaskAdapter adapter;
 
-    // Static so data survives tab switches
-    private static List<Task> myTasks = new ArrayList<>();
-    private static boolean isShifted = false;
+    private SensorStateStore stateStore;
+    private final SensorStateStore.Listener stateListener = state -> checkCaffeineAndSync(state.caffeineMg());
 
-    private List<String> displayList = new ArrayList<>();
+    // Persisted; shifted == the schedule's offset is non-zero
+    private ScheduleStore scheduleStore;
+    private final ScheduleStore.Listener scheduleListener = schedule -> onScheduleChanged();
+    private boolean firstLoad = true;
 
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_schedule, container, false);
-        instance = this;
 
         listView = view.findViewById(R.id.list_tasks);
         alertCard = view.findViewById(R.id.card_alert);
@@ -52,148 +51,129 @@ public class ScheduleFragment extends Fragment {
 
         // 1. ADD TASK LOGIC
         btnAddTask.setOnClickListener(v -> {
-            String name = editTaskName.getText().toString();
+            String name = editTaskName.getText().toString().trim();
             String time = editTaskTime.getText().toString();
+            if (name.isEmpty() || time.trim().isEmpty()) return;
+            if (!scheduleStore.isLoaded()) {
+                Toast.makeText(getContext(), "Still loading your plan...", Toast.LENGTH_SHORT).show();
+                return;
+            }
 
-            if (!name.isEmpty() && !time.isEmpty()) {
-                Task newTask = new Task(name, time);
-
-                // If currently shifted, automatically shift new tasks too
-                if (isShifted) {
-                    modifyTaskTime(newTask, 30);
-                    Toast.makeText(getContext(), "Auto-shifted (+30m)", Toast.LENGTH_SHORT).show();
-                }
+            int minute;
+            try {
+                minute = Task.parseTime(time);
+            } catch (IllegalArgumentException e) {
+                Toast.makeText(getContext(), "Couldn't read \"" + time + "\" as a time (try 08:30 AM or 20:30)", Toast.LENGTH_SHORT).show();
+                return;
+            }
 
-                myTasks.add(newTask);
-                refreshList();
-                editTaskName.setText("");
-                editTaskTime.setText("");
+            // The planned time goes in; if currently shifted, the new task shows shifted like the rest
+            scheduleStore.add(name, minute);
+            if (isShifted()) {
+                Toast.makeText(getContext(), "Auto-shifted (+30m)", Toast.LENGTH_SHORT).show();
             }
+            editTaskName.setText("");
+            editTaskTime.setText("");
         });
 
-        // 2. DELETE TASK LOGIC
-        listView.setOnItemLongClickListener((parent, view1, position, id) -> {
-            myTasks.remove(position);
-            refreshList();
-            return true;
+        // 2. DELETE TASK LOGIC (long press a row)
+        adapter = new TaskAdapter(task -> {
+            // Rows show up while the rest of the plan is still loading
+            if (!scheduleStore.isLoaded()) {
+                Toast.makeText(getContext(), "Still loading your plan...", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            scheduleStore.remove(task);
         });
+        listView.setLayoutManager(new LinearLayoutManager(getContext()));
+        listView.setAdapter(adapter);
 
-        // 3. CHECK STATE
-        checkCaffeineAndSync();
-        refreshList();
+        // 3. CHECK STATE (now, once the stores have loaded, and on every change after that)
+        scheduleStore = ScheduleStore.get(requireContext());
+        stateStore = SensorStateStore.get(requireContext());
+        scheduleStore.addListener(scheduleListener);
+        stateStore.addListener(stateListener);
 
         return view;
     }
 
-    private void checkCaffeineAndSync() {
-        if (getContext() == null) return;
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        stateStore.removeListener(stateListener);
+        scheduleStore.removeListener(scheduleListener);
+    }
+
+    private void onScheduleChanged() {
+        refreshList();
+        // The caffeine check skipped while the plan was still loading
+        if (firstLoad && scheduleStore.isLoaded() && stateStore.isLoaded()) {
+            firstLoad = false;
+            checkCaffeineAndSync(stateStore.snapshot().caffeineMg());
+        }
+    }
+
+    private boolean isShifted() {
+        return scheduleStore.getSchedule().getOffsetMinutes() != 0;
+    }
 
-        SharedPreferences prefs = getContext().getSharedPreferences("SleepData", Context.MODE_PRIVATE);
-        float caffeine = prefs.getFloat("caffeine_mg", 0);
+    private void checkCaffeineAndSync(float caffeine) {
+        if (getContext() == null || !scheduleStore.isLoaded()) return;
+
+        // Same line as the agent's ADJUST_ALARM rule (decision_rules.txt)
+        double highMg = DecisionTable.get().threshold(DecisionTable.CAFFEINE_HIGH_MG);
 
         // Case A: Caffeine High, but NOT shifted yet -> SHIFT IT
-        if (caffeine > 350 && !isShifted) {
-            shiftAllTasks(30);
-            isShifted = true;
+        if (caffeine > highMg && !isShifted()) {
+            scheduleStore.setOffsetMinutes(SHIFT_MINUTES);
         }
         // Case B: Caffeine Low, but IS shifted -> RESET IT
-        else if (caffeine <= 350 && isShifted) {
-            shiftAllTasks(-30); // Subtract 30 mins
-            isShifted = false;
+        else if (caffeine <= highMg && isShifted()) {
+            scheduleStore.setOffsetMinutes(0);
         }
 
         updateAlertVisibility();
     }
 
     private void updateAlertVisibility() {
-        if (isShifted) {
+        if (isShifted()) {
             alertCard.setVisibility(View.VISIBLE);
-            alertText.setText("High Caffeine: Schedule +30m added for recovery.");
+            alertText.setText("High Caffeine: Schedule +30m added for recovery." + safeBedtimeText());
         } else {
             alertCard.setVisibility(View.GONE);
         }
     }
 
-    private void refreshList() {
-        if (getContext() == null) return;
-
-        displayList.clear();
-        for (Task t : myTasks) {
-            displayList.add(t.time + "   -   " + t.name);
-        }
-
-        if (adapter == null) {
-            adapter = new ArrayAdapter<>(getContext(), android.R.layout.simple_list_item_1, displayList);
-            listView.setAdapter(adapter);
-        } else {
-            adapter.notifyDataSetChanged();
-        }
-    }
-
-    // Accessible method for DataFragment to trigger High Caffeine
-    public void triggerHighCaffeineShift() {
-        if (!isShifted) {
-            shiftAllTasks(30);
-            isShifted = true;
-            updateAlertVisibility();
-        }
-    }
-
-    // Accessible method for DataFragment to trigger Reset
-    public void triggerReset() {
-        if (isShifted) {
-            shiftAllTasks(-30);
-            isShifted = false;
-            updateAlertVisibility();
+    // When the active level decays below caffeine_safe_bedtime_mg (closed form / bisection in CaffeineTracker),
+    // and how many tasks are still due before then
+    private String safeBedtimeText() {
+        if (getContext() == null) return "";
+        CaffeineStore caffeine = CaffeineStore.get(getContext());
+        if (!caffeine.isLoaded()) return "";
+
+        long now = System.currentTimeMillis();
+        float safeMg = (float) DecisionTable.get().threshold(DecisionTable.CAFFEINE_SAFE_BEDTIME_MG);
+        long safeAt = caffeine.timeWhenBelow(safeMg);
+        if (safeAt <= now) return "";
+
+        String text = String.format(Locale.getDefault(), "\nBelow %.0f mg around %tl:%<tM %<Tp.",
+                safeMg, safeAt);
+        if (safeAt - now < 24 * 3600 * 1000L) {
+            int due = scheduleStore.getSchedule().countBetween(minuteOfDay(now), minuteOfDay(safeAt));
+            if (due > 0) text += " " + due + (due == 1 ? " task" : " tasks") + " due before then.";
         }
+        return text;
     }
 
-    private void shiftAllTasks(int minutesToAdd) {
-        if (getContext() == null) return;
-        for (Task t : myTasks) {
-            modifyTaskTime(t, minutesToAdd);
-        }
-        refreshList();
+    private static int minuteOfDay(long millis) {
+        Calendar c = Calendar.getInstance();
+        c.setTimeInMillis(millis);
+        return c.get(Calendar.HOUR_OF_DAY) * 60 + c.get(Calendar.MINUTE);
     }
 
-    private boolean modifyTaskTime(Task t, int minutesToAdd) {
-        try {
-            String timeClean = t.time.toLowerCase().replace("am", "").replace("pm", "").trim();
-            String[] parts;
-            if (timeClean.contains(":")) parts = timeClean.split(":");
-            else if (timeClean.contains(".")) parts = timeClean.split("\\.");
-            else return false;
-
-            int hour = Integer.parseInt(parts[0].trim());
-            int min = Integer.parseInt(parts[1].trim());
-
-            // MATH
-            min += minutesToAdd;
-
-            // Handle overflow (adding time)
-            while (min >= 60) {
-                min -= 60;
-                hour += 1;
-            }
-            // Handle underflow (subtracting time)
-            while (min < 0) {
-                min += 60;
-                hour -= 1;
-            }
-
-            // Handle 12-hour wrap
-            if (hour > 12) hour -= 12;
-            if (hour <= 0) hour += 12;
-
-            // Reconstruct
-            String newMin = (min < 10) ? "0" + min : "" + min;
-            String newHour = (hour < 10) ? "0" + hour : "" + hour;
-            String suffix = t.time.toLowerCase().contains("pm") ? " PM" : " AM";
-
-            t.time = newHour + ":" + newMin + suffix;
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
+    // Partly loaded is fine here: the list fills in batch by batch
+    private void refreshList() {
+        if (getContext() == null || scheduleStore.getSchedule() == null) return;
+        adapter.submit(scheduleStore.getSchedule());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,377 @@
+package com.example.sleepagentapp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk schedule: a journal of edits (task added, task removed, shift changed).
+ *
+ * Format, little endian. Header (HEADER_BYTES): magic, version. Then records of
+ *   int payload length, int CRC32 of the payload, payload = byte op + op fields.
+ * open() replays the records into the live task set; the first record that is short or fails
+ * its CRC (a crash mid-write) ends the journal and is cut off, so a crash loses at most the
+ * last unsynced batch. When removed tasks make up most of the file, compact() writes a snapshot
+ * (just the live ADDs and the shift) to a temp file and renames it over the journal.
+ *
+ * Edits only encode into a memory buffer; commit() writes everything pending in one write and
+ * one fsync, so a burst of edits costs one disk round trip. Thread-safe: edits come from the
+ * main thread, commit / compact run on an IO thread. Edits only take editLock, which guards the
+ * in-memory state; the file is guarded by this, and commit holds editLock just long enough to
+ * swap the pending buffer out, never across a write or fsync.
+ */
+public class ScheduleJournal implements Closeable {
+
+    static final int MAGIC = 0x314A5347; // "SGJ1"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final int RECORD_HEADER_BYTES = 8;
+
+    static final byte OP_ADD = 1;     // long id, short minuteOfDay, short name length, name (UTF-8)
+    static final byte OP_REMOVE = 2;  // long id
+    static final byte OP_OFFSET = 3;  // short offsetMinutes
+
+    // Compact once the file holds this many more records than a snapshot would
+    private static final int COMPACTION_SLACK = 256;
+
+    private final File file;
+
+    // Guarded by this: the file, and the buffer commit() is writing out
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private volatile long size;
+    private volatile long fileRecords = 0;
+    private ByteBuffer writing = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+
+    // Guarded by editLock. Live state as of the last edit, so a snapshot can be written without
+    // the (main thread) Schedule
+    private final Object editLock = new Object();
+    private final LinkedHashMap<Long, Task> live = new LinkedHashMap<>();
+    private int offsetMinutes = 0;
+    private ByteBuffer pending = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+    private int pendingRecords = 0;
+    private int recordStart;
+    private final CRC32 crc = new CRC32();
+
+    // --- STATS ---
+    private volatile long commits = 0;
+    private volatile long committedRecords = 0;
+    private volatile long droppedBytes = 0;
+
+    public static ScheduleJournal open(File file) throws IOException {
+        return new ScheduleJournal(file);
+    }
+
+    private ScheduleJournal(File file) throws IOException {
+        this.file = file;
+        openChannel();
+        replay();
+    }
+
+    private void openChannel() throws IOException {
+        // RandomAccessFile rather than FileChannel.open(Path): java.nio.file needs API 26
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+        size = channel.size();
+        if (size < HEADER_BYTES) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            channel.truncate(0);
+            writeFully(header, 0);
+            channel.force(true);
+            size = HEADER_BYTES;
+        }
+    }
+
+    private void replay() throws IOException {
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        map.order(ByteOrder.LITTLE_ENDIAN);
+        if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+            throw new IOException(file + " is not a schedule journal");
+        }
+
+        int position = HEADER_BYTES;
+        byte[] scratch = new byte[64];
+        while (position + RECORD_HEADER_BYTES <= size) {
+            int length = map.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER_BYTES + (long) length > size) break;
+            if (length > scratch.length) scratch = new byte[Math.max(length, scratch.length * 2)];
+            map.position(position + RECORD_HEADER_BYTES);
+            map.get(scratch, 0, length);
+            crc.reset();
+            crc.update(scratch, 0, length);
+            if ((int) crc.getValue() != map.getInt(position + 4)) break;
+
+            if (!apply(ByteBuffer.wrap(scratch, 0, length).order(ByteOrder.LITTLE_ENDIAN))) break;
+            fileRecords++;
+            position += RECORD_HEADER_BYTES + length;
+        }
+
+        // Anything after the last good record is a torn write
+        if (position < size) {
+            droppedBytes = size - position;
+            channel.truncate(position);
+            channel.force(true);
+            size = position;
+        }
+    }
+
+    private boolean apply(ByteBuffer payload) {
+        switch (payload.get()) {
+            case OP_ADD: {
+                long id = payload.getLong();
+                int minute = payload.getShort();
+                int nameLength = payload.getShort();
+                if (minute < 0 || minute >= Schedule.MINUTES_PER_DAY) return false;
+                if (nameLength < 0 || nameLength > payload.remaining()) return false;
+                byte[] name = new byte[nameLength];
+                payload.get(name);
+                live.put(id, new Task(id, new String(name, StandardCharsets.UTF_8), minute));
+                return true;
+            }
+            case OP_REMOVE:
+                live.remove(payload.getLong());
+                return true;
+            case OP_OFFSET:
+                offsetMinutes = payload.getShort();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /** A new Schedule holding the journal's tasks and shift. The caller owns it from then on. */
+    public Schedule toSchedule() {
+        Schedule schedule = new Schedule();
+        schedule.setOffsetMinutes(getOffsetMinutes());
+        for (Task task : sortedTasks()) schedule.insert(task);
+        return schedule;
+    }
+
+    /**
+     * The live tasks by planned minute. The sort is stable, so same-minute tasks keep the order
+     * they were added in, and inserting them into a Schedule in this order is always an append.
+     */
+    public Task[] sortedTasks() {
+        Task[] tasks;
+        synchronized (editLock) {
+            tasks = live.values().toArray(new Task[0]);
+        }
+        Arrays.sort(tasks, (a, b) -> Integer.compare(a.minuteOfDay, b.minuteOfDay));
+        return tasks;
+    }
+
+    public int getOffsetMinutes() {
+        synchronized (editLock) {
+            return offsetMinutes;
+        }
+    }
+
+    // --- EDITS (buffered until commit) ---
+
+    public void add(Task task) {
+        byte[] name = task.name.getBytes(StandardCharsets.UTF_8);
+        if (name.length > Short.MAX_VALUE) throw new IllegalArgumentException("Task name too long");
+        synchronized (editLock) {
+            encodeAdd(task, name);
+            live.put(task.id, task);
+        }
+    }
+
+    public void remove(Task task) {
+        synchronized (editLock) {
+            beginRecord(1 + 8);
+            pending.put(OP_REMOVE).putLong(task.id);
+            endRecord();
+            live.remove(task.id);
+        }
+    }
+
+    public void setOffsetMinutes(int offset) {
+        synchronized (editLock) {
+            encodeOffset(offset);
+            offsetMinutes = offset;
+        }
+    }
+
+    // editLock held from here down to endRecord
+
+    private void encodeAdd(Task task, byte[] name) {
+        beginRecord(1 + 8 + 2 + 2 + name.length);
+        pending.put(OP_ADD).putLong(task.id).putShort((short) task.minuteOfDay).putShort((short) name.length).put(name);
+        endRecord();
+    }
+
+    private void encodeOffset(int offset) {
+        beginRecord(1 + 2);
+        pending.put(OP_OFFSET).putShort((short) offset);
+        endRecord();
+    }
+
+    private void beginRecord(int payloadBytes) {
+        int needed = RECORD_HEADER_BYTES + payloadBytes;
+        if (pending.remaining() < needed) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + needed))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            pending.flip();
+            bigger.put(pending);
+            pending = bigger;
+        }
+        recordStart = pending.position();
+        pending.putInt(payloadBytes).putInt(0); // CRC filled in by endRecord
+    }
+
+    private void endRecord() {
+        int payloadStart = recordStart + RECORD_HEADER_BYTES;
+        crc.reset();
+        crc.update(pending.array(), pending.arrayOffset() + payloadStart, pending.position() - payloadStart);
+        pending.putInt(recordStart + 4, (int) crc.getValue());
+        pendingRecords++;
+    }
+
+    public boolean hasPending() {
+        synchronized (editLock) {
+            return pending.position() > 0;
+        }
+    }
+
+    /** Writes and syncs every pending edit. Returns how many bytes went to disk. */
+    public synchronized int commit() throws IOException {
+        int batch;
+        synchronized (editLock) {
+            if (pending.position() == 0) return 0;
+            // Swap buffers: edits carry on into the empty one while this batch is written
+            ByteBuffer full = pending;
+            pending = writing;
+            writing = full;
+            batch = pendingRecords;
+            pendingRecords = 0;
+        }
+
+        writing.flip();
+        int bytes = writing.remaining();
+        try {
+            writeFully(writing, size);
+            // Data only, no metadata: if the size update is lost we lose this batch, never older ones
+            channel.force(false);
+        } catch (IOException e) {
+            requeue(batch);
+            throw e;
+        }
+        writing.clear();
+        size += bytes;
+        fileRecords += batch;
+        commits++;
+        committedRecords += batch;
+        return bytes;
+    }
+
+    // A failed batch goes back in front of whatever was edited meanwhile, for the next commit
+    private void requeue(int batch) {
+        writing.rewind();
+        synchronized (editLock) {
+            pending.flip();
+            ByteBuffer merged = ByteBuffer.allocate(Math.max(4096, writing.remaining() + pending.remaining()))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            merged.put(writing).put(pending);
+            pending = merged;
+            pendingRecords += batch;
+        }
+        writing.clear();
+    }
+
+    /** Whether a snapshot would be much smaller than the journal. */
+    public boolean shouldCompact() {
+        long records = getRecordCount();
+        int liveCount = getLiveCount();
+        return records > liveCount + 1 + COMPACTION_SLACK && records > 2L * (liveCount + 1);
+    }
+
+    /** Replaces the journal with a snapshot of the live tasks and shift. Atomic via rename. */
+    public synchronized void compact() throws IOException {
+        commit();
+
+        // Edits made after the commit are both in the snapshot (via live) and still pending;
+        // replaying them twice is harmless, every op just sets state
+        ByteBuffer snapshot;
+        int snapshotRecords;
+        synchronized (editLock) {
+            ByteBuffer keep = pending;
+            int keepRecords = pendingRecords;
+            pending = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+            pendingRecords = 0;
+            for (Task task : live.values()) encodeAdd(task, task.name.getBytes(StandardCharsets.UTF_8));
+            encodeOffset(offsetMinutes);
+            snapshot = pending;
+            snapshotRecords = pendingRecords;
+            pending = keep;
+            pendingRecords = keepRecords;
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+            out.setLength(0);
+            FileChannel outChannel = out.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            while (header.hasRemaining()) outChannel.write(header);
+            snapshot.flip();
+            while (snapshot.hasRemaining()) outChannel.write(snapshot);
+            outChannel.force(true);
+        }
+
+        // rename() within one directory is atomic: a crash leaves the old journal or the snapshot
+        raf.close();
+        if (!tmp.renameTo(file)) {
+            openChannel();
+            throw new IOException("Could not replace " + file + " with snapshot");
+        }
+        openChannel();
+        fileRecords = snapshotRecords;
+    }
+
+    private void writeFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            position += channel.write(buf, position);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        raf.close();
+    }
+
+    // --- STATS ---
+
+    public long getSizeBytes() { return size; }
+
+    /** Records in the file plus pending ones. */
+    public long getRecordCount() {
+        synchronized (editLock) {
+            return fileRecords + pendingRecords;
+        }
+    }
+
+    public int getLiveCount() {
+        synchronized (editLock) {
+            return live.size();
+        }
+    }
+
+    public long getCommits() { return commits; }
+
+    /** Edits written so far; divided by getCommits() that's the average batch. */
+    public long getCommittedRecords() { return committedRecords; }
+
+    /** Bytes of torn tail cut off when opened. */
+    public long getDroppedBytes() { return droppedBytes; }
+}
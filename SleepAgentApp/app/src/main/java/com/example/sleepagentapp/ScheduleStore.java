@@ -0,0 +1,237 @@
+package com.example.sleepagentapp;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * App-wide owner of the task schedule, persisted in a ScheduleJournal.
+ *
+ * The journal is replayed on its own IO thread, then handed to the main thread in batches in
+ * shown order: the first screenful of tasks lands as soon as the replay is done, the rest follow
+ * in BATCH-sized posts, so neither opening the Schedule tab nor any single main-thread message
+ * waits on the whole list. (The replay itself is one pass: a remove late in the file can cancel
+ * any earlier add, so no task is known to be live before the end.) Edits wait for the last batch
+ * (isLoaded()); they apply to the Schedule at once and only queue a journal record; records
+ * landing within COMMIT_DELAY_MS are written and synced together.
+ *
+ * Everything public is main thread only.
+ */
+public class ScheduleStore {
+
+    private static final String TAG = "ScheduleStore";
+    private static final String JOURNAL_FILE = "schedule.journal";
+
+    // Edits landing within this window go to disk together
+    static final long COMMIT_DELAY_MS = 500;
+
+    // Tasks handed to the main thread per post; the first post is about a screenful
+    static final int FIRST_BATCH = 32;
+    static final int BATCH = 512;
+
+    public interface Listener {
+        // Main thread, as each loaded batch lands and after every edit
+        void onScheduleChanged(Schedule schedule);
+    }
+
+    private static ScheduleStore instance;
+
+    private final File journalFile;
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> new Thread(r, "schedule-io"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new ArrayList<>();
+
+    private Schedule schedule;                 // main thread; null until the first batch lands
+    private boolean loaded = false;            // main thread; every batch has landed
+    private volatile ScheduleJournal journal;  // null if it couldn't be opened: edits stay in memory
+    private boolean commitScheduled = false;   // guarded by this
+
+    // --- STATS ---
+    private volatile long loadMillis = -1;
+    private volatile long lastCommitMillis = -1;
+
+    public static synchronized ScheduleStore get(Context context) {
+        if (instance == null) {
+            instance = new ScheduleStore(new File(context.getApplicationContext().getFilesDir(), JOURNAL_FILE));
+            instance.load();
+        }
+        return instance;
+    }
+
+    private ScheduleStore(File journalFile) {
+        this.journalFile = journalFile;
+    }
+
+    private void load() {
+        io.execute(() -> {
+            long start = SystemClock.elapsedRealtime();
+            Task[] tasks;
+            int offset;
+            try {
+                ScheduleJournal opened = ScheduleJournal.open(journalFile);
+                if (opened.getDroppedBytes() > 0) Log.w(TAG, "Dropped " + opened.getDroppedBytes() + " bytes of torn journal");
+                if (opened.shouldCompact()) {
+                    opened.compact();
+                    Log.i(TAG, "Compacted journal to " + opened.getSizeBytes() + " bytes");
+                }
+                tasks = opened.sortedTasks();
+                offset = opened.getOffsetMinutes();
+                journal = opened;
+            } catch (IOException e) {
+                Log.e(TAG, "Could not open schedule journal", e);
+                tasks = new Task[0];
+                offset = 0;
+            }
+            loadMillis = SystemClock.elapsedRealtime() - start;
+
+            // Position i in shown order is tasks[(first + i) % length] (see Schedule.index)
+            Task[] sorted = tasks;
+            int shownOffset = offset;
+            int first = firstShown(sorted, offset);
+            int from = 0;
+            int batch = FIRST_BATCH;
+            do {
+                int batchStart = from;
+                int batchEnd = Math.min(sorted.length, from + batch);
+                mainHandler.post(() -> publish(sorted, first, batchStart, batchEnd, shownOffset));
+                from = batchEnd;
+                batch = BATCH;
+            } while (from < sorted.length);
+        });
+    }
+
+    // Main thread: shown positions [start, end) go into the schedule
+    private void publish(Task[] sorted, int first, int start, int end, int offset) {
+        if (schedule == null) {
+            schedule = new Schedule();
+            schedule.setOffsetMinutes(offset);
+        }
+        for (int i = start; i < end; i++) schedule.insert(sorted[(first + i) % sorted.length]);
+        loaded = end == sorted.length;
+        notifyListeners();
+    }
+
+    // First task (sorted by planned minute) whose shifted time lands at or after midnight
+    private static int firstShown(Task[] sorted, int offset) {
+        int midnight = Math.floorMod(-offset, Schedule.MINUTES_PER_DAY);
+        int lo = 0, hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid].minuteOfDay < midnight) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo == sorted.length ? 0 : lo;
+    }
+
+    /** Every batch of the startup load has landed; edits are only allowed from then on. */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /** The live schedule; null until the first batch lands. Edit it only through this store. */
+    public Schedule getSchedule() {
+        return schedule;
+    }
+
+    public Task add(String name, int minuteOfDay) {
+        checkLoaded();
+        Task task = schedule.add(name, minuteOfDay);
+        ScheduleJournal j = journal;
+        if (j != null) j.add(task);
+        edited();
+        return task;
+    }
+
+    public void remove(Task task) {
+        checkLoaded();
+        if (!schedule.remove(task)) return;
+        ScheduleJournal j = journal;
+        if (j != null) j.remove(task);
+        edited();
+    }
+
+    public void setOffsetMinutes(int offset) {
+        checkLoaded();
+        if (Math.floorMod(offset, Schedule.MINUTES_PER_DAY) == schedule.getOffsetMinutes()) return;
+        schedule.setOffsetMinutes(offset);
+        ScheduleJournal j = journal;
+        if (j != null) j.setOffsetMinutes(schedule.getOffsetMinutes());
+        edited();
+    }
+
+    // A partly loaded schedule would hand out ids the rest of the load still holds
+    private void checkLoaded() {
+        if (!loaded) throw new IllegalStateException("Schedule is still loading");
+    }
+
+    private void edited() {
+        synchronized (this) {
+            if (!commitScheduled) {
+                commitScheduled = true;
+                mainHandler.postDelayed(() -> io.execute(this::commit), COMMIT_DELAY_MS);
+            }
+        }
+        notifyListeners();
+    }
+
+    // IO thread. The load is the first task on this executor, so it always ran before any commit
+    private void commit() {
+        synchronized (this) {
+            commitScheduled = false;
+        }
+        ScheduleJournal j = journal;
+        if (j == null) return;
+        try {
+            long start = SystemClock.elapsedRealtime();
+            j.commit();
+            if (j.shouldCompact()) j.compact();
+            lastCommitMillis = SystemClock.elapsedRealtime() - start;
+        } catch (IOException e) {
+            Log.e(TAG, "Could not write schedule journal", e);
+        }
+    }
+
+    // --- LISTENERS (main thread) ---
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        if (schedule != null) listener.onScheduleChanged(schedule);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners() {
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onScheduleChanged(schedule);
+        }
+    }
+
+    // --- STATS ---
+
+    /** Journal replay (plus any compaction) at startup, up to the first batch; -1 until then. */
+    public long getLoadMillis() { return loadMillis; }
+
+    public long getLastCommitMillis() { return lastCommitMillis; }
+
+    public long getCommits() {
+        ScheduleJournal j = journal;
+        return j == null ? 0 : j.getCommits();
+    }
+
+    /** Edits written to disk; over getCommits() that's the average batch. */
+    public long getCommittedEdits() {
+        ScheduleJournal j = journal;
+        return j == null ? 0 : j.getCommittedRecords();
+    }
+}
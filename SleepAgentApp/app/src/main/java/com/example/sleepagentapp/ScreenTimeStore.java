@@ -0,0 +1,220 @@
+package com.example.sleepagentapp;
+
+import android.app.AppOpsManager;
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageStatsManager;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * App-wide screen-time totals, kept up to date incrementally instead of a full
+ * queryUsageStats() scan every time the Data tab opens.
+ *
+ * A refresh reads only the usage events since the saved checkpoint (queryEvents), folds them
+ * into a UsageAggregator and saves the checkpoint again, all on its own IO thread; listeners
+ * get the new Totals on the main thread. Refreshes asked for while one is queued ride along.
+ *
+ * Everything public is main thread only, except the stats getters.
+ */
+public class ScreenTimeStore {
+
+    private static final String TAG = "ScreenTimeStore";
+    private static final String CHECKPOINT_FILE = "screen_time.bin";
+
+    public interface Listener {
+        // Main thread, after every refresh
+        void onScreenTimeChanged(UsageAggregator.Totals totals);
+    }
+
+    private static ScreenTimeStore instance;
+
+    private final Context context;
+    private final File checkpointFile;
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> new Thread(r, "screen-time-io"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new ArrayList<>();
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+
+    private UsageAggregator aggregator;            // IO thread only
+    private UsageAggregator.Totals totals;         // main thread; null until the first refresh
+
+    // --- STATS ---
+    private volatile long loadMillis = -1;
+    private volatile long lastRefreshMillis = -1;
+    private volatile long lastRefreshEvents = 0;
+    private volatile int refreshes = 0;
+    private volatile int coalescedRefreshes = 0;
+
+    public static synchronized ScreenTimeStore get(Context context) {
+        if (instance == null) {
+            Context app = context.getApplicationContext();
+            instance = new ScreenTimeStore(app, new File(app.getFilesDir(), CHECKPOINT_FILE));
+            instance.load();
+        }
+        return instance;
+    }
+
+    private ScreenTimeStore(Context context, File checkpointFile) {
+        this.context = context;
+        this.checkpointFile = checkpointFile;
+    }
+
+    public static boolean hasPermission(Context context) {
+        AppOpsManager appOps = (AppOpsManager) context.getSystemService(Context.APP_OPS_SERVICE);
+        int mode = appOps.checkOpNoThrow(AppOpsManager.OPSTR_GET_USAGE_STATS,
+                android.os.Process.myUid(), context.getPackageName());
+        return mode == AppOpsManager.MODE_ALLOWED;
+    }
+
+    private void load() {
+        io.execute(() -> {
+            long start = SystemClock.elapsedRealtime();
+            if (checkpointFile.exists()) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(checkpointFile)))) {
+                    aggregator = UsageAggregator.readFrom(in);
+                } catch (IOException e) {
+                    Log.w(TAG, "Dropping unreadable screen-time checkpoint", e);
+                }
+            }
+            // First run (or a bad file): one scan over the span, incremental from then on
+            if (aggregator == null) aggregator = new UsageAggregator(System.currentTimeMillis() - UsageAggregator.SPAN_MS);
+            loadMillis = SystemClock.elapsedRealtime() - start;
+        });
+    }
+
+    /**
+     * Folds in the events since the last refresh. A no-op without usage access: the checkpoint
+     * must not move past events we couldn't read.
+     */
+    public void refresh() {
+        if (!hasPermission(context)) return;
+        if (!refreshQueued.compareAndSet(false, true)) {
+            coalescedRefreshes++;
+            return;
+        }
+        // The load is the first task on this executor, so the aggregator is always there
+        io.execute(() -> {
+            refreshQueued.set(false);
+            UsageAggregator.Totals result = update();
+            mainHandler.post(() -> {
+                totals = result;
+                notifyListeners();
+            });
+        });
+    }
+
+    // IO thread
+    @SuppressWarnings("deprecation") // MOVE_TO_* are ACTIVITY_RESUMED / PAUSED under their old names, same values
+    private UsageAggregator.Totals update() {
+        long start = SystemClock.elapsedRealtime();
+        long now = System.currentTimeMillis();
+        if (now < aggregator.getCheckpoint()) {
+            Log.w(TAG, "Clock moved back, restarting screen-time totals");
+            aggregator.restart(now - UsageAggregator.SPAN_MS);
+        }
+
+        UsageStatsManager usageStats = (UsageStatsManager) context.getSystemService(Context.USAGE_STATS_SERVICE);
+        UsageEvents events = usageStats.queryEvents(aggregator.getCheckpoint(), now);
+        if (events == null) return aggregator.totals(TimeZone.getDefault()); // locked device: try again later
+
+        UsageEvents.Event event = new UsageEvents.Event();
+        long read = 0;
+        while (events.getNextEvent(event)) {
+            read++;
+            switch (event.getEventType()) {
+                case UsageEvents.Event.MOVE_TO_FOREGROUND:
+                    aggregator.onForeground(activityOf(event), event.getTimeStamp());
+                    break;
+                case UsageEvents.Event.MOVE_TO_BACKGROUND:
+                    aggregator.onBackground(activityOf(event), event.getTimeStamp());
+                    break;
+                case UsageEvents.Event.SCREEN_NON_INTERACTIVE: // API 28+, never seen before that
+                case UsageEvents.Event.DEVICE_SHUTDOWN:        // API 29+
+                    aggregator.onScreenOff(event.getTimeStamp());
+                    break;
+            }
+        }
+        aggregator.advanceTo(now);
+        save();
+
+        lastRefreshEvents = read;
+        lastRefreshMillis = SystemClock.elapsedRealtime() - start;
+        refreshes++;
+        return aggregator.totals(TimeZone.getDefault());
+    }
+
+    // Class names are already fully qualified, no need to build package + class
+    private static String activityOf(UsageEvents.Event event) {
+        String className = event.getClassName();
+        return className != null ? className : event.getPackageName();
+    }
+
+    // Written whole to a temp file and renamed over, so a crash leaves the old checkpoint
+    // (and its matching buckets) rather than half of each
+    private void save() {
+        File tmp = new File(checkpointFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            aggregator.writeTo(out);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not write screen-time checkpoint", e);
+            return;
+        }
+        if (!tmp.renameTo(checkpointFile)) Log.e(TAG, "Could not replace screen-time checkpoint");
+    }
+
+    /** The last refresh's totals; null until there has been one. */
+    public UsageAggregator.Totals getTotals() {
+        return totals;
+    }
+
+    // --- LISTENERS (main thread) ---
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        if (totals != null) listener.onScreenTimeChanged(totals);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners() {
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onScreenTimeChanged(totals);
+        }
+    }
+
+    // --- STATS ---
+
+    /** Reading the checkpoint at startup; -1 until loaded. */
+    public long getLoadMillis() { return loadMillis; }
+
+    /** queryEvents + folding + saving the checkpoint, for the last refresh. */
+    public long getLastRefreshMillis() { return lastRefreshMillis; }
+
+    /** Usage events the last refresh had to read: only the ones since the one before. */
+    public long getLastRefreshEvents() { return lastRefreshEvents; }
+
+    public int getRefreshes() { return refreshes; }
+
+    // refresh() calls that rode along with an already queued one
+    public int getCoalescedRefreshes() { return coalescedRefreshes; }
+}
@@ -0,0 +1,220 @@
+package com.example.sleepagentapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Single owner of the "SleepData" values (caffeine, sleep debt, noise, light).
+ *
+ * Loaded once off the main thread; after that reads are a volatile field read of an
+ * immutable Snapshot. Writes update the snapshot immediately, notify listeners on the
+ * main thread, and are flushed to disk in one batch after a short delay.
+ */
+public class SensorStateStore {
+
+    private static final String PREFS_NAME = "SleepData";
+
+    // Writes landing within this window go to disk together
+    static final long FLUSH_DELAY_MS = 500;
+
+    // Caffeine and light are recomputed on every visit and drift a little each time (decay,
+    // a moving 2 h window); stored to a step, most visits then leave them unchanged and write nothing
+    public enum Field {
+        CAFFEINE_MG("caffeine_mg", 1f),
+        SLEEP_DEBT_HOURS("sleep_debt", 0f),
+        NOISE_LEVEL("noise_level", 0f), // 0-10 slider
+        LIGHT_LEVEL("light_level", 0.1f); // 0-10 slider
+
+        final String prefKey;
+        final float step; // 0 = stored as given
+
+        Field(String prefKey, float step) {
+            this.prefKey = prefKey;
+            this.step = step;
+        }
+
+        float quantize(float value) {
+            return step > 0 ? Math.round(value / step) * step : value;
+        }
+    }
+
+    public static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new float[Field.values().length]);
+
+        private final float[] values;
+
+        private Snapshot(float[] values) {
+            this.values = values;
+        }
+
+        public float get(Field field) { return values[field.ordinal()]; }
+
+        public float caffeineMg() { return get(Field.CAFFEINE_MG); }
+
+        public float sleepDebtHours() { return get(Field.SLEEP_DEBT_HOURS); }
+
+        public float noiseLevel() { return get(Field.NOISE_LEVEL); }
+
+        public float lightLevel() { return get(Field.LIGHT_LEVEL); }
+
+        Snapshot with(Field field, float value) {
+            float[] copy = values.clone();
+            copy[field.ordinal()] = value;
+            return new Snapshot(copy);
+        }
+    }
+
+    public interface Listener {
+        // Main thread
+        void onStateChanged(Snapshot state);
+    }
+
+    private static SensorStateStore instance;
+
+    private final Context appContext;
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> new Thread(r, "sensor-state-io"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new ArrayList<>();
+    private final CountDownLatch loadedLatch = new CountDownLatch(1);
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile boolean loaded = false;
+
+    private boolean flushScheduled = false; // guarded by this
+    private int dirtyMask = 0;              // guarded by this
+    private volatile int diskWrites = 0;
+    private volatile int coalescedWrites = 0;
+
+    public static synchronized SensorStateStore get(Context context) {
+        if (instance == null) {
+            instance = new SensorStateStore(context.getApplicationContext());
+            instance.load();
+        }
+        return instance;
+    }
+
+    private SensorStateStore(Context appContext) {
+        this.appContext = appContext;
+    }
+
+    private void load() {
+        io.execute(() -> {
+            SharedPreferences prefs = prefs();
+            float[] values = new float[Field.values().length];
+            for (Field field : Field.values()) {
+                values[field.ordinal()] = prefs.getFloat(field.prefKey, 0);
+            }
+
+            synchronized (this) {
+                // Anything set before the load finished wins over what was on disk,
+                // and only needs writing if it differs from it
+                Snapshot current = snapshot;
+                for (Field field : Field.values()) {
+                    int bit = 1 << field.ordinal();
+                    if ((dirtyMask & bit) == 0) continue;
+                    if (current.get(field) == values[field.ordinal()]) dirtyMask &= ~bit;
+                    values[field.ordinal()] = current.get(field);
+                }
+                snapshot = new Snapshot(values);
+                loaded = true;
+            }
+            loadedLatch.countDown();
+            mainHandler.post(this::notifyListeners);
+        });
+    }
+
+    private SharedPreferences prefs() {
+        return appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /** Never touches disk. Zeros until the first load has finished. */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /** For background threads that need real values (e.g. the agent worker). */
+    public Snapshot awaitSnapshot() throws InterruptedException {
+        loadedLatch.await();
+        return snapshot;
+    }
+
+    /** Rounded to the field's step; a value that doesn't change the snapshot is not written. */
+    public void set(Field field, float value) {
+        value = field.quantize(value);
+        synchronized (this) {
+            if (loaded && snapshot.get(field) == value) return;
+            snapshot = snapshot.with(field, value);
+            dirtyMask |= 1 << field.ordinal();
+
+            if (flushScheduled) {
+                coalescedWrites++;
+            } else {
+                flushScheduled = true;
+                mainHandler.postDelayed(() -> io.execute(this::flush), FLUSH_DELAY_MS);
+            }
+        }
+        if (Looper.myLooper() == Looper.getMainLooper()) notifyListeners();
+        else mainHandler.post(this::notifyListeners);
+    }
+
+    // IO thread. The load is the first task on this executor, so it always ran before any flush
+    private void flush() {
+        Snapshot toWrite;
+        int mask;
+        synchronized (this) {
+            toWrite = snapshot;
+            mask = dirtyMask;
+            dirtyMask = 0;
+            flushScheduled = false;
+        }
+        if (mask == 0) return;
+
+        SharedPreferences.Editor editor = prefs().edit();
+        for (Field field : Field.values()) {
+            if ((mask & (1 << field.ordinal())) != 0) {
+                editor.putFloat(field.prefKey, toWrite.get(field));
+            }
+        }
+        // Already off the main thread, so commit() is fine and tells us it happened
+        editor.commit();
+        diskWrites++;
+    }
+
+    // --- LISTENERS (main thread) ---
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        if (loaded) listener.onStateChanged(snapshot);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners() {
+        if (!loaded) return;
+        Snapshot current = snapshot;
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onStateChanged(current);
+        }
+    }
+
+    // --- STATS ---
+
+    public int getDiskWrites() { return diskWrites; }
+
+    // set() calls that rode along with an already scheduled flush
+    public int getCoalescedWrites() { return coalescedWrites; }
+}
@@ -0,0 +1,243 @@
+package com.example.sleepagentapp;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+
+/**
+ * Pan / zoom chart over SeriesPyramid series (noise, caffeine...).
+ *
+ * Each frame asks every series for one min / max / mean aggregate per COLUMN_PX columns of the
+ * visible range, so the cost depends on the view width, never on how much history there is:
+ * a month is the same ~500 O(log n) queries as one night. Paths and column buffers are reused.
+ * Main thread only, including the pyramids it's given.
+ */
+public class SeriesChartView extends View {
+
+    static final int MAX_SERIES = 2;
+    private static final int COLUMN_PX = 2;
+    private static final long MIN_SPAN_MS = 10 * 60 * 1000L; // zoomed in: 10 minutes across
+
+    private static final class Series {
+        SeriesPyramid pyramid;
+        float yMin, yMax;
+        final Paint band = new Paint(Paint.ANTI_ALIAS_FLAG);
+        final Paint line = new Paint(Paint.ANTI_ALIAS_FLAG);
+        final Path bandPath = new Path();
+        final Path linePath = new Path();
+    }
+
+    private final Series[] series = new Series[MAX_SERIES];
+    private final SeriesPyramid.Aggregate agg = new SeriesPyramid.Aggregate();
+    private final Paint gridPaint = new Paint();
+
+    // Per column, reused; sized in onSizeChanged
+    private float[] tops = new float[0];
+    private float[] bottoms = new float[0];
+    private float[] means = new float[0];
+    private boolean[] present = new boolean[0];
+
+    // Visible range and the range panning is allowed over
+    private long viewStart, viewEnd;
+    private long dataStart, dataEnd;
+
+    private final ScaleGestureDetector scaleDetector;
+    private final GestureDetector panDetector;
+
+    // --- FRAME STATS ---
+    private long frameCount = 0;
+    private long lastFrameNanos = 0;
+    private long totalFrameNanos = 0;
+    private int lastFrameQueries = 0;
+
+    public SeriesChartView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        for (int i = 0; i < MAX_SERIES; i++) {
+            series[i] = new Series();
+            series[i].band.setStyle(Paint.Style.FILL);
+            series[i].line.setStyle(Paint.Style.STROKE);
+            series[i].line.setStrokeWidth(3f);
+        }
+        gridPaint.setColor(Color.parseColor("#EEEEEE"));
+        gridPaint.setStrokeWidth(2f);
+
+        scaleDetector = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                zoom(detector.getScaleFactor(), detector.getFocusX());
+                return true;
+            }
+        });
+        panDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float dx, float dy) {
+                pan(dx);
+                return true;
+            }
+        });
+    }
+
+    /** Plots pyramid in slot, scaled so yMin..yMax fills the height. null clears the slot. */
+    public void setSeries(int slot, SeriesPyramid pyramid, int color, float yMin, float yMax) {
+        Series s = series[slot];
+        s.pyramid = pyramid;
+        s.yMin = yMin;
+        s.yMax = yMax;
+        s.line.setColor(color);
+        s.band.setColor(color);
+        s.band.setAlpha(60);
+        invalidate();
+    }
+
+    /** The range panning / zooming is allowed over; the view is reset to show the last span of it. */
+    public void setDataRange(long start, long end, long initialSpanMs) {
+        dataStart = start;
+        dataEnd = Math.max(end, start + MIN_SPAN_MS);
+        viewEnd = dataEnd;
+        viewStart = Math.max(dataStart, viewEnd - initialSpanMs);
+        invalidate();
+    }
+
+    public long getViewStart() { return viewStart; }
+
+    public long getViewEnd() { return viewEnd; }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        int columns = Math.max(1, w / COLUMN_PX);
+        tops = new float[columns];
+        bottoms = new float[columns];
+        means = new float[columns];
+        present = new boolean[columns];
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        scaleDetector.onTouchEvent(event);
+        if (!scaleDetector.isInProgress()) panDetector.onTouchEvent(event);
+        // Keep the ScrollView from stealing a horizontal pan
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN) getParent().requestDisallowInterceptTouchEvent(true);
+        return true;
+    }
+
+    private void pan(float dxPx) {
+        long span = viewEnd - viewStart;
+        long shift = (long) (dxPx / getWidth() * span);
+        shift = Math.max(dataStart - viewStart, Math.min(dataEnd - viewEnd, shift));
+        if (shift == 0) return;
+        viewStart += shift;
+        viewEnd += shift;
+        postInvalidateOnAnimation();
+    }
+
+    private void zoom(float factor, float focusPx) {
+        long span = viewEnd - viewStart;
+        long maxSpan = dataEnd - dataStart;
+        long newSpan = Math.max(MIN_SPAN_MS, Math.min(maxSpan, (long) (span / factor)));
+        if (newSpan == span) return;
+
+        // Keep the time under the fingers where it is
+        long focus = viewStart + (long) (focusPx / getWidth() * span);
+        viewStart = focus - (long) (focusPx / getWidth() * newSpan);
+        viewStart = Math.max(dataStart, Math.min(dataEnd - newSpan, viewStart));
+        viewEnd = viewStart + newSpan;
+        postInvalidateOnAnimation();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        long frameStart = System.nanoTime();
+
+        int width = getWidth();
+        int height = getHeight();
+        for (int i = 1; i <= 3; i++) canvas.drawLine(0, height * i / 4f, width, height * i / 4f, gridPaint);
+        if (viewEnd <= viewStart) return;
+
+        int queries = 0;
+        for (Series s : series) {
+            if (s.pyramid == null || s.pyramid.isEmpty()) continue;
+            queries += buildPaths(s, width, height);
+            canvas.drawPath(s.bandPath, s.band);
+            canvas.drawPath(s.linePath, s.line);
+        }
+
+        lastFrameQueries = queries;
+        lastFrameNanos = System.nanoTime() - frameStart;
+        totalFrameNanos += lastFrameNanos;
+        frameCount++;
+    }
+
+    // Min-max band plus mean line; gaps (no data in a column) break both
+    private int buildPaths(Series s, int width, int height) {
+        int columns = tops.length;
+        long span = viewEnd - viewStart;
+        float yScale = height / (s.yMax - s.yMin);
+
+        for (int c = 0; c < columns; c++) {
+            long from = viewStart + span * c / columns;
+            long to = viewStart + span * (c + 1) / columns;
+            s.pyramid.query(from, to, agg);
+            present[c] = agg.count > 0;
+            if (!present[c]) continue;
+            tops[c] = height - (agg.max - s.yMin) * yScale;
+            bottoms[c] = height - (agg.min - s.yMin) * yScale;
+            means[c] = height - (agg.mean - s.yMin) * yScale;
+        }
+
+        s.bandPath.rewind();
+        s.linePath.rewind();
+        float colWidth = (float) width / columns;
+        int c = 0;
+        while (c < columns) {
+            if (!present[c]) {
+                c++;
+                continue;
+            }
+            int runStart = c;
+            while (c < columns && present[c]) c++;
+            int runEnd = c; // exclusive
+
+            float x0 = runStart * colWidth;
+            s.bandPath.moveTo(x0, tops[runStart]);
+            s.linePath.moveTo(x0, means[runStart]);
+            for (int i = runStart; i < runEnd; i++) {
+                float x = (i + 0.5f) * colWidth;
+                s.bandPath.lineTo(x, tops[i]);
+                s.linePath.lineTo(x, means[i]);
+            }
+            for (int i = runEnd - 1; i >= runStart; i--) {
+                s.bandPath.lineTo((i + 0.5f) * colWidth, bottoms[i]);
+            }
+            s.bandPath.lineTo(x0, bottoms[runStart]);
+            s.bandPath.close();
+        }
+        return columns;
+    }
+
+    // --- STATS ---
+
+    public long getFrameCount() { return frameCount; }
+
+    public long getLastFrameNanos() { return lastFrameNanos; }
+
+    public long getAverageFrameNanos() {
+        return frameCount == 0 ? 0 : totalFrameNanos / frameCount;
+    }
+
+    /** Pyramid queries in the last frame (columns x series). */
+    public int getLastFrameQueries() { return lastFrameQueries; }
+}
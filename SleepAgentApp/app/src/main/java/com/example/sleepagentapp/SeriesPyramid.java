@@ -0,0 +1,226 @@
+package com.example.sleepagentapp;
+
+import java.util.Arrays;
+
+/**
+ * Min / max / mean index over a time series, for drawing it at any zoom.
+ *
+ * Samples are first merged into leaves of leafMs (only non-empty leaves are stored, so the
+ * days between recorded nights cost nothing). Above the leaves sit levels of FANOUT-wide
+ * nodes, each holding the aggregate of its children, like a segment tree laid out level by
+ * level. Any time range is then an O(log n) query: binary search the leaf range, then climb,
+ * taking at most FANOUT - 1 nodes per side per level.
+ *
+ * Appends must be in time order and update the parents incrementally, so a live night can
+ * keep growing. Not thread-safe.
+ */
+public class SeriesPyramid {
+
+    static final int FANOUT = 4;
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** Reusable result of a query. count == 0 means no data in the range. */
+    public static final class Aggregate {
+        public float min;
+        public float max;
+        public float mean;
+        public int count;
+
+        private double sum;
+
+        void reset() {
+            min = Float.POSITIVE_INFINITY;
+            max = Float.NEGATIVE_INFINITY;
+            sum = 0;
+            count = 0;
+        }
+
+        void finish() {
+            mean = count == 0 ? Float.NaN : (float) (sum / count);
+        }
+    }
+
+    private final long leafMs;
+
+    private long[] leafStart = new long[INITIAL_CAPACITY];
+    // level 0 = leaves; level k node i covers leaves [i * FANOUT^k, (i + 1) * FANOUT^k)
+    private float[][] mins = new float[1][];
+    private float[][] maxs = new float[1][];
+    private double[][] sums = new double[1][];
+    private int[][] counts = new int[1][];
+    private int leaves = 0;
+    private int levels = 1;
+
+    // --- STATS ---
+    private long samples = 0;
+    private long nodesVisited = 0;
+
+    public SeriesPyramid(long leafMs) {
+        if (leafMs <= 0) throw new IllegalArgumentException("leafMs must be positive");
+        this.leafMs = leafMs;
+        allocLevel(0, INITIAL_CAPACITY);
+    }
+
+    public void append(long timestampMs, float value) {
+        long bucket = Math.floorDiv(timestampMs, leafMs) * leafMs;
+        if (leaves > 0 && bucket < leafStart[leaves - 1]) {
+            throw new IllegalArgumentException("Sample at " + timestampMs + " is before the last leaf (" + leafStart[leaves - 1] + ")");
+        }
+        if (leaves == 0 || bucket != leafStart[leaves - 1]) addLeaf(bucket);
+
+        // The new value joins the last leaf and, on the way up, every ancestor of it
+        int node = leaves - 1;
+        for (int level = 0; level < levels; level++, node /= FANOUT) {
+            if (value < mins[level][node]) mins[level][node] = value;
+            if (value > maxs[level][node]) maxs[level][node] = value;
+            sums[level][node] += value;
+            counts[level][node]++;
+        }
+        samples++;
+    }
+
+    private void addLeaf(long bucket) {
+        if (leaves == leafStart.length) leafStart = Arrays.copyOf(leafStart, leaves * 2);
+        leafStart[leaves] = bucket;
+        leaves++;
+
+        // One more level whenever the top no longer fits in a single node
+        if (levelSize(levels - 1) > 1) addLevel();
+        for (int level = 0; level < levels; level++) {
+            int size = levelSize(level);
+            if (size > mins[level].length) growLevel(level, mins[level].length * 2);
+            // Only a brand new node needs clearing; an existing parent keeps its children's totals
+            int node = size - 1;
+            if (level == 0 || (leaves - 1) % pow(level) == 0) clearNode(level, node);
+        }
+    }
+
+    private void addLevel() {
+        int level = levels++;
+        if (level == mins.length) {
+            mins = Arrays.copyOf(mins, level * 2);
+            maxs = Arrays.copyOf(maxs, level * 2);
+            sums = Arrays.copyOf(sums, level * 2);
+            counts = Arrays.copyOf(counts, level * 2);
+        }
+        allocLevel(level, Math.max(INITIAL_CAPACITY, levelSize(level)));
+
+        // Build the new top from the level below (leaves - 1: the leaf being added isn't filled yet)
+        int below = level - 1;
+        int belowSize = levelSize(below, leaves - 1);
+        for (int i = 0; i < belowSize; i++) {
+            int parent = i / FANOUT;
+            if (i % FANOUT == 0) clearNode(level, parent);
+            mins[level][parent] = Math.min(mins[level][parent], mins[below][i]);
+            maxs[level][parent] = Math.max(maxs[level][parent], maxs[below][i]);
+            sums[level][parent] += sums[below][i];
+            counts[level][parent] += counts[below][i];
+        }
+    }
+
+    private void allocLevel(int level, int capacity) {
+        mins[level] = new float[capacity];
+        maxs[level] = new float[capacity];
+        sums[level] = new double[capacity];
+        counts[level] = new int[capacity];
+    }
+
+    private void growLevel(int level, int capacity) {
+        mins[level] = Arrays.copyOf(mins[level], capacity);
+        maxs[level] = Arrays.copyOf(maxs[level], capacity);
+        sums[level] = Arrays.copyOf(sums[level], capacity);
+        counts[level] = Arrays.copyOf(counts[level], capacity);
+    }
+
+    private void clearNode(int level, int node) {
+        mins[level][node] = Float.POSITIVE_INFINITY;
+        maxs[level][node] = Float.NEGATIVE_INFINITY;
+        sums[level][node] = 0;
+        counts[level][node] = 0;
+    }
+
+    private int levelSize(int level) {
+        return levelSize(level, leaves);
+    }
+
+    private static int levelSize(int level, int leafCount) {
+        int size = leafCount;
+        for (int i = 0; i < level; i++) size = (size + FANOUT - 1) / FANOUT;
+        return size;
+    }
+
+    private static int pow(int level) {
+        int p = 1;
+        for (int i = 0; i < level; i++) p *= FANOUT;
+        return p;
+    }
+
+    /** Aggregates every sample with {@code from <= t < to} (at leaf granularity) into out. */
+    public Aggregate query(long from, long to, Aggregate out) {
+        out.reset();
+        int lo = lowerBound(Math.floorDiv(from, leafMs) * leafMs);
+        int hi = lowerBound(to); // leaves starting before `to`
+        int size = leaves;
+        for (int level = 0; lo < hi; level++) {
+            if (level == levels - 1) {
+                while (lo < hi) take(level, lo++, out);
+                break;
+            }
+            // Peel nodes off both ends until [lo, hi) is made of whole parents. The last parent
+            // of a level may have fewer than FANOUT children, so hi == size counts as aligned
+            while (lo < hi && lo % FANOUT != 0) take(level, lo++, out);
+            if (hi != size) {
+                while (lo < hi && hi % FANOUT != 0) take(level, --hi, out);
+            }
+            if (lo >= hi) break;
+            int parentSize = (size + FANOUT - 1) / FANOUT;
+            lo /= FANOUT;
+            hi = hi == size ? parentSize : hi / FANOUT;
+            size = parentSize;
+        }
+        out.finish();
+        return out;
+    }
+
+    private void take(int level, int node, Aggregate out) {
+        nodesVisited++;
+        int c = counts[level][node];
+        if (c == 0) return;
+        if (mins[level][node] < out.min) out.min = mins[level][node];
+        if (maxs[level][node] > out.max) out.max = maxs[level][node];
+        out.sum += sums[level][node];
+        out.count += c;
+    }
+
+    // First leaf whose start is >= time
+    private int lowerBound(long time) {
+        int lo = 0, hi = leaves;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (leafStart[mid] < time) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    public boolean isEmpty() { return leaves == 0; }
+
+    public long getLeafMs() { return leafMs; }
+
+    /** Start of the first leaf; only valid when not empty. */
+    public long getStart() { return leafStart[0]; }
+
+    /** End of the last leaf; only valid when not empty. */
+    public long getEnd() { return leafStart[leaves - 1] + leafMs; }
+
+    // --- STATS ---
+
+    public int getLeafCount() { return leaves; }
+
+    public int getLevelCount() { return levels; }
+
+    public long getSampleCount() { return samples; }
+
+    /** Nodes read by all queries so far (log-time check). */
+    public long getNodesVisited() { return nodesVisited; }
+}
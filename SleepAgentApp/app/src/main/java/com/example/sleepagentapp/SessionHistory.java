@@ -0,0 +1,68 @@
+package com.example.sleepagentapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Builds chart pyramids from recorded history: noise from the session files, caffeine by
+ * replaying the intake log. Runs wherever it's called (a background thread); the pyramids
+ * are handed to the UI once built and not touched here again.
+ */
+public class SessionHistory {
+
+    public static final long NOISE_LEAF_MS = 15 * 1000L;
+    public static final long CAFFEINE_STEP_MS = 5 * 60 * 1000L;
+
+    /** Noise level of every session that started at or after from, oldest first. */
+    public static SeriesPyramid loadNoise(File sessionsDir, long from) {
+        SeriesPyramid pyramid = new SeriesPyramid(NOISE_LEAF_MS);
+        File[] files = sessionsDir.listFiles((dir, name) -> name.endsWith(".sgs"));
+        if (files == null) return pyramid;
+
+        // Named by start millis, so a numeric sort is a time sort
+        long[] starts = new long[files.length];
+        int n = 0;
+        for (File file : files) {
+            try {
+                long start = Long.parseLong(file.getName().substring(0, file.getName().length() - 4));
+                if (start >= from) starts[n++] = start;
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        Arrays.sort(starts, 0, n);
+
+        long[] last = {Long.MIN_VALUE};
+        for (int i = 0; i < n; i++) {
+            try (SessionReader reader = SessionReader.open(new File(sessionsDir, starts[i] + ".sgs"))) {
+                // Overlapping sessions (clock changes) would break the append order: skip what overlaps
+                reader.forEachRow((t, db, gain) -> {
+                    if (t < last[0]) return;
+                    last[0] = t;
+                    pyramid.append(t, db);
+                });
+            } catch (IOException e) {
+                // A broken file only loses that night
+            }
+        }
+        return pyramid;
+    }
+
+    /**
+     * Active caffeine every CAFFEINE_STEP_MS over [from, to), replaying intakes (sorted by time)
+     * into a tracker as the clock passes them.
+     */
+    public static SeriesPyramid caffeineCurve(long[] intakeTimes, float[] intakeMgs, int count, long from, long to) {
+        SeriesPyramid pyramid = new SeriesPyramid(CAFFEINE_STEP_MS);
+        CaffeineTracker tracker = new CaffeineTracker();
+        int next = 0;
+        for (long t = from; t < to; t += CAFFEINE_STEP_MS) {
+            while (next < count && intakeTimes[next] <= t) {
+                tracker.addIntake(intakeMgs[next], intakeTimes[next]);
+                next++;
+            }
+            pyramid.append(t, tracker.getActiveCaffeine(t));
+        }
+        return pyramid;
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.sleepagentapp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a SessionRecorder file through a read-only memory map. Decoding walks the columns in
+ * place; nothing is copied out per row. A torn last block (crash mid-write) is skipped.
+ */
+public class SessionReader implements Closeable {
+
+    public interface RowVisitor {
+        void visit(long timestampMs, float db, float gain);
+    }
+
+    public interface EventVisitor {
+        void visit(long timestampMs, int type, int arg);
+    }
+
+    private final RandomAccessFile raf;
+    private final MappedByteBuffer map;
+    private final long startMillis;
+    private final int timeUnitMs;
+    private final int validBytes;  // header + every complete block
+
+    private long rowCount = 0;
+    private long eventCount = 0;
+    private long endMillis;
+
+    public static SessionReader open(File file) throws IOException {
+        return new SessionReader(file);
+    }
+
+    private SessionReader(File file) throws IOException {
+        raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException(file + " is too large for a session");
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            map.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (map.limit() < SessionRecorder.HEADER_BYTES || map.getInt(0) != SessionRecorder.MAGIC) {
+                throw new IOException(file + " is not a session recording");
+            }
+            if (map.getShort(4) != SessionRecorder.VERSION) {
+                throw new IOException("Unsupported session version " + map.getShort(4));
+            }
+            timeUnitMs = map.getShort(6);
+            startMillis = map.getLong(8);
+            endMillis = startMillis;
+            validBytes = scanBlocks();
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    // Counts rows / events and finds where the complete blocks end
+    private int scanBlocks() {
+        int pos = SessionRecorder.HEADER_BYTES;
+        int limit = map.limit();
+        while (pos + SessionRecorder.BLOCK_HEADER_BYTES <= limit) {
+            int rows = map.getShort(pos + 4) & 0xFFFF;
+            int events = map.getShort(pos + 6) & 0xFFFF;
+            int size = blockSize(rows, events);
+            if (pos + size > limit) break; // torn
+
+            long base = startMillis + map.getInt(pos);
+            int cols = pos + SessionRecorder.BLOCK_HEADER_BYTES;
+            long units = 0;
+            for (int i = 0; i < rows; i++) units += map.get(cols + i) & 0xFF;
+            endMillis = Math.max(endMillis, base + units * timeUnitMs);
+            int eventsAt = cols + 3 * rows;
+            if (events > 0) {
+                endMillis = Math.max(endMillis, base + map.getInt(eventsAt + (events - 1) * SessionRecorder.EVENT_BYTES));
+            }
+
+            rowCount += rows;
+            eventCount += events;
+            pos += size;
+        }
+        return pos;
+    }
+
+    private static int blockSize(int rows, int events) {
+        return SessionRecorder.BLOCK_HEADER_BYTES + 3 * rows + events * SessionRecorder.EVENT_BYTES;
+    }
+
+    /** Visits rows with {@code from <= timestamp < to} in time order. Returns how many. */
+    public int forEachRow(long from, long to, RowVisitor visitor) {
+        int visited = 0;
+        int pos = SessionRecorder.HEADER_BYTES;
+        while (pos < validBytes) {
+            long base = startMillis + map.getInt(pos);
+            int rows = map.getShort(pos + 4) & 0xFFFF;
+            int events = map.getShort(pos + 6) & 0xFFFF;
+            int deltaCol = pos + SessionRecorder.BLOCK_HEADER_BYTES;
+            int levelCol = deltaCol + rows;
+            int gainCol = levelCol + rows;
+
+            long units = 0;
+            for (int i = 0; i < rows; i++) {
+                units += map.get(deltaCol + i) & 0xFF;
+                long t = base + units * timeUnitMs;
+                if (t >= to) return visited;
+                if (t < from) continue;
+                visitor.visit(t,
+                        (map.get(levelCol + i) & 0xFF) * SessionRecorder.DB_STEP,
+                        (map.get(gainCol + i) & 0xFF) / 255f);
+                visited++;
+            }
+            pos += blockSize(rows, events);
+        }
+        return visited;
+    }
+
+    public int forEachRow(RowVisitor visitor) {
+        return forEachRow(Long.MIN_VALUE, Long.MAX_VALUE, visitor);
+    }
+
+    public int forEachEvent(EventVisitor visitor) {
+        int visited = 0;
+        int pos = SessionRecorder.HEADER_BYTES;
+        while (pos < validBytes) {
+            long base = startMillis + map.getInt(pos);
+            int rows = map.getShort(pos + 4) & 0xFFFF;
+            int events = map.getShort(pos + 6) & 0xFFFF;
+            int at = pos + SessionRecorder.BLOCK_HEADER_BYTES + 3 * rows;
+            for (int i = 0; i < events; i++, at += SessionRecorder.EVENT_BYTES) {
+                visitor.visit(base + map.getInt(at), map.get(at + 4) & 0xFF, map.get(at + 5) & 0xFF);
+                visited++;
+            }
+            pos += blockSize(rows, events);
+        }
+        return visited;
+    }
+
+    public long getStartMillis() { return startMillis; }
+
+    /** Last row or event time. */
+    public long getEndMillis() { return endMillis; }
+
+    public long getRowCount() { return rowCount; }
+
+    public long getEventCount() { return eventCount; }
+
+    /** Bytes of complete data (a torn tail isn't counted). */
+    public int getValidBytes() { return validBytes; }
+
+    @Override
+    public void close() throws IOException {
+        raf.close();
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.sleepagentapp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Executor;
+
+/**
+ * Records one night: a noise level + masking gain row about once a second, plus sparse events
+ * (sound changed, mic window, fade...). SessionReader reads it back.
+ *
+ * Format, little endian. Header (HEADER_BYTES): magic, version, time unit, session start millis.
+ * Then blocks of up to BLOCK_ROWS rows, each stored column by column:
+ *   int baseOffsetMs (from session start), short rows, short events,
+ *   rows x byte time delta (TIME_UNIT_MS units since the previous row, the first since base),
+ *   rows x byte level (DB_STEP dB steps), rows x byte gain (1/255 steps),
+ *   events x (int offsetMs from base, byte type, byte arg).
+ * So a row costs 3 bytes; 8 h at 1 row/s is ~85 KB, and with the mic duty-cycled ~30 KB.
+ *
+ * Appends only fill preallocated column arrays. A finished block is serialized into one of two
+ * preallocated buffers and written on the writer executor, so appends never allocate or touch
+ * disk. A block is closed when it fills up, on a gap the time delta can't hold, or on flush().
+ * A crash loses at most the open block; a torn last block is ignored by the reader.
+ *
+ * Appends / flush / close from one thread.
+ */
+public class SessionRecorder implements Closeable {
+
+    static final int MAGIC = 0x31534753; // "SGS1"
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int BLOCK_HEADER_BYTES = 8;
+    static final int EVENT_BYTES = 6;
+
+    static final int BLOCK_ROWS = 300;          // ~5 min at 1 Hz: worst-case loss on a crash
+    static final int BLOCK_EVENTS = 64;
+    static final int TIME_UNIT_MS = 100;
+    static final int MAX_DELTA_UNITS = 255;
+    static final float DB_STEP = 0.5f;          // 0 .. 127.5 dB
+
+    // --- EVENT TYPES (arg in brackets) ---
+    public static final int EVENT_SOUND = 1;        // [MaskingSound ordinal]
+    public static final int EVENT_MIC_ON = 2;
+    public static final int EVENT_MIC_OFF = 3;
+    public static final int EVENT_NOISE_TYPE = 4;   // [SpectrumClassifier.NoiseType ordinal]
+    public static final int EVENT_PEAK = 5;         // [peak dB]
+    public static final int EVENT_FADE = 6;
+
+    private static final int MAX_BLOCK_BYTES =
+            BLOCK_HEADER_BYTES + 3 * BLOCK_ROWS + BLOCK_EVENTS * EVENT_BYTES;
+
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final Executor writer;
+    private final long startMillis;
+
+    // Open block, caller thread only
+    private final byte[] deltas = new byte[BLOCK_ROWS];
+    private final byte[] levels = new byte[BLOCK_ROWS];
+    private final byte[] gains = new byte[BLOCK_ROWS];
+    private final int[] eventOffsets = new int[BLOCK_EVENTS];
+    private final byte[] eventTypes = new byte[BLOCK_EVENTS];
+    private final byte[] eventArgs = new byte[BLOCK_EVENTS];
+    private int rows = 0;
+    private int events = 0;
+    private long blockBase = -1;
+    private long lastRowUnits = 0;
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    // Double buffer: one can be written while the next block fills
+    private final ByteBuffer[] out = new ByteBuffer[2];
+    private final Runnable[] writes = new Runnable[2];
+    private final boolean[] writing = new boolean[2]; // guarded by this
+    private int nextOut = 0;
+    private volatile IOException writeError;
+
+    // --- STATS ---
+    private long rowCount = 0;
+    private long eventCount = 0;
+    private int blocks = 0;
+    private volatile long bytesWritten = 0;
+
+    /** Creates (or truncates) file. writer runs the block writes, e.g. a single IO thread. */
+    public static SessionRecorder create(File file, long startMillis, Executor writer) throws IOException {
+        return new SessionRecorder(file, startMillis, writer);
+    }
+
+    private SessionRecorder(File file, long startMillis, Executor writer) throws IOException {
+        this.startMillis = startMillis;
+        this.writer = writer;
+        // RandomAccessFile rather than FileChannel.open(Path): java.nio.file needs API 26
+        raf = new RandomAccessFile(file, "rw");
+        raf.setLength(0);
+        channel = raf.getChannel();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putShort(VERSION).putShort((short) TIME_UNIT_MS).putLong(startMillis).flip();
+        while (header.hasRemaining()) channel.write(header);
+        bytesWritten = HEADER_BYTES;
+
+        for (int i = 0; i < 2; i++) {
+            out[i] = ByteBuffer.allocateDirect(MAX_BLOCK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            final int index = i;
+            writes[i] = () -> writeOut(index);
+        }
+    }
+
+    /** One level row. Timestamps (wall-clock millis) must not go backwards. */
+    public void appendLevel(long timestampMs, float db, float gain) throws IOException {
+        checkWriteError();
+        checkOrder(timestampMs);
+        if (blockBase < 0) openBlock(timestampMs);
+
+        long units = (timestampMs - blockBase + TIME_UNIT_MS / 2) / TIME_UNIT_MS;
+        long delta = units - (rows == 0 ? 0 : lastRowUnits);
+        if (delta > MAX_DELTA_UNITS) {
+            // Gap too long for a byte (mic was off): new block, new base
+            closeBlock();
+            openBlock(timestampMs);
+            units = 0;
+            delta = 0;
+        }
+
+        deltas[rows] = (byte) delta;
+        levels[rows] = (byte) clamp(Math.round(db / DB_STEP));
+        gains[rows] = (byte) clamp(Math.round(gain * 255f));
+        lastRowUnits = units;
+        rows++;
+        rowCount++;
+        if (rows == BLOCK_ROWS) closeBlock();
+    }
+
+    public void appendEvent(long timestampMs, int type, int arg) throws IOException {
+        checkWriteError();
+        checkOrder(timestampMs);
+        if (blockBase < 0) openBlock(timestampMs);
+        if (timestampMs - blockBase > Integer.MAX_VALUE) {
+            closeBlock();
+            openBlock(timestampMs);
+        }
+
+        eventOffsets[events] = (int) (timestampMs - blockBase);
+        eventTypes[events] = (byte) type;
+        eventArgs[events] = (byte) clamp(arg);
+        events++;
+        eventCount++;
+        if (events == BLOCK_EVENTS) closeBlock();
+    }
+
+    /** Hands the open block to the writer, even if it isn't full. */
+    public void flush() throws IOException {
+        checkWriteError();
+        closeBlock();
+    }
+
+    /** Flushes, then closes the file on the writer (after any pending block write). */
+    @Override
+    public void close() throws IOException {
+        closeBlock();
+        writer.execute(() -> {
+            try {
+                channel.force(true);
+                raf.close();
+            } catch (IOException e) {
+                writeError = e;
+            }
+        });
+    }
+
+    private void checkOrder(long timestampMs) {
+        if (timestampMs < lastTimestamp) {
+            throw new IllegalArgumentException("Sample at " + timestampMs + " is older than the last one (" + lastTimestamp + ")");
+        }
+        lastTimestamp = timestampMs;
+    }
+
+    private void checkWriteError() throws IOException {
+        IOException e = writeError;
+        if (e != null) throw e;
+    }
+
+    private void openBlock(long timestampMs) {
+        blockBase = timestampMs;
+        rows = 0;
+        events = 0;
+        lastRowUnits = 0;
+    }
+
+    private void closeBlock() {
+        if (blockBase < 0 || (rows == 0 && events == 0)) return;
+
+        int index = nextOut;
+        synchronized (this) {
+            // Only if the block before last is somehow still being written
+            while (writing[index]) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            writing[index] = true;
+        }
+
+        ByteBuffer buf = out[index];
+        buf.clear();
+        buf.putInt((int) (blockBase - startMillis)).putShort((short) rows).putShort((short) events);
+        buf.put(deltas, 0, rows).put(levels, 0, rows).put(gains, 0, rows);
+        for (int i = 0; i < events; i++) {
+            buf.putInt(eventOffsets[i]).put(eventTypes[i]).put(eventArgs[i]);
+        }
+        buf.flip();
+
+        blockBase = -1;
+        rows = 0;
+        events = 0;
+        blocks++;
+        nextOut = 1 - index;
+        writer.execute(writes[index]);
+    }
+
+    // Writer thread
+    private void writeOut(int index) {
+        ByteBuffer buf = out[index];
+        try {
+            long written = 0;
+            while (buf.hasRemaining()) written += channel.write(buf);
+            bytesWritten += written;
+        } catch (IOException e) {
+            writeError = e;
+        } finally {
+            synchronized (this) {
+                writing[index] = false;
+                notifyAll();
+            }
+        }
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : Math.min(value, 255);
+    }
+
+    // --- STATS ---
+
+    public long getStartMillis() { return startMillis; }
+
+    public long getRowCount() { return rowCount; }
+
+    public long getEventCount() { return eventCount; }
+
+    public int getBlocks() { return blocks; }
+
+    public long getBytesWritten() { return bytesWritten; }
+}
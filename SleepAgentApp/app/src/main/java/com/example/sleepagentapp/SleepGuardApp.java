@@ -0,0 +1,41 @@
+package com.example.sleepagentapp;
+
+import android.app.Application;
+import android.content.pm.ApplicationInfo;
+import android.os.StrictMode;
+
+public class SleepGuardApp extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // Debug builds: log any disk access that sneaks back onto the main thread
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .penaltyLog()
+                    .build());
+        }
+
+        // Warm up the Python agent in the background so the first chat message
+        // doesn't pay for interpreter startup + module imports.
+        AgentService.get(this).warmUp();
+
+        // Replays only the intakes that can still be active, on its own IO thread
+        CaffeineStore.get(this);
+
+        // Starts the async "SleepData" load so fragments usually find it ready
+        SensorStateStore.get(this);
+
+        // Replays the schedule journal so the Schedule tab finds it ready
+        ScheduleStore.get(this);
+
+        // Reads the screen-time checkpoint so the Data tab's refresh only reads new events
+        ScreenTimeStore.get(this);
+
+        // Reads the pending auto-stop alarms so the noise screen can show the next one
+        AlarmScheduler.get(this);
+    }
+}
@@ -0,0 +1,501 @@
+package com.example.sleepagentapp;
+
+import android.Manifest;
+import android.app.AlarmManager;
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.content.pm.ServiceInfo;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.core.app.ActivityCompat;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.ServiceCompat;
+import androidx.core.content.ContextCompat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Owns a night's session: the masking engine, the mic analyzer, the gain loop and the session
+ * clock. Runs in the foreground so none of it dies with a tab switch or screen-off; fragments
+ * only bind to it to display state.
+ *
+ * The mic is duty-cycled: one ANALYSIS_WINDOW_MS window per ANALYSIS_PERIOD_MS, woken by a
+ * windowed (batchable) alarm, with a partial wakelock held only inside the window.
+ */
+public class SleepSessionService extends Service implements MicAnalyzer.Listener {
+
+    private static final String TAG = "SleepSessionService";
+
+    static final String ACTION_START = "com.example.sleepagentapp.action.START_SESSION";
+    static final String ACTION_STOP = "com.example.sleepagentapp.action.STOP_SESSION";
+    static final String EXTRA_SOUND = "sound";
+    static final String ACTION_FADE_OUT = "com.example.sleepagentapp.action.FADE_OUT";
+    static final String EXTRA_STOP_AT = "stop_at"; // wall-clock millis
+
+    private static final String CHANNEL_ID = "sleep_session";
+    private static final int NOTIFICATION_ID = 1;
+
+    static final long ANALYSIS_WINDOW_MS = 20_000;
+    static final long ANALYSIS_PERIOD_MS = 60_000;
+    // Lets the system line our wakeup up with others instead of waking just for us
+    static final long WAKEUP_SLACK_MS = 15_000;
+    private static final long GAIN_TICK_MS = 100;
+
+    // Recording: one level row per second of listening, peaks as events
+    private static final String SESSIONS_DIR = "sessions";
+    private static final long RECORD_ROW_MS = 1000;
+    private static final float PEAK_EVENT_DB = 75f;
+    private static final long PEAK_HOLDOFF_MS = 10_000;
+
+    // ~3 s of mic envelope at ~20 Hz: plenty of slack for a visualizer that drains every vsync
+    private static final int ENVELOPE_CAPACITY = 64;
+
+    public interface SessionListener {
+        // Main thread
+        void onLevels(float leqDb, float peakDb);
+
+        // Main thread: started / stopped, sound changed, mic window opened or closed
+        void onSessionChanged();
+    }
+
+    public class LocalBinder extends Binder {
+        public SleepSessionService getService() {
+            return SleepSessionService.this;
+        }
+    }
+
+    /** Where recorded nights live, one "<start millis>.sgs" file each (see SessionRecorder). */
+    public static File sessionsDir(Context context) {
+        return new File(context.getFilesDir(), SESSIONS_DIR);
+    }
+
+    /** Starts (or re-targets) the session from a foreground UI. */
+    public static void start(Context context, MaskingSound sound) {
+        Intent intent = new Intent(context, SleepSessionService.class)
+                .setAction(ACTION_START)
+                .putExtra(EXTRA_SOUND, sound.name());
+        ContextCompat.startForegroundService(context, intent);
+    }
+
+    /** From AlarmReceiver: ramp the noise down so it's silent, and the session over, at stopAtMillis. */
+    static void fadeOut(Context context, long stopAtMillis) {
+        Intent intent = new Intent(context, SleepSessionService.class)
+                .setAction(ACTION_FADE_OUT)
+                .putExtra(EXTRA_STOP_AT, stopAtMillis);
+        try {
+            context.startService(intent);
+        } catch (IllegalStateException e) {
+            // Background start refused: no session is running (it'd be foreground), so nothing to fade
+            Log.i(TAG, "No session to fade");
+        }
+    }
+
+    private final IBinder binder = new LocalBinder();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<SessionListener> listeners = new ArrayList<>();
+    private final WakeAccounting accounting = new WakeAccounting();
+    // Mic thread -> visualizer; the mic thread is the only producer, whoever draws the only consumer
+    private final FloatRingBuffer envelope = new FloatRingBuffer(ENVELOPE_CAPACITY);
+
+    private NoiseEngine engine;
+    private GainController gainController;
+    private MicAnalyzer micAnalyzer;
+    private AlarmManager alarmManager;
+    private PowerManager.WakeLock wakeLock;
+
+    private boolean running = false;
+    private boolean listening = false;
+    private boolean gainTicking = false;
+    private MaskingSound sound = MaskingSound.OCEAN;
+    private boolean userPickedSound = false;
+    private long sessionStartElapsed = 0;
+    private float latestLeqDb = 0;
+    private boolean fading = false;
+
+    // Recorder is created on recordIo; appends happen here on the main thread, block writes on recordIo
+    private final ExecutorService recordIo = Executors.newSingleThreadExecutor(r -> new Thread(r, "session-io"));
+    private volatile SessionRecorder recorder;
+    private long lastRecordMs = 0;
+    private long rowStartMs = 0;
+    private double rowEnergy = 0;
+    private int rowSamples = 0;
+    private long lastPeakEventMs = 0;
+    private SpectrumClassifier.NoiseType recordedType = null;
+
+    private final AlarmManager.OnAlarmListener analysisAlarm = this::openAnalysisWindow;
+    private final Runnable fadeDone = this::stopSession;
+    private final Runnable closeWindow = this::closeAnalysisWindow;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        engine = new NoiseEngine(this);
+        gainController = new GainController(engine::setGain, 0.6f);
+        alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
+        PowerManager pm = (PowerManager) getSystemService(Context.POWER_SERVICE);
+        wakeLock = pm.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "SleepGuard:analysis");
+        wakeLock.setReferenceCounted(false);
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        String action = intent != null ? intent.getAction() : null;
+        if (ACTION_STOP.equals(action)) {
+            stopSession();
+        } else if (ACTION_START.equals(action)) {
+            MaskingSound requested = MaskingSound.valueOf(intent.getStringExtra(EXTRA_SOUND));
+            if (running) playSound(requested, false);
+            else startSession(requested);
+        } else if (ACTION_FADE_OUT.equals(action)) {
+            if (running) startFadeOut(intent.getLongExtra(EXTRA_STOP_AT, 0));
+            else stopSelf();
+        } else if (!running) {
+            // Restarted without a request (shouldn't happen with NOT_STICKY): nothing to do
+            stopSelf();
+        }
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public void onDestroy() {
+        if (running) stopSession();
+        engine.release();
+        recordIo.shutdown();
+        super.onDestroy();
+    }
+
+    // --- SESSION ---
+
+    private void startSession(MaskingSound initial) {
+        int types = ServiceInfo.FOREGROUND_SERVICE_TYPE_MEDIA_PLAYBACK;
+        boolean micAllowed = ActivityCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO)
+                == PackageManager.PERMISSION_GRANTED;
+        if (micAllowed && Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            types |= ServiceInfo.FOREGROUND_SERVICE_TYPE_MICROPHONE;
+        }
+        ServiceCompat.startForeground(this, NOTIFICATION_ID, buildNotification(), types);
+
+        running = true;
+        userPickedSound = false;
+        sessionStartElapsed = SystemClock.elapsedRealtime();
+        accounting.start(sessionStartElapsed);
+        startRecording();
+        playSound(initial, false);
+
+        // First window right away so the gain settles for the room before the user dozes off
+        if (micAllowed) openAnalysisWindow();
+        notifyChanged();
+    }
+
+    public void stopSession() {
+        if (!running) return;
+        running = false;
+
+        alarmManager.cancel(analysisAlarm);
+        handler.removeCallbacks(fadeDone);
+        fading = false;
+        handler.removeCallbacks(closeWindow);
+        handler.removeCallbacks(gainTick);
+        gainTicking = false;
+        stopMic();
+        releaseWakeLock();
+        engine.stop();
+        stopRecording();
+
+        Log.i(TAG, "Session ended: " + accounting.summary(SystemClock.elapsedRealtime()));
+        ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_REMOVE);
+        stopSelf();
+        notifyChanged();
+    }
+
+    /** @param byUser a manual pick, which turns off matching the sound to the room noise */
+    public void playSound(MaskingSound next, boolean byUser) {
+        if (byUser) userPickedSound = true;
+        sound = next;
+        if (!running) return;
+
+        record(SessionRecorder.EVENT_SOUND, next.ordinal());
+        gainController.reapply(SystemClock.uptimeMillis());
+        if (next.color != null) engine.playGenerated(next.color, null);
+        else engine.play(next.resId, null);
+        notifyChanged();
+    }
+
+    // The ramp runs sample by sample in the mixer; the only timer is the one that ends the session
+    private void startFadeOut(long stopAtMillis) {
+        if (fading) return;
+        fading = true;
+        long fadeMs = Math.max(0, stopAtMillis - System.currentTimeMillis());
+        engine.fadeOut(fadeMs);
+        record(SessionRecorder.EVENT_FADE, 0);
+        // Audio is playing, so the CPU is awake for this one
+        handler.postDelayed(fadeDone, fadeMs);
+        notifyChanged();
+    }
+
+    // --- DUTY-CYCLED ANALYSIS ---
+
+    private void openAnalysisWindow() {
+        if (!running) return;
+        long now = SystemClock.elapsedRealtime();
+        accounting.onWakeup(now);
+
+        // Timeout is a safety net in case closeWindow never runs
+        wakeLock.acquire(ANALYSIS_WINDOW_MS + 5_000);
+        accounting.onAcquire(now);
+
+        if (micAnalyzer == null) {
+            micAnalyzer = new MicAnalyzer(this);
+            micAnalyzer.setEnvelopeSink(envelope);
+        }
+        listening = micAnalyzer.start();
+        if (listening) record(SessionRecorder.EVENT_MIC_ON, 0);
+        handler.postDelayed(closeWindow, ANALYSIS_WINDOW_MS);
+        notifyChanged();
+    }
+
+    private void closeAnalysisWindow() {
+        stopMic();
+        releaseWakeLock();
+        if (!running) return;
+
+        // Windowed alarm: fires somewhere in [start, start + slack], batched with other apps
+        long nextStart = SystemClock.elapsedRealtime() + ANALYSIS_PERIOD_MS - ANALYSIS_WINDOW_MS;
+        alarmManager.setWindow(AlarmManager.ELAPSED_REALTIME_WAKEUP, nextStart, WAKEUP_SLACK_MS,
+                TAG, analysisAlarm, handler);
+        notifyChanged();
+    }
+
+    private void stopMic() {
+        if (micAnalyzer != null) micAnalyzer.stop();
+        if (listening) {
+            recordLevelRow(); // the partial second before the window closed
+            record(SessionRecorder.EVENT_MIC_OFF, 0);
+        }
+        listening = false;
+    }
+
+    private void releaseWakeLock() {
+        if (wakeLock.isHeld()) wakeLock.release();
+        accounting.onRelease(SystemClock.elapsedRealtime());
+    }
+
+    // --- MIC CALLBACKS (main thread) ---
+
+    @Override
+    public void onLevels(float leqDb, float peakDb) {
+        latestLeqDb = leqDb;
+        accumulateLevel(leqDb, peakDb);
+        for (SessionListener listener : new ArrayList<>(listeners)) listener.onLevels(leqDb, peakDb);
+    }
+
+    @Override
+    public void onNoiseProfile(SpectrumClassifier.NoiseType type, float suggestedGain) {
+        // Nothing should turn the volume back up or switch sound while we fade out
+        if (!running || fading) return;
+
+        if (type != recordedType) {
+            recordedType = type;
+            record(SessionRecorder.EVENT_NOISE_TYPE, type.ordinal());
+        }
+
+        // Louder bands -> more masking, smoothed (and mostly ignored when it barely moves)
+        if (gainController.setTarget(suggestedGain)) startGainTicks();
+
+        // Spectrum says a different masker would cover the room noise better (already held ~10 s)
+        if (userPickedSound || type.maskingSound == null) return;
+        MaskingSound match = MaskingSound.byLabel(type.maskingSound);
+        if (match != null && match != sound) playSound(match, false);
+    }
+
+    private void startGainTicks() {
+        if (gainTicking) return;
+        gainTicking = true;
+        handler.postDelayed(gainTick, GAIN_TICK_MS);
+    }
+
+    // Runs only while the gain is still moving
+    private final Runnable gainTick = new Runnable() {
+        @Override
+        public void run() {
+            gainController.tick(SystemClock.uptimeMillis(), GAIN_TICK_MS);
+            if (running && gainController.isSettling()) {
+                handler.postDelayed(this, GAIN_TICK_MS);
+            } else {
+                gainTicking = false;
+            }
+        }
+    };
+
+    // --- RECORDING ---
+
+    private void startRecording() {
+        long start = System.currentTimeMillis();
+        lastRecordMs = start;
+        rowSamples = 0;
+        rowEnergy = 0;
+        recordedType = null;
+        recordIo.execute(() -> {
+            File dir = sessionsDir(this);
+            try {
+                if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Could not create " + dir);
+                recorder = SessionRecorder.create(new File(dir, start + ".sgs"), start, recordIo);
+                // The first sound started before the file was open
+                handler.post(() -> record(SessionRecorder.EVENT_SOUND, sound.ordinal()));
+            } catch (IOException e) {
+                Log.e(TAG, "Not recording this session", e);
+            }
+        });
+    }
+
+    private void stopRecording() {
+        SessionRecorder open = recorder;
+        recorder = null;
+        if (open == null) return;
+        try {
+            open.close();
+            Log.i(TAG, "Recorded " + open.getRowCount() + " rows, " + open.getEventCount() + " events");
+        } catch (IOException e) {
+            Log.e(TAG, "Recording failed", e);
+        }
+    }
+
+    // Wall clock for the file, but never backwards (clock changes) since the format is append-only
+    private long recordClock() {
+        lastRecordMs = Math.max(lastRecordMs, System.currentTimeMillis());
+        return lastRecordMs;
+    }
+
+    // ~4x a second: energy-average the published Leqs into one row per second
+    private void accumulateLevel(float leqDb, float peakDb) {
+        if (recorder == null) return;
+        long now = recordClock();
+        if (rowSamples == 0) rowStartMs = now;
+        rowEnergy += Math.pow(10, leqDb / 10);
+        rowSamples++;
+        if (now - rowStartMs >= RECORD_ROW_MS) recordLevelRow();
+
+        if (peakDb >= PEAK_EVENT_DB && now - lastPeakEventMs >= PEAK_HOLDOFF_MS) {
+            lastPeakEventMs = now;
+            record(SessionRecorder.EVENT_PEAK, Math.round(peakDb));
+        }
+    }
+
+    private void recordLevelRow() {
+        SessionRecorder open = recorder;
+        if (open == null || rowSamples == 0) return;
+        float db = (float) (10 * Math.log10(rowEnergy / rowSamples));
+        rowEnergy = 0;
+        rowSamples = 0;
+        try {
+            // Stamped when the row closes so it never lands before an event already written
+            open.appendLevel(recordClock(), db, gainController.getCurrent());
+        } catch (IOException e) {
+            recordingFailed(e);
+        }
+    }
+
+    private void record(int eventType, int arg) {
+        SessionRecorder open = recorder;
+        if (open == null) return;
+        try {
+            open.appendEvent(recordClock(), eventType, arg);
+        } catch (IOException e) {
+            recordingFailed(e);
+        }
+    }
+
+    private void recordingFailed(IOException e) {
+        Log.e(TAG, "Recording stopped", e);
+        recorder = null;
+    }
+
+    // --- DISPLAY STATE ---
+
+    public void addListener(SessionListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(SessionListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyChanged() {
+        for (SessionListener listener : new ArrayList<>(listeners)) listener.onSessionChanged();
+    }
+
+    public boolean isRunning() { return running; }
+
+    /** Mic window currently open. */
+    public boolean isListening() { return listening; }
+
+    public MaskingSound getSound() { return sound; }
+
+    /** Ramping down towards an alarm. */
+    public boolean isFading() { return fading; }
+
+    public float getLatestLeqDb() { return latestLeqDb; }
+
+    /** 0..1 loudness at mic read rate, for one consumer on one thread (BlobSurfaceView's render thread). */
+    public FloatRingBuffer getEnvelope() { return envelope; }
+
+    public long getSessionElapsedMs() {
+        return running ? SystemClock.elapsedRealtime() - sessionStartElapsed : 0;
+    }
+
+    // --- BATTERY STATS ---
+
+    public long getWakeLockHeldMs() { return accounting.getHeldMs(SystemClock.elapsedRealtime()); }
+
+    public double getWakeupsPerHour() { return accounting.getWakeupsPerHour(SystemClock.elapsedRealtime()); }
+
+    public String getBatterySummary() { return accounting.summary(SystemClock.elapsedRealtime()); }
+
+    private Notification buildNotification() {
+        NotificationManager nm = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            nm.createNotificationChannel(new NotificationChannel(CHANNEL_ID, "Sleep session",
+                    NotificationManager.IMPORTANCE_LOW));
+        }
+
+        PendingIntent open = PendingIntent.getActivity(this, 0,
+                new Intent(this, MainActivity.class).setFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP),
+                PendingIntent.FLAG_IMMUTABLE);
+        PendingIntent stop = PendingIntent.getService(this, 1,
+                new Intent(this, SleepSessionService.class).setAction(ACTION_STOP),
+                PendingIntent.FLAG_IMMUTABLE);
+
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setContentTitle("SleepGuard is masking noise")
+                .setContentText("Adaptive sound and noise monitoring are on")
+                .setContentIntent(open)
+                .addAction(0, "Stop", stop)
+                .setOngoing(true)
+                .setSilent(true)
+                .build();
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.sleepagentapp;
+
+import java.util.Arrays;
+
+/**
+ * Sums FFT power into octave bands over an interval and guesses what kind of noise it is,
+ * so the masking sound can be picked to cover the right part of the spectrum.
+ *
+ * Rules are deliberately simple (band energy shares + a level floor) so they cost nothing
+ * next to the FFT. A new type only takes over after it has won stableIntervals in a row.
+ */
+public class SpectrumClassifier {
+
+    public enum NoiseType {
+        QUIET(null),
+        RUMBLE("Waterfall"),   // traffic, HVAC: most energy below ~180 Hz
+        SNORE("Ocean Waves"),  // 180-700 Hz
+        SPEECH("Heavy Rain"),  // 700 Hz - 2.8 kHz
+        BROADBAND("Forest Stream");
+
+        /** Name of the masking sound in WhiteNoiseFragment's list, null = keep whatever is playing. */
+        public final String maskingSound;
+
+        NoiseType(String maskingSound) {
+            this.maskingSound = maskingSound;
+        }
+    }
+
+    // Octave band centres (Hz); edges are centre / sqrt(2) .. centre * sqrt(2)
+    static final float[] BAND_CENTERS = {63, 125, 250, 500, 1000, 2000, 4000, 8000};
+    public static final int BAND_COUNT = BAND_CENTERS.length;
+
+    // Below this the room is quiet enough that no masking decision is needed (~20 dB SPL)
+    static final float QUIET_DBFS = -70f;
+    // A group needs this share of the band energy to count as "the" noise
+    static final float DOMINANT_SHARE = 0.55f;
+    // Masking gain ramps from 0 at GAIN_FLOOR_DBFS to 1 at GAIN_CEILING_DBFS
+    static final float GAIN_FLOOR_DBFS = -65f;
+    static final float GAIN_CEILING_DBFS = -20f;
+    static final float MIN_GAIN = 0.2f;
+
+    private final int[] binBand; // bin -> band index, -1 = outside every band
+    private final double[] bandEnergy = new double[BAND_COUNT];
+    private int frames = 0;
+
+    // Results of the last closed interval
+    private final double[] bandMeanSquare = new double[BAND_COUNT];
+    private final float[] bandDbfs = new float[BAND_COUNT];
+    private final float[] bandGain = new float[BAND_COUNT];
+    private float totalDbfs = NoiseMeter.FLOOR_DBFS;
+    private NoiseType lastType = NoiseType.QUIET;
+    private float suggestedGain = MIN_GAIN;
+
+    // Hysteresis
+    private final int stableIntervals;
+    private NoiseType decided = NoiseType.QUIET;
+    private NoiseType candidate = NoiseType.QUIET;
+    private int candidateRun = 0;
+
+    public SpectrumClassifier(int sampleRate, int fftSize, int stableIntervals) {
+        this.stableIntervals = Math.max(1, stableIntervals);
+
+        int bins = fftSize / 2 + 1;
+        binBand = new int[bins];
+        float binHz = (float) sampleRate / fftSize;
+        for (int k = 0; k < bins; k++) {
+            float hz = k * binHz;
+            binBand[k] = -1;
+            for (int b = 0; b < BAND_COUNT; b++) {
+                float lo = BAND_CENTERS[b] / (float) Math.sqrt(2);
+                float hi = BAND_CENTERS[b] * (float) Math.sqrt(2);
+                if (hz >= lo && hz < hi) {
+                    binBand[k] = b;
+                    break;
+                }
+            }
+        }
+    }
+
+    /** Adds one frame of Fft.powerSpectrum() output. */
+    public void accumulate(float[] power) {
+        for (int k = 0; k < binBand.length; k++) {
+            int b = binBand[k];
+            if (b >= 0) bandEnergy[b] += power[k];
+        }
+        frames++;
+    }
+
+    /** Classifies everything accumulated since the last call. @return the (hysteresis-filtered) decision */
+    public NoiseType closeInterval() {
+        if (frames > 0) {
+            double total = 0;
+            for (int b = 0; b < BAND_COUNT; b++) {
+                bandMeanSquare[b] = bandEnergy[b] / frames;
+                bandDbfs[b] = NoiseMeter.toDbfs(bandMeanSquare[b]);
+                total += bandMeanSquare[b];
+            }
+            totalDbfs = NoiseMeter.toDbfs(total);
+            lastType = classify(total);
+
+            suggestedGain = MIN_GAIN;
+            for (int b = 0; b < BAND_COUNT; b++) {
+                float g = (bandDbfs[b] - GAIN_FLOOR_DBFS) / (GAIN_CEILING_DBFS - GAIN_FLOOR_DBFS);
+                bandGain[b] = Math.max(0f, Math.min(1f, g));
+                if (bandGain[b] > suggestedGain) suggestedGain = bandGain[b];
+            }
+
+            Arrays.fill(bandEnergy, 0);
+            frames = 0;
+        }
+
+        if (lastType == candidate) {
+            candidateRun++;
+        } else {
+            candidate = lastType;
+            candidateRun = 1;
+        }
+        if (candidateRun >= stableIntervals) decided = candidate;
+        return decided;
+    }
+
+    private NoiseType classify(double total) {
+        if (totalDbfs < QUIET_DBFS || total <= 0) return NoiseType.QUIET;
+
+        double rumble = (bandMeanSquare[0] + bandMeanSquare[1]) / total; //  44 - 177 Hz
+        double snore = (bandMeanSquare[2] + bandMeanSquare[3]) / total;  // 177 - 707 Hz
+        double speech = (bandMeanSquare[4] + bandMeanSquare[5]) / total; // 707 Hz - 2.8 kHz
+
+        if (rumble >= DOMINANT_SHARE) return NoiseType.RUMBLE;
+        if (snore >= DOMINANT_SHARE) return NoiseType.SNORE;
+        if (speech >= DOMINANT_SHARE) return NoiseType.SPEECH;
+        // Hiss, fans, white-ish noise: energy spread out or piled into the top octaves
+        return NoiseType.BROADBAND;
+    }
+
+    public NoiseType getDecision() { return decided; }
+
+    /** Raw result of the last interval, before hysteresis. */
+    public NoiseType getLastType() { return lastType; }
+
+    /** 0..1 masking level for the loudest band, never below MIN_GAIN. */
+    public float getSuggestedGain() { return suggestedGain; }
+
+    public float getBandDbfs(int band) { return bandDbfs[band]; }
+
+    public float getBandGain(int band) { return bandGain[band]; }
+
+    public float getTotalDbfs() { return totalDbfs; }
+}
@@ -1,11 +1,60 @@
 package com.example.sleepagentapp;
 
+import java.util.Locale;
+
+/**
+ * One planned task. minuteOfDay is the time as planned (0..1439, minutes past midnight);
+ * any agent shift is applied on top by the owning Schedule, so a Task never changes.
+ */
 public class Task {
-    public String name;
-    public String time; // Format "08:00 AM"
+    public final long id;
+    public final String name;
+    public final int minuteOfDay;
 
-    public Task(String name, String time) {
+    public Task(long id, String name, int minuteOfDay) {
+        if (minuteOfDay < 0 || minuteOfDay >= Schedule.MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("minuteOfDay out of range: " + minuteOfDay);
+        }
+        this.id = id;
         this.name = name;
-        this.time = time;
+        this.minuteOfDay = minuteOfDay;
+    }
+
+    /**
+     * "08:00 AM", "8:00pm", "9 pm", "20:30" or "7.15" to minutes past midnight. Without an
+     * AM / PM suffix the hour is read as 24h. Throws IllegalArgumentException on anything else.
+     */
+    public static int parseTime(String text) {
+        String s = text.trim().toLowerCase(Locale.ROOT);
+        int suffix = 0; // 0 = 24h, 1 = am, 2 = pm
+        if (s.endsWith("am")) suffix = 1;
+        else if (s.endsWith("pm")) suffix = 2;
+        if (suffix != 0) s = s.substring(0, s.length() - 2).trim();
+
+        int sep = s.indexOf(':');
+        if (sep < 0) sep = s.indexOf('.');
+        int hour, min;
+        try {
+            hour = Integer.parseInt(sep < 0 ? s : s.substring(0, sep).trim());
+            min = sep < 0 ? 0 : Integer.parseInt(s.substring(sep + 1).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a time: \"" + text + "\"");
+        }
+
+        if (min < 0 || min > 59) throw new IllegalArgumentException("Bad minutes in \"" + text + "\"");
+        if (suffix == 0) {
+            if (hour < 0 || hour > 23) throw new IllegalArgumentException("Bad hour in \"" + text + "\"");
+        } else {
+            if (hour < 1 || hour > 12) throw new IllegalArgumentException("Bad hour in \"" + text + "\"");
+            hour = hour % 12 + (suffix == 2 ? 12 : 0); // 12 AM is midnight, 12 PM is noon
+        }
+        return hour * 60 + min;
+    }
+
+    /** Minutes past midnight as "08:00 AM". */
+    public static String formatTime(int minuteOfDay) {
+        int hour = minuteOfDay / 60;
+        int hour12 = hour % 12 == 0 ? 12 : hour % 12;
+        return String.format(Locale.ROOT, "%02d:%02d %s", hour12, minuteOfDay % 60, hour < 12 ? "AM" : "PM");
     }
-}
\ No newline at end of file
+}
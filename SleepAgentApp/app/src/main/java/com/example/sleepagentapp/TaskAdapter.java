@@ -7,40 +7,92 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
+import java.util.ArrayList;
 import java.util.List;
 
-public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.ViewHolder> {
-    private List<Task> tasks;
+/**
+ * Rows of a Schedule. Each submit() snapshots the schedule in shown order and DiffUtil (off the
+ * main thread, inside ListAdapter) works out which rows were added, removed, moved or changed,
+ * so only those rebind.
+ */
+public class TaskAdapter extends ListAdapter<TaskAdapter.Row, TaskAdapter.ViewHolder> {
 
-    public TaskAdapter(List<Task> tasks) { this.tasks = tasks; }
+    public interface OnTaskLongClickListener {
+        void onTaskLongClick(Task task);
+    }
+
+    /** What one row shows; equal rows don't rebind. */
+    static final class Row {
+        final Task task;
+        final int minuteOfDay;   // shown (shifted) time
+        final int offsetMinutes; // 0 when on plan
+
+        Row(Task task, int minuteOfDay, int offsetMinutes) {
+            this.task = task;
+            this.minuteOfDay = minuteOfDay;
+            this.offsetMinutes = offsetMinutes;
+        }
+    }
+
+    private static final DiffUtil.ItemCallback<Row> DIFF = new DiffUtil.ItemCallback<Row>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Row a, @NonNull Row b) {
+            return a.task.id == b.task.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Row a, @NonNull Row b) {
+            return a.minuteOfDay == b.minuteOfDay && a.offsetMinutes == b.offsetMinutes && a.task.name.equals(b.task.name);
+        }
+    };
+
+    private final OnTaskLongClickListener longClickListener;
+
+    public TaskAdapter(OnTaskLongClickListener longClickListener) {
+        super(DIFF);
+        this.longClickListener = longClickListener;
+    }
+
+    public void submit(Schedule schedule) {
+        List<Row> rows = new ArrayList<>(schedule.size());
+        for (int i = 0; i < schedule.size(); i++) {
+            rows.add(new Row(schedule.get(i), schedule.minuteAt(i), schedule.getOffsetMinutes()));
+        }
+        submitList(rows);
+    }
 
     @NonNull
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         // Using a standard two-line layout for clarity
         View v = LayoutInflater.from(parent.getContext()).inflate(android.R.layout.simple_list_item_2, parent, false);
-        return new ViewHolder(v);
-    }
-
-    @Override
-    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Task task = tasks.get(position);
-
+        ViewHolder holder = new ViewHolder(v);
         // Fix for faint text: Set to solid black and medium size
-        holder.text1.setText(task.time + " — " + task.name);
         holder.text1.setTextColor(Color.BLACK);
         holder.text1.setTypeface(null, Typeface.BOLD);
         holder.text1.setTextSize(18f);
-
-        // Subtext showing the category and autonomous adjustment status
-        String info = "Category: " + task.category + (task.isAffectedByCaffeine ? " (⚡ Adjusted by Agent)" : "");
-        holder.text2.setText(info);
-        holder.text2.setTextColor(task.isAffectedByCaffeine ? Color.parseColor("#6200EE") : Color.DKGRAY);
+        v.setOnLongClickListener(view -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) return false;
+            longClickListener.onTaskLongClick(getItem(position).task);
+            return true;
+        });
+        return holder;
     }
 
     @Override
-    public int getItemCount() { return tasks.size(); }
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        Row row = getItem(position);
+        holder.text1.setText(Task.formatTime(row.minuteOfDay) + " — " + row.task.name);
+
+        // Subtext showing the autonomous adjustment status
+        boolean shifted = row.offsetMinutes != 0;
+        holder.text2.setText(shifted ? "⚡ Adjusted by Agent (planned " + Task.formatTime(row.task.minuteOfDay) + ")" : "On plan");
+        holder.text2.setTextColor(shifted ? Color.parseColor("#6200EE") : Color.DKGRAY);
+    }
 
     static class ViewHolder extends RecyclerView.ViewHolder {
         TextView text1, text2;
@@ -50,4 +102,4 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.ViewHolder> {
             text2 = v.findViewById(android.R.id.text2);
         }
     }
-}
\ No newline at end of file
+}
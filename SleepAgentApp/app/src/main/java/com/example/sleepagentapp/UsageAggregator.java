@@ -0,0 +1,254 @@
+package com.example.sleepagentapp;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Rolling screen-time totals built from foreground / background events, kept free of
+ * android.* so it can be tested on the JVM (ScreenTimeStore feeds it from queryEvents).
+ *
+ * Foreground time goes into a ring of BUCKET_MS buckets covering the last SPAN_MS; window
+ * totals (last 2 h, evening, today) are sums over the ring, so a refresh only has to fold in
+ * the events since the checkpoint. Time counts while at least one activity is resumed, so
+ * split-screen or an activity handing over to the next isn't counted twice.
+ *
+ * Not thread safe: ScreenTimeStore only touches it on its IO thread.
+ */
+public class UsageAggregator {
+
+    static final long BUCKET_MS = 5 * 60 * 1000L;
+    // Today plus last evening from the early afternoon on, with some slack
+    static final long SPAN_MS = 26 * 60 * 60 * 1000L;
+    static final int BUCKETS = (int) (SPAN_MS / BUCKET_MS);
+
+    static final long LAST_2H_MS = 2 * 60 * 60 * 1000L;
+    // "Evening" is 18:00 to 03:00; during the day it's the one before
+    static final int EVENING_START_HOUR = 18;
+    static final int EVENING_END_HOUR = 3;
+
+    private static final int MAGIC = 0x31415453; // "STA1"
+    private static final int VERSION = 1;
+
+    /** One refresh's totals, in minutes. Immutable, safe to hand to the main thread. */
+    public static final class Totals {
+        public final float last2hMinutes;
+        public final float eveningMinutes;
+        public final float dayMinutes;
+        public final long asOf;
+
+        Totals(float last2hMinutes, float eveningMinutes, float dayMinutes, long asOf) {
+            this.last2hMinutes = last2hMinutes;
+            this.eveningMinutes = eveningMinutes;
+            this.dayMinutes = dayMinutes;
+            this.asOf = asOf;
+        }
+
+        /** The 0-10 light slider: last-2h screen time against screen_threshold_minutes (full risk, as in risk_calculator). */
+        public float lightLevel() {
+            double full = DecisionTable.get().threshold(DecisionTable.SCREEN_THRESHOLD_MINUTES);
+            return (float) Math.min(10, last2hMinutes / full * 10);
+        }
+    }
+
+    private final int[] buckets = new int[BUCKETS]; // foreground ms per bucket
+    private long newestBucket = -1;                  // absolute index (time / BUCKET_MS) of the newest slot
+
+    private long checkpoint;                         // everything before this has been folded in
+    private final Map<String, Integer> resumed = new HashMap<>();
+    private long openSince;                          // start of the running interval, if resumed isn't empty
+
+    // --- STATS ---
+    private long events = 0;
+
+    /** Starts counting at {@code from}; nothing before it is known. */
+    public UsageAggregator(long from) {
+        checkpoint = from;
+    }
+
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    /** Forgets everything and starts over at {@code from} (e.g. the clock moved backwards). */
+    public void restart(long from) {
+        Arrays.fill(buckets, 0);
+        newestBucket = -1;
+        resumed.clear();
+        checkpoint = from;
+    }
+
+    // --- EVENTS (in time order, none before the checkpoint) ---
+
+    public void onForeground(String activity, long time) {
+        if (time < checkpoint) return;
+        events++;
+        if (resumed.isEmpty()) openSince = time;
+        Integer count = resumed.get(activity);
+        resumed.put(activity, count == null ? 1 : count + 1);
+    }
+
+    public void onBackground(String activity, long time) {
+        if (time < checkpoint) return;
+        events++;
+        Integer count = resumed.get(activity);
+        if (count == null) return; // resumed before we started counting
+        if (count > 1) {
+            resumed.put(activity, count - 1);
+            return;
+        }
+        resumed.remove(activity);
+        if (resumed.isEmpty()) addInterval(openSince, time);
+    }
+
+    /** Screen off / shutdown: whatever was resumed isn't being looked at any more. */
+    public void onScreenOff(long time) {
+        if (time < checkpoint) return;
+        events++;
+        if (resumed.isEmpty()) return;
+        addInterval(openSince, time);
+        resumed.clear();
+    }
+
+    /** Closes the books up to {@code now}: a running interval is counted so far and carries on from here. */
+    public void advanceTo(long now) {
+        if (now <= checkpoint) return;
+        if (!resumed.isEmpty()) {
+            addInterval(openSince, now);
+            openSince = now;
+        }
+        roll(bucketOf(now - 1));
+        checkpoint = now;
+    }
+
+    // --- QUERIES ---
+
+    /** Foreground ms in [from, to), as of the checkpoint. Edge buckets count pro rata. */
+    public long sumMs(long from, long to) {
+        to = Math.min(to, checkpoint);
+        if (newestBucket < 0 || to <= from) return 0;
+        long first = Math.max(bucketOf(from), newestBucket - BUCKETS + 1);
+        long last = Math.min(bucketOf(to - 1), newestBucket);
+
+        long total = 0;
+        for (long b = first; b <= last; b++) {
+            int ms = buckets[slot(b)];
+            if (ms == 0) continue;
+            long start = b * BUCKET_MS;
+            long end = Math.min(start + BUCKET_MS, checkpoint); // the newest bucket only runs to the checkpoint
+            long overlap = Math.min(end, to) - Math.max(start, from);
+            total += overlap >= end - start ? ms : ms * overlap / (end - start);
+        }
+        return total;
+    }
+
+    /** The three windows as of the checkpoint, with day boundaries in {@code zone}. */
+    public Totals totals(TimeZone zone) {
+        long now = checkpoint;
+        Calendar calendar = Calendar.getInstance(zone);
+        calendar.setTimeInMillis(now);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        long midnight = calendar.getTimeInMillis();
+
+        // The evening that started at the last 18:00
+        calendar.set(Calendar.HOUR_OF_DAY, EVENING_START_HOUR);
+        if (calendar.getTimeInMillis() > now) calendar.add(Calendar.DAY_OF_MONTH, -1);
+        long eveningStart = calendar.getTimeInMillis();
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        calendar.set(Calendar.HOUR_OF_DAY, EVENING_END_HOUR);
+        long eveningEnd = calendar.getTimeInMillis();
+
+        return new Totals(
+                sumMs(now - LAST_2H_MS, now) / 60_000f,
+                sumMs(eveningStart, eveningEnd) / 60_000f,
+                sumMs(midnight, now) / 60_000f,
+                now);
+    }
+
+    // --- RING ---
+
+    private void addInterval(long start, long end) {
+        start = Math.max(start, checkpoint - SPAN_MS);
+        if (end <= start) return;
+        long last = bucketOf(end - 1);
+        roll(last);
+        for (long b = Math.max(bucketOf(start), newestBucket - BUCKETS + 1); b <= last; b++) {
+            long bucketStart = b * BUCKET_MS;
+            long overlap = Math.min(end, bucketStart + BUCKET_MS) - Math.max(start, bucketStart);
+            if (overlap > 0) buckets[slot(b)] += (int) overlap;
+        }
+    }
+
+    // Moves the ring up to bucket, clearing the slots that fall out of the span
+    private void roll(long bucket) {
+        if (bucket <= newestBucket) return;
+        if (newestBucket < 0 || bucket - newestBucket >= BUCKETS) {
+            Arrays.fill(buckets, 0);
+        } else {
+            for (long b = newestBucket + 1; b <= bucket; b++) buckets[slot(b)] = 0;
+        }
+        newestBucket = bucket;
+    }
+
+    private static long bucketOf(long time) {
+        return Math.floorDiv(time, BUCKET_MS);
+    }
+
+    private static int slot(long bucket) {
+        return (int) Math.floorMod(bucket, (long) BUCKETS);
+    }
+
+    // --- CHECKPOINT ---
+
+    /** Checkpoint, running interval and the non-empty buckets. A few KB at most. */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(checkpoint);
+        out.writeLong(openSince);
+        out.writeInt(resumed.size());
+        for (Map.Entry<String, Integer> entry : resumed.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+        out.writeLong(newestBucket);
+        int used = 0;
+        for (int ms : buckets) if (ms != 0) used++;
+        out.writeInt(used);
+        for (int i = 0; i < BUCKETS; i++) {
+            if (buckets[i] == 0) continue;
+            out.writeShort(i);
+            out.writeInt(buckets[i]);
+        }
+    }
+
+    public static UsageAggregator readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("Not a screen-time checkpoint");
+        UsageAggregator aggregator = new UsageAggregator(in.readLong());
+        aggregator.openSince = in.readLong();
+        for (int n = in.readInt(); n > 0; n--) aggregator.resumed.put(in.readUTF(), in.readInt());
+        aggregator.newestBucket = in.readLong();
+        for (int n = in.readInt(); n > 0; n--) {
+            int slot = in.readShort();
+            if (slot < 0 || slot >= BUCKETS) throw new IOException("Bad bucket " + slot);
+            aggregator.buckets[slot] = in.readInt();
+        }
+        return aggregator;
+    }
+
+    // --- STATS ---
+
+    /** Events folded in since this instance was created / read. */
+    public long getEvents() { return events; }
+
+    public boolean isForeground() { return !resumed.isEmpty(); }
+}
@@ -0,0 +1,72 @@
+package com.example.sleepagentapp;
+
+import java.util.Locale;
+
+/**
+ * Bookkeeping for what a sleep session costs in battery terms: how often we woke the CPU and
+ * how long we held the wakelock. Times are elapsedRealtime() millis passed in by the caller,
+ * so it's plain Java and testable.
+ */
+public class WakeAccounting {
+
+    private static final double MS_PER_HOUR = 60 * 60 * 1000.0;
+
+    private long sessionStart = -1;
+    private long heldSince = -1;
+    private long heldTotal = 0;
+    private int wakeups = 0;
+    private int acquires = 0;
+
+    public void start(long now) {
+        sessionStart = now;
+        heldSince = -1;
+        heldTotal = 0;
+        wakeups = 0;
+        acquires = 0;
+    }
+
+    public void onWakeup(long now) {
+        wakeups++;
+    }
+
+    public void onAcquire(long now) {
+        if (heldSince >= 0) return; // already held, not reference counted
+        heldSince = now;
+        acquires++;
+    }
+
+    public void onRelease(long now) {
+        if (heldSince < 0) return;
+        heldTotal += now - heldSince;
+        heldSince = -1;
+    }
+
+    public long getHeldMs(long now) {
+        return heldTotal + (heldSince >= 0 ? now - heldSince : 0);
+    }
+
+    /** Share of the session the wakelock was held, 0..1. */
+    public double getHeldFraction(long now) {
+        long elapsed = getElapsedMs(now);
+        return elapsed <= 0 ? 0 : (double) getHeldMs(now) / elapsed;
+    }
+
+    public double getWakeupsPerHour(long now) {
+        long elapsed = getElapsedMs(now);
+        return elapsed <= 0 ? 0 : wakeups / (elapsed / MS_PER_HOUR);
+    }
+
+    public long getElapsedMs(long now) {
+        return sessionStart < 0 ? 0 : now - sessionStart;
+    }
+
+    public int getWakeups() { return wakeups; }
+
+    public int getAcquires() { return acquires; }
+
+    public String summary(long now) {
+        return String.format(Locale.US, "%d wakeups (%.1f/h), wakelock %ds (%.1f%% of %dmin)",
+                wakeups, getWakeupsPerHour(now), getHeldMs(now) / 1000,
+                getHeldFraction(now) * 100, getElapsedMs(now) / 60000);
+    }
+}
@@ -2,14 +2,14 @@ package com.example.sleepagentapp;
 
 import android.Manifest;
 import android.app.TimePickerDialog;
+import android.content.ComponentName;
 import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
 import android.content.pm.PackageManager;
-import android.media.AudioManager;
-import android.media.MediaPlayer;
-import android.media.MediaRecorder;
+import android.os.Build;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
+import android.os.IBinder;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -23,22 +23,22 @@ import androidx.annotation.Nullable;
 import androidx.cardview.widget.CardView;
 import androidx.core.app.ActivityCompat;
 import androidx.fragment.app.Fragment;
-import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.List;
 import java.util.Locale;
 
-public class WhiteNoiseFragment extends Fragment {
+public class WhiteNoiseFragment extends Fragment implements SleepSessionService.SessionListener {
 
-    private MediaPlayer mediaPlayer;
-    private MediaRecorder mediaRecorder;
-    private AudioManager audioManager;
-    private Handler handler = new Handler(Looper.getMainLooper());
-    private boolean isPlaying = false;
+    private static final int REQUEST_AUDIO = 1;
 
-    // ALARM & AUTO-STOP VARIABLES
+    // Playback, mic and gain live in the service; this fragment only shows them
+    private SleepSessionService session;
+    private boolean bound = false;
+    private MaskingSound selectedSound = MaskingSound.OCEAN;
+
+    // ALARM & AUTO-STOP VARIABLES (the alarm itself lives in AlarmScheduler, not here)
     private Calendar alarmTime = Calendar.getInstance();
     private boolean isAlarmSet = false;
+    private AlarmScheduler alarmScheduler;
 
     // UI Elements
     private Button btnPlay;
@@ -46,15 +46,22 @@ public class WhiteNoiseFragment extends Fragment {
     private ProgressBar volumeBar;
     private CardView soundCapsule;
     private View alarmContainer;
+    private BlobSurfaceView blobView;
 
-    // --- SOUND LIST ---
-    private static class SoundOption {
-        String name;
-        int resId;
-        SoundOption(String name, int resId) { this.name = name; this.resId = resId; }
-    }
-    private List<SoundOption> soundList = new ArrayList<>();
-    private SoundOption currentSound = null;
+    private final ServiceConnection connection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            session = ((SleepSessionService.LocalBinder) binder).getService();
+            session.addListener(WhiteNoiseFragment.this);
+            if (blobView != null) blobView.setEnvelope(session.getEnvelope());
+            onSessionChanged();
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            session = null;
+        }
+    };
 
     @Nullable
     @Override
@@ -68,29 +75,23 @@ public class WhiteNoiseFragment extends Fragment {
         txtSoundName = view.findViewById(R.id.text_sound_name);
         soundCapsule = view.findViewById(R.id.sound_capsule);
         volumeBar = view.findViewById(R.id.progress_volume);
+        blobView = view.findViewById(R.id.windy_globe);
 
         // Alarm UI
         txtAlarmTime = view.findViewById(R.id.alarm_time_display);
         alarmContainer = view.findViewById(R.id.alarm_container);
 
-        audioManager = (AudioManager) getContext().getSystemService(Context.AUDIO_SERVICE);
-
         // 1. SETUP ALARM PICKER (New Feature)
-        // Default to tomorrow 7 AM
-        alarmTime.add(Calendar.DAY_OF_YEAR, 1);
-        alarmTime.set(Calendar.HOUR_OF_DAY, 7);
-        alarmTime.set(Calendar.MINUTE, 0);
-        alarmTime.set(Calendar.SECOND, 0);
+        // The label shows this screen's own alarm once the scheduler has answered (onResume)
+        alarmScheduler = AlarmScheduler.get(requireContext());
+        showDefaultAlarm();
 
         alarmContainer.setOnClickListener(v -> showTimePicker());
         txtAlarmTime.setOnClickListener(v -> showTimePicker());
+        alarmContainer.setOnLongClickListener(v -> clearAlarm());
 
-        // 2. LOAD SOUNDS
-        loadSounds();
-        if (!soundList.isEmpty()) {
-            currentSound = soundList.get(0);
-            txtSoundName.setText(currentSound.name);
-        }
+        // 2. DEFAULT SOUND
+        txtSoundName.setText(selectedSound.label);
 
         // 3. LISTENERS
         soundCapsule.setOnClickListener(v -> showSoundMenu());
@@ -99,189 +100,186 @@ public class WhiteNoiseFragment extends Fragment {
         return view;
     }
 
+    // Resume / pause rather than start / stop: MainActivity keeps hidden tabs at STARTED,
+    // and a hidden screen has no reason to get levels or feed the blob
+    @Override
+    public void onResume() {
+        super.onResume();
+        // Binding doesn't start anything; a session only exists after PLAY
+        Context context = requireContext();
+        bound = context.bindService(new Intent(context, SleepSessionService.class), connection, Context.BIND_AUTO_CREATE);
+        // Set in an earlier visit or before a reboot, or fired / cleared while we were away
+        alarmScheduler.getScreenAlarm(this::onScreenAlarm);
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        if (session != null) session.removeListener(this);
+        if (blobView != null) {
+            blobView.setEnvelope(null);
+            blobView.logStats(); // frames / CPU since the screen was opened, for overnight checks
+        }
+        if (bound) requireContext().unbindService(connection);
+        bound = false;
+        session = null;
+    }
+
     private void showTimePicker() {
         Calendar now = Calendar.getInstance();
         TimePickerDialog picker = new TimePickerDialog(getContext(), (view, hourOfDay, minute) -> {
 
-            // Set Alarm Logic
+            // Set Alarm Logic (the scheduler replaces the one picked here before)
+            alarmTime = Calendar.getInstance();
             alarmTime.set(Calendar.HOUR_OF_DAY, hourOfDay);
             alarmTime.set(Calendar.MINUTE, minute);
             alarmTime.set(Calendar.SECOND, 0);
+            alarmTime.set(Calendar.MILLISECOND, 0);
 
             // If user picks a time that passed today, assume they mean tomorrow
             if (alarmTime.before(now)) {
                 alarmTime.add(Calendar.DAY_OF_YEAR, 1);
             }
 
-            // Update Text
-            String amPm = (hourOfDay >= 12) ? "PM" : "AM";
-            int hour12 = (hourOfDay > 12) ? hourOfDay - 12 : hourOfDay;
-            if (hour12 == 0) hour12 = 12;
-            String minStr = (minute < 10) ? "0" + minute : "" + minute;
-
-            txtAlarmTime.setText(String.format(Locale.getDefault(), "%02d:%s %s", hour12, minStr, amPm));
+            // Fades out over the last few minutes, whether or not this screen is still around
+            alarmScheduler.setScreenAlarm(alarmTime.getTimeInMillis(), AlarmScheduler.DEFAULT_FADE_MS);
             isAlarmSet = true;
-            Toast.makeText(getContext(), "Noise will stop automatically at " + hour12 + ":" + minStr + " " + amPm, Toast.LENGTH_SHORT).show();
+            Toast.makeText(getContext(), "Noise will fade out and stop at " + showAlarmTime(hourOfDay, minute), Toast.LENGTH_SHORT).show();
 
         }, now.get(Calendar.HOUR_OF_DAY), now.get(Calendar.MINUTE), false);
 
         picker.show();
     }
 
-    private void loadSounds() {
-        soundList.clear();
-        try {
-            soundList.add(new SoundOption("Ocean Waves", R.raw.ocean));
-            soundList.add(new SoundOption("Heavy Rain", R.raw.rain));
-            soundList.add(new SoundOption("Forest Stream", R.raw.stream));
-            soundList.add(new SoundOption("Waterfall", R.raw.waterfall));
-        } catch (Exception e) {}
+    // Main thread, from the scheduler's io thread once it has loaded
+    private void onScreenAlarm(long trigger) {
+        if (txtAlarmTime == null || !isAdded()) return;
+        if (trigger == 0) {
+            if (isAlarmSet) showDefaultAlarm(); // went off, or was dropped
+            return;
+        }
+        isAlarmSet = true;
+        alarmTime.setTimeInMillis(trigger);
+        showAlarmTime(alarmTime.get(Calendar.HOUR_OF_DAY), alarmTime.get(Calendar.MINUTE));
+    }
+
+    // Nothing set: offer tomorrow 7 AM
+    private void showDefaultAlarm() {
+        isAlarmSet = false;
+        alarmTime = Calendar.getInstance();
+        alarmTime.add(Calendar.DAY_OF_YEAR, 1);
+        alarmTime.set(Calendar.HOUR_OF_DAY, 7);
+        alarmTime.set(Calendar.MINUTE, 0);
+        alarmTime.set(Calendar.SECOND, 0);
+        alarmTime.set(Calendar.MILLISECOND, 0);
+        showAlarmTime(7, 0);
+    }
+
+    // Updates the label, returns it for the toast
+    private String showAlarmTime(int hourOfDay, int minute) {
+        String amPm = (hourOfDay >= 12) ? "PM" : "AM";
+        int hour12 = (hourOfDay > 12) ? hourOfDay - 12 : hourOfDay;
+        if (hour12 == 0) hour12 = 12;
+        String minStr = (minute < 10) ? "0" + minute : "" + minute;
+
+        String text = String.format(Locale.getDefault(), "%02d:%s %s", hour12, minStr, amPm);
+        txtAlarmTime.setText(text);
+        return text;
+    }
 
-        if (soundList.isEmpty()) soundList.add(new SoundOption("Default", R.raw.ocean));
+    private boolean clearAlarm() {
+        if (!isAlarmSet) return false;
+        alarmScheduler.clearScreenAlarm();
+        showDefaultAlarm();
+        Toast.makeText(getContext(), "Auto-stop cleared", Toast.LENGTH_SHORT).show();
+        return true;
     }
 
     private void showSoundMenu() {
         if (getContext() == null) return;
         PopupMenu popup = new PopupMenu(getContext(), soundCapsule);
-        for (int i = 0; i < soundList.size(); i++) popup.getMenu().add(0, i, i, soundList.get(i).name);
+        MaskingSound[] sounds = MaskingSound.values();
+        for (int i = 0; i < sounds.length; i++) popup.getMenu().add(0, i, i, sounds[i].label);
 
         popup.setOnMenuItemClickListener(item -> {
-            currentSound = soundList.get(item.getItemId());
-            txtSoundName.setText(currentSound.name);
-            if (isPlaying) { stopNoise(); startNoise(); }
+            selectedSound = sounds[item.getItemId()];
+            txtSoundName.setText(selectedSound.label);
+            // Manual choice turns off auto-matching; crossfades if already playing
+            if (session != null) session.playSound(selectedSound, true);
             return true;
         });
         popup.show();
     }
 
     private void togglePlayback() {
-        if (isPlaying) {
-            stopNoise();
-        } else {
-            // Try to get Mic Permission, but DON'T stop playback if denied
-            if (ActivityCompat.checkSelfPermission(getContext(), Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
-                requestPermissions(new String[]{Manifest.permission.RECORD_AUDIO}, 1);
-                // We proceed to play anyway (non-adaptive mode)
-            }
-            startNoise();
+        if (session != null && session.isRunning()) {
+            session.stopSession();
+            return;
         }
-    }
 
-    private void startNoise() {
-        try {
-            if (mediaPlayer == null) {
-                mediaPlayer = MediaPlayer.create(getContext(), currentSound.resId);
-                mediaPlayer.setLooping(true);
-            }
-            mediaPlayer.start();
-            isPlaying = true;
-            btnPlay.setText("STOP");
-            btnPlay.setBackgroundColor(0xFFFF5252); // Red
+        // Ask for the mic first so the service can start with it; it plays either way
+        String[] needed = Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                ? new String[]{Manifest.permission.RECORD_AUDIO, Manifest.permission.POST_NOTIFICATIONS}
+                : new String[]{Manifest.permission.RECORD_AUDIO};
+        if (ActivityCompat.checkSelfPermission(requireContext(), Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
+            requestPermissions(needed, REQUEST_AUDIO);
+            return;
+        }
+        startSession();
+    }
 
-            // Start the "Brain" loop
-            startSmartLoop();
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        // Denied just means non-adaptive mode (no mic)
+        if (requestCode == REQUEST_AUDIO) startSession();
+    }
 
+    private void startSession() {
+        try {
+            SleepSessionService.start(requireContext(), selectedSound);
         } catch (Exception e) {
             Toast.makeText(getContext(), "Playback Error", Toast.LENGTH_SHORT).show();
         }
     }
 
-    private void stopNoise() {
-        try {
-            if (mediaPlayer != null) {
-                if (mediaPlayer.isPlaying()) mediaPlayer.pause();
-                mediaPlayer.release();
-                mediaPlayer = null;
-            }
-            isPlaying = false;
+    // --- SESSION CALLBACKS (main thread, only while bound) ---
+
+    @Override
+    public void onLevels(float leqDb, float peakDb) {
+        if (txtDecibel == null) return;
+        txtDecibel.setText(String.format("%.0f dB", leqDb));
+        volumeBar.setProgress((int) leqDb);
+        if (session != null && session.isFading()) return;
+        txtStatus.setText(leqDb > 60 ? "Status: 🛡️ Blocking Noise" : "Status: 🌙 Gentle Masking");
+    }
+
+    @Override
+    public void onSessionChanged() {
+        if (session == null || btnPlay == null) return;
+
+        // Once the session runs, the blob drops to a few fps when left alone
+        blobView.setNightMode(session.isRunning());
+
+        if (!session.isRunning()) {
             btnPlay.setText("PLAY SMART NOISE");
             btnPlay.setBackgroundColor(0xFF6200EE);
-
-            stopSmartLoop();
             txtStatus.setText("Status: Idle");
             txtDecibel.setText("0 dB");
             volumeBar.setProgress(0);
-        } catch (Exception e) {}
-    }
-
-    // --- SMART LOOP: Handles Alarm Check AND Adaptive Volume ---
-    private void startSmartLoop() {
-        // Try to start mic
-        if (mediaRecorder == null) {
-            try {
-                mediaRecorder = new MediaRecorder();
-                mediaRecorder.setAudioSource(MediaRecorder.AudioSource.MIC);
-                mediaRecorder.setOutputFormat(MediaRecorder.OutputFormat.THREE_GPP);
-                mediaRecorder.setAudioEncoder(MediaRecorder.AudioEncoder.AMR_NB);
-                mediaRecorder.setOutputFile("/dev/null");
-                mediaRecorder.prepare();
-                mediaRecorder.start();
-            } catch (Exception e) {
-                // FALLBACK: If mic fails (emulator), just log it and continue without mic
-                txtStatus.setText("Status: Manual Mode (Mic Unavailable)");
-                mediaRecorder = null;
-            }
+            return;
         }
-        handler.post(smartRunnable);
-    }
 
-    private void stopSmartLoop() {
-        handler.removeCallbacks(smartRunnable);
-        if (mediaRecorder != null) {
-            try { mediaRecorder.stop(); mediaRecorder.release(); } catch (Exception e) {}
-            mediaRecorder = null;
+        btnPlay.setText("STOP");
+        btnPlay.setBackgroundColor(0xFFFF5252); // Red
+        selectedSound = session.getSound(); // may have been auto-matched while we were away
+        txtSoundName.setText(selectedSound.label);
+        if (session.isFading()) {
+            txtStatus.setText("Status: ⏰ Fading out for your alarm");
+        } else if (!session.isListening()) {
+            txtStatus.setText(ActivityCompat.checkSelfPermission(requireContext(), Manifest.permission.RECORD_AUDIO) == PackageManager.PERMISSION_GRANTED
+                    ? "Status: 🌙 Masking (mic resting)"
+                    : "Status: Manual Mode (Mic Unavailable)");
         }
     }
-
-    private Runnable smartRunnable = new Runnable() {
-        @Override
-        public void run() {
-            if (!isPlaying) return;
-
-            // 1. CHECK ALARM (Auto-Stop Feature)
-            if (isAlarmSet) {
-                Calendar now = Calendar.getInstance();
-                if (now.after(alarmTime)) {
-                    stopNoise();
-                    Toast.makeText(getContext(), "⏰ Alarm time reached. Noise stopped.", Toast.LENGTH_LONG).show();
-                    isAlarmSet = false; // Reset
-                    return; // Stop the loop
-                }
-            }
-
-            // 2. CHECK MIC (Adaptive Volume Feature)
-            if (mediaRecorder != null) {
-                try {
-                    double amplitude = mediaRecorder.getMaxAmplitude();
-                    if (amplitude > 0) {
-                        double db = 20 * Math.log10(amplitude);
-
-                        // Adaptive Logic
-                        int maxVol = audioManager.getStreamMaxVolume(AudioManager.STREAM_MUSIC);
-                        int targetVol;
-                        if (db < 40) targetVol = (int)(maxVol * 0.3);
-                        else if (db < 60) targetVol = (int)(maxVol * 0.6);
-                        else targetVol = maxVol;
-
-                        audioManager.setStreamVolume(AudioManager.STREAM_MUSIC, targetVol, 0);
-
-                        // UI Updates
-                        txtDecibel.setText(String.format("%.0f dB", db));
-                        txtStatus.setText(db > 60 ? "Status: 🛡️ Blocking Noise" : "Status: 🌙 Gentle Masking");
-                        volumeBar.setProgress((int)db);
-                    }
-                } catch (Exception e) {
-                    // Ignore transient errors
-                }
-            }
-
-            handler.postDelayed(this, 1000); // Check every 1 second
-        }
-    };
-
-    @Override
-    public void onDestroy() {
-        super.onDestroy();
-        stopNoise();
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,137 @@
+"""
+The fallback rules and shared thresholds, compiled from rules/decision_rules.txt into flat lists.
+Same file, same grammar and same layout as DecisionTable.java; DecisionTableTest checks that both
+sides decide the same way.
+"""
+import operator
+from os.path import dirname, join
+
+RULES_FILE = join(dirname(__file__), "rules", "decision_rules.txt")
+
+# Same order as launcher.PACKED_RISK_FIELDS / RiskBundle slots
+INPUTS = (
+    "remaining_caffeine_mg",
+    "sleep_debt_hours",
+    "noise_disruption_risk",
+    "melatonin_suppression_risk",
+)
+
+OPS = {">": operator.gt, ">=": operator.ge, "<": operator.lt, "<=": operator.le}
+
+
+class DecisionTable:
+    def __init__(self, thresholds, actions, inputs, ops, values, closes_clause, rule_ends, rule_actions, default_action):
+        self.thresholds = thresholds
+        self.actions = actions
+        # One entry per comparison
+        self.inputs = inputs
+        self.ops = ops
+        self.values = values
+        self.closes_clause = closes_clause
+        # One entry per rule
+        self.rule_ends = rule_ends
+        self.rule_actions = rule_actions
+        self.default_action = default_action
+
+    def threshold(self, name):
+        return self.thresholds[name]
+
+    def evaluate(self, caffeine_mg, sleep_debt_hours, noise_risk, melatonin_risk):
+        """Action name of the first matching rule, or the default"""
+        x = (caffeine_mg, sleep_debt_hours, noise_risk, melatonin_risk)
+        c = 0
+        for r, end in enumerate(self.rule_ends):
+            clause = True
+            while c < end:
+                if clause:
+                    clause = self.ops[c](x[self.inputs[c]], self.values[c])
+                if self.closes_clause[c]:
+                    if clause:
+                        return self.actions[self.rule_actions[r]]
+                    clause = True
+                c += 1
+        return self.actions[self.default_action]
+
+    def evaluate_risks(self, risk):
+        """Same, over a risk bundle dict (missing fields count as 0)"""
+        return self.evaluate(*(risk.get(name, 0) for name in INPUTS))
+
+
+def _error(line_no, message):
+    return ValueError(f"decision rules line {line_no}: {message}")
+
+
+def _number(token, line_no):
+    try:
+        return float(token)
+    except ValueError:
+        raise _error(line_no, f"not a number or known threshold: {token}")
+
+
+def _action_id(actions, action):
+    if action not in actions:
+        actions.append(action)
+    return actions.index(action)
+
+
+def compile_rules(lines):
+    """Keep in step with DecisionTable.compile"""
+    thresholds = {}
+    actions = []
+    default_action = None
+    inputs, ops, values, closes_clause = [], [], [], []
+    rule_ends, rule_actions = [], []
+
+    for line_no, line in enumerate(lines, 1):
+        t = line.split("#", 1)[0].split()
+        if not t:
+            continue
+
+        if t[0] == "threshold":
+            if len(t) != 3:
+                raise _error(line_no, "expected: threshold <name> <number>")
+            if t[1] in thresholds:
+                raise _error(line_no, f"duplicate threshold {t[1]}")
+            thresholds[t[1]] = _number(t[2], line_no)
+
+        elif t[0] == "rule":
+            # rule ACTION when a op b [and|or a op b]...
+            if len(t) < 6 or t[2] != "when" or (len(t) - 3) % 4 != 3:
+                raise _error(line_no, "expected: rule <ACTION> when <input> <op> <value> [and|or ...]")
+            for i in range(3, len(t), 4):
+                if t[i] not in INPUTS:
+                    raise _error(line_no, f"unknown input {t[i]}")
+                if t[i + 1] not in OPS:
+                    raise _error(line_no, f"unknown op {t[i + 1]}")
+                joiner = t[i + 3] if i + 3 < len(t) else "or"
+                if joiner not in ("and", "or"):
+                    raise _error(line_no, f"expected and / or, got {joiner}")
+                inputs.append(INPUTS.index(t[i]))
+                ops.append(OPS[t[i + 1]])
+                values.append(thresholds[t[i + 2]] if t[i + 2] in thresholds else _number(t[i + 2], line_no))
+                closes_clause.append(joiner == "or")
+            rule_ends.append(len(inputs))
+            rule_actions.append(_action_id(actions, t[1]))
+
+        elif t[0] == "default":
+            if len(t) != 2:
+                raise _error(line_no, "expected: default <ACTION>")
+            if default_action is not None:
+                raise _error(line_no, "more than one default")
+            default_action = _action_id(actions, t[1])
+
+        else:
+            raise _error(line_no, f"unknown directive {t[0]}")
+
+    if default_action is None:
+        raise ValueError("decision rules have no default")
+    return DecisionTable(thresholds, actions, inputs, ops, values, closes_clause, rule_ends, rule_actions, default_action)
+
+
+def load(path=RULES_FILE):
+    with open(path, encoding="utf-8") as f:
+        return compile_rules(f)
+
+
+# Compiled once, at import (the agent warm-up imports it with llm_wrapper)
+TABLE = load()
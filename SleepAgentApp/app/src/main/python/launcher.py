@@ -1,6 +1,31 @@
+import struct
 import sys
 from os.path import dirname, join
-from llm_wrapper import call_sleep_agent
+from llm_wrapper import call_sleep_agent, call_sleep_agent_stream
+
+# Slot order of the packed double[] sent by RiskBundle.java. Keep both in sync.
+PACKED_RISK_FIELDS = (
+    "remaining_caffeine_mg",
+    "sleep_debt_hours",
+    "noise_disruption_risk",
+    "melatonin_suppression_risk",
+)
+
+# Field order of the packed decision string read back by AgentDecision.java. Keep both in sync.
+PACKED_DECISION_FIELDS = (
+    "action",
+    "urgency",
+    "value",
+    "notification_message",
+    "confidence",
+    "reasoning_summary",
+    "_source",
+)
+
+# The packed decision is one str (one crossing back to Java) with the fields split by the ASCII
+# unit separator; a field holding only NUL was None. Same values as AgentDecision.java.
+FIELD_SEPARATOR = "\x1f"
+NULL_FIELD = "\x00"
 
 def calculate_risks(java_data):
     """
@@ -55,4 +80,64 @@ def run_agent_bridge(java_data):
             "action": "ERROR",
             "reasoning_summary": f"Calculation Error: {str(e)}",
             "urgency": "HIGH"
-        }
\ No newline at end of file
+        }
+
+def unpack_risks(values, user_query):
+    """
+    Java double[] -> the dict the agent expects. memoryview reads the whole array through
+    Chaquopy's buffer protocol in one copy, instead of one bridge call per values[i].
+    """
+    risks = memoryview(values).tolist()
+    java_data = {name: float(risks[i]) for i, name in enumerate(PACKED_RISK_FIELDS)}
+    java_data["user_query"] = user_query or ""
+    return java_data
+
+def pack_decision(decision):
+    """Decision dict -> one str, split back into fields on the Java side (AgentDecision.splitPacked)"""
+    packed = []
+    for name in PACKED_DECISION_FIELDS:
+        value = decision.get(name)
+        packed.append(NULL_FIELD if value is None else str(value).replace(FIELD_SEPARATOR, " "))
+    return FIELD_SEPARATOR.join(packed)
+
+def run_agent_packed(values, user_query):
+    """
+    Packed version of run_agent_bridge: one call in (one array copy), one str out.
+    """
+    return pack_decision(run_agent_bridge(unpack_risks(values, user_query)))
+
+def call_agent_packed(values, user_query):
+    """
+    Risks were already calculated on the Java side (RiskEngine.java), so only the LLM call is left.
+    """
+    try:
+        decision = call_sleep_agent(unpack_risks(values, user_query))
+    except Exception as e:
+        decision = {
+            "action": "ERROR",
+            "reasoning_summary": f"Agent Error: {str(e)}",
+            "urgency": "HIGH"
+        }
+    return pack_decision(decision)
+
+def call_agent_packed_stream(values, user_query, listener):
+    """
+    Streaming flavour of call_agent_packed. listener is a Java AgentService.StreamListener.
+    """
+    try:
+        decision = call_sleep_agent_stream(unpack_risks(values, user_query), listener)
+    except Exception as e:
+        decision = {
+            "action": "ERROR",
+            "reasoning_summary": f"Agent Error: {str(e)}",
+            "urgency": "HIGH"
+        }
+    return pack_decision(decision)
+
+def calculate_risks_packed(values, user_query):
+    """
+    Same marshalling as run_agent_packed, without the LLM. Used by the bridge benchmark.
+    The results go back as little-endian doubles in one bytes (byte[] on the Java side, one copy).
+    """
+    risks = calculate_risks(unpack_risks(values, user_query))
+    return struct.pack("<%dd" % len(PACKED_RISK_FIELDS), *(risks[name] for name in PACKED_RISK_FIELDS))
@@ -2,67 +2,70 @@ import os
 import json
 import requests
 from typing import Dict, Any
+from decision_table import TABLE
 
 # =========================
 # 🔐 CONFIGURATION
 # =========================
 # We use standard HTTP requests to avoid Android crashes
 GEMINI_API_KEY = os.environ.get("GEMINI_API_KEY")
-URL = f"https://generativelanguage.googleapis.com/v1beta/models/gemini-1.5-flash:generateContent?key={GEMINI_API_KEY}"
+# GEMINI_BASE_URL lets tests point the agent at a local stub server
+BASE_URL = os.environ.get("GEMINI_BASE_URL", "https://generativelanguage.googleapis.com")
+URL = f"{BASE_URL}/v1beta/models/gemini-1.5-flash:generateContent?key={GEMINI_API_KEY}"
+STREAM_URL = f"{BASE_URL}/v1beta/models/gemini-1.5-flash:streamGenerateContent?alt=sse&key={GEMINI_API_KEY}"
 HEADERS = {"Content-Type": "application/json"}
 
 # =========================
 # 🧠 TEAMMATE'S LOGIC (ADAPTED)
 # =========================
 
-def rule_fallback(risk: Dict[str, Any]) -> Dict[str, Any]:
-    """
-    Safety net: If internet fails, use these hard-coded science rules.
-    (From your teammate's code)
-    """
-    # High blue light OR High sleep debt
-    if risk.get("melatonin_suppression_risk", 0) > 1.5 or risk.get("sleep_debt_hours", 0) > 2:
-        return {
-            "action": "DIGITAL_WIND_DOWN",
-            "urgency": "MEDIUM",
-            "value": None,
-            "notification_message": "High blue-light detected. Time to disconnect.",
-            "confidence": 0.6,
-            "reasoning_summary": "Rule-based safety trigger for melatonin protection."
-        }
-
-    # High Caffeine (Added this rule for your specific demo)
-    if risk.get("remaining_caffeine_mg", 0) > 350:
-         return {
-            "action": "ADJUST_ALARM",
-            "urgency": "HIGH",
-            "value": "30",
-            "notification_message": "High caffeine detected. Extending sleep schedule.",
-            "confidence": 0.9,
-            "reasoning_summary": "Caffeine half-life requires extended recovery time."
-        }
-
-    return {
+# Same decisions (and wording) as RiskEngine.java; which one applies is up to the rule table
+FALLBACK_DECISIONS = {
+    "DIGITAL_WIND_DOWN": {
+        "action": "DIGITAL_WIND_DOWN",
+        "urgency": "MEDIUM",
+        "value": None,
+        "notification_message": "High blue-light detected. Time to disconnect.",
+        "confidence": 0.6,
+        "reasoning_summary": "Rule-based safety trigger for melatonin protection."
+    },
+    "ADJUST_ALARM": {
+        "action": "ADJUST_ALARM",
+        "urgency": "HIGH",
+        "value": "30",
+        "notification_message": "High caffeine detected. Extending sleep schedule.",
+        "confidence": 0.9,
+        "reasoning_summary": "Caffeine half-life requires extended recovery time."
+    },
+    "NONE": {
         "action": "NONE",
         "urgency": "LOW",
         "value": None,
         "notification_message": "Conditions optimal for sleep.",
         "confidence": 1.0,
         "reasoning_summary": "No critical thresholds breached."
-    }
+    },
+}
 
-def call_sleep_agent(risk_bundle: Dict[str, Any]) -> Dict[str, Any]:
+def rule_fallback(risk: Dict[str, Any]) -> Dict[str, Any]:
     """
-    Sends the calculated risks to Gemini to get a smart decision.
+    Safety net: If internet fails, use these hard-coded science rules.
+    The rules themselves live in rules/decision_rules.txt (shared with the Java side).
+    """
+    return dict(FALLBACK_DECISIONS[TABLE.evaluate_risks(risk)])
+
+def build_payload(risk_bundle: Dict[str, Any]) -> Dict[str, Any]:
+    """
+    The Gemini request body. Shared by the blocking and the streaming call.
     """
     # 1. THE TEAMMATE'S PROMPT
     prompt = f"""
     You are a Sleep Architect Agent. Analyze these risks and return ONE action.
 
     DATA CONTEXT:
-    - Caffeine > 300mg is High Risk.
-    - Sleep Debt > 2 hours is Critical.
-    - Blue Light (Melatonin Risk) > 5 is High.
+    - Caffeine > {TABLE.threshold("caffeine_high_mg"):g}mg is High Risk.
+    - Sleep Debt > {TABLE.threshold("sleep_debt_critical_hours"):g} hours is Critical.
+    - Blue Light (Melatonin Risk) > {TABLE.threshold("melatonin_high"):g} is High.
 
     USER RISKS: {json.dumps(risk_bundle)}
 
@@ -77,33 +80,142 @@ def call_sleep_agent(risk_bundle: Dict[str, Any]) -> Dict[str, Any]:
     }}
     """
 
-    # 2. ANDROID-SAFE API CALL
-    payload = {
+    return {
         "contents": [{"parts": [{"text": prompt}]}],
         "generationConfig": {"response_mime_type": "application/json", "temperature": 0.1}
     }
 
+def parse_decision(raw_text: str) -> Dict[str, Any]:
+    # Clean up any Markdown formatting
+    if "```" in raw_text:
+        raw_text = raw_text.replace("```json", "").replace("```", "").strip()
+
+    decision = json.loads(raw_text)
+    decision["_source"] = "LLM"
+    return decision
+
+def fallback_decision(risk_bundle: Dict[str, Any], error: Exception) -> Dict[str, Any]:
+    print(f"⚠️ Agent Error: {error}")
+    fb = rule_fallback(risk_bundle)
+    fb["_source"] = "RULE_FALLBACK"
+    return fb
+
+def call_sleep_agent(risk_bundle: Dict[str, Any]) -> Dict[str, Any]:
+    """
+    Sends the calculated risks to Gemini to get a smart decision.
+    """
+    payload = build_payload(risk_bundle)
+
     try:
         if not GEMINI_API_KEY:
             raise ValueError("API Key missing")
 
+        # 2. ANDROID-SAFE API CALL
         response = requests.post(URL, headers=HEADERS, json=payload, timeout=10)
         response.raise_for_status()
 
         # 3. PARSE RESPONSE
         result_json = response.json()
         raw_text = result_json["candidates"][0]["content"]["parts"][0]["text"]
+        return parse_decision(raw_text)
+
+    except Exception as e:
+        return fallback_decision(risk_bundle, e)
+
+# =========================
+# 🌊 STREAMING
+# =========================
+
+_JSON_ESCAPES = {'"': '"', '\\': '\\', '/': '/', 'b': '\b', 'f': '\f', 'n': '\n', 'r': '\r', 't': '\t'}
+_HEX = frozenset("0123456789abcdefABCDEF")
+
+def _hex4(text: str, start: int):
+    """The code unit of the 4 hex digits at text[start:], or None if they aren't all there (yet)"""
+    digits = text[start:start + 4]
+    if len(digits) < 4 or not all(c in _HEX for c in digits):
+        return None
+    return int(digits, 16)
+
+def partial_string_field(raw_text: str, field: str):
+    """
+    Reads a string field out of a JSON object that is still arriving.
+    Returns whatever part of the value has been received so far, or None.
+    An escape that is cut off, malformed or half a surrogate pair ends the value there:
+    the text before it is still good, and the next chunk may complete it.
+    """
+    key = raw_text.find(f'"{field}"')
+    if key < 0:
+        return None
+    colon = raw_text.find(":", key + len(field) + 2)
+    if colon < 0:
+        return None
+    quote = raw_text.find('"', colon + 1)
+    if quote < 0:
+        return None
+
+    out = []
+    i = quote + 1
+    while i < len(raw_text):
+        ch = raw_text[i]
+        if ch == '"':
+            break
+        if ch == "\\":
+            if i + 1 >= len(raw_text):
+                break  # escape split across chunks, wait for the rest
+            esc = raw_text[i + 1]
+            if esc == "u":
+                code = _hex4(raw_text, i + 2)
+                if code is None:
+                    break
+                if 0xDC00 <= code < 0xE000:
+                    break  # low surrogate on its own
+                if 0xD800 <= code < 0xDC00:
+                    # Emoji etc. come as a pair; only the two halves together make a character
+                    low = _hex4(raw_text, i + 8) if raw_text.startswith("\\u", i + 6) else None
+                    if low is None or not 0xDC00 <= low < 0xE000:
+                        break
+                    code = 0x10000 + ((code - 0xD800) << 10) + (low - 0xDC00)
+                    i += 6
+                out.append(chr(code))
+                i += 6
+                continue
+            out.append(_JSON_ESCAPES.get(esc, esc))
+            i += 2
+            continue
+        out.append(ch)
+        i += 1
+    return "".join(out)
+
+def call_sleep_agent_stream(risk_bundle: Dict[str, Any], listener) -> Dict[str, Any]:
+    """
+    Same as call_sleep_agent, but uses streamGenerateContent (SSE) and pushes the
+    reasoning_summary to listener.onPartial(text) as it arrives.
+    """
+    payload = build_payload(risk_bundle)
+
+    try:
+        if not GEMINI_API_KEY:
+            raise ValueError("API Key missing")
+
+        response = requests.post(STREAM_URL, headers=HEADERS, json=payload, timeout=10, stream=True)
+        response.raise_for_status()
+
+        raw_text = ""
+        last_partial = None
+        for line in response.iter_lines(decode_unicode=True):
+            # SSE frames look like "data: {...}"; skip keep-alives and blank separators
+            if not line or not line.startswith("data:"):
+                continue
+            chunk = json.loads(line[5:].strip())
+            for part in chunk["candidates"][0]["content"].get("parts", []):
+                raw_text += part.get("text", "")
 
-        # Clean up any Markdown formatting
-        if "```" in raw_text:
-            raw_text = raw_text.replace("```json", "").replace("```", "").strip()
+            partial = partial_string_field(raw_text, "reasoning_summary")
+            if partial and partial != last_partial:
+                last_partial = partial
+                listener.onPartial(partial)
 
-        decision = json.loads(raw_text)
-        decision["_source"] = "LLM"
-        return decision
+        return parse_decision(raw_text)
 
     except Exception as e:
-        print(f"⚠️ Agent Error: {e}")
-        fb = rule_fallback(risk_bundle)
-        fb["_source"] = "RULE_FALLBACK"
-        return fb
\ No newline at end of file
+        return fallback_decision(risk_bundle, e)
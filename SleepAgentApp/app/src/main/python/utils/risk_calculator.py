@@ -2,10 +2,11 @@
 import json
 from datetime import datetime, timedelta
 import numpy as np
+from decision_table import TABLE
 
 CAFFEINE_HALF_LIFE_HOURS = 5.0
-SCREEN_THRESHOLD_MINUTES = 60
-NOISE_HIGH_DB = 65
+# Thresholds come from rules/decision_rules.txt, shared with the Java side
+SCREEN_THRESHOLD_MINUTES = TABLE.threshold("screen_threshold_minutes")
 
 def calculate_caffeine_remaining(caffeine_log, current_time):
     """Exponential decay model: C(t) = C0 * (0.5)^(t/T_half)"""
@@ -25,14 +26,18 @@ def melatonin_risk(screen_minutes, brightness):
     risk = base_risk * brightness_factor
     return round(min(risk, 1.0), 2)
 
-def noise_risk(noise_db):
-    """Piecewise linear risk from sleep studies"""
-    if noise_db < 45: 
+def noise_risk(noise_db, table=TABLE):
+    """Piecewise linear risk from sleep studies; breakpoints and levels from the rule file"""
+    quiet = table.threshold("noise_quiet_db")
+    loud = table.threshold("noise_loud_db")
+    if noise_db < quiet:
         return 0.0
-    elif noise_db < 65: 
-        return round((noise_db - 45) / 40, 2)
-    else: 
-        return round(min(0.8 + (noise_db - 65) / 35 * 0.2, 1.0), 2)
+    elif noise_db < loud:
+        return round((noise_db - quiet) / (loud - quiet) * table.threshold("noise_risk_below_loud"), 2)
+    else:
+        at_loud = table.threshold("noise_risk_at_loud")
+        rise = (noise_db - loud) / (table.threshold("noise_max_db") - loud) * (1 - at_loud)
+        return round(min(at_loud + rise, 1.0), 2)
 
 def sleep_debt_risk(sleep_debt_hours):
     """Cognitive impairment thresholds"""
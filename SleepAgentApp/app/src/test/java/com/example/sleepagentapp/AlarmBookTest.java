@@ -0,0 +1,76 @@
+package com.example.sleepagentapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AlarmBookTest {
+
+    private static final long T0 = 1_790_000_000_000L;
+    private static final long MINUTE = 60_000;
+
+    @Test
+    public void alarms_staySortedWhateverTheInsertOrder() {
+        AlarmBook book = new AlarmBook();
+        long[] times = {T0 + 9 * MINUTE, T0 + MINUTE, T0 + 5 * MINUTE, T0 + 3 * MINUTE, T0 + 7 * MINUTE, T0};
+        for (long t : times) book.add(t, MINUTE);
+
+        assertEquals(6, book.size());
+        for (int i = 1; i < book.size(); i++) assertTrue(book.triggerAt(i - 1) < book.triggerAt(i));
+        assertEquals(T0, book.nextTrigger());
+    }
+
+    @Test
+    public void sameTrigger_isOneAlarm() {
+        AlarmBook book = new AlarmBook();
+        book.add(T0, MINUTE);
+        book.add(T0, 5 * MINUTE);
+
+        assertEquals(1, book.size());
+        assertEquals(5 * MINUTE, book.nextFadeMs());
+    }
+
+    @Test
+    public void fadeStart_isBeforeTriggerButNeverInThePast() {
+        AlarmBook book = new AlarmBook();
+        book.add(T0 + 10 * MINUTE, 5 * MINUTE);
+
+        assertEquals(T0 + 5 * MINUTE, book.nextFadeStart(T0));
+        // Alarm set 2 minutes out with a 5 minute fade: ramp starts now
+        assertEquals(T0 + 8 * MINUTE, book.nextFadeStart(T0 + 8 * MINUTE));
+    }
+
+    @Test
+    public void pruneAndRemove() {
+        AlarmBook book = new AlarmBook();
+        for (int i = 1; i <= 4; i++) book.add(T0 + i * MINUTE, 0);
+
+        assertEquals(2, book.pruneThrough(T0 + 2 * MINUTE));
+        assertEquals(T0 + 3 * MINUTE, book.nextTrigger());
+        assertFalse(book.contains(T0 + MINUTE));
+        assertTrue(book.contains(T0 + 4 * MINUTE));
+        assertFalse(book.remove(T0 + MINUTE));
+        assertTrue(book.remove(T0 + 4 * MINUTE));
+        assertFalse(book.contains(T0 + 4 * MINUTE));
+        assertEquals(1, book.size());
+        assertEquals(1, book.pruneThrough(Long.MAX_VALUE));
+        assertTrue(book.isEmpty());
+    }
+
+    @Test
+    public void encodeDecode_roundTripsAndSkipsGarbage() {
+        AlarmBook book = new AlarmBook();
+        book.add(T0 + 2 * MINUTE, 5 * MINUTE);
+        book.add(T0, 0);
+
+        AlarmBook decoded = AlarmBook.decode(book.encode() + ",oops,12:x");
+        assertEquals(2, decoded.size());
+        assertEquals(T0, decoded.triggerAt(0));
+        assertEquals(0, decoded.fadeAt(0));
+        assertEquals(T0 + 2 * MINUTE, decoded.triggerAt(1));
+        assertEquals(5 * MINUTE, decoded.fadeAt(1));
+
+        assertTrue(AlarmBook.decode("").isEmpty());
+        assertTrue(AlarmBook.decode(null).isEmpty());
+    }
+}
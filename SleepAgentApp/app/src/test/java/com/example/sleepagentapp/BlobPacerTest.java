@@ -0,0 +1,73 @@
+package com.example.sleepagentapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BlobPacerTest {
+
+    private static final long MS = 1_000_000L;
+    private static final long SECOND = 1000 * MS;
+
+    private static long runFor(BlobPacer pacer, long startNanos, long durationNanos, int fps) {
+        long frame = SECOND / fps;
+        long steps = 0;
+        for (long t = startNanos; t <= startNanos + durationNanos; t += frame) steps += pacer.advance(t);
+        return steps;
+    }
+
+    @Test
+    public void physicsSteps_dontDependOnFrameRate() {
+        BlobPacer fast = new BlobPacer();
+        BlobPacer slow = new BlobPacer();
+        long fastSteps = runFor(fast, 0, 10 * SECOND, BlobPacer.ACTIVE_FPS);
+        long slowSteps = runFor(slow, 0, 10 * SECOND, BlobPacer.LOW_POWER_FPS);
+
+        // 10 s of 60 Hz physics either way (give or take the step in progress)
+        assertEquals(600, fastSteps, 1);
+        assertEquals(600, slowSteps, 1);
+        assertEquals(fast.getAnimTimeMs(), slow.getAnimTimeMs(), 20);
+        assertEquals(0, slow.getDroppedSteps());
+    }
+
+    @Test
+    public void stall_catchesUpOnlyToTheCap() {
+        BlobPacer pacer = new BlobPacer();
+        pacer.advance(0);
+        assertEquals(BlobPacer.MAX_STEPS_PER_FRAME, pacer.advance(2 * SECOND));
+        assertEquals(120 - BlobPacer.MAX_STEPS_PER_FRAME, pacer.getDroppedSteps());
+
+        // resume() forgets the pause instead of trying to catch up on it
+        pacer.resume(60 * SECOND);
+        assertEquals(1, pacer.advance(60 * SECOND + 17 * MS));
+    }
+
+    @Test
+    public void targetFps_followsActivityAndNightMode() {
+        assertEquals(BlobPacer.ACTIVE_FPS, BlobPacer.targetFps(true, false));
+        assertEquals(BlobPacer.LOW_POWER_FPS, BlobPacer.targetFps(true, true));
+        assertEquals(0, BlobPacer.targetFps(false, false));
+        assertEquals(0, BlobPacer.targetFps(false, true));
+    }
+
+    @Test
+    public void framesLastMinute_slidesAndDrainsWhileIdle() {
+        BlobPacer pacer = new BlobPacer();
+        long t0 = 1000 * SECOND;
+
+        // 30 s at 60 fps, then 30 s at 5 fps
+        long t = t0;
+        for (; t < t0 + 30 * SECOND; t += SECOND / 60) pacer.onFrameRendered(t, 100_000);
+        for (; t < t0 + 60 * SECOND; t += SECOND / 5) pacer.onFrameRendered(t, 100_000);
+        assertEquals(30 * 60 + 30 * 5, pacer.getFramesLastMinute(), 10);
+        assertEquals(pacer.getFrames() * 100_000, pacer.getCpuNanos());
+
+        // 30 s later the 60 fps half has slid out
+        pacer.onIdle(t + 30 * SECOND);
+        assertEquals(30 * 5, pacer.getFramesLastMinute(), 10);
+
+        // And after a long pause there's nothing left
+        pacer.onIdle(t + 10 * 60 * SECOND);
+        assertEquals(0, pacer.getFramesLastMinute());
+    }
+}
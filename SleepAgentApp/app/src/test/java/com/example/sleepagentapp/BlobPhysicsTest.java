@@ -0,0 +1,117 @@
+package com.example.sleepagentapp;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BlobPhysicsTest {
+
+    private static final int POINTS = BlobPhysics.POINT_COUNT;
+
+    @Test
+    public void outline_matchesDirectTrig() {
+        BlobPhysics physics = new BlobPhysics(new Random(1));
+        float[] xs = new float[POINTS];
+        float[] ys = new float[POINTS];
+
+        long time = 12_345;
+        physics.step();
+        physics.computeOutline(time, 500, 400, 200, xs, ys);
+
+        // The pre-table version of onDraw
+        for (int i = 0; i < POINTS; i++) {
+            double angle = (2.0 * Math.PI / POINTS) * i;
+            float noiseOffset = (float) Math.sin((time * 0.002f) + (i * 0.8)) * 15;
+            float radius = 200 + noiseOffset;
+            assertEquals(500 + Math.cos(angle) * radius, xs[i], 0.01);
+            assertEquals(400 + Math.sin(angle) * radius, ys[i], 0.01);
+        }
+    }
+
+    @Test
+    public void hillBendsNeighboursWithWrapAround() {
+        // Seed chosen only so the test is repeatable; the centre is read back from the offsets
+        BlobPhysics physics = new BlobPhysics(new Random(7));
+        physics.updateAmplitude(1f);
+        physics.step();
+
+        int center = 0;
+        for (int i = 1; i < POINTS; i++) {
+            if (physics.getOffset(i) > physics.getOffset(center)) center = i;
+        }
+        float peak = physics.getOffset(center);
+        assertEquals(0.2f * BlobPhysics.MAX_SPIKE_HEIGHT, peak, 1e-3);
+
+        for (int d = 1; d <= 4; d++) {
+            float expected = peak * ((5 - d) / 5f) * ((5 - d) / 5f);
+            assertEquals(expected, physics.getOffset((center + d) % POINTS), 1e-3);
+            assertEquals(expected, physics.getOffset((center - d + POINTS) % POINTS), 1e-3);
+        }
+        assertEquals(0f, physics.getOffset((center + 5) % POINTS), 0f);
+    }
+
+    @Test
+    public void hillPool_isBounded() {
+        BlobPhysics physics = new BlobPhysics(new Random(3));
+        // Every other frame is a sharp attack
+        for (int i = 0; i < 200; i++) {
+            physics.updateAmplitude(i % 2 == 0 ? 0f : 1f);
+            physics.step();
+            assertTrue(physics.getHillCount() <= BlobPhysics.MAX_HILLS);
+        }
+        assertTrue(physics.getPoolRecycles() > 0);
+    }
+
+    @Test
+    public void silence_settlesToIdle() {
+        BlobPhysics physics = new BlobPhysics(new Random(5));
+        assertTrue(physics.isIdle());
+        assertTrue(physics.updateAmplitude(0.8f)); // wakes up
+
+        physics.updateAmplitude(0f);
+        int frames = 0;
+        while (physics.step()) {
+            assertTrue("never settled", ++frames < 200);
+        }
+        assertTrue(physics.isIdle());
+        assertEquals(0, physics.getHillCount());
+
+        // Below the gate doesn't wake it
+        assertFalse(physics.updateAmplitude(0.01f));
+        assertFalse(physics.step());
+    }
+
+    @Test
+    public void steadyStateFrame_allocatesNothing() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return; // not a HotSpot JVM
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        long tid = Thread.currentThread().getId();
+
+        BlobPhysics physics = new BlobPhysics(new Random(11));
+        float[] xs = new float[POINTS];
+        float[] ys = new float[POINTS];
+        float[] amplitudes = new float[1000];
+        Random random = new Random(11);
+        for (int i = 0; i < amplitudes.length; i++) amplitudes[i] = random.nextFloat();
+
+        // Warm up so the JIT and class init are out of the way
+        for (int i = 0; i < 20_000; i++) frame(physics, amplitudes[i % amplitudes.length], i, xs, ys);
+
+        long before = threads.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < 20_000; i++) frame(physics, amplitudes[i % amplitudes.length], i, xs, ys);
+        long allocated = threads.getThreadAllocatedBytes(tid) - before;
+
+        // A single stray object per frame would already be > 300 KB here
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    private static void frame(BlobPhysics physics, float amplitude, long time, float[] xs, float[] ys) {
+        physics.updateAmplitude(amplitude);
+        physics.step();
+        physics.computeOutline(time * 16, 540, 540, 240, xs, ys);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.sleepagentapp;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * AgentService's cache + LLM step against a local stub endpoint standing in for
+ * launcher.call_agent_packed: counts how many requests actually reach the "network".
+ */
+public class CachedAgentTest {
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    // Source field of the packed decision the stub answers with
+    private volatile String source = AgentDecision.SOURCE_LLM;
+
+    @Before
+    public void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/agent", exchange -> {
+            requests.incrementAndGet();
+            readAll(exchange.getRequestBody());
+            // What launcher.pack_decision returns (value is None)
+            String packed = String.join(String.valueOf(AgentDecision.FIELD_SEPARATOR), "PLAY_WHITE_NOISE", "LOW",
+                    AgentDecision.NULL_FIELD, "Street noise is up.", "0.8", "Mask it early.", source);
+            byte[] body = packed.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopStub() {
+        server.stop(0);
+    }
+
+    // POSTs the packed risks + question, reads the packed decision back
+    private String[] callStub(double[] packedRisks, String query, AgentService.StreamListener listener) throws IOException {
+        URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/agent");
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        try {
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+            try (OutputStream out = conn.getOutputStream()) {
+                out.write((Arrays.toString(packedRisks) + "\n" + query).getBytes(StandardCharsets.UTF_8));
+            }
+            try (InputStream in = conn.getInputStream()) {
+                return AgentDecision.splitPacked(new String(readAll(in), StandardCharsets.UTF_8));
+            }
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[256];
+        int n;
+        while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+        return out.toByteArray();
+    }
+
+    private CachedAgent newAgent(DecisionCache cache) {
+        return new CachedAgent(cache, this::callStub);
+    }
+
+    @Test
+    public void repeatQuestion_reachesTheNetworkOnce() throws Exception {
+        DecisionCache cache = new DecisionCache(8, 60_000, () -> 0);
+        CachedAgent agent = newAgent(cache);
+
+        AgentDecision first = agent.ask(new RiskBundle().set(120, 1.0, 0.3, 1.2, "Should I play white noise?"), null);
+        AgentDecision second = agent.ask(new RiskBundle().set(120, 1.0, 0.3, 1.2, "should I play white noise"), null);
+
+        assertEquals("PLAY_WHITE_NOISE", first.action);
+        assertNull(first.value);
+        assertEquals(0.8f, first.confidence, 0f);
+        assertSame(first, second);
+        assertEquals(1, requests.get());
+        assertEquals(1, agent.getLlmCalls());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void otherRisksOrQuestion_goBackToTheNetwork() throws Exception {
+        CachedAgent agent = newAgent(new DecisionCache(8, 60_000, () -> 0));
+
+        agent.ask(new RiskBundle().set(120, 1.0, 0.3, 1.2, "q"), null);
+        agent.ask(new RiskBundle().set(400, 1.0, 0.3, 1.2, "q"), null);
+        agent.ask(new RiskBundle().set(120, 1.0, 0.3, 1.2, "another question"), null);
+
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void splitPacked_readsEveryFieldOrNothing() {
+        String sep = String.valueOf(AgentDecision.FIELD_SEPARATOR);
+        String[] fields = AgentDecision.splitPacked(String.join(sep, "NONE", "", AgentDecision.NULL_FIELD, "a b", "1.0", "", "LLM"));
+        assertArrayEquals(new String[] {"NONE", "", null, "a b", "1.0", "", "LLM"}, fields);
+        assertNull(AgentDecision.splitPacked(String.join(sep, "NONE", "LOW")));
+        assertNull(AgentDecision.splitPacked(null));
+    }
+
+    @Test
+    public void fallbackAnswer_isNotCached() throws Exception {
+        DecisionCache cache = new DecisionCache(8, 60_000, () -> 0);
+        CachedAgent agent = newAgent(cache);
+        RiskBundle risks = new RiskBundle().set(120, 1.0, 0.3, 1.2, "q");
+
+        source = "RULE_FALLBACK";
+        assertEquals("RULE_FALLBACK", agent.ask(risks, null).source);
+        source = AgentDecision.SOURCE_LLM;
+        assertEquals(AgentDecision.SOURCE_LLM, agent.ask(risks, null).source);
+        agent.ask(risks, null);
+
+        assertEquals(2, requests.get());
+        assertEquals(1, cache.size());
+    }
+}
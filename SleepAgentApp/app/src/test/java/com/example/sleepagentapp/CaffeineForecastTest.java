@@ -0,0 +1,120 @@
+package com.example.sleepagentapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Forecast + solver, and parity with utils/risk_calculator.calculate_caffeine_remaining.
+ * Python values were produced with CAFFEINE_HALF_LIFE_HOURS set to 5.0 and 5.7.
+ */
+public class CaffeineForecastTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long NOW = 1_790_000_000_000L;
+
+    // hours before NOW, mg
+    private static final double[][] LOG = {{0.5, 95}, {3.25, 150}, {7.0, 200}, {11.9, 80}, {13.0, 300}};
+
+    // hours after NOW -> Python result
+    private static final double[] OFFSETS = {0, 1, 2.5, 6};
+    private static final double[] PYTHON_5_0 = {275.4, 226.4, 183.9, 80.2};
+    private static final double[] PYTHON_5_7 = {294.6, 244.2, 203.5, 91.8};
+
+    private static CaffeineTracker pythonModel(double halfLifeHours) {
+        CaffeineTracker tracker = new CaffeineTracker(halfLifeHours, 0f, CaffeineMath.RISK_CALCULATOR_HORIZON_HOURS);
+        for (double[] intake : LOG) {
+            tracker.addIntake((float) intake[1], NOW - (long) (intake[0] * HOUR));
+        }
+        return tracker;
+    }
+
+    @Test
+    public void matchesPython_riskCalculatorHalfLife() {
+        CaffeineTracker tracker = CaffeineTracker.forRiskCalculator();
+        for (double[] intake : LOG) tracker.addIntake((float) intake[1], NOW - (long) (intake[0] * HOUR));
+
+        for (int i = 0; i < OFFSETS.length; i++) {
+            float active = tracker.getActiveCaffeine(NOW + (long) (OFFSETS[i] * HOUR));
+            assertEquals(PYTHON_5_0[i], Math.round(active * 10) / 10.0, 0.051);
+        }
+    }
+
+    @Test
+    public void matchesPython_javaHalfLife() {
+        CaffeineTracker tracker = pythonModel(CaffeineMath.HALF_LIFE_HOURS);
+        for (int i = 0; i < OFFSETS.length; i++) {
+            float active = tracker.getActiveCaffeine(NOW + (long) (OFFSETS[i] * HOUR));
+            assertEquals(PYTHON_5_7[i], Math.round(active * 10) / 10.0, 0.051);
+        }
+    }
+
+    @Test
+    public void forecast_matchesPointQueries() {
+        for (double halfLife : new double[] {5.0, 5.7}) {
+            float[] series = pythonModel(halfLife).forecast(NOW, HOUR / 4, new float[48]);
+
+            for (int i = 0; i < series.length; i++) {
+                // Fresh tracker per point so reads stay in order
+                float expected = pythonModel(halfLife).getActiveCaffeine(NOW + i * HOUR / 4);
+                assertEquals("h=" + halfLife + " step " + i, expected, series[i], 0.01f);
+            }
+        }
+    }
+
+    @Test
+    public void forecast_skipsIntakesAlreadyExpiredBehindABiggerOne() {
+        // 10 mg is gone after ~19 h, but sits behind 400 mg that lasts ~49 h
+        CaffeineTracker tracker = new CaffeineTracker();
+        tracker.addIntake(400, NOW);
+        tracker.addIntake(10, NOW + HOUR);
+
+        long from = NOW + 30 * HOUR;
+        float[] series = tracker.forecast(from, HOUR, new float[24]);
+        for (int i = 0; i < series.length; i++) {
+            CaffeineTracker fresh = new CaffeineTracker();
+            fresh.addIntake(400, NOW);
+            fresh.addIntake(10, NOW + HOUR);
+            assertEquals("step " + i, fresh.getActiveCaffeine(from + i * HOUR), series[i], 0.01f);
+        }
+    }
+
+    @Test
+    public void forecast_reusesBuffer() {
+        float[] buffer = new float[8];
+        assertSame(buffer, pythonModel(5.0).forecast(NOW, HOUR, buffer));
+    }
+
+    @Test
+    public void timeWhenBelow_plainExponentialIsClosedForm() {
+        CaffeineTracker tracker = new CaffeineTracker();
+        tracker.addIntake(400, NOW);
+
+        // 400 -> 50 mg is three half-lives
+        long expected = NOW + (long) (3 * 5.7 * HOUR);
+        assertEquals(expected, tracker.timeWhenBelow(50, NOW), 1000);
+    }
+
+    @Test
+    public void timeWhenBelow_accountsForExpiringIntakes() {
+        for (double halfLife : new double[] {5.0, 5.7}) {
+            long crossing = pythonModel(halfLife).timeWhenBelow(100, NOW);
+
+            assertTrue(pythonModel(halfLife).getActiveCaffeine(crossing) <= 100f);
+            assertTrue(pythonModel(halfLife).getActiveCaffeine(crossing - 2000) > 100f);
+        }
+    }
+
+    @Test
+    public void timeWhenBelow_alreadySafe_returnsNow() {
+        CaffeineTracker tracker = new CaffeineTracker();
+        tracker.addIntake(30, NOW);
+        assertEquals(NOW, tracker.timeWhenBelow(50, NOW));
+    }
+
+    @Test
+    public void hoursUntilBelow_closedForm() {
+        assertEquals(5.0, CaffeineMath.hoursUntilBelow(200, 100, 5.0), 1e-9);
+        assertEquals(0.0, CaffeineMath.hoursUntilBelow(40, 50, 5.7), 0);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.sleepagentapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CaffeineLogTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final long T0 = 1_790_000_000_000L;
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private File logFile() {
+        return new File(tmp.getRoot(), "caffeine.log");
+    }
+
+    private static List<Long> timestamps(CaffeineLog log, long from, long to) throws IOException {
+        List<Long> out = new ArrayList<>();
+        log.forEachInRange(from, to, (timestamp, mg) -> out.add(timestamp));
+        return out;
+    }
+
+    @Test
+    public void appendedRecords_surviveReopen() throws IOException {
+        try (CaffeineLog log = CaffeineLog.open(logFile())) {
+            log.append(95f, T0);
+            log.append(150f, T0 + HOUR);
+        }
+        assertEquals(2 * CaffeineLog.RECORD_BYTES, logFile().length());
+
+        try (CaffeineLog log = CaffeineLog.open(logFile())) {
+            assertEquals(2, log.size());
+            assertEquals(T0 + HOUR, log.lastTimestamp()); // what the next append has to be at or after
+            float[] sum = {0};
+            log.forEachInRange(Long.MIN_VALUE, Long.MAX_VALUE, (timestamp, mg) -> sum[0] += mg);
+            assertEquals(245f, sum[0], 0f);
+        }
+    }
+
+    @Test
+    public void tornTail_isDroppedOnOpen() throws IOException {
+        try (CaffeineLog log = CaffeineLog.open(logFile())) {
+            log.append(95f, T0);
+        }
+        // Simulate a crash half way through the next append
+        try (RandomAccessFile raf = new RandomAccessFile(logFile(), "rw")) {
+            raf.seek(raf.length());
+            raf.write(new byte[] {1, 2, 3, 4, 5});
+        }
+
+        try (CaffeineLog log = CaffeineLog.open(logFile())) {
+            assertEquals(1, log.size());
+            log.append(60f, T0 + HOUR);
+            assertEquals(2, log.size());
+            assertEquals(2, timestamps(log, T0, T0 + 2 * HOUR).size());
+        }
+    }
+
+    @Test
+    public void rangeQuery_isHalfOpen() throws IOException {
+        try (CaffeineLog log = CaffeineLog.open(logFile())) {
+            for (int i = 0; i < 10; i++) log.append(50f, T0 + i * HOUR);
+
+            List<Long> hits = timestamps(log, T0 + 3 * HOUR, T0 + 6 * HOUR);
+            assertEquals(3, hits.size());
+            assertEquals(Long.valueOf(T0 + 3 * HOUR), hits.get(0));
+            assertEquals(Long.valueOf(T0 + 5 * HOUR), hits.get(2));
+
+            assertEquals(0, timestamps(log, T0 + 20 * HOUR, T0 + 30 * HOUR).size());
+        }
+    }
+
+    @Test
+    public void compact_dropsOnlyOldRecords() throws IOException {
+        try (CaffeineLog log = CaffeineLog.open(logFile())) {
+            for (int i = 0; i < 10; i++) log.append(50f, T0 + i * HOUR);
+
+            assertEquals(4, log.compact(T0 + 4 * HOUR));
+            assertEquals(6, log.size());
+            assertEquals(T0 + 4 * HOUR, log.firstTimestamp());
+
+            // Still appendable after the swap
+            log.append(50f, T0 + 10 * HOUR);
+            assertEquals(7, log.size());
+        }
+        assertFalse(new File(logFile().getPath() + ".tmp").exists());
+        try (CaffeineLog log = CaffeineLog.open(logFile())) {
+            assertEquals(7, log.size());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void backwardsTimestamp_isRejected() throws IOException {
+        try (CaffeineLog log = CaffeineLog.open(logFile())) {
+            log.append(50f, T0 + HOUR);
+            log.append(50f, T0);
+        }
+    }
+}
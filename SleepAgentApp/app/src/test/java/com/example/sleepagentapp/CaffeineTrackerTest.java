@@ -0,0 +1,141 @@
+package com.example.sleepagentapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CaffeineTrackerTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Test
+    public void singleIntake_halvesEveryHalfLife() {
+        CaffeineTracker tracker = new CaffeineTracker();
+        tracker.addIntake(200, T0);
+
+        assertEquals(200f, tracker.getActiveCaffeine(T0), 1e-3f);
+        assertEquals(100f, tracker.getActiveCaffeine(T0 + (long) (5.7 * HOUR)), 1e-3f);
+        assertEquals(50f, tracker.getActiveCaffeine(T0 + (long) (11.4 * HOUR)), 1e-3f);
+    }
+
+    @Test
+    public void matchesFullScan() {
+        Random random = new Random(42);
+        CaffeineTracker tracker = new CaffeineTracker();
+        List<CaffeineEntry> history = new ArrayList<>();
+
+        long t = T0;
+        long lastQuery = T0;
+        for (int i = 0; i < 500; i++) {
+            t += (long) (random.nextDouble() * 4 * HOUR);
+            CaffeineEntry entry = new CaffeineEntry(95f, t);
+            history.add(entry);
+            tracker.addIntake(entry.mg, entry.timestamp);
+
+            // Reads move forward in time, like the real clock
+            long query = Math.max(lastQuery, t + (long) (random.nextDouble() * 3 * HOUR));
+            lastQuery = query;
+            float expected = CaffeineMath.calculateActiveCaffeine(history, query);
+            assertEquals("intake " + i, expected, tracker.getActiveCaffeine(query), 0.01f);
+        }
+    }
+
+    @Test
+    public void mixedDoses_matchFullScan() {
+        // Small doses expire long before the big ones logged ahead of them
+        Random random = new Random(7);
+        CaffeineTracker tracker = new CaffeineTracker();
+        List<CaffeineEntry> history = new ArrayList<>();
+        float[] doses = {400f, 10f, 250f, 5f, 95f, 30f};
+
+        long t = T0;
+        long lastQuery = T0;
+        for (int i = 0; i < 500; i++) {
+            t += (long) (random.nextDouble() * 6 * HOUR);
+            CaffeineEntry entry = new CaffeineEntry(doses[random.nextInt(doses.length)], t);
+            history.add(entry);
+            tracker.addIntake(entry.mg, entry.timestamp);
+
+            long query = Math.max(lastQuery, t + (long) (random.nextDouble() * 30 * HOUR));
+            lastQuery = query;
+            assertEquals("intake " + i, CaffeineMath.calculateActiveCaffeine(history, query), tracker.getActiveCaffeine(query), 0.01f);
+        }
+    }
+
+    @Test
+    public void expiredSmallDose_behindLargeOne_stopsCounting() {
+        CaffeineTracker tracker = new CaffeineTracker();
+        List<CaffeineEntry> history = new ArrayList<>();
+        history.add(new CaffeineEntry(400f, T0));
+        history.add(new CaffeineEntry(10f, T0 + HOUR));
+        for (CaffeineEntry e : history) tracker.addIntake(e.mg, e.timestamp);
+
+        long query = T0 + 30 * HOUR;
+        assertEquals(CaffeineMath.calculateActiveCaffeine(history, query), tracker.getActiveCaffeine(query), 0.01f);
+        assertEquals(1, tracker.size());
+    }
+
+    @Test
+    public void doses_expiringBeforeEarlierOnes_dropOutOneByOne() {
+        // Everything after the 1000 mg expires before it, in shuffled order
+        CaffeineTracker tracker = new CaffeineTracker();
+        List<CaffeineEntry> history = new ArrayList<>();
+        float[] doses = {1000f, 200f, 5f, 80f, 20f, 40f, 300f, 10f};
+        for (int i = 0; i < doses.length; i++) {
+            history.add(new CaffeineEntry(doses[i], T0 + i * HOUR));
+            tracker.addIntake(doses[i], T0 + i * HOUR);
+        }
+
+        for (long query = T0 + 8 * HOUR; query < T0 + 70 * HOUR; query += HOUR) {
+            assertEquals(CaffeineMath.calculateActiveCaffeine(history, query), tracker.getActiveCaffeine(query), 0.01f);
+            int live = 0;
+            for (CaffeineEntry e : history) {
+                double left = e.mg * Math.pow(0.5, (query - e.timestamp) / (CaffeineMath.HALF_LIFE_HOURS * HOUR));
+                if (left > CaffeineTracker.MIN_ACTIVE_MG) live++;
+            }
+            assertEquals("at +" + (query - T0) / HOUR + " h", live, tracker.size());
+        }
+    }
+
+    @Test
+    public void fullyDecayedIntakes_areCompacted() {
+        CaffeineTracker tracker = new CaffeineTracker();
+        for (int i = 0; i < 100; i++) {
+            tracker.addIntake(80, T0 + i * HOUR);
+        }
+        assertEquals(100, tracker.size());
+
+        // 80 mg is below 1 mg after ~6.3 half-lives (~36 h)
+        float active = tracker.getActiveCaffeine(T0 + 99 * HOUR);
+        assertTrue(tracker.size() < 40);
+        assertTrue(active > 0);
+
+        assertEquals(0f, tracker.getActiveCaffeine(T0 + 200 * HOUR), 0f);
+        assertEquals(0, tracker.size());
+    }
+
+    @Test
+    public void backDatedIntake_isCounted() {
+        CaffeineTracker tracker = new CaffeineTracker();
+        List<CaffeineEntry> history = new ArrayList<>();
+
+        history.add(new CaffeineEntry(120f, T0 + 4 * HOUR));
+        history.add(new CaffeineEntry(60f, T0));
+        for (CaffeineEntry e : history) tracker.addIntake(e.mg, e.timestamp);
+
+        long query = T0 + 6 * HOUR;
+        assertEquals(CaffeineMath.calculateActiveCaffeine(history, query), tracker.getActiveCaffeine(query), 0.01f);
+    }
+
+    @Test
+    public void customHalfLife_isUsed() {
+        CaffeineTracker tracker = new CaffeineTracker(5.0);
+        tracker.addIntake(100, T0);
+        assertEquals(50f, tracker.getActiveCaffeine(T0 + 5 * HOUR), 1e-3f);
+    }
+}
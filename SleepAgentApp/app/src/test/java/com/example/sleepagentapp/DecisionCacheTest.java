@@ -0,0 +1,108 @@
+package com.example.sleepagentapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * The cache on its own: what it hands back, and how often a caller would still have to
+ * go to the network (a miss).
+ */
+public class DecisionCacheTest {
+
+    private long now = 0;
+
+    private static AgentDecision decision(String action) {
+        return new AgentDecision(action, "LOW", null, "", 1f, "test", AgentDecision.SOURCE_LLM);
+    }
+
+    private DecisionCache newCache(int maxEntries, long ttlMs) {
+        return new DecisionCache(maxEntries, ttlMs, () -> now);
+    }
+
+    @Test
+    public void storedDecision_isReturnedForTheSameQuestion() {
+        DecisionCache cache = newCache(8, 60_000);
+        RiskBundle risks = new RiskBundle().set(120, 1.0, 0.3, 1.2, "Should I play white noise?");
+        AgentDecision answer = decision("PLAY_WHITE_NOISE");
+
+        assertNull(cache.get(risks));
+        cache.put(risks, answer);
+        assertSame(answer, cache.get(risks));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void nearbyRisksAndQueryVariants_shareAnEntry() {
+        DecisionCache cache = newCache(8, 60_000);
+        AgentDecision answer = decision("PLAY_WHITE_NOISE");
+        cache.put(new RiskBundle().set(101, 1.1, 0.31, 1.26, "Should I play white noise?"), answer);
+
+        assertSame(answer, cache.get(new RiskBundle().set(109, 1.4, 0.39, 1.49, "  should i play   WHITE noise ??")));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void differentBucket_missesCache() {
+        DecisionCache cache = newCache(8, 60_000);
+        cache.put(new RiskBundle().set(100, 1.0, 0.3, 1.2, "q"), decision("NONE"));
+
+        assertNull(cache.get(new RiskBundle().set(400, 1.0, 0.3, 1.2, "q")));
+        assertNull(cache.get(new RiskBundle().set(100, 1.0, 0.3, 1.2, "another question")));
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void expiredEntry_isAMiss() {
+        DecisionCache cache = newCache(8, 1_000);
+        RiskBundle risks = new RiskBundle().set(100, 1.0, 0.3, 1.2, "q");
+        cache.put(risks, decision("NONE"));
+
+        now += 1_000;
+        assertNotNull(cache.get(risks));
+        now += 1;
+        assertNull(cache.get(risks));
+        assertEquals(1, cache.getExpirations());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void purgeExpired_dropsOnlyStaleEntries() {
+        DecisionCache cache = newCache(8, 1_000);
+        cache.put(new RiskBundle().set(0, 0, 0, 0, "old"), decision("NONE"));
+        now += 600;
+        cache.put(new RiskBundle().set(0, 0, 0, 0, "new"), decision("NONE"));
+        now += 600;
+
+        cache.purgeExpired();
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getExpirations());
+        assertNotNull(cache.get(new RiskBundle().set(0, 0, 0, 0, "new")));
+    }
+
+    @Test
+    public void leastRecentlyUsed_isEvictedFirst() {
+        DecisionCache cache = newCache(2, 60_000);
+        RiskBundle a = new RiskBundle().set(0, 0, 0, 0, "a");
+        RiskBundle b = new RiskBundle().set(0, 0, 0, 0, "b");
+        RiskBundle c = new RiskBundle().set(0, 0, 0, 0, "c");
+
+        cache.put(a, decision("A"));
+        cache.put(b, decision("B"));
+        assertNotNull(cache.get(a)); // a is now most recent
+        cache.put(c, decision("C")); // evicts b
+
+        assertEquals(1, cache.getEvictions());
+        assertNotNull(cache.get(a));
+        assertNull(cache.get(b));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void normalizeQuery_collapsesCaseSpacingAndTrailingPunctuation() {
+        assertEquals("why can't i sleep", DecisionCache.normalizeQuery("  Why can't I   SLEEP?? "));
+        assertEquals("", DecisionCache.normalizeQuery(null));
+    }
+}
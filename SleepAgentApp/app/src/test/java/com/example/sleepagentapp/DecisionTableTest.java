@@ -0,0 +1,97 @@
+package com.example.sleepagentapp;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ * Parity with decision_table.py / llm_wrapper.rule_fallback (DecisionTableBenchmark has the cost).
+ * Expected values were produced by running the Python side on the same inputs.
+ */
+public class DecisionTableTest {
+
+    // Raw caffeine, debt, noise(0-1), light(0-1) -> rule_fallback(calculate_risks(...))["action"]
+    private static final Object[][] PYTHON_FALLBACK = {
+            {0.0, 0.0, 0.0, 0.0, "NONE"},
+            {350.0, 2.0, 0.1, 0.5, "NONE"},
+            {350.01, 2.0, 0.1, 0.5, "ADJUST_ALARM"},
+            {349.99, 2.01, 0.0, 0.0, "DIGITAL_WIND_DOWN"},
+            {1000.0, 0.0, 0.0, 0.5, "ADJUST_ALARM"},
+            {1000.0, 0.0, 0.0, 0.51, "DIGITAL_WIND_DOWN"},
+            {0.0, 2.0000001, 0.0, 0.0, "NONE"}, // rounded to 2.0 first
+            {200.0, 1.0, 1.0, 0.25, "NONE"},
+            {500.0, 3.0, 0.5, 0.75, "DIGITAL_WIND_DOWN"},
+            {351.0, 0.0, 1.0, 0.4, "ADJUST_ALARM"},
+    };
+
+    // "and" binds tighter than "or", first rule wins, comments and number operands
+    private static final String GRAMMAR_RULES = "threshold hi 10\n"
+            + "rule A when remaining_caffeine_mg > hi and sleep_debt_hours >= 1 or noise_disruption_risk < 0.2 and melatonin_suppression_risk <= 2\n"
+            + "rule B when sleep_debt_hours > 5   # comment\n"
+            + "default C\n";
+
+    private static final Object[][] PYTHON_GRAMMAR = {
+            {11.0, 1.0, 0.5, 0.0, "A"},
+            {11.0, 0.5, 0.5, 0.0, "C"},
+            {0.0, 0.0, 0.1, 2.0, "A"},
+            {0.0, 0.0, 0.1, 2.5, "C"},
+            {0.0, 6.0, 0.5, 0.0, "B"},
+            {11.0, 6.0, 0.1, 3.0, "A"},
+            {10.0, 1.0, 0.2, 2.0, "C"},
+    };
+
+    @Test
+    public void appRules_matchPythonFallback() {
+        RiskBundle bundle = new RiskBundle();
+        for (Object[] c : PYTHON_FALLBACK) {
+            bundle.set((double) c[0], (double) c[1], (double) c[2], (double) c[3], "");
+            RiskEngine.calculateRisks(bundle, bundle);
+            assertEquals(c[4], DecisionTable.get().action(DecisionTable.get().evaluate(bundle)));
+            assertEquals(c[4], RiskEngine.ruleFallback(bundle).action);
+        }
+    }
+
+    @Test
+    public void appRules_thresholdsTheAppReads() {
+        DecisionTable table = DecisionTable.get();
+        assertEquals(350, table.threshold(DecisionTable.CAFFEINE_HIGH_MG), 0);
+        assertEquals(50, table.threshold(DecisionTable.CAFFEINE_SAFE_BEDTIME_MG), 0);
+        assertEquals(60, table.threshold(DecisionTable.SCREEN_THRESHOLD_MINUTES), 0);
+        // Every action the rules can produce has a fallback decision (checked when RiskEngine resolves them)
+        assertEquals("NONE", RiskEngine.ruleFallback(new RiskBundle()).action);
+    }
+
+    @Test
+    public void grammar_matchesPythonCompiler() throws IOException {
+        DecisionTable table = DecisionTable.compile(new StringReader(GRAMMAR_RULES));
+        for (Object[] c : PYTHON_GRAMMAR) {
+            int action = table.evaluate((double) c[0], (double) c[1], (double) c[2], (double) c[3]);
+            assertEquals(c[4], table.action(action));
+        }
+        assertEquals(table.actionIndex("B"), table.evaluate(0, 6, 0.5, 0));
+    }
+
+    @Test
+    public void badRules_failWithTheLine() throws IOException {
+        String[] bad = {
+                "rule A when sleep_debt_hours > 1\n",                         // no default
+                "default A\nrule B when bogus_input > 1\n",                  // unknown input
+                "default A\nrule B when sleep_debt_hours ~ 1\n",             // unknown op
+                "default A\nrule B when sleep_debt_hours > unknown_name\n",  // neither threshold nor number
+                "default A\nrule B when sleep_debt_hours > 1 xor sleep_debt_hours < 0\n",
+                "default A\nthreshold x 1\nthreshold x 2\n",
+                "default A\ndefault B\n",
+        };
+        for (String rules : bad) {
+            try {
+                DecisionTable.compile(new StringReader(rules));
+                fail("compiled: " + rules);
+            } catch (IllegalArgumentException expected) {
+                assertTrue(expected.getMessage(), expected.getMessage().contains("decision rules"));
+            }
+        }
+    }
+}
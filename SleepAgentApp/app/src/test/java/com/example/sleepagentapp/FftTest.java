@@ -0,0 +1,155 @@
+package com.example.sleepagentapp;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FftTest {
+
+    private static final int RATE = 44100;
+    private static final int SIZE = 2048;
+
+    private static short[] tones(int samples, double[] hz, double[] amplitude) {
+        short[] out = new short[samples];
+        for (int i = 0; i < samples; i++) {
+            double v = 0;
+            for (int t = 0; t < hz.length; t++) v += amplitude[t] * Math.sin(2 * Math.PI * hz[t] * i / RATE);
+            out[i] = (short) Math.round(v * 32767);
+        }
+        return out;
+    }
+
+    private static short[] tone(double hz, double amplitude) {
+        return tones(SIZE * 8, new double[] {hz}, new double[] {amplitude});
+    }
+
+    // Runs a whole buffer through frame by frame and closes one interval
+    private static SpectrumClassifier.NoiseType classify(SpectrumClassifier classifier, short[] pcm) {
+        Fft fft = new Fft(SIZE);
+        float[] power = new float[fft.getBinCount()];
+        for (int offset = 0; offset + SIZE <= pcm.length; offset += SIZE) {
+            fft.powerSpectrum(pcm, offset, power);
+            classifier.accumulate(power);
+        }
+        return classifier.closeInterval();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPowerOfTwo_isRejected() {
+        new Fft(1000);
+    }
+
+    @Test
+    public void transform_matchesNaiveDft() {
+        int n = 64;
+        Random random = new Random(1);
+        float[] re = new float[n];
+        float[] im = new float[n];
+        for (int i = 0; i < n; i++) re[i] = random.nextFloat() - 0.5f;
+        float[] input = re.clone();
+
+        new Fft(n).transform(re, im);
+
+        for (int k = 0; k < n; k++) {
+            double sumRe = 0, sumIm = 0;
+            for (int t = 0; t < n; t++) {
+                double angle = -2 * Math.PI * k * t / n;
+                sumRe += input[t] * Math.cos(angle);
+                sumIm += input[t] * Math.sin(angle);
+            }
+            assertEquals(sumRe, re[k], 1e-4);
+            assertEquals(sumIm, im[k], 1e-4);
+        }
+    }
+
+    @Test
+    public void tonePeak_landsInItsBin() {
+        Fft fft = new Fft(SIZE);
+        float[] power = new float[fft.getBinCount()];
+        // Exactly on bin 93 (~2003 Hz)
+        double hz = 93.0 * RATE / SIZE;
+        fft.powerSpectrum(tone(hz, 0.5), 0, power);
+
+        int peak = 0;
+        for (int k = 1; k < power.length; k++) if (power[k] > power[peak]) peak = k;
+        assertEquals(93, peak);
+    }
+
+    @Test
+    public void spectrum_sumsToMeanSquare() {
+        // Parseval: band levels agree with NoiseMeter for the same signal
+        short[] pcm = tone(1000, 0.5);
+        Fft fft = new Fft(SIZE);
+        float[] power = new float[fft.getBinCount()];
+        fft.powerSpectrum(pcm, 0, power);
+
+        double sum = 0;
+        for (float p : power) sum += p;
+
+        NoiseMeter meter = new NoiseMeter(RATE, false);
+        meter.process(pcm, 0, SIZE);
+        assertEquals(meter.getBlockRmsDbfs(), NoiseMeter.toDbfs(sum), 0.2f);
+    }
+
+    @Test
+    public void octaveBands_catchTheirTone() {
+        SpectrumClassifier classifier = new SpectrumClassifier(RATE, SIZE, 1);
+        classify(classifier, tone(500, 0.5));
+
+        // 500 Hz band holds the tone at about -9 dBFS, neighbours are far below
+        assertEquals(-9.0f, classifier.getBandDbfs(3), 0.5f);
+        assertTrue(classifier.getBandDbfs(1) < -40f);
+        assertTrue(classifier.getBandDbfs(5) < -40f);
+    }
+
+    @Test
+    public void classifier_picksMaskingSoundByBand() {
+        assertEquals(SpectrumClassifier.NoiseType.RUMBLE,
+                classify(new SpectrumClassifier(RATE, SIZE, 1), tone(70, 0.3)));
+        assertEquals(SpectrumClassifier.NoiseType.SNORE,
+                classify(new SpectrumClassifier(RATE, SIZE, 1),
+                        tones(SIZE * 8, new double[] {220, 440, 660}, new double[] {0.3, 0.2, 0.1})));
+        assertEquals(SpectrumClassifier.NoiseType.SPEECH,
+                classify(new SpectrumClassifier(RATE, SIZE, 1),
+                        tones(SIZE * 8, new double[] {900, 1400, 2200}, new double[] {0.2, 0.2, 0.1})));
+        assertEquals("Waterfall", SpectrumClassifier.NoiseType.RUMBLE.maskingSound);
+    }
+
+    @Test
+    public void whiteNoise_isBroadband_andSilence_isQuiet() {
+        Random random = new Random(7);
+        short[] noise = new short[SIZE * 8];
+        for (int i = 0; i < noise.length; i++) noise[i] = (short) (random.nextGaussian() * 3000);
+        assertEquals(SpectrumClassifier.NoiseType.BROADBAND, classify(new SpectrumClassifier(RATE, SIZE, 1), noise));
+
+        SpectrumClassifier quiet = new SpectrumClassifier(RATE, SIZE, 1);
+        assertEquals(SpectrumClassifier.NoiseType.QUIET, classify(quiet, new short[SIZE * 2]));
+        assertEquals(SpectrumClassifier.MIN_GAIN, quiet.getSuggestedGain(), 0f);
+    }
+
+    @Test
+    public void decision_needsStableIntervals() {
+        SpectrumClassifier classifier = new SpectrumClassifier(RATE, SIZE, 3);
+        short[] rumble = tone(70, 0.3);
+
+        assertEquals(SpectrumClassifier.NoiseType.QUIET, classify(classifier, rumble));
+        assertEquals(SpectrumClassifier.NoiseType.QUIET, classify(classifier, rumble));
+        assertEquals(SpectrumClassifier.NoiseType.RUMBLE, classify(classifier, rumble));
+
+        // One odd interval doesn't flip it
+        assertEquals(SpectrumClassifier.NoiseType.RUMBLE, classify(classifier, tone(1000, 0.3)));
+        assertEquals(SpectrumClassifier.NoiseType.RUMBLE, classify(classifier, rumble));
+    }
+
+    @Test
+    public void louderNoise_asksForMoreGain() {
+        SpectrumClassifier soft = new SpectrumClassifier(RATE, SIZE, 1);
+        SpectrumClassifier loud = new SpectrumClassifier(RATE, SIZE, 1);
+        classify(soft, tone(500, 0.003));
+        classify(loud, tone(500, 0.05));
+        assertTrue(loud.getSuggestedGain() > soft.getSuggestedGain());
+        assertTrue(loud.getSuggestedGain() <= 1f);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.sleepagentapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.*;
+
+public class FloatRingBufferTest {
+
+    // Offer-to-drain delay. A loaded single-core box shows ~25 ms p99 unpaced; samples stuck in the ring blow past these
+    private static final long MAX_P99_LATENCY_US = 250_000;
+    private static final long MAX_LATENCY_US = 2_000_000;
+
+    @Test
+    public void fifo_wrapsAndDropsWhenFull() {
+        FloatRingBuffer ring = new FloatRingBuffer(6);
+        assertEquals(8, ring.capacity());
+        float[] out = new float[3];
+
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 8; i++) assertTrue(ring.offer(round * 10 + i));
+            assertFalse(ring.offer(-1f));
+
+            // Drain in partial chunks, across the wrap point from round 1 on
+            int seen = 0;
+            int n;
+            while ((n = ring.drain(out)) > 0) {
+                for (int i = 0; i < n; i++) assertEquals(round * 10 + seen + i, out[i], 0f);
+                seen += n;
+            }
+            assertEquals(8, seen);
+            assertTrue(ring.isEmpty());
+        }
+        assertEquals(5, ring.getDropped());
+        assertEquals(45, ring.getOffered());
+        assertEquals(40, ring.getDrained());
+    }
+
+    /**
+     * Producer at full speed against a consumer draining in small bursts: every sample must
+     * arrive exactly once and in order, or be counted as dropped. Sequence numbers are sent as
+     * floats (exact up to 2^24) and stamped on both sides for the latency.
+     */
+    @Test
+    public void stress_unpacedProducer_losesNothingUnaccounted() throws InterruptedException {
+        int count = 2_000_000;
+        FloatRingBuffer ring = new FloatRingBuffer(64);
+        // Written before offer() publishes the sample, so the consumer sees the stamp
+        long[] sentAt = new long[count];
+        long[] latencies = new long[count];
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < count; i++) {
+                sentAt[i] = System.nanoTime();
+                ring.offer(i);
+            }
+        }, "producer");
+
+        int received = 0;
+        int last = -1;
+        float[] out = new float[16];
+        producer.start();
+        while (producer.isAlive() || !ring.isEmpty()) {
+            int n = ring.drain(out);
+            long now = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                int seq = (int) out[i];
+                assertTrue("out of order: " + seq + " after " + last, seq > last);
+                last = seq;
+                latencies[received + i] = now - sentAt[seq];
+            }
+            received += n;
+        }
+        producer.join();
+
+        assertEquals(count, received + ring.getDropped());
+        assertEquals(count, ring.getOffered());
+        assertLatency(latencies, received);
+    }
+
+    /**
+     * The real shape: a producer at ~1 kHz (far above the mic's ~20 Hz) and a consumer that
+     * only drains once a frame's worth has piled up, in one burst like a vsync callback. The
+     * consumer waits on the fill level rather than a clock, and the ring holds the whole run,
+     * so a slow scheduler can delay it but never make it drop. Latency is about one frame.
+     */
+    @Test
+    public void stress_burstConsumer_dropsNothing() throws InterruptedException {
+        int count = 400;
+        int frame = 16; // samples per drain at 1 kHz and 60 Hz
+        FloatRingBuffer ring = new FloatRingBuffer(count);
+        long[] sentAt = new long[count];
+        long[] latencies = new long[count];
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < count; i++) {
+                sentAt[i] = System.nanoTime();
+                ring.offer(i);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }, "producer");
+
+        int received = 0;
+        int bursts = 0;
+        float[] out = new float[64];
+        producer.start();
+        while (producer.isAlive() || !ring.isEmpty()) {
+            // offered counts a sample just before it is published; drain() simply finds it next time
+            while (producer.isAlive() && ring.getOffered() - ring.getDropped() - ring.getDrained() < frame) {
+                Thread.yield();
+            }
+            int n;
+            while ((n = ring.drain(out)) > 0) {
+                long now = System.nanoTime();
+                for (int i = 0; i < n; i++) {
+                    assertEquals(received, (int) out[i]);
+                    latencies[received] = now - sentAt[received];
+                    received++;
+                }
+            }
+            bursts++;
+        }
+        producer.join();
+
+        assertEquals(0, ring.getDropped());
+        assertEquals(count, received);
+        assertTrue(bursts + " bursts", bursts <= count / (frame / 2)); // drained in bursts, not per sample
+        assertLatency(latencies, received);
+    }
+
+    private static void assertLatency(long[] latencies, int n) {
+        long[] sorted = Arrays.copyOf(latencies, n);
+        Arrays.sort(sorted);
+        long p99 = sorted[(int) (n * 0.99)] / 1000;
+        long max = sorted[n - 1] / 1000;
+        String stats = "latency p50 " + sorted[n / 2] / 1000 + " us, p99 " + p99 + " us, max " + max + " us";
+        assertTrue(stats, p99 <= MAX_P99_LATENCY_US);
+        assertTrue(stats, max <= MAX_LATENCY_US);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.sleepagentapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GainControllerTest {
+
+    private static final long TICK_MS = 100;
+
+    private final List<Float> applied = new ArrayList<>();
+    private final GainController.Sink sink = applied::add;
+
+    // Ticks until settled, returns the elapsed ms
+    private static long settle(GainController controller, long startMs) {
+        long now = startMs;
+        while (controller.isSettling()) {
+            now += TICK_MS;
+            controller.tick(now, TICK_MS);
+            assertTrue("never settled", now - startMs < 10 * 60 * 1000);
+        }
+        return now - startMs;
+    }
+
+    @Test
+    public void steadyTarget_sendsNothingAfterFirstApply() {
+        GainController controller = new GainController(sink, 0.5f);
+        for (int i = 1; i <= 100; i++) controller.tick(i * TICK_MS, TICK_MS);
+
+        assertEquals(1, controller.getApplyCalls());
+        assertEquals(99, controller.getSkippedApplies());
+        assertFalse(controller.isSettling());
+    }
+
+    @Test
+    public void smallTargetChanges_areIgnored() {
+        GainController controller = new GainController(sink, 0.5f);
+        controller.tick(0, TICK_MS);
+
+        assertFalse(controller.setTarget(0.53f));
+        assertFalse(controller.setTarget(0.47f));
+        assertEquals(2, controller.getIgnoredTargets());
+        assertFalse(controller.isSettling());
+        assertTrue(controller.setTarget(0.6f));
+    }
+
+    @Test
+    public void ramp_isMonotonicAndLandsOnTarget() {
+        GainController controller = new GainController(sink, 0.3f);
+        controller.tick(0, TICK_MS);
+        controller.setTarget(1f);
+        settle(controller, 0);
+
+        float[] trace = controller.getGainTrace();
+        assertEquals(1f, trace[trace.length - 1], 0f);
+        for (int i = 1; i < trace.length; i++) {
+            assertTrue("not monotonic at " + i, trace[i] > trace[i - 1]);
+            // No audible jumps: each IPC moves the gain by a bounded step
+            assertTrue("jump at " + i, trace[i] - trace[i - 1] < 0.1f);
+        }
+        assertEquals(applied.size(), controller.getApplyCalls());
+    }
+
+    @Test
+    public void attack_isFasterThanRelease() {
+        GainController up = new GainController(sink, 0.3f);
+        up.tick(0, TICK_MS);
+        up.setTarget(1f);
+        long attackMs = settle(up, 0);
+
+        GainController down = new GainController(sink, 1f);
+        down.tick(0, TICK_MS);
+        down.setTarget(0.3f);
+        long releaseMs = settle(down, 0);
+
+        assertTrue(attackMs * 5 < releaseMs);
+    }
+
+    @Test
+    public void ipcCount_isFarBelowTickCount() {
+        GainController controller = new GainController(sink, 0.2f);
+        controller.tick(0, TICK_MS);
+        controller.setTarget(0.9f);
+        long elapsed = settle(controller, 0);
+        controller.setTarget(0.4f);
+        elapsed += settle(controller, elapsed);
+
+        long ticks = elapsed / TICK_MS;
+        // 0.7 + 0.5 of travel at >= 0.01 per apply is at most ~120 calls, vs one per tick before
+        assertTrue(controller.getApplyCalls() <= 125);
+        assertTrue(controller.getApplyCalls() * 2 < ticks);
+    }
+
+    @Test
+    public void reapply_alwaysReachesSink() {
+        GainController controller = new GainController(sink, 0.7f);
+        controller.tick(0, TICK_MS);
+        controller.reapply(TICK_MS);
+
+        assertEquals(2, applied.size());
+        assertEquals(0.7f, applied.get(1), 0f);
+        assertEquals(TICK_MS, controller.getTraceTimes()[1]);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.sleepagentapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NoiseGeneratorTest {
+
+    private static final int RATE = 44100;
+    private static final int FFT_SIZE = 4096;
+    private static final int FRAMES = 64;
+
+    private static float[] render(NoiseGenerator.Color color, int samples) {
+        float[] out = new float[samples];
+        new NoiseGenerator(color, 42).render(out, 0, samples);
+        return out;
+    }
+
+    private static double rms(float[] samples, int from) {
+        double sum = 0;
+        for (int i = from; i < samples.length; i++) sum += samples[i] * samples[i];
+        return Math.sqrt(sum / (samples.length - from));
+    }
+
+    // Average power (dB) of the octave bands centred on lowHz and highHz
+    private static double octaveSlopeDb(NoiseGenerator.Color color, double lowHz, double highHz) {
+        float[] audio = render(color, FFT_SIZE * FRAMES);
+        short[] pcm = new short[audio.length];
+        for (int i = 0; i < audio.length; i++) pcm[i] = (short) (audio[i] * 32767);
+
+        Fft fft = new Fft(FFT_SIZE);
+        float[] power = new float[fft.getBinCount()];
+        double[] sum = new double[power.length];
+        for (int f = 0; f < FRAMES; f++) {
+            fft.powerSpectrum(pcm, f * FFT_SIZE, power);
+            for (int k = 0; k < power.length; k++) sum[k] += power[k];
+        }
+
+        double low = bandDensity(sum, lowHz);
+        double high = bandDensity(sum, highHz);
+        double octaves = Math.log(highHz / lowHz) / Math.log(2);
+        return 10 * Math.log10(high / low) / octaves;
+    }
+
+    // Power per bin within one octave around centreHz
+    private static double bandDensity(double[] power, double centreHz) {
+        double binHz = (double) RATE / FFT_SIZE;
+        int lo = (int) Math.ceil(centreHz / Math.sqrt(2) / binHz);
+        int hi = (int) Math.floor(centreHz * Math.sqrt(2) / binHz);
+        double sum = 0;
+        for (int k = lo; k <= hi; k++) sum += power[k];
+        return sum / (hi - lo + 1);
+    }
+
+    @Test
+    public void everyColour_hasTheSameLoudness() {
+        for (NoiseGenerator.Color color : NoiseGenerator.Color.values()) {
+            float[] out = render(color, RATE * 10);
+            assertEquals(color.name(), NoiseGenerator.TARGET_RMS, rms(out, RATE), 0.04);
+            for (float s : out) assertTrue(color.name() + " clipped", Math.abs(s) < 1f);
+        }
+    }
+
+    @Test
+    public void spectralSlopes_matchColour() {
+        // Per-bin density: white flat, pink -3 dB/octave, brown -6 dB/octave
+        assertEquals(0.0, octaveSlopeDb(NoiseGenerator.Color.WHITE, 250, 4000), 0.5);
+        assertEquals(-3.0, octaveSlopeDb(NoiseGenerator.Color.PINK, 250, 4000), 0.6);
+        assertEquals(-6.0, octaveSlopeDb(NoiseGenerator.Color.BROWN, 500, 4000), 0.8);
+    }
+
+    @Test
+    public void sameSeed_sameNoise() {
+        assertArrayEquals(render(NoiseGenerator.Color.PINK, 1000), render(NoiseGenerator.Color.PINK, 1000), 0f);
+    }
+}
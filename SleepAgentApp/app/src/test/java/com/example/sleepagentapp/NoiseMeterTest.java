@@ -0,0 +1,100 @@
+package com.example.sleepagentapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NoiseMeterTest {
+
+    private static final int RATE = 44100;
+
+    private static short[] sine(double hz, double amplitude, int samples) {
+        short[] out = new short[samples];
+        for (int i = 0; i < samples; i++) {
+            out[i] = (short) Math.round(amplitude * 32767 * Math.sin(2 * Math.PI * hz * i / RATE));
+        }
+        return out;
+    }
+
+    // Steady-state A-weighted level of a tone relative to its unweighted level
+    private static float weightingAt(double hz) {
+        NoiseMeter meter = new NoiseMeter(RATE, true);
+        short[] tone = sine(hz, 0.5, RATE);
+        meter.process(tone, 0, RATE / 2); // let the filters settle
+        meter.takeInterval();
+        meter.process(tone, RATE / 2, RATE / 2);
+        meter.takeInterval();
+        return meter.getWeightedLeqDbfs() - meter.getLeqDbfs();
+    }
+
+    @Test
+    public void fullScaleSine_isMinus3Dbfs() {
+        NoiseMeter meter = new NoiseMeter(RATE, false);
+        short[] tone = sine(1000, 1.0, RATE);
+        meter.process(tone, 0, tone.length);
+        meter.takeInterval();
+
+        assertEquals(-3.01f, meter.getLeqDbfs(), 0.05f);
+        assertEquals(-3.01f, meter.getBlockRmsDbfs(), 0.05f);
+        assertEquals(0f, meter.getPeakDbfs(), 0.01f);
+    }
+
+    @Test
+    public void halvingAmplitude_dropsSixDb() {
+        NoiseMeter loud = new NoiseMeter(RATE, false);
+        NoiseMeter quiet = new NoiseMeter(RATE, false);
+        loud.process(sine(440, 0.5, RATE), 0, RATE);
+        quiet.process(sine(440, 0.25, RATE), 0, RATE);
+        loud.takeInterval();
+        quiet.takeInterval();
+
+        assertEquals(6.02f, loud.getLeqDbfs() - quiet.getLeqDbfs(), 0.05f);
+    }
+
+    @Test
+    public void leq_isEnergyAverageNotLevelAverage() {
+        NoiseMeter meter = new NoiseMeter(RATE, false);
+        short[] loud = sine(1000, 0.5, RATE / 2);
+        short[] silence = new short[RATE / 2];
+
+        meter.process(loud, 0, loud.length);
+        meter.process(silence, 0, silence.length);
+        meter.takeInterval();
+
+        // Half the time at L, half silent -> L - 3 dB (an average of dB values would be far lower)
+        float loudLevel = NoiseMeter.toDbfs(0.5 * 0.5 * 32767 * 32767 / 2 / 1.0);
+        assertEquals(loudLevel - 3.01f, meter.getLeqDbfs(), 0.05f);
+        assertEquals(NoiseMeter.FLOOR_DBFS, meter.getBlockRmsDbfs(), 0f);
+    }
+
+    @Test
+    public void silence_readsAsFloor() {
+        NoiseMeter meter = new NoiseMeter(RATE, true);
+        meter.process(new short[1024], 0, 1024);
+        meter.takeInterval();
+        assertEquals(NoiseMeter.FLOOR_DBFS, meter.getLeqDbfs(), 0f);
+        assertEquals(NoiseMeter.FLOOR_DBFS, meter.getWeightedLeqDbfs(), 0f);
+        assertEquals(NoiseMeter.FLOOR_DBFS, meter.getPeakDbfs(), 0f);
+    }
+
+    @Test
+    public void aWeighting_matchesIecTable() {
+        // IEC 61672-1 nominal values
+        assertEquals(0f, weightingAt(1000), 0.1f);
+        assertEquals(-19.1f, weightingAt(100), 0.3f);
+        assertEquals(-8.6f, weightingAt(250), 0.3f);
+        assertEquals(1.0f, weightingAt(4000), 0.3f);
+        assertEquals(-1.1f, weightingAt(8000), 1.0f);
+    }
+
+    @Test
+    public void emptyInterval_keepsLastReading() {
+        NoiseMeter meter = new NoiseMeter(RATE, false);
+        meter.process(sine(1000, 0.5, 4410), 0, 4410);
+        meter.takeInterval();
+        float leq = meter.getLeqDbfs();
+
+        meter.takeInterval();
+        assertEquals(leq, meter.getLeqDbfs(), 0f);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.sleepagentapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NoiseMixerTest {
+
+    private static final int FRAMES = 256;
+
+    // A constant "tone" so levels through the fade are easy to reason about
+    private static NoiseSource constant(float value) {
+        return (out, offset, count) -> {
+            for (int i = offset; i < offset + count; i++) out[i] = value;
+        };
+    }
+
+    @Test
+    public void crossfade_isEqualPowerAndEndsOnNewSource() {
+        NoiseMixer mixer = new NoiseMixer(FRAMES, 4 * FRAMES, 1f);
+        short[] out = new short[FRAMES];
+
+        mixer.setSource(constant(0.5f));
+        for (int i = 0; i < 8; i++) mixer.render(out, FRAMES);
+        assertEquals(16383, out[FRAMES - 1], 1);
+
+        mixer.setSource(constant(-0.5f));
+        mixer.render(out, FRAMES);
+        // Halfway-ish through the first quarter: still mostly the old source, never a hard cut
+        assertTrue(out[0] > 15000);
+        for (int i = 0; i < 3; i++) mixer.render(out, FRAMES);
+        assertEquals(-16383, out[FRAMES - 1], 200);
+
+        mixer.render(out, FRAMES);
+        assertEquals(-16383, out[0], 1);
+        assertEquals(2, mixer.getCrossfades());
+    }
+
+    @Test
+    public void gainChange_isRampedAcrossBuffer() {
+        NoiseMixer mixer = new NoiseMixer(FRAMES, 1, 0f);
+        short[] out = new short[FRAMES];
+        mixer.setSource(constant(1f));
+        mixer.render(out, FRAMES); // fade in from silence is 1 sample long here
+
+        mixer.setGain(1f);
+        mixer.render(out, FRAMES);
+        for (int i = 1; i < FRAMES; i++) {
+            assertTrue(out[i] >= out[i - 1]);
+            assertTrue("zipper step at " + i, out[i] - out[i - 1] < 200);
+        }
+        assertEquals(32767, out[FRAMES - 1], 1);
+    }
+
+    @Test
+    public void fadeToSilence_thenReportsSilent() {
+        NoiseMixer mixer = new NoiseMixer(FRAMES, FRAMES, 1f);
+        short[] out = new short[FRAMES];
+        assertTrue(mixer.isSilent());
+
+        mixer.setSource(new NoiseGenerator(NoiseGenerator.Color.PINK, 1));
+        assertFalse(mixer.isSilent());
+        mixer.render(out, FRAMES);
+
+        mixer.setSource(null);
+        assertFalse(mixer.isSilent());
+        mixer.render(out, FRAMES);
+        assertTrue(mixer.isSilent());
+        mixer.render(out, FRAMES);
+        for (short s : out) assertEquals(0, s);
+    }
+
+    @Test
+    public void fadeOut_rampsLinearlyToSilenceAndIgnoresGain() {
+        NoiseMixer mixer = new NoiseMixer(FRAMES, FRAMES, 1f);
+        short[] out = new short[FRAMES];
+        mixer.setSource(constant(0.5f));
+        for (int i = 0; i < 4; i++) mixer.render(out, FRAMES);
+
+        mixer.fadeOut(4 * FRAMES);
+        mixer.render(out, FRAMES);
+        mixer.render(out, FRAMES);
+        // Halfway through the ramp
+        assertEquals(16383 / 2, out[FRAMES - 1], 2);
+
+        // The gain loop turning the volume up must not undo the fade
+        mixer.setGain(1f);
+        mixer.render(out, FRAMES);
+        mixer.render(out, FRAMES);
+        assertEquals(0, out[FRAMES - 1]);
+        mixer.render(out, FRAMES);
+        for (short sample : out) assertEquals(0, sample);
+
+        mixer.cancelFade();
+        mixer.render(out, FRAMES);
+        assertEquals(16383, out[0], 1);
+    }
+
+    @Test
+    public void pcmLoop_wrapsWithoutGap() {
+        short[] clip = {100, 200, 300};
+        PcmLoop loop = new PcmLoop(clip);
+        float[] out = new float[8];
+        loop.render(out, 0, 8);
+
+        short[] expected = {100, 200, 300, 100, 200, 300, 100, 200};
+        for (int i = 0; i < 8; i++) assertEquals(expected[i] / 32768f, out[i], 0f);
+    }
+
+    @Test
+    public void seamlessClip_endFlowsIntoStart() {
+        // A ramp has a huge jump at the loop point; after the fade it should be gone
+        short[] ramp = new short[3000];
+        for (int i = 0; i < ramp.length; i++) ramp[i] = (short) (i * 10);
+
+        short[] seamless = PcmLoop.makeSeamless(ramp, 500);
+        assertEquals(2500, seamless.length);
+
+        int maxStep = 0;
+        for (int i = 0; i < seamless.length; i++) {
+            int next = seamless[(i + 1) % seamless.length];
+            maxStep = Math.max(maxStep, Math.abs(next - seamless[i]));
+        }
+        assertTrue("loop point step " + maxStep, maxStep < 100);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.sleepagentapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Parity with launcher.calculate_risks + llm_wrapper.rule_fallback.
+ * Expected values were produced by running the Python functions on the same inputs.
+ */
+public class RiskEngineTest {
+
+    private static final double EPS = 1e-9;
+
+    // caffeine, debt, noise(0-1), light(0-1) -> caffeine, debt, noise risk, melatonin risk, fallback action
+    private static final Object[][] PYTHON_CASES = {
+            {0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, "NONE"},
+            {420.456, 1.255, 0.4, 0.7, 420.46, 1.25, 0.3, 2.1, "DIGITAL_WIND_DOWN"},
+            {350.0, 2.0, 0.1, 0.5, 350.0, 2.0, 0.0, 1.5, "NONE"},
+            {350.01, 2.0, 0.142857, 0.5, 350.01, 2.0, 0.0, 1.5, "ADJUST_ALARM"},
+            {120.0, 2.5, 1.0, 1.0, 120.0, 2.5, 1.0, 3.0, "DIGITAL_WIND_DOWN"},
+            {80.0, 0.5, 0.3, 0.45, 80.0, 0.5, 0.18, 1.35, "NONE"},
+            {0.0, 0.0, 0.125, 0.005, 0.0, 0.0, 0.0, 0.01, "NONE"},
+            {999.999, 3.3333, 0.77, 0.333, 1000.0, 3.33, 0.73, 1.0, "DIGITAL_WIND_DOWN"},
+    };
+
+    @Test
+    public void calculateRisks_matchesPython() {
+        for (Object[] c : PYTHON_CASES) {
+            RiskBundle raw = new RiskBundle().set((double) c[0], (double) c[1], (double) c[2], (double) c[3], "q");
+            RiskBundle risks = RiskEngine.calculateRisks(raw, new RiskBundle());
+
+            assertEquals((double) c[4], risks.caffeineMg, EPS);
+            assertEquals((double) c[5], risks.sleepDebtHours, EPS);
+            assertEquals((double) c[6], risks.noiseRisk, EPS);
+            assertEquals((double) c[7], risks.melatoninRisk, EPS);
+            assertEquals("q", risks.userQuery);
+        }
+    }
+
+    @Test
+    public void ruleFallback_matchesPython() {
+        for (Object[] c : PYTHON_CASES) {
+            RiskBundle raw = new RiskBundle().set((double) c[0], (double) c[1], (double) c[2], (double) c[3], "");
+            AgentDecision decision = RiskEngine.ruleFallback(RiskEngine.calculateRisks(raw, raw));
+
+            assertEquals(c[8], decision.action);
+            assertEquals(RiskEngine.SOURCE_RULE_FALLBACK, decision.source);
+        }
+    }
+
+    @Test
+    public void ruleFallback_caffeineDecisionCarriesValue() {
+        AgentDecision decision = RiskEngine.ruleFallback(new RiskBundle().set(400, 0, 0, 0, ""));
+        assertEquals("ADJUST_ALARM", decision.action);
+        assertEquals("HIGH", decision.urgency);
+        assertEquals("30", decision.value);
+        assertEquals(0.9f, decision.confidence, 0f);
+    }
+
+    @Test
+    public void round2_usesPythonRounding() {
+        // 2.675 is stored as 2.67499999... so Python rounds it down
+        assertEquals(2.67, RiskEngine.round2(2.675), EPS);
+        assertEquals(0.12, RiskEngine.round2(0.125), EPS);
+        assertEquals(1.0, RiskEngine.round2(0.999), EPS);
+    }
+}
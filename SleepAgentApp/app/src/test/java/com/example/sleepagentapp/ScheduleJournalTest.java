@@ -0,0 +1,163 @@
+package com.example.sleepagentapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+public class ScheduleJournalTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File journalFile() {
+        return new File(tmp.getRoot(), "schedule.journal");
+    }
+
+    @Test
+    public void committedEdits_surviveReopen() throws IOException {
+        try (ScheduleJournal journal = ScheduleJournal.open(journalFile())) {
+            Schedule schedule = journal.toSchedule();
+            Task wake = schedule.add("Wake", 7 * 60);
+            Task coffee = schedule.add("Last coffee ☕", 14 * 60);
+            Task walk = schedule.add("Walk", 18 * 60);
+            journal.add(wake);
+            journal.add(coffee);
+            journal.add(walk);
+            journal.remove(coffee);
+            journal.setOffsetMinutes(30);
+            journal.commit();
+            // One write for the whole burst
+            assertEquals(1, journal.getCommits());
+            assertEquals(5, journal.getCommittedRecords());
+        }
+
+        try (ScheduleJournal journal = ScheduleJournal.open(journalFile())) {
+            Schedule schedule = journal.toSchedule();
+            assertEquals(2, schedule.size());
+            assertEquals("Wake", schedule.get(0).name);
+            assertEquals(7 * 60 + 30, schedule.minuteAt(0));
+            assertEquals("Walk", schedule.get(1).name);
+            assertEquals(30, schedule.getOffsetMinutes());
+
+            // Ids keep counting from the loaded ones
+            Task next = schedule.add("Read", 22 * 60);
+            assertTrue(next.id > schedule.get(0).id && next.id > schedule.get(1).id);
+        }
+    }
+
+    @Test
+    public void uncommittedEdits_areNotOnDisk() throws IOException {
+        try (ScheduleJournal journal = ScheduleJournal.open(journalFile())) {
+            journal.add(new Task(1, "Wake", 7 * 60));
+            assertTrue(journal.hasPending());
+        }
+        try (ScheduleJournal journal = ScheduleJournal.open(journalFile())) {
+            assertEquals(0, journal.getLiveCount());
+        }
+    }
+
+    @Test
+    public void tornOrCorruptTail_isDroppedOnOpen() throws IOException {
+        try (ScheduleJournal journal = ScheduleJournal.open(journalFile())) {
+            journal.add(new Task(1, "Wake", 7 * 60));
+            journal.commit();
+            journal.add(new Task(2, "Walk", 18 * 60));
+            journal.commit();
+        }
+        long goodLength = journalFile().length();
+
+        // Crash half way through a third batch
+        try (RandomAccessFile raf = new RandomAccessFile(journalFile(), "rw")) {
+            raf.seek(raf.length());
+            raf.write(new byte[] {40, 0, 0, 0, 1, 2, 3});
+        }
+        try (ScheduleJournal journal = ScheduleJournal.open(journalFile())) {
+            assertEquals(2, journal.getLiveCount());
+            assertEquals(7, journal.getDroppedBytes());
+        }
+        assertEquals(goodLength, journalFile().length());
+
+        // Flip a byte inside the second record: its CRC fails, the first one survives
+        try (RandomAccessFile raf = new RandomAccessFile(journalFile(), "rw")) {
+            raf.seek(goodLength - 2);
+            raf.write('X');
+        }
+        try (ScheduleJournal journal = ScheduleJournal.open(journalFile())) {
+            Schedule schedule = journal.toSchedule();
+            assertEquals(1, schedule.size());
+            assertEquals("Wake", schedule.get(0).name);
+        }
+    }
+
+    @Test
+    public void compaction_keepsStateAndShrinksFile() throws IOException {
+        try (ScheduleJournal journal = ScheduleJournal.open(journalFile())) {
+            // Churn: lots of adds and removes, a few keepers
+            for (int i = 0; i < 2000; i++) {
+                Task task = new Task(i + 1, "task " + i, i % Schedule.MINUTES_PER_DAY);
+                journal.add(task);
+                if (i % 100 != 0) journal.remove(task);
+            }
+            journal.setOffsetMinutes(Schedule.MINUTES_PER_DAY - 30);
+            journal.commit();
+            assertTrue(journal.shouldCompact());
+
+            long before = journal.getSizeBytes();
+            journal.compact();
+            assertFalse(journal.shouldCompact());
+            assertTrue(journal.getSizeBytes() < before / 10);
+            assertEquals(journal.getSizeBytes(), journalFile().length());
+
+            // Still appendable after the swap
+            journal.add(new Task(5000, "after", 60));
+            journal.commit();
+        }
+
+        try (ScheduleJournal journal = ScheduleJournal.open(journalFile())) {
+            Schedule schedule = journal.toSchedule();
+            assertEquals(21, schedule.size());
+            assertEquals(Schedule.MINUTES_PER_DAY - 30, schedule.getOffsetMinutes());
+            assertEquals(60, schedule.get(0).minuteOfDay); // "after" sorts first
+        }
+        assertFalse(new File(tmp.getRoot(), "schedule.journal.tmp").exists());
+    }
+
+    @Test
+    public void edits_dontWaitForTheFileLock() throws Exception {
+        try (ScheduleJournal journal = ScheduleJournal.open(journalFile())) {
+            journal.add(new Task(1, "Wake", 7 * 60));
+            // commit() and compact() hold the journal's monitor across write + fsync
+            synchronized (journal) {
+                Thread editor = new Thread(() -> {
+                    journal.add(new Task(2, "Walk", 18 * 60));
+                    journal.setOffsetMinutes(15);
+                    journal.toSchedule();
+                });
+                editor.start();
+                editor.join(5000);
+                assertFalse("edit blocked on the file lock", editor.isAlive());
+            }
+            journal.commit();
+            assertEquals(3, journal.getCommittedRecords());
+            assertFalse(journal.hasPending());
+        }
+        try (ScheduleJournal journal = ScheduleJournal.open(journalFile())) {
+            assertEquals(2, journal.getLiveCount());
+            assertEquals(3, journal.getRecordCount());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void foreignFile_isRejected() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(journalFile(), "rw")) {
+            raf.write("not a journal".getBytes());
+        }
+        ScheduleJournal.open(journalFile());
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.sleepagentapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ScheduleTest {
+
+    @Test
+    public void parseTime_handlesBothClocksAndRollover() {
+        assertEquals(8 * 60, Task.parseTime("08:00 AM"));
+        assertEquals(20 * 60 + 30, Task.parseTime("8:30pm"));
+        assertEquals(21 * 60, Task.parseTime("9 PM"));
+        assertEquals(20 * 60 + 30, Task.parseTime("20:30"));
+        assertEquals(7 * 60 + 15, Task.parseTime(" 7.15 "));
+        assertEquals(0, Task.parseTime("12:00 AM"));
+        assertEquals(12 * 60 + 5, Task.parseTime("12:05 PM"));
+
+        for (int m = 0; m < Schedule.MINUTES_PER_DAY; m++) assertEquals(m, Task.parseTime(Task.formatTime(m)));
+        assertEquals("11:30 PM", Task.formatTime(23 * 60 + 30));
+        assertEquals("12:00 AM", Task.formatTime(0));
+    }
+
+    @Test
+    public void parseTime_rejectsGarbage() {
+        for (String bad : new String[]{"", "noon", "25:00", "13:00 PM", "0 am", "8:75", "8:"}) {
+            try {
+                Task.parseTime(bad);
+                fail("parsed \"" + bad + "\"");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void shift_movesShownTimesAndWrapsOrderAtMidnight() {
+        Schedule schedule = new Schedule();
+        Task late = schedule.add("Wind down", 23 * 60 + 45);
+        Task early = schedule.add("Wake", 7 * 60);
+        schedule.add("Lunch", 12 * 60);
+
+        assertSame(early, schedule.get(0));
+        assertSame(late, schedule.get(2));
+
+        schedule.shift(30);
+        assertEquals(23 * 60 + 45, late.minuteOfDay); // tasks themselves don't change
+        // 23:45 + 30m = 00:15, now the first task of the day
+        assertSame(late, schedule.get(0));
+        assertEquals(15, schedule.minuteAt(0));
+        assertEquals(7 * 60 + 30, schedule.minuteOf(early));
+
+        schedule.shift(-30);
+        assertEquals(0, schedule.getOffsetMinutes());
+        assertSame(early, schedule.get(0));
+    }
+
+    @Test
+    public void rangeQueries_matchBruteForce() {
+        Random random = new Random(19);
+        Schedule schedule = new Schedule();
+        List<Task> all = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            all.add(schedule.add("t" + i, random.nextInt(Schedule.MINUTES_PER_DAY)));
+            if (i % 7 == 0) assertTrue(schedule.remove(all.remove(random.nextInt(all.size()))));
+        }
+
+        for (int q = 0; q < 500; q++) {
+            if (q % 50 == 0) schedule.shift(random.nextInt(3 * Schedule.MINUTES_PER_DAY) - Schedule.MINUTES_PER_DAY);
+            int from = random.nextInt(Schedule.MINUTES_PER_DAY);
+            int to = random.nextInt(Schedule.MINUTES_PER_DAY);
+            int length = Math.floorMod(to - from, Schedule.MINUTES_PER_DAY);
+
+            int expected = 0;
+            for (Task t : all) {
+                if (Math.floorMod(schedule.minuteOf(t) - from, Schedule.MINUTES_PER_DAY) < length) expected++;
+            }
+
+            int[] last = {-1};
+            int visited = schedule.forEachBetween(from, to, (task, minute) -> {
+                // In time order from `from`
+                int sinceFrom = Math.floorMod(minute - from, Schedule.MINUTES_PER_DAY);
+                assertTrue(sinceFrom < length && sinceFrom >= last[0]);
+                last[0] = sinceFrom;
+            });
+            assertEquals(expected, visited);
+            assertEquals(expected, schedule.countBetween(from, to));
+        }
+
+        // Positions walk the whole day in shown order
+        for (int p = 1; p < schedule.size(); p++) assertTrue(schedule.minuteAt(p - 1) <= schedule.minuteAt(p));
+        assertEquals(all.size(), schedule.size());
+    }
+
+    @Test
+    public void remove_onlyTakesThatTask() {
+        Schedule schedule = new Schedule();
+        Task a = schedule.add("a", 9 * 60);
+        Task b = schedule.add("b", 9 * 60);
+        assertTrue(schedule.remove(a));
+        assertFalse(schedule.remove(a));
+        assertEquals(1, schedule.size());
+        assertSame(b, schedule.get(0));
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.sleepagentapp;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SeriesPyramidTest {
+
+    private static final long T0 = 1_790_000_000_000L;
+    private static final long SECOND = 1000;
+    private static final long HOUR = 3600 * SECOND;
+    private static final long DAY = 24 * HOUR;
+
+    // Same answer the slow way, over the raw samples of whole leaves
+    private static void assertMatchesBruteForce(SeriesPyramid pyramid, long[] ts, float[] vs, int n, long from, long to) {
+        long leaf = pyramid.getLeafMs();
+        long fromLeaf = Math.floorDiv(from, leaf) * leaf;
+        float min = Float.POSITIVE_INFINITY, max = Float.NEGATIVE_INFINITY;
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            long bucket = Math.floorDiv(ts[i], leaf) * leaf;
+            if (bucket < fromLeaf || bucket >= to) continue;
+            min = Math.min(min, vs[i]);
+            max = Math.max(max, vs[i]);
+            sum += vs[i];
+            count++;
+        }
+
+        SeriesPyramid.Aggregate agg = pyramid.query(from, to, new SeriesPyramid.Aggregate());
+        assertEquals("count in [" + from + ", " + to + ")", count, agg.count);
+        if (count > 0) {
+            assertEquals(min, agg.min, 0f);
+            assertEquals(max, agg.max, 0f);
+            assertEquals(sum / count, agg.mean, 1e-3);
+        }
+    }
+
+    @Test
+    public void randomRanges_matchBruteForce_whileGrowing() {
+        Random random = new Random(7);
+        int n = 5000;
+        long[] ts = new long[n];
+        float[] vs = new float[n];
+        SeriesPyramid pyramid = new SeriesPyramid(10 * SECOND);
+
+        long t = T0;
+        for (int i = 0; i < n; i++) {
+            // Mostly 1 s apart, sometimes a night-sized gap
+            t += random.nextInt(50) == 0 ? random.nextInt(16) * HOUR : SECOND;
+            ts[i] = t;
+            vs[i] = 30 + random.nextFloat() * 50;
+            pyramid.append(ts[i], vs[i]);
+
+            // Queries must be right at every size, not just once the tree is complete
+            if (i % 97 == 0) {
+                long a = ts[random.nextInt(i + 1)], b = ts[random.nextInt(i + 1)];
+                assertMatchesBruteForce(pyramid, ts, vs, i + 1, Math.min(a, b), Math.max(a, b) + 1);
+            }
+        }
+
+        for (int q = 0; q < 300; q++) {
+            long a = T0 + (long) (random.nextDouble() * (t - T0 + HOUR)) - HOUR / 2;
+            long b = a + (long) (random.nextDouble() * 2 * DAY);
+            assertMatchesBruteForce(pyramid, ts, vs, n, a, b);
+        }
+        assertMatchesBruteForce(pyramid, ts, vs, n, Long.MIN_VALUE / 2, Long.MAX_VALUE / 2);
+    }
+
+    @Test
+    public void monthOfNights_isSparseAndQueriesAreLogarithmic() {
+        SeriesPyramid pyramid = new SeriesPyramid(15 * SECOND);
+        long base = T0 - T0 % (15 * SECOND); // nights start on a leaf boundary
+        for (int night = 0; night < 30; night++) {
+            long start = base + night * DAY;
+            for (long s = 0; s < 8 * 3600; s++) pyramid.append(start + s * SECOND, 40f + (s % 60));
+        }
+
+        // 8 h / 15 s leaves per night, nothing for the 16 h in between
+        assertEquals(30 * 8 * 3600 / 15, pyramid.getLeafCount());
+
+        // One chart frame: 1000 columns over the whole month
+        SeriesPyramid.Aggregate agg = new SeriesPyramid.Aggregate();
+        long span = 30 * DAY;
+        long before = pyramid.getNodesVisited();
+        for (int x = 0; x < 1000; x++) {
+            pyramid.query(base + span * x / 1000, base + span * (x + 1) / 1000, agg);
+        }
+        long perQuery = (pyramid.getNodesVisited() - before) / 1000;
+        // 2 * (FANOUT - 1) per level, ~8 levels; a linear scan would be ~60 leaves per column
+        assertTrue("nodes per query " + perQuery, perQuery <= 2 * (SeriesPyramid.FANOUT - 1) * pyramid.getLevelCount());
+
+        pyramid.query(base, base + DAY, agg);
+        assertEquals(8 * 3600, agg.count);
+        assertEquals(40f, agg.min, 0f);
+        assertEquals(99f, agg.max, 0f);
+        assertEquals(69.5f, agg.mean, 1e-3);
+    }
+
+    @Test
+    public void emptyRange_hasNoCount() {
+        SeriesPyramid pyramid = new SeriesPyramid(SECOND);
+        SeriesPyramid.Aggregate agg = pyramid.query(T0, T0 + HOUR, new SeriesPyramid.Aggregate());
+        assertEquals(0, agg.count);
+        assertTrue(Float.isNaN(agg.mean));
+
+        pyramid.append(T0, 1f);
+        pyramid.append(T0 + 10 * HOUR, 2f);
+        assertEquals(0, pyramid.query(T0 + HOUR, T0 + 2 * HOUR, agg).count);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void outOfOrderAppend_isRejected() {
+        SeriesPyramid pyramid = new SeriesPyramid(SECOND);
+        pyramid.append(T0 + 10 * SECOND, 1f);
+        pyramid.append(T0, 1f);
+    }
+}
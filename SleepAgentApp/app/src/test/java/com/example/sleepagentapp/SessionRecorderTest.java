@@ -0,0 +1,164 @@
+package com.example.sleepagentapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SessionRecorderTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final long T0 = 1_790_000_000_000L;
+    private static final long SECOND = 1000;
+    private static final long HOUR = 3600 * SECOND;
+
+    private File sessionFile() {
+        return new File(tmp.getRoot(), "night.sgs");
+    }
+
+    // Direct executor: block writes happen inside flush / append, so the file is complete on return
+    private SessionRecorder create() throws IOException {
+        return SessionRecorder.create(sessionFile(), T0, Runnable::run);
+    }
+
+    private static float levelAt(long i) {
+        return 30f + (i % 97) * 0.37f;
+    }
+
+    @Test
+    public void eightHourNight_fitsInTensOfKbAndReadsBack() throws IOException {
+        long rows = 8 * HOUR / SECOND;
+        try (SessionRecorder recorder = create()) {
+            for (long i = 0; i < rows; i++) {
+                recorder.appendLevel(T0 + i * SECOND, levelAt(i), 0.6f);
+                if (i % 1800 == 0) recorder.appendEvent(T0 + i * SECOND, SessionRecorder.EVENT_NOISE_TYPE, (int) (i % 5));
+            }
+        }
+
+        long bytes = sessionFile().length();
+        assertTrue("8 h took " + bytes / 1024 + " KB", bytes < 100 * 1024);
+
+        try (SessionReader reader = SessionReader.open(sessionFile())) {
+            assertEquals(rows, reader.getRowCount());
+            assertEquals(16, reader.getEventCount());
+            assertEquals(T0 + (rows - 1) * SECOND, reader.getEndMillis());
+
+            long[] index = {0};
+            reader.forEachRow((t, db, gain) -> {
+                long i = index[0]++;
+                assertEquals(T0 + i * SECOND, t);
+                assertEquals(levelAt(i), db, SessionRecorder.DB_STEP / 2);
+                assertEquals(0.6f, gain, 1 / 255f);
+            });
+            assertEquals(rows, index[0]);
+        }
+    }
+
+    @Test
+    public void gapsBetweenMicWindows_keepTheirTimestamps() throws IOException {
+        List<Long> written = new ArrayList<>();
+        try (SessionRecorder recorder = create()) {
+            // 20 s windows every minute, with 250 ms jitter on the first row
+            for (int window = 0; window < 30; window++) {
+                long start = T0 + window * 60 * SECOND + (window % 2) * 250;
+                recorder.appendEvent(start, SessionRecorder.EVENT_MIC_ON, 0);
+                for (int s = 0; s < 20; s++) {
+                    long t = start + s * SECOND;
+                    recorder.appendLevel(t, 40f, 0.5f);
+                    written.add(t);
+                }
+                recorder.appendEvent(start + 20 * SECOND, SessionRecorder.EVENT_MIC_OFF, 0);
+            }
+        }
+
+        try (SessionReader reader = SessionReader.open(sessionFile())) {
+            List<Long> read = new ArrayList<>();
+            reader.forEachRow((t, db, gain) -> read.add(t));
+            assertEquals(written, read);
+
+            int[] onOff = new int[2];
+            long[] last = {Long.MIN_VALUE};
+            reader.forEachEvent((t, type, arg) -> {
+                assertTrue(t >= last[0]);
+                last[0] = t;
+                onOff[type == SessionRecorder.EVENT_MIC_ON ? 0 : 1]++;
+            });
+            assertArrayEquals(new int[]{30, 30}, onOff);
+        }
+    }
+
+    @Test
+    public void rangeQuery_visitsOnlyThatSpan() throws IOException {
+        try (SessionRecorder recorder = create()) {
+            for (int i = 0; i < 1000; i++) recorder.appendLevel(T0 + i * SECOND, 50f, 1f);
+        }
+        try (SessionReader reader = SessionReader.open(sessionFile())) {
+            int visited = reader.forEachRow(T0 + 100 * SECOND, T0 + 200 * SECOND, (t, db, gain) -> {
+                assertTrue(t >= T0 + 100 * SECOND && t < T0 + 200 * SECOND);
+            });
+            assertEquals(100, visited);
+        }
+    }
+
+    @Test
+    public void tornLastBlock_isIgnored() throws IOException {
+        try (SessionRecorder recorder = create()) {
+            for (int i = 0; i < SessionRecorder.BLOCK_ROWS + 10; i++) recorder.appendLevel(T0 + i * SECOND, 45f, 0.5f);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(sessionFile(), "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        try (SessionReader reader = SessionReader.open(sessionFile())) {
+            assertEquals(SessionRecorder.BLOCK_ROWS, reader.getRowCount());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void timeGoingBackwards_isRejected() throws IOException {
+        try (SessionRecorder recorder = create()) {
+            recorder.appendLevel(T0 + SECOND, 40f, 0.5f);
+            recorder.appendLevel(T0, 40f, 0.5f);
+        }
+    }
+
+    @Test
+    public void appends_doNotAllocate() throws Exception {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return; // not a HotSpot JVM
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        long tid = Thread.currentThread().getId();
+
+        ExecutorService io = Executors.newSingleThreadExecutor();
+        SessionRecorder recorder = SessionRecorder.create(sessionFile(), T0, io);
+        // Warm up (class loading, JIT)
+        for (int i = 0; i < 2000; i++) recorder.appendLevel(T0 + i * SECOND, levelAt(i), 0.5f);
+
+        long before = threads.getThreadAllocatedBytes(tid);
+        for (int i = 2000; i < 22_000; i++) recorder.appendLevel(T0 + i * SECOND, levelAt(i), 0.5f);
+        long allocated = threads.getThreadAllocatedBytes(tid) - before;
+
+        recorder.close();
+        io.shutdown();
+        assertTrue(io.awaitTermination(5, TimeUnit.SECONDS));
+
+        // The executor's queue node per closed block (~67 here) is all; one object per row would be > 300 KB
+        assertTrue("allocated " + allocated + " bytes", allocated < 16 * 1024);
+        try (SessionReader reader = SessionReader.open(sessionFile())) {
+            assertEquals(22_000, reader.getRowCount());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.sleepagentapp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class UsageAggregatorTest {
+
+    private static final long MIN = 60 * 1000L;
+    private static final long HOUR = 60 * MIN;
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    // 2024-03-04 00:00 UTC
+    private static final long DAY = 1_709_510_400_000L;
+
+    @Test
+    public void intervals_spanBucketsAndWindowsCountProRata() {
+        UsageAggregator usage = new UsageAggregator(DAY);
+        usage.onForeground("a/Main", DAY + 10 * HOUR + 2 * MIN);
+        usage.onBackground("a/Main", DAY + 10 * HOUR + 33 * MIN);
+        usage.advanceTo(DAY + 11 * HOUR);
+
+        assertEquals(31 * MIN, usage.sumMs(DAY, DAY + 11 * HOUR));
+        // Only whole-bucket precision at the edges, but the totals add up
+        assertEquals(31 * MIN, usage.sumMs(DAY, DAY + 10 * HOUR + 20 * MIN) + usage.sumMs(DAY + 10 * HOUR + 20 * MIN, DAY + 11 * HOUR));
+        assertEquals(0, usage.sumMs(DAY + 10 * HOUR + 35 * MIN, DAY + 11 * HOUR));
+    }
+
+    @Test
+    public void handoverAndSplitScreen_countOnce_screenOffCloses() {
+        UsageAggregator usage = new UsageAggregator(DAY);
+        long t = DAY + 20 * HOUR;
+        usage.onForeground("a/Main", t);
+        usage.onForeground("a/Detail", t + 5 * MIN);  // resumed before the other pauses
+        usage.onBackground("a/Main", t + 5 * MIN);
+        usage.onForeground("b/Video", t + 10 * MIN);  // split screen
+        usage.onBackground("a/Detail", t + 20 * MIN);
+        usage.onScreenOff(t + 30 * MIN);              // b never got its pause
+        usage.onBackground("x/Unknown", t + 40 * MIN); // resumed before we started: ignored
+        usage.advanceTo(t + HOUR);
+
+        assertFalse(usage.isForeground());
+        assertEquals(30 * MIN, usage.sumMs(DAY, t + HOUR));
+    }
+
+    @Test
+    public void runningInterval_countsUpToEachRefresh() {
+        UsageAggregator usage = new UsageAggregator(DAY);
+        long t = DAY + 21 * HOUR;
+        usage.onForeground("a/Main", t);
+        usage.advanceTo(t + 7 * MIN);
+        assertEquals(7 * MIN, usage.sumMs(DAY, t + HOUR));
+
+        // The next refresh only sees the pause; the first 7 minutes aren't counted again
+        usage.onBackground("a/Main", t + 12 * MIN);
+        usage.advanceTo(t + 15 * MIN);
+        assertEquals(12 * MIN, usage.sumMs(DAY, t + HOUR));
+        assertEquals(12, usage.totals(UTC).last2hMinutes, 0.01f);
+    }
+
+    @Test
+    public void totals_splitDayEveningAndLastTwoHours() {
+        UsageAggregator usage = new UsageAggregator(DAY - 2 * HOUR);
+        usage.onForeground("a/Main", DAY - HOUR);          // 23:00 yesterday: last evening
+        usage.onBackground("a/Main", DAY + HOUR);          // 01:00: one hour of it today
+        usage.onForeground("a/Main", DAY + 12 * HOUR);     // midday
+        usage.onBackground("a/Main", DAY + 13 * HOUR);
+        usage.onForeground("a/Main", DAY + 18 * HOUR);     // this evening
+        usage.onBackground("a/Main", DAY + 18 * HOUR + 45 * MIN);
+
+        usage.advanceTo(DAY + 17 * HOUR);
+        UsageAggregator.Totals afternoon = usage.totals(UTC);
+        assertEquals(120, afternoon.eveningMinutes, 0.01f); // still last night's
+        assertEquals(120, afternoon.dayMinutes, 0.01f);
+        assertEquals(0, afternoon.last2hMinutes, 0.01f);
+
+        usage.advanceTo(DAY + 19 * HOUR + 30 * MIN);
+        UsageAggregator.Totals evening = usage.totals(UTC);
+        assertEquals(45, evening.eveningMinutes, 0.01f);
+        assertEquals(165, evening.dayMinutes, 0.01f);
+        assertEquals(45, evening.last2hMinutes, 0.01f);
+        assertEquals(7.5f, evening.lightLevel(), 0.01f);
+    }
+
+    @Test
+    public void oldBuckets_fallOutOfTheRing() {
+        UsageAggregator usage = new UsageAggregator(DAY);
+        usage.onForeground("a/Main", DAY + HOUR);
+        usage.onBackground("a/Main", DAY + 2 * HOUR);
+        usage.advanceTo(DAY + 3 * HOUR);
+        assertEquals(HOUR, usage.sumMs(DAY, DAY + 3 * HOUR));
+
+        usage.advanceTo(DAY + HOUR + UsageAggregator.SPAN_MS + HOUR);
+        assertEquals(0, usage.sumMs(DAY, DAY + 3 * HOUR));
+
+        // And a long gap with an app still resumed only counts what's still in the span
+        usage.onForeground("a/Main", DAY + 30 * HOUR);
+        usage.advanceTo(DAY + 100 * HOUR);
+        assertEquals(UsageAggregator.SPAN_MS, usage.sumMs(0, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void checkpoint_roundTripsMidInterval() throws IOException {
+        UsageAggregator usage = new UsageAggregator(DAY);
+        usage.onForeground("a/Main", DAY + 20 * HOUR);
+        usage.onBackground("a/Main", DAY + 20 * HOUR + 10 * MIN);
+        usage.onForeground("b/Video", DAY + 21 * HOUR);
+        usage.advanceTo(DAY + 21 * HOUR + 20 * MIN);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        usage.writeTo(new DataOutputStream(bytes));
+        UsageAggregator restored = UsageAggregator.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(usage.getCheckpoint(), restored.getCheckpoint());
+        assertTrue(restored.isForeground());
+        restored.onBackground("b/Video", DAY + 21 * HOUR + 30 * MIN);
+        restored.advanceTo(DAY + 22 * HOUR);
+        assertEquals(40 * MIN, restored.sumMs(DAY, DAY + 22 * HOUR));
+        assertTrue("checkpoint is " + bytes.size() + " bytes", bytes.size() < 200);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.sleepagentapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WakeAccountingTest {
+
+    private static final long MINUTE = 60_000;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long WINDOW_MS = 20_000; // SleepSessionService.ANALYSIS_WINDOW_MS
+
+    // The service's duty cycle: wake, hold for the window, release, repeat every period
+    private static void simulateNight(WakeAccounting accounting, long windowMs, long periodMs, long lengthMs) {
+        accounting.start(0);
+        for (long t = 0; t + windowMs <= lengthMs; t += periodMs) {
+            accounting.onWakeup(t);
+            accounting.onAcquire(t);
+            accounting.onRelease(t + windowMs);
+        }
+    }
+
+    @Test
+    public void dutyCycledNight_reportsWakeupsAndHeldShare() {
+        WakeAccounting accounting = new WakeAccounting();
+        simulateNight(accounting, WINDOW_MS, MINUTE, 8 * HOUR);
+
+        long end = 8 * HOUR;
+        assertEquals(480, accounting.getWakeups());
+        assertEquals(60.0, accounting.getWakeupsPerHour(end), 1e-9);
+        assertEquals(480 * WINDOW_MS, accounting.getHeldMs(end));
+        assertEquals(1 / 3.0, accounting.getHeldFraction(end), 1e-9);
+    }
+
+    @Test
+    public void openHold_countsUpToNow() {
+        WakeAccounting accounting = new WakeAccounting();
+        accounting.start(1000);
+        accounting.onAcquire(2000);
+
+        assertEquals(500, accounting.getHeldMs(2500));
+        assertEquals(3000, accounting.getHeldMs(5000));
+    }
+
+    @Test
+    public void repeatedAcquireAndRelease_areNotDoubleCounted() {
+        WakeAccounting accounting = new WakeAccounting();
+        accounting.start(0);
+        accounting.onAcquire(0);
+        accounting.onAcquire(500);   // non reference-counted lock: still the same hold
+        accounting.onRelease(1000);
+        accounting.onRelease(4000);  // e.g. stopSession after the window already closed
+
+        assertEquals(1, accounting.getAcquires());
+        assertEquals(1000, accounting.getHeldMs(10_000));
+    }
+
+    @Test
+    public void start_resetsEverything() {
+        WakeAccounting accounting = new WakeAccounting();
+        simulateNight(accounting, 1000, MINUTE, HOUR);
+        accounting.start(5 * HOUR);
+
+        assertEquals(0, accounting.getWakeups());
+        assertEquals(0, accounting.getHeldMs(6 * HOUR));
+        assertEquals(0.0, accounting.getWakeupsPerHour(5 * HOUR), 0);
+    }
+}
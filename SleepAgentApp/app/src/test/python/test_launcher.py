@@ -0,0 +1,52 @@
+"""
+launcher's packed bridge format, as AgentDecision.java / RiskBundle.java read and write it.
+Needs requests (imported via llm_wrapper, same as the app). Run from SleepAgentApp/app:
+
+    python3 -m unittest discover -s src/test/python
+"""
+import struct
+import sys
+import unittest
+from array import array
+from os.path import dirname, join
+
+sys.path.insert(0, join(dirname(__file__), "..", "..", "main", "python"))
+
+import launcher
+
+
+class PackedBridgeTest(unittest.TestCase):
+
+    def test_unpackRisks_readsTheArrayThroughItsBuffer(self):
+        # array('d') exposes the same buffer a Chaquopy double[] does
+        risks = launcher.unpack_risks(array("d", [420.0, 1.5, 0.4, 0.7]), None)
+        self.assertEqual({
+            "remaining_caffeine_mg": 420.0,
+            "sleep_debt_hours": 1.5,
+            "noise_disruption_risk": 0.4,
+            "melatonin_suppression_risk": 0.7,
+            "user_query": "",
+        }, risks)
+
+    def test_packDecision_isOneStringWithNullMarkers(self):
+        packed = launcher.pack_decision({
+            "action": "NONE",
+            "urgency": "LOW",
+            "value": None,
+            "notification_message": "a\x1fb",
+            "confidence": 0.5,
+            "reasoning_summary": "",
+        })
+        self.assertIsInstance(packed, str)
+        fields = packed.split(launcher.FIELD_SEPARATOR)
+        self.assertEqual(["NONE", "LOW", "\x00", "a b", "0.5", "", "\x00"], fields)
+
+    def test_calculateRisksPacked_returnsLittleEndianDoubles(self):
+        packed = launcher.calculate_risks_packed(array("d", [420.0, 1.5, 0.0, 0.0]), "q")
+        self.assertEqual(8 * len(launcher.PACKED_RISK_FIELDS), len(packed))
+        caffeine, debt, noise, melatonin = struct.unpack("<4d", packed)
+        self.assertEqual((420.0, 1.5, 0.0, 0.0), (caffeine, debt, noise, melatonin))
+
+
+if __name__ == "__main__":
+    unittest.main()
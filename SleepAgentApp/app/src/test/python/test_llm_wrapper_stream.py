@@ -0,0 +1,141 @@
+"""
+llm_wrapper.call_sleep_agent_stream against a local SSE stub of streamGenerateContent.
+Needs requests (same as the app). Run from SleepAgentApp/app:
+
+    python3 -m unittest discover -s src/test/python
+"""
+import importlib
+import json
+import os
+import sys
+import threading
+import unittest
+from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
+from os.path import dirname, join
+
+sys.path.insert(0, join(dirname(__file__), "..", "..", "main", "python"))
+
+# Chunks of the model's JSON reply, one SSE frame each (set per test)
+FRAMES = []
+
+
+class StubGemini(BaseHTTPRequestHandler):
+    def do_POST(self):
+        self.rfile.read(int(self.headers.get("Content-Length", 0)))
+        if "streamGenerateContent" not in self.path or "alt=sse" not in self.path:
+            self.send_error(404)
+            return
+        self.send_response(200)
+        self.send_header("Content-Type", "text/event-stream")
+        self.end_headers()
+        self.wfile.write(b": keep-alive\r\n\r\n")
+        for text in FRAMES:
+            chunk = {"candidates": [{"content": {"parts": [{"text": text}]}}]}
+            self.wfile.write(f"data: {json.dumps(chunk)}\r\n\r\n".encode("utf-8"))
+            self.wfile.flush()
+
+    def log_message(self, *args):
+        pass
+
+
+class Listener:
+    def __init__(self):
+        self.partials = []
+
+    def onPartial(self, text):
+        self.partials.append(text)
+
+
+def split(text, size):
+    return [text[i:i + size] for i in range(0, len(text), size)]
+
+
+server = None
+
+
+def setUpModule():
+    global server, llm_wrapper
+    server = ThreadingHTTPServer(("127.0.0.1", 0), StubGemini)
+    threading.Thread(target=server.serve_forever, daemon=True).start()
+    # llm_wrapper builds its URLs at import (reloaded in case another test imported it first)
+    os.environ["GEMINI_BASE_URL"] = f"http://127.0.0.1:{server.server_address[1]}"
+    os.environ["GEMINI_API_KEY"] = "test"
+    import llm_wrapper
+    importlib.reload(llm_wrapper)
+
+
+def tearDownModule():
+    server.shutdown()
+    server.server_close()
+
+
+class StreamTest(unittest.TestCase):
+
+    def stream(self, reply, chunk_size):
+        FRAMES[:] = split(reply, chunk_size)
+        listener = Listener()
+        decision = llm_wrapper.call_sleep_agent_stream({"remaining_caffeine_mg": 120}, listener)
+        return decision, listener.partials
+
+    def test_reasoningArrivesInPieces_thenTheWholeDecision(self):
+        reply = json.dumps({
+            "action": "PLAY_WHITE_NOISE",
+            "urgency": "LOW",
+            "value": None,
+            "notification_message": "Street noise is up.",
+            "confidence": 0.8,
+            "reasoning_summary": "Traffic \"peaks\" after 23:00 — mask it \U0001F634 early.",
+        })
+        # Small chunks split the escapes (\" — and the surrogate pair) across frames
+        decision, partials = self.stream(reply, 7)
+
+        self.assertEqual("LLM", decision["_source"])
+        self.assertEqual("PLAY_WHITE_NOISE", decision["action"])
+        summary = decision["reasoning_summary"]
+        self.assertGreater(len(partials), 3)
+        for earlier, later in zip(partials, partials[1:]):
+            self.assertTrue(later.startswith(earlier), (earlier, later))
+        for partial in partials:
+            self.assertTrue(summary.startswith(partial), partial)
+            partial.encode("utf-8")  # no lone surrogates handed to the UI
+        self.assertEqual(summary, partials[-1])
+
+    def test_loneSurrogate_keepsTheTextBeforeIt(self):
+        # Valid JSON (json.loads takes it), but not valid text
+        reply = '{"action": "NONE", "urgency": "LOW", "value": null, "notification_message": "ok", ' \
+                '"confidence": 1.0, "reasoning_summary": "Calm night \\ud83d then more"}'
+        decision, partials = self.stream(reply, 9)
+
+        self.assertEqual("LLM", decision["_source"])
+        self.assertEqual("NONE", decision["action"])
+        self.assertEqual("Calm night ", partials[-1])
+
+    def test_brokenStream_fallsBackToTheRules(self):
+        decision, _ = self.stream('{"action": "NONE", "reasoning_summary": "cut off', 5)
+        self.assertEqual("RULE_FALLBACK", decision["_source"])
+
+
+class PartialStringFieldTest(unittest.TestCase):
+
+    def test_escapes(self):
+        read = llm_wrapper.partial_string_field
+        self.assertIsNone(read('{"action": "NO', "reasoning_summary"))
+        self.assertEqual("", read('{"reasoning_summary": "', "reasoning_summary"))
+        self.assertEqual('a "b"\n', read('{"reasoning_summary": "a \\"b\\"\\n', "reasoning_summary"))
+        self.assertEqual("a", read('{"reasoning_summary": "a\\', "reasoning_summary"))         # split escape
+        self.assertEqual("a", read('{"reasoning_summary": "a\\u20', "reasoning_summary"))      # split \u
+        self.assertEqual("a—", read('{"reasoning_summary": "a\\u2014', "reasoning_summary"))
+
+    def test_malformedOrHalfCharacters_stopWithoutRaising(self):
+        read = llm_wrapper.partial_string_field
+        self.assertEqual("a", read('{"reasoning_summary": "a\\uzz12 b"}', "reasoning_summary"))
+        self.assertEqual("a", read('{"reasoning_summary": "a\\u+123 b"}', "reasoning_summary"))
+        self.assertEqual("a", read('{"reasoning_summary": "a\\udc00 b"}', "reasoning_summary"))        # low half alone
+        self.assertEqual("a", read('{"reasoning_summary": "a\\ud83d b"}', "reasoning_summary"))        # high half alone
+        self.assertEqual("a", read('{"reasoning_summary": "a\\ud83d\\u0041"}', "reasoning_summary"))   # not a low half
+        self.assertEqual("a", read('{"reasoning_summary": "a\\ud83d\\ude', "reasoning_summary"))       # pair still arriving
+        self.assertEqual("a\U0001F634", read('{"reasoning_summary": "a\\ud83d\\ude34"}', "reasoning_summary"))
+
+
+if __name__ == "__main__":
+    unittest.main()
@@ -0,0 +1,63 @@
+"""
+noise_risk follows the noise thresholds in rules/decision_rules.txt rather than numbers of its own.
+Needs numpy (imported by risk_calculator, same as the app). Run from SleepAgentApp/app:
+
+    python3 -m unittest discover -s src/test/python
+"""
+import sys
+import unittest
+from os.path import dirname, join
+
+sys.path.insert(0, join(dirname(__file__), "..", "..", "main", "python"))
+
+import decision_table
+from utils.risk_calculator import noise_risk
+
+
+def rules_with(**overrides):
+    """The app's rule file with some thresholds changed"""
+    lines = []
+    with open(decision_table.RULES_FILE, encoding="utf-8") as f:
+        for line in f:
+            t = line.split()
+            if len(t) == 3 and t[0] == "threshold" and t[1] in overrides:
+                line = f"threshold {t[1]} {overrides.pop(t[1])}\n"
+            lines.append(line)
+    assert not overrides, f"no such thresholds: {overrides}"
+    return decision_table.compile_rules(lines)
+
+
+class NoiseRiskTest(unittest.TestCase):
+
+    def test_appThresholds(self):
+        self.assertEqual(0.0, noise_risk(44.9))
+        self.assertEqual(0.0, noise_risk(45))
+        self.assertEqual(0.25, noise_risk(55))
+        self.assertEqual(0.5, noise_risk(64.99))
+        self.assertEqual(0.8, noise_risk(65))
+        self.assertEqual(0.9, noise_risk(82.5))
+        self.assertEqual(1.0, noise_risk(100))
+        self.assertEqual(1.0, noise_risk(130))
+
+    def test_curveMovesWithTheThresholds(self):
+        table = rules_with(noise_quiet_db=40, noise_loud_db=70, noise_max_db=90,
+                           noise_risk_below_loud=0.6, noise_risk_at_loud=0.75)
+        self.assertEqual(0.0, noise_risk(40, table))
+        self.assertEqual(0.3, noise_risk(55, table))   # half way from quiet to loud
+        self.assertEqual(0.6, noise_risk(69.999, table))
+        self.assertEqual(0.75, noise_risk(70, table))
+        self.assertEqual(0.88, noise_risk(80, table))  # half way from loud to max (0.875)
+        self.assertEqual(1.0, noise_risk(90, table))
+
+    def test_onlyTheLoudBreakpointMoved(self):
+        table = rules_with(noise_loud_db=75)
+        # Same 0.5 reached just below loud, now over 30 dB instead of 20
+        self.assertEqual(0.25, noise_risk(60, table))
+        self.assertEqual(0.48, noise_risk(74, table))
+        self.assertEqual(0.8, noise_risk(75, table))
+        self.assertEqual(1.0, noise_risk(100, table))
+        self.assertNotEqual(noise_risk(70), noise_risk(70, table))
+
+
+if __name__ == "__main__":
+    unittest.main()